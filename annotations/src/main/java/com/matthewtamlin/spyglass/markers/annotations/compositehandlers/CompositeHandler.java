@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.markers.annotations.compositehandlers;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a method capable of handling several attributes at once. Instead of annotating the method itself with an
+ * unconditional handler annotation, each parameter which receives an attribute is annotated with one (e.g.
+ * {@code DimensionHandler}), and optionally with a default annotation (e.g. {@code DefaultToDimension}). The Spyglass
+ * framework reads every attribute first, and then invokes the method once with all of the values. If an attribute is
+ * not available then the default of its parameter is passed instead, and if the parameter has no default then the
+ * method is not invoked.
+ * <p>
+ * This annotation should only be applied to methods which satisfy all of the following criteria:
+ * <ul>
+ * <li>The method is a non-static member of an Android View subclass.</li>
+ * <li>The method has no other handler annotations, and no default annotations.</li>
+ * <li>Every parameter belonging to the method has either a placeholder annotation or an unconditional handler
+ * annotation.</li>
+ * <li>At least one parameter has an unconditional handler annotation.</li>
+ * <li>Only parameters with unconditional handler annotations have default annotations.</li>
+ * </ul>
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface CompositeHandler {}
\ No newline at end of file
@@ -30,7 +30,8 @@ import java.lang.annotation.Target;
  * <li>The method is a non-static member of an Android View subclass.</li>
  * <li>The method has no other handler annotations.</li>
  * <li>The method has no default annotation.</li>
- * <li>Every parameter belonging to the method has a placeholder annotation.</li></ul>
+ * <li>Every parameter belonging to the method has a placeholder annotation.</li>
+ * <li>No other method in the class handles the same ordinal of the same attribute.</li></ul>
  * <p>
  * Is it valid for a method with this annotation to have no parameters.
  */
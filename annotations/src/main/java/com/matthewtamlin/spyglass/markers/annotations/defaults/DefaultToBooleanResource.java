@@ -16,6 +16,8 @@
 
 package com.matthewtamlin.spyglass.markers.annotations.defaults;
 
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -32,9 +34,12 @@ import java.lang.annotation.Target;
  * <li>The method has at least one boolean parameter.</li>
  * <li>Except for one boolean parameter, every parameter belonging to the method has a placeholder annotation.</li>
  * </ul>
+ * <p>
+ * This annotation can also be applied to a parameter of a method with a {@link CompositeHandler} annotation, in
+ * which case it defines the default for that parameter only.
  */
 @Retention(RetentionPolicy.SOURCE)
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.PARAMETER})
 public @interface DefaultToBooleanResource {
   /**
    * @return the resource ID of the default value, must resolve to a boolean resource
@@ -16,6 +16,7 @@
 
 package com.matthewtamlin.spyglass.markers.annotations.defaults;
 
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
 import com.matthewtamlin.spyglass.markers.units.DimensionUnit;
 
 import java.lang.annotation.ElementType;
@@ -35,15 +36,18 @@ import java.lang.annotation.Target;
  * <li>The method has at least one {@code Number} parameter.</li>
  * <li>Except for one {@code Number} parameter, every parameter belonging to the method has a placeholder annotation.</li>
  * </ul>
+ * <p>
+ * This annotation can also be applied to a parameter of a method with a {@link CompositeHandler} annotation, in
+ * which case it defines the default for that parameter only.
  */
 @Retention(RetentionPolicy.SOURCE)
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.PARAMETER})
 public @interface DefaultToDimension {
   /**
    * @return the numerical value of the default dimension, measured in the units passed to {@code unit()}
    */
   float value();
-
+  
   /**
    * @return the units of the value passed to {@code value()}
    */
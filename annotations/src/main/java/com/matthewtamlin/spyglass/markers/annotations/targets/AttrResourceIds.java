@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.markers.annotations.targets;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that the attribute IDs of the handler annotations in a class are attribute resources (e.g.
+ * {@code R.attr.title}) rather than indices in a styleable resource (e.g. {@code R.styleable.MyView_title}). The
+ * generated companion then contains an array of exactly the handled attributes, and obtains the styled attributes
+ * using that array instead of a styleable resource, so attributes which the class does not handle are never resolved.
+ * The static methods and the builder of the companion do not accept a styleable resource.
+ * <p>
+ * This annotation applies to the handler annotations of the annotated class only, and not to its superclasses or
+ * subclasses.
+ * <p>
+ * Annotation values must be compile-time constants, but the fields of the {@code R} class generated for a library
+ * module are not final. Handlers can therefore only refer to {@code R.attr} fields in application modules. In library
+ * modules this annotation can only be used with framework attributes (e.g. {@code android.R.attr.text}), whose IDs are
+ * constants, so library classes should use styleable indices instead. Attribute IDs with a zero package byte are
+ * rejected, since they are styleable indices rather than attribute resources.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface AttrResourceIds {}
\ No newline at end of file
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.markers.annotations.targets;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the styleable resource which the attribute IDs of the handler annotations in a class are indices of (e.g.
+ * {@code @Styleable("MyView")} for handlers which use {@code R.styleable.MyView_title}). The declaration allows the
+ * companion of a subclass to apply the handlers of the class and of its subclasses using a single typed array, which
+ * is only possible if every class in the hierarchy refers to the same styleable resource. A class which declares a
+ * styleable resource is therefore rejected unless the nearest superclass with handlers (if any) declares the same
+ * styleable resource.
+ * <p>
+ * This annotation must not be combined with {@link AttrResourceIds}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Styleable {
+  /**
+   * @return the name of the styleable resource, as declared in the {@code declare-styleable} element
+   */
+  String value();
+}
\ No newline at end of file
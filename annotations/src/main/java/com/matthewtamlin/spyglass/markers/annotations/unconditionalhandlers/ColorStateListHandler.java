@@ -16,6 +16,8 @@
 
 package com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers;
 
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -31,9 +33,12 @@ import java.lang.annotation.Target;
  * <li>The method has at least one integer array parameter.</li>
  * <li>Except for one integer array parameter, every parameter belonging to the method has a placeholder annotation.</li>
  * </ul>
+ * <p>
+ * This annotation can also be applied to a parameter of a method with a {@link CompositeHandler} annotation, in
+ * which case the value of the attribute is passed to that parameter.
  */
 @Retention(RetentionPolicy.SOURCE)
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.PARAMETER})
 public @interface ColorStateListHandler {
   /**
    * @return the resource ID of the handled attribute
@@ -16,6 +16,8 @@
 
 package com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers;
 
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -31,9 +33,12 @@ import java.lang.annotation.Target;
  * <li>The method has at least one {@code Drawable} parameter.</li>
  * <li>Except for one {@code Drawable} parameter, every parameter belonging to the method has a placeholder annotation.</li>
  * </ul>
+ * <p>
+ * This annotation can also be applied to a parameter of a method with a {@link CompositeHandler} annotation, in
+ * which case the value of the attribute is passed to that parameter.
  */
 @Retention(RetentionPolicy.SOURCE)
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.PARAMETER})
 public @interface DrawableHandler {
   /**
    * @return the resource ID of the handled attribute
@@ -16,6 +16,8 @@
 
 package com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers;
 
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -36,9 +38,12 @@ import java.lang.annotation.Target;
  * <p>
  * Important note: An exception will be thrown at runtime if the value passed to the attribute does not correspond to an
  * ordinal of the enum class.
+ * <p>
+ * This annotation can also be applied to a parameter of a method with a {@link CompositeHandler} annotation, in
+ * which case the value of the attribute is passed to that parameter.
  */
 @Retention(RetentionPolicy.SOURCE)
-@Target(ElementType.METHOD)
+@Target({ElementType.METHOD, ElementType.PARAMETER})
 public @interface EnumConstantHandler {
   /**
    * @return the resource ID of the handled attribute
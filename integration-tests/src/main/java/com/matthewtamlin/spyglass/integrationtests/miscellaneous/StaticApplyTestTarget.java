@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.integrationtests.miscellaneous;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.support.annotation.RequiresApi;
+import android.util.AttributeSet;
+import android.view.View;
+import com.matthewtamlin.spyglass.integrationtests.R;
+import com.matthewtamlin.spyglass.integrationtests.framework.ReceivedValue;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToString;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StaticApplyTestTarget extends View {
+  private final List<ReceivedValue<String>> receivedValues = new ArrayList<>();
+  
+  public StaticApplyTestTarget(final Context context) {
+    super(context);
+    init(null, 0, 0);
+  }
+  
+  public StaticApplyTestTarget(final Context context, final AttributeSet attrs) {
+    super(context, attrs);
+    init(attrs, 0, 0);
+  }
+  
+  public StaticApplyTestTarget(final Context context, final AttributeSet attrs, final int defStyleAttr) {
+    super(context, attrs, defStyleAttr);
+    init(attrs, defStyleAttr, 0);
+  }
+  
+  @TargetApi(21)
+  @RequiresApi(21)
+  public StaticApplyTestTarget(
+      final Context context,
+      final AttributeSet attrs,
+      final int defStyleAttr,
+      final int defStyleRes) {
+    
+    super(context, attrs, defStyleAttr, defStyleRes);
+    init(attrs, defStyleAttr, defStyleRes);
+  }
+  
+  @StringHandler(attributeId = R.styleable.StaticApplyTestTarget_staticApplyAttr)
+  @DefaultToString("test")
+  public void handlerMethodWithAnnotation(final String arg0) {
+    receivedValues.add(ReceivedValue.of(arg0));
+  }
+  
+  public List<ReceivedValue<String>> getReceivedValues() {
+    return receivedValues;
+  }
+  
+  private void init(final AttributeSet attrs, final int defStyleAttr, final int defStyleRes) {
+    StaticApplyTestTarget_SpyglassCompanion.apply(
+        this,
+        getContext(),
+        R.styleable.StaticApplyTestTarget,
+        attrs,
+        defStyleAttr,
+        defStyleRes);
+  }
+}
\ No newline at end of file
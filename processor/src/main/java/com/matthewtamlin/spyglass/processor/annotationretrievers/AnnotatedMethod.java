@@ -0,0 +1,271 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.annotationretrievers;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry;
+import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry.Group;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * The Spyglass annotations of a method and its parameters. The annotations are found in a single pass over the
+ * annotation mirrors, and each mirror is classified by looking up the name of its type in the annotation registry.
+ * Validators and generators should read from this model instead of querying the element again.
+ */
+@AutoValue
+public abstract class AnnotatedMethod {
+  public abstract ExecutableElement getElement();
+  
+  public abstract ImmutableList<AnnotationMirror> getUnconditionalHandlerAnnotations();
+  
+  public abstract ImmutableList<AnnotationMirror> getConditionalHandlerAnnotations();
+  
+  public abstract ImmutableList<AnnotationMirror> getCompositeHandlerAnnotations();
+  
+  public abstract ImmutableList<AnnotationMirror> getDefaultAnnotations();
+  
+  /**
+   * The placeholder annotations of each parameter, in parameter order.
+   */
+  public abstract ImmutableList<ImmutableList<AnnotationMirror>> getPlaceholderAnnotations();
+  
+  /**
+   * The unconditional handler annotations of each parameter, in parameter order. Only the parameters of composite
+   * handler methods should have handler annotations.
+   */
+  public abstract ImmutableList<ImmutableList<AnnotationMirror>> getParameterHandlerAnnotations();
+  
+  /**
+   * The default annotations of each parameter, in parameter order. Only the parameters of composite handler methods
+   * should have default annotations.
+   */
+  public abstract ImmutableList<ImmutableList<AnnotationMirror>> getParameterDefaultAnnotations();
+  
+  /**
+   * The types of each parameter, in parameter order.
+   */
+  public abstract ImmutableList<TypeMirror> getParameterTypes();
+  
+  /**
+   * The index of the first parameter without a placeholder annotation, or -1 if every parameter has one.
+   */
+  public abstract int getValueParameterIndex();
+  
+  public static AnnotatedMethod create(final ExecutableElement element) {
+    checkNotNull(element, "Argument \'element\' cannot be null.");
+    
+    final ImmutableList.Builder<AnnotationMirror> unconditionalHandlers = ImmutableList.builder();
+    final ImmutableList.Builder<AnnotationMirror> conditionalHandlers = ImmutableList.builder();
+    final ImmutableList.Builder<AnnotationMirror> compositeHandlers = ImmutableList.builder();
+    final ImmutableList.Builder<AnnotationMirror> defaults = ImmutableList.builder();
+    
+    for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      final Group group = getGroupOf(mirror);
+      
+      if (group == Group.UNCONDITIONAL_HANDLER) {
+        unconditionalHandlers.add(mirror);
+      } else if (group == Group.CONDITIONAL_HANDLER) {
+        conditionalHandlers.add(mirror);
+      } else if (group == Group.COMPOSITE_HANDLER) {
+        compositeHandlers.add(mirror);
+      } else if (group == Group.DEFAULT) {
+        defaults.add(mirror);
+      }
+    }
+    
+    final ImmutableList.Builder<ImmutableList<AnnotationMirror>> placeholders = ImmutableList.builder();
+    final ImmutableList.Builder<ImmutableList<AnnotationMirror>> parameterHandlers = ImmutableList.builder();
+    final ImmutableList.Builder<ImmutableList<AnnotationMirror>> parameterDefaults = ImmutableList.builder();
+    final ImmutableList.Builder<TypeMirror> parameterTypes = ImmutableList.builder();
+    
+    final List<? extends VariableElement> parameters = element.getParameters();
+    int valueParameterIndex = -1;
+    
+    for (int i = 0; i < parameters.size(); i++) {
+      final ImmutableList.Builder<AnnotationMirror> placeholdersOfParameter = ImmutableList.builder();
+      final ImmutableList.Builder<AnnotationMirror> handlersOfParameter = ImmutableList.builder();
+      final ImmutableList.Builder<AnnotationMirror> defaultsOfParameter = ImmutableList.builder();
+      
+      for (final AnnotationMirror mirror : parameters.get(i).getAnnotationMirrors()) {
+        final Group group = getGroupOf(mirror);
+        
+        if (group == Group.PLACEHOLDER) {
+          placeholdersOfParameter.add(mirror);
+        } else if (group == Group.UNCONDITIONAL_HANDLER) {
+          handlersOfParameter.add(mirror);
+        } else if (group == Group.DEFAULT) {
+          defaultsOfParameter.add(mirror);
+        }
+      }
+      
+      final ImmutableList<AnnotationMirror> builtPlaceholders = placeholdersOfParameter.build();
+      
+      if (builtPlaceholders.isEmpty() && valueParameterIndex == -1) {
+        valueParameterIndex = i;
+      }
+      
+      placeholders.add(builtPlaceholders);
+      parameterHandlers.add(handlersOfParameter.build());
+      parameterDefaults.add(defaultsOfParameter.build());
+      parameterTypes.add(parameters.get(i).asType());
+    }
+    
+    return new AutoValue_AnnotatedMethod(
+        element,
+        unconditionalHandlers.build(),
+        conditionalHandlers.build(),
+        compositeHandlers.build(),
+        defaults.build(),
+        placeholders.build(),
+        parameterHandlers.build(),
+        parameterDefaults.build(),
+        parameterTypes.build(),
+        valueParameterIndex);
+  }
+  
+  public boolean hasAnyAnnotation() {
+    return hasUnconditionalHandlerAnnotation() ||
+        hasConditionalHandlerAnnotation() ||
+        hasCompositeHandlerAnnotation() ||
+        hasDefaultAnnotation() ||
+        countParametersWithPlaceholderAnnotations() > 0 ||
+        countParametersWithHandlerAnnotations() > 0 ||
+        countParametersWithDefaultAnnotations() > 0;
+  }
+  
+  /**
+   * @return true if the method has an unconditional, conditional or composite handler annotation, false otherwise
+   */
+  public boolean hasAnyHandlerAnnotation() {
+    return hasUnconditionalHandlerAnnotation() || hasConditionalHandlerAnnotation() || hasCompositeHandlerAnnotation();
+  }
+  
+  public boolean hasUnconditionalHandlerAnnotation() {
+    return !getUnconditionalHandlerAnnotations().isEmpty();
+  }
+  
+  public AnnotationMirror getUnconditionalHandlerAnnotation() {
+    return hasUnconditionalHandlerAnnotation() ? getUnconditionalHandlerAnnotations().get(0) : null;
+  }
+  
+  public boolean hasConditionalHandlerAnnotation() {
+    return !getConditionalHandlerAnnotations().isEmpty();
+  }
+  
+  public AnnotationMirror getConditionalHandlerAnnotation() {
+    return hasConditionalHandlerAnnotation() ? getConditionalHandlerAnnotations().get(0) : null;
+  }
+  
+  public boolean hasCompositeHandlerAnnotation() {
+    return !getCompositeHandlerAnnotations().isEmpty();
+  }
+  
+  public AnnotationMirror getCompositeHandlerAnnotation() {
+    return hasCompositeHandlerAnnotation() ? getCompositeHandlerAnnotations().get(0) : null;
+  }
+  
+  /**
+   * Returns the conditional handler annotation if there is one, otherwise the unconditional handler annotation, or
+   * null if the method has neither. Composite handler methods have no single handler annotation, since their handler
+   * annotations are on their parameters.
+   */
+  public AnnotationMirror getHandlerAnnotation() {
+    return hasConditionalHandlerAnnotation() ? getConditionalHandlerAnnotation() : getUnconditionalHandlerAnnotation();
+  }
+  
+  public boolean hasDefaultAnnotation() {
+    return !getDefaultAnnotations().isEmpty();
+  }
+  
+  public AnnotationMirror getDefaultAnnotation() {
+    return hasDefaultAnnotation() ? getDefaultAnnotations().get(0) : null;
+  }
+  
+  public boolean hasPlaceholderAnnotation(final int parameterIndex) {
+    return !getPlaceholderAnnotations().get(parameterIndex).isEmpty();
+  }
+  
+  public AnnotationMirror getPlaceholderAnnotation(final int parameterIndex) {
+    return hasPlaceholderAnnotation(parameterIndex) ? getPlaceholderAnnotations().get(parameterIndex).get(0) : null;
+  }
+  
+  public int countParametersWithPlaceholderAnnotations() {
+    return countNonEmpty(getPlaceholderAnnotations());
+  }
+  
+  public boolean hasParameterHandlerAnnotation(final int parameterIndex) {
+    return !getParameterHandlerAnnotations().get(parameterIndex).isEmpty();
+  }
+  
+  public AnnotationMirror getParameterHandlerAnnotation(final int parameterIndex) {
+    return hasParameterHandlerAnnotation(parameterIndex) ?
+        getParameterHandlerAnnotations().get(parameterIndex).get(0) :
+        null;
+  }
+  
+  public int countParametersWithHandlerAnnotations() {
+    return countNonEmpty(getParameterHandlerAnnotations());
+  }
+  
+  public boolean hasParameterDefaultAnnotation(final int parameterIndex) {
+    return !getParameterDefaultAnnotations().get(parameterIndex).isEmpty();
+  }
+  
+  public AnnotationMirror getParameterDefaultAnnotation(final int parameterIndex) {
+    return hasParameterDefaultAnnotation(parameterIndex) ?
+        getParameterDefaultAnnotations().get(parameterIndex).get(0) :
+        null;
+  }
+  
+  public int countParametersWithDefaultAnnotations() {
+    return countNonEmpty(getParameterDefaultAnnotations());
+  }
+  
+  /**
+   * Returns the type of the first parameter without a placeholder annotation, or null if every parameter has one.
+   */
+  public TypeMirror getValueParameterType() {
+    return getValueParameterIndex() == -1 ? null : getParameterTypes().get(getValueParameterIndex());
+  }
+  
+  private static int countNonEmpty(final List<? extends List<AnnotationMirror>> annotationsOfEachParameter) {
+    int count = 0;
+    
+    for (final List<AnnotationMirror> annotationsOfParameter : annotationsOfEachParameter) {
+      if (!annotationsOfParameter.isEmpty()) {
+        count++;
+      }
+    }
+    
+    return count;
+  }
+  
+  static Group getGroupOf(final AnnotationMirror mirror) {
+    final TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+    
+    return AnnotationRegistry.getGroup(annotationType.getQualifiedName().toString());
+  }
+}
\ No newline at end of file
@@ -16,12 +16,10 @@
 
 package com.matthewtamlin.spyglass.processor.annotationretrievers;
 
-import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry;
-import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry.Group;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.ExecutableElement;
-import java.lang.annotation.Annotation;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
@@ -29,10 +27,8 @@ public class UnconditionalHandlerRetriever {
   public static AnnotationMirror getAnnotation(final ExecutableElement element) {
     checkNotNull(element, "Argument \'element\' cannot be null.");
     
-    for (final Class<? extends Annotation> annotationClass : AnnotationRegistry.UNCONDITIONAL_HANDLERS) {
-      final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, annotationClass);
-      
-      if (mirror != null) {
+    for (final AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (AnnotatedMethod.getGroupOf(mirror) == Group.UNCONDITIONAL_HANDLER) {
         return mirror;
       }
     }
@@ -16,188 +16,76 @@
 
 package com.matthewtamlin.spyglass.processor.codegeneration;
 
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.*;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.MethodSpec;
 
 import javax.inject.Inject;
 import javax.lang.model.element.AnnotationMirror;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.Set;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class AnyValueIsAvailableMethodGenerator {
-  private final Map<String, Function<AnnotationMirror, CodeBlock>> methodBodySuppliers;
+  private static final Set<String> SUPPORTED_ANNOTATIONS = ImmutableSet.of(
+      BooleanHandler.class.getName(),
+      ColorHandler.class.getName(),
+      ColorStateListHandler.class.getName(),
+      DimensionHandler.class.getName(),
+      DrawableHandler.class.getName(),
+      EnumConstantHandler.class.getName(),
+      EnumOrdinalHandler.class.getName(),
+      FloatHandler.class.getName(),
+      FractionHandler.class.getName(),
+      IntegerHandler.class.getName(),
+      StringHandler.class.getName());
   
   private final AnnotationMirrorHelper annotationMirrorHelper;
   
   @Inject
   public AnyValueIsAvailableMethodGenerator(final AnnotationMirrorHelper annotationMirrorHelper) {
     this.annotationMirrorHelper = checkNotNull(annotationMirrorHelper);
+  }
+  
+  public CodeBlock generateInlineFor(
+      final AnnotationMirror unconditionalHandlerAnnotation,
+      final CodeBlock attrs) {
     
-    methodBodySuppliers = ImmutableMap
-        .<String, Function<AnnotationMirror, CodeBlock>>builder()
-        .put(
-            BooleanHandler.class.getName(),
-            booleanHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getBoolean($2L, false) == false && \n" +
-                        "$1N().getBoolean($2L, true) == true",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(booleanHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            ColorHandler.class.getName(),
-            colorHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getColor($2L, 1) == 1 && \n" +
-                        "$1N().getColor($2L, 2) == 2",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(colorHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            ColorStateListHandler.class.getName(),
-            colorStateListHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "return $N().getColorStateList($L) != null",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(colorStateListHandlerAnnotation, "attributeId"))
-                .build())
-        .put(
-            DimensionHandler.class.getName(),
-            dimensionHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement("final float negInf = Float.NEGATIVE_INFINITY")
-                .addStatement("final float posInf = Float.POSITIVE_INFINITY")
-                .add("\n")
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getDimension($2L, negInf) == negInf && \n" +
-                        "$1N().getDimension($2L, posInf) == posInf",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(dimensionHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            DrawableHandler.class.getName(),
-            drawableHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "return $N().getDrawable($L) != null",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(drawableHandlerAnnotation, "attributeId"))
-                .build())
-        .put(
-            EnumConstantHandler.class.getName(),
-            enumConstantHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getInt($2L, 1) == 1 && \n" +
-                        "$1N().getInt($2L, 2) == 2",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(enumConstantHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            EnumOrdinalHandler.class.getName(),
-            enumOrdinalHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getInt($2L, 1) == 1 && \n" +
-                        "$1N().getInt($2L, 2) == 2",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(enumOrdinalHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            FloatHandler.class.getName(),
-            floatHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement("final float negInf = Float.NEGATIVE_INFINITY")
-                .addStatement("final float posInf = Float.POSITIVE_INFINITY")
-                .add("\n")
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getFloat($2L, negInf) == negInf && \n" +
-                        "$1N().getFloat($2L, posInf) == posInf",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(floatHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            FractionHandler.class.getName(),
-            fractionHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement("final float negInf = Float.NEGATIVE_INFINITY")
-                .addStatement("final float posInf = Float.POSITIVE_INFINITY")
-                .add("\n")
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getFraction($2L, 1, 1, negInf) == negInf && \n" +
-                        "$1N().getFraction($2L, 1, 1, posInf) == posInf",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(fractionHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            IntegerHandler.class.getName(),
-            integerHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getInt($2L, 1) == 1 && \n" +
-                        "$1N().getInt($2L, 2) == 2",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(integerHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement("return !defaultConsistentlyReturned")
-                .build())
-        .put(
-            StringHandler.class.getName(),
-            stringHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "return $N().hasValue($L)",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(stringHandlerAnnotation, "attributeId"))
-                .build())
-        .build();
+    checkNotNull(unconditionalHandlerAnnotation, "Argument \'unconditionalHandlerAnnotation\' cannot be null.");
+    
+    return generateInlineFor(
+        unconditionalHandlerAnnotation,
+        attrs,
+        Integer.parseInt(getLiteralFromAnnotation(unconditionalHandlerAnnotation, "attributeId")));
   }
   
-  public MethodSpec generateFor(final AnnotationMirror unconditionalHandlerAnnotation) {
+  /**
+   * Generates the availability check for the handled attribute, checking the supplied index of the typed array rather
+   * than the attribute ID of the annotation.
+   */
+  public CodeBlock generateInlineFor(
+      final AnnotationMirror unconditionalHandlerAnnotation,
+      final CodeBlock attrs,
+      final int attributeIndex) {
+    
     checkNotNull(unconditionalHandlerAnnotation, "Argument \'unconditionalHandlerAnnotation\' cannot be null.");
+    checkNotNull(attrs, "Argument \'attrs\' cannot be null.");
     
     final String annotationClassName = unconditionalHandlerAnnotation.getAnnotationType().toString();
     
-    if (!methodBodySuppliers.containsKey(annotationClassName)) {
+    if (!SUPPORTED_ANNOTATIONS.contains(annotationClassName)) {
       throw new IllegalArgumentException("Argument \'unconditionalHandlerAnnotation\' is not an unconditional handler.");
     }
     
-    return MethodSpec
-        .methodBuilder("valueIsAvailable")
-        .returns(Boolean.class)
-        .addCode(methodBodySuppliers.get(annotationClassName).apply(unconditionalHandlerAnnotation))
-        .build();
+    // Checking presence directly avoids resolving the value, so it only needs to be read once by the caller
+    return CodeBlock.of(
+        "$T.$N($L, $L)",
+        RuntimeHelpersDef.getHelpersAsClassName(),
+        RuntimeHelpersDef.IS_VALUE_AVAILABLE,
+        attrs,
+        attributeIndex);
   }
   
   private String getLiteralFromAnnotation(final AnnotationMirror mirror, final String key) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.common.collect.ImmutableList;
+import com.matthewtamlin.spyglass.markers.annotations.targets.AttrResourceIds;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+
+import javax.inject.Inject;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Resolves the index at which the attribute of each handler is read from the typed array. By default the attribute ID
+ * of a handler is already an index in the styleable resource supplied at runtime. If the target is annotated with
+ * {@link AttrResourceIds} then the attribute IDs are attribute resources instead, and the typed array is obtained
+ * using the distinct handled attributes in ascending order (as required by obtainStyledAttributes), so each attribute
+ * is read at its position in that array.
+ * <p>
+ * The sorted attribute resources of the most recent target are retained, so that resolving the index of each handler
+ * is a binary search rather than a scan of the target's methods. Companions are generated one target at a time, so
+ * only one list is held at once.
+ */
+public class AttributeIndexer {
+  private final AnnotationMirrorHelper annotationMirrorHelper;
+  
+  private TypeElement cachedTargetType;
+  
+  private ImmutableList<Integer> cachedAttrResourceIds;
+  
+  @Inject
+  public AttributeIndexer(final AnnotationMirrorHelper annotationMirrorHelper) {
+    this.annotationMirrorHelper = checkNotNull(
+        annotationMirrorHelper,
+        "Argument \'annotationMirrorHelper\' cannot be null.");
+  }
+  
+  /**
+   * @return true if the attribute IDs of the target's handlers are attribute resources, false otherwise
+   */
+  public boolean usesAttrResourceIds(final TypeElement targetType) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    
+    return AnnotationMirrorHelper.getAnnotationMirror(targetType, AttrResourceIds.class) != null;
+  }
+  
+  /**
+   * @return the distinct attribute resources handled by the target in ascending order, or an empty list if the
+   * target does not use attribute resource IDs
+   */
+  public ImmutableList<Integer> getAttrResourceIdsOf(final TypeElement targetType) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    
+    if (targetType.equals(cachedTargetType)) {
+      return cachedAttrResourceIds;
+    }
+    
+    final List<AnnotatedMethod> methods = new ArrayList<>();
+    
+    for (final Element enclosedElement : targetType.getEnclosedElements()) {
+      if (enclosedElement.getKind() == ElementKind.METHOD) {
+        methods.add(AnnotatedMethod.create((ExecutableElement) enclosedElement));
+      }
+    }
+    
+    return getAttrResourceIdsOf(targetType, methods);
+  }
+  
+  /**
+   * Variant of {@link #getAttrResourceIdsOf(TypeElement)} which uses the annotated methods of the target that have
+   * already been found (for example by an index of the round), instead of scanning the target's methods again. The
+   * result is retained for resolving the indices of the target's handlers.
+   *
+   * @return the distinct attribute resources handled by the supplied methods in ascending order, or an empty list if
+   * the target does not use attribute resource IDs
+   */
+  public ImmutableList<Integer> getAttrResourceIdsOf(
+      final TypeElement targetType,
+      final List<AnnotatedMethod> methods) {
+    
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    checkNotNull(methods, "Argument \'methods\' cannot be null.");
+    
+    final SortedSet<Integer> attrResourceIds = new TreeSet<>();
+    
+    if (usesAttrResourceIds(targetType)) {
+      for (final AnnotatedMethod method : methods) {
+        if (method.hasUnconditionalHandlerAnnotation() || method.hasConditionalHandlerAnnotation()) {
+          attrResourceIds.add(getAttributeIdOf(method.getHandlerAnnotation()));
+        }
+        
+        for (int i = 0; i < method.getParameterTypes().size(); i++) {
+          if (method.hasParameterHandlerAnnotation(i)) {
+            attrResourceIds.add(getAttributeIdOf(method.getParameterHandlerAnnotation(i)));
+          }
+        }
+      }
+    }
+    
+    cachedTargetType = targetType;
+    cachedAttrResourceIds = ImmutableList.copyOf(attrResourceIds);
+    
+    return cachedAttrResourceIds;
+  }
+  
+  /**
+   * @return the index of the method's attribute in the typed array passed to the companion
+   */
+  public int getIndexOf(final AnnotatedMethod method) {
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    
+    return resolveIndexOf(method, getAttributeIdOf(method.getHandlerAnnotation()));
+  }
+  
+  /**
+   * @return the index of the attribute passed to a parameter of a composite handler method, in the typed array passed
+   * to the companion
+   */
+  public int getIndexOf(final AnnotatedMethod method, final int parameterIndex) {
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    
+    if (!method.hasParameterHandlerAnnotation(parameterIndex)) {
+      throw new IllegalArgumentException("Argument \'parameterIndex\' does not refer to a parameter with a handler.");
+    }
+    
+    return resolveIndexOf(method, getAttributeIdOf(method.getParameterHandlerAnnotation(parameterIndex)));
+  }
+  
+  private int resolveIndexOf(final AnnotatedMethod method, final int attributeId) {
+    final TypeElement targetType = (TypeElement) method.getElement().getEnclosingElement();
+    
+    if (!usesAttrResourceIds(targetType)) {
+      return attributeId;
+    }
+    
+    return Collections.binarySearch(getAttrResourceIdsOf(targetType), attributeId);
+  }
+  
+  private int getAttributeIdOf(final AnnotationMirror handlerAnnotation) {
+    return Integer.parseInt(annotationMirrorHelper.getValueUsingDefaults(handlerAnnotation, "attributeId").toString());
+  }
+}
\ No newline at end of file
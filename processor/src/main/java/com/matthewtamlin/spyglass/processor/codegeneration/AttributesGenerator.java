@@ -0,0 +1,417 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
+import com.squareup.javapoet.*;
+
+import javax.inject.Inject;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Generates an immutable class which holds the decoded attributes of a target, so that decoding and applying can be
+ * split into two phases. The values are decoded in the constructor, which only uses the context and the typed array
+ * and can therefore run on any thread. The {@code applyTo} method then passes the decoded values to the handler
+ * methods of a target, and it must run on the thread which owns the target.
+ */
+public class AttributesGenerator {
+  public static final String CLASS_NAME = "Attributes";
+  
+  private final CallerGenerator callerGenerator;
+  
+  private final GetValueMethodGenerator getValueMethodGenerator;
+  
+  private final CachedDefaultValueGenerator defaultValueGenerator;
+  
+  private final AnyValueIsAvailableMethodGenerator anyValueIsAvailableGenerator;
+  
+  private final SpecificValueIsAvailableMethodGenerator specificValueIsAvailableGenerator;
+  
+  private final AttributeIndexer attributeIndexer;
+  
+  private final BatchHookGenerator batchHookGenerator;
+  
+  private final HierarchyResolver hierarchyResolver;
+  
+  @Inject
+  public AttributesGenerator(
+      final CallerGenerator callerGenerator,
+      final GetValueMethodGenerator getValueMethodGenerator,
+      final CachedDefaultValueGenerator defaultValueGenerator,
+      final AnyValueIsAvailableMethodGenerator anyValueIsAvailableGenerator,
+      final SpecificValueIsAvailableMethodGenerator specificValueIsAvailableGenerator,
+      final AttributeIndexer attributeIndexer,
+      final BatchHookGenerator batchHookGenerator,
+      final HierarchyResolver hierarchyResolver) {
+    
+    this.callerGenerator = checkNotNull(callerGenerator);
+    this.getValueMethodGenerator = checkNotNull(getValueMethodGenerator);
+    this.defaultValueGenerator = checkNotNull(defaultValueGenerator);
+    this.anyValueIsAvailableGenerator = checkNotNull(anyValueIsAvailableGenerator);
+    this.specificValueIsAvailableGenerator = checkNotNull(specificValueIsAvailableGenerator);
+    this.attributeIndexer = checkNotNull(attributeIndexer);
+    this.batchHookGenerator = checkNotNull(batchHookGenerator);
+    this.hierarchyResolver = checkNotNull(hierarchyResolver);
+  }
+  
+  /**
+   * Generates the attributes class for the target type. The class has a private constructor which accepts a context
+   * and a typed array, so it must be nested in the class which obtains the typed array.
+   */
+  public TypeSpec generateFor(final TypeElement targetType, final Collection<AnnotatedMethod> annotatedMethods) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    checkNotNull(annotatedMethods, "Argument \'annotatedMethods\' cannot be null.");
+    
+    final ParameterSpec contextParameter = ParameterSpec
+        .builder(AndroidClassNames.CONTEXT, "context", FINAL)
+        .build();
+    
+    final ParameterSpec attributesParameter = ParameterSpec
+        .builder(AndroidClassNames.TYPED_ARRAY, "attributes", FINAL)
+        .build();
+    
+    final ParameterSpec targetParameter = ParameterSpec
+        .builder(ClassName.get(targetType), "target", FINAL)
+        .build();
+    
+    final TypeSpec.Builder attributesClassBuilder = TypeSpec
+        .classBuilder(CLASS_NAME)
+        .addModifiers(PUBLIC, STATIC, FINAL);
+    
+    final CodeBlock.Builder constructorCodeBuilder = CodeBlock.builder();
+    
+    final CodeBlock.Builder handlerCallsBuilder = CodeBlock.builder();
+    final boolean batchAware = batchHookGenerator.isBatchAware(targetType);
+    final int firstHandlerIndex = batchAware ? hierarchyResolver.countHandlersAbove(targetType) : 0;
+    
+    // Handlers which can share a read of their attribute are decoded using one read of the attribute
+    final Set<AnnotatedMethod> sharedValueMethods = new HashSet<>();
+    final Set<Integer> readAttributeIndexes = new HashSet<>();
+    
+    for (final List<AnnotatedMethod> group : callerGenerator.groupBySharedValue(annotatedMethods)) {
+      sharedValueMethods.addAll(group);
+    }
+    
+    int handlerIndex = 0;
+    
+    for (final AnnotatedMethod method : annotatedMethods) {
+      final CodeBlock invocationCallback = batchAware ?
+          batchHookGenerator.generateMaskUpdateFor(firstHandlerIndex + handlerIndex) :
+          CodeBlock.of("");
+      
+      final String fieldPrefix = "handler" + handlerIndex++;
+      
+      final FieldSpec availableField = FieldSpec
+          .builder(TypeName.BOOLEAN, fieldPrefix + "Available", PRIVATE, FINAL)
+          .build();
+      
+      // The handler index has already been incremented, so this separates each call from the previous one
+      if (handlerIndex > 1) {
+        handlerCallsBuilder.add("\n");
+      }
+      
+      if (method.hasCompositeHandlerAnnotation()) {
+        handlerCallsBuilder.add(generateDecodedCompositeCall(
+            method,
+            attributesClassBuilder,
+            constructorCodeBuilder,
+            fieldPrefix,
+            contextParameter,
+            attributesParameter,
+            targetParameter,
+            invocationCallback));
+        
+        continue;
+      }
+      
+      attributesClassBuilder.addField(availableField);
+      
+      GeneratedValue decodedValue = null;
+      GeneratedValue decodedDefault = null;
+      
+      if (sharedValueMethods.contains(method)) {
+        final AnnotationMirror handlerAnnotation = method.getConditionalHandlerAnnotation();
+        final int attributeIndex = attributeIndexer.getIndexOf(method);
+        final String hasValueVariable = "attribute" + attributeIndex + "HasValue";
+        final String valueVariable = "attribute" + attributeIndex + "Value";
+        
+        if (readAttributeIndexes.add(attributeIndex)) {
+          constructorCodeBuilder
+              .addStatement("final boolean $N = $N.hasValue($L)", hasValueVariable, attributesParameter, attributeIndex)
+              .addStatement(
+                  "final int $N = $L",
+                  valueVariable,
+                  specificValueIsAvailableGenerator.generateSharedValueFor(
+                      handlerAnnotation,
+                      CodeBlock.of("$N", attributesParameter),
+                      attributeIndex));
+        }
+        
+        constructorCodeBuilder.addStatement(
+            "this.$N = $N && $L",
+            availableField,
+            hasValueVariable,
+            specificValueIsAvailableGenerator.generateMatchFor(handlerAnnotation, CodeBlock.of("$N", valueVariable)));
+        
+      } else if (method.hasConditionalHandlerAnnotation()) {
+        constructorCodeBuilder.addStatement(
+            "this.$N = $L",
+            availableField,
+            specificValueIsAvailableGenerator.generateInlineFor(
+                method.getConditionalHandlerAnnotation(),
+                CodeBlock.of("$N", attributesParameter),
+                attributeIndexer.getIndexOf(method)));
+        
+      } else if (method.hasUnconditionalHandlerAnnotation()) {
+        final AnnotationMirror handlerAnnotation = method.getUnconditionalHandlerAnnotation();
+        final CodeBlock attributes = CodeBlock.of("$N", attributesParameter);
+        final int attributeIndex = attributeIndexer.getIndexOf(method);
+        
+        constructorCodeBuilder.addStatement(
+            "this.$N = $L",
+            availableField,
+            anyValueIsAvailableGenerator.generateInlineFor(handlerAnnotation, attributes, attributeIndex));
+        
+        decodedValue = generateDecodedValue(
+            attributesClassBuilder,
+            constructorCodeBuilder,
+            availableField,
+            true,
+            fieldPrefix + "Value",
+            attributesParameter,
+            getValueMethodGenerator.generateInlineFor(handlerAnnotation, attributes, attributeIndex));
+        
+        if (method.hasDefaultAnnotation()) {
+          decodedDefault = generateDecodedValue(
+              attributesClassBuilder,
+              constructorCodeBuilder,
+              availableField,
+              false,
+              fieldPrefix + "Default",
+              contextParameter,
+              defaultValueGenerator.generateInlineFor(
+                  method.getDefaultAnnotation(),
+                  CodeBlock.of("$N", contextParameter)));
+        }
+        
+      } else {
+        throw new IllegalArgumentException(
+            "Argument \'annotatedMethods\' contains a method with no handler annotation.");
+      }
+      
+      handlerCallsBuilder.add(callerGenerator.generateDecodedCallFor(
+          method,
+          CodeBlock.of("$N", targetParameter),
+          CodeBlock.of("$N", availableField),
+          decodedValue,
+          decodedDefault,
+          invocationCallback));
+    }
+    
+    final CodeBlock applyToCode = CodeBlock
+        .builder()
+        .addStatement(
+            "$T.$N($N, $S)",
+            RuntimeHelpersDef.getHelpersAsClassName(),
+            RuntimeHelpersDef.CHECK_ARGUMENT_NOT_NULL,
+            targetParameter,
+            targetParameter.name)
+        .add("\n")
+        .add(batchAware ?
+            batchHookGenerator.generateBatchFor(CodeBlock.of("$N", targetParameter), handlerCallsBuilder.build()) :
+            handlerCallsBuilder.build())
+        .build();
+    
+    final MethodSpec constructor = MethodSpec
+        .constructorBuilder()
+        .addModifiers(PRIVATE)
+        .addParameter(contextParameter)
+        .addParameter(attributesParameter)
+        .addCode(constructorCodeBuilder.build())
+        .build();
+    
+    final MethodSpec applyTo = MethodSpec
+        .methodBuilder("applyTo")
+        .addModifiers(PUBLIC)
+        .returns(void.class)
+        .addParameter(targetParameter)
+        .addCode(applyToCode)
+        .build();
+    
+    return attributesClassBuilder
+        .addMethod(constructor)
+        .addMethod(applyTo)
+        .build();
+  }
+  
+  /**
+   * Determines whether an attributes class can be applied to more than one target. Drawables hold per-view state (e.g.
+   * bounds and callbacks) and arrays can be modified by any handler they are passed to, so attributes which contain
+   * either cannot be shared.
+   */
+  public boolean isShareable(final TypeSpec attributes) {
+    checkNotNull(attributes, "Argument \'attributes\' cannot be null.");
+    
+    for (final FieldSpec field : attributes.fieldSpecs) {
+      if (field.type.equals(AndroidClassNames.DRAWABLE) || field.type instanceof ArrayTypeName) {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+  
+  /**
+   * Decodes the value and default value of each parameter of a composite handler method, and returns the call which
+   * passes them to the method. Each parameter has its own availability field, so that the call can select between the
+   * value and the default value of each parameter.
+   */
+  private CodeBlock generateDecodedCompositeCall(
+      final AnnotatedMethod method,
+      final TypeSpec.Builder attributesClassBuilder,
+      final CodeBlock.Builder constructorCodeBuilder,
+      final String fieldPrefix,
+      final ParameterSpec contextParameter,
+      final ParameterSpec attributesParameter,
+      final ParameterSpec targetParameter,
+      final CodeBlock invocationCallback) {
+    
+    final CodeBlock attributes = CodeBlock.of("$N", attributesParameter);
+    
+    final List<CodeBlock> valuesAreAvailable = new ArrayList<>();
+    final List<GeneratedValue> decodedValues = new ArrayList<>();
+    final List<GeneratedValue> decodedDefaults = new ArrayList<>();
+    
+    for (int i = 0; i < method.getParameterTypes().size(); i++) {
+      if (!method.hasParameterHandlerAnnotation(i)) {
+        valuesAreAvailable.add(null);
+        decodedValues.add(null);
+        decodedDefaults.add(null);
+        
+        continue;
+      }
+      
+      final AnnotationMirror handlerAnnotation = method.getParameterHandlerAnnotation(i);
+      final int attributeIndex = attributeIndexer.getIndexOf(method, i);
+      final String argumentPrefix = fieldPrefix + "Argument" + i;
+      
+      final FieldSpec availableField = FieldSpec
+          .builder(TypeName.BOOLEAN, argumentPrefix + "Available", PRIVATE, FINAL)
+          .build();
+      
+      attributesClassBuilder.addField(availableField);
+      
+      constructorCodeBuilder.addStatement(
+          "this.$N = $L",
+          availableField,
+          anyValueIsAvailableGenerator.generateInlineFor(handlerAnnotation, attributes, attributeIndex));
+      
+      valuesAreAvailable.add(CodeBlock.of("$N", availableField));
+      
+      decodedValues.add(generateDecodedValue(
+          attributesClassBuilder,
+          constructorCodeBuilder,
+          availableField,
+          true,
+          argumentPrefix + "Value",
+          attributesParameter,
+          getValueMethodGenerator.generateInlineFor(handlerAnnotation, attributes, attributeIndex)));
+      
+      decodedDefaults.add(method.hasParameterDefaultAnnotation(i) ?
+          generateDecodedValue(
+              attributesClassBuilder,
+              constructorCodeBuilder,
+              availableField,
+              false,
+              argumentPrefix + "Default",
+              contextParameter,
+              defaultValueGenerator.generateInlineFor(
+                  method.getParameterDefaultAnnotation(i),
+                  CodeBlock.of("$N", contextParameter))) :
+          null);
+    }
+    
+    return callerGenerator.generateDecodedCompositeCallFor(
+        method,
+        CodeBlock.of("$N", targetParameter),
+        valuesAreAvailable,
+        decodedValues,
+        decodedDefaults,
+        invocationCallback);
+  }
+  
+  /**
+   * Adds a field for the value, and a static method which decodes it. The value is only decoded if the availability
+   * matches the expected availability, otherwise the field is set to the zero value of its type. Returns the value as
+   * it should be read by the apply method.
+   */
+  private GeneratedValue generateDecodedValue(
+      final TypeSpec.Builder attributesClassBuilder,
+      final CodeBlock.Builder constructorCodeBuilder,
+      final FieldSpec availableField,
+      final boolean decodeWhenAvailable,
+      final String fieldName,
+      final ParameterSpec source,
+      final GeneratedValue value) {
+    
+    final FieldSpec field = FieldSpec
+        .builder(value.getType(), fieldName, PRIVATE, FINAL)
+        .build();
+    
+    final MethodSpec decodeMethod = value
+        .toMethod("decode" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1))
+        .addModifiers(PRIVATE, STATIC)
+        .addParameter(source)
+        .build();
+    
+    attributesClassBuilder
+        .addField(field)
+        .addMethod(decodeMethod);
+    
+    constructorCodeBuilder.addStatement(
+        "this.$N = $L$N ? $N($N) : $L",
+        field,
+        decodeWhenAvailable ? "" : "!",
+        availableField,
+        decodeMethod,
+        source,
+        getZeroValueFor(value.getType()));
+    
+    return GeneratedValue.create(value.getType(), CodeBlock.of("$N", field));
+  }
+  
+  private CodeBlock getZeroValueFor(final TypeName type) {
+    if (type == TypeName.BOOLEAN) {
+      return CodeBlock.of("false");
+    } else if (type.isPrimitive()) {
+      return CodeBlock.of("0");
+    } else {
+      return CodeBlock.of("null");
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.matthewtamlin.spyglass.processor.definitions.SpyglassBatchAwareDef;
+import com.squareup.javapoet.CodeBlock;
+
+import javax.inject.Inject;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Generates the calls to the batch hooks of targets which implement the SpyglassBatchAware runtime interface. Each
+ * handler is represented in the applied mask by the bit at its position in the target's class hierarchy, counting
+ * the handlers of the base-most level first and each level in declaration order. Only the first
+ * {@link #MAX_REPORTED_HANDLERS} handlers of a hierarchy are reported.
+ */
+public class BatchHookGenerator {
+  /**
+   * The number of handlers which can be represented in the applied mask.
+   */
+  public static final int MAX_REPORTED_HANDLERS = Integer.SIZE;
+  
+  private static final String APPLIED_MASK = "appliedMask";
+  
+  private final Elements elementUtil;
+  
+  private final Types typeUtil;
+  
+  @Inject
+  public BatchHookGenerator(final Elements elementUtil, final Types typeUtil) {
+    this.elementUtil = checkNotNull(elementUtil, "Argument \'elementUtil\' cannot be null.");
+    this.typeUtil = checkNotNull(typeUtil, "Argument \'typeUtil\' cannot be null.");
+  }
+  
+  /**
+   * @return true if the target type implements the batch aware interface, false otherwise (including when the
+   * interface is not on the classpath)
+   */
+  public boolean isBatchAware(final TypeElement targetType) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    
+    final TypeElement batchAware = elementUtil.getTypeElement(
+        SpyglassBatchAwareDef.getInterfaceAsClassName().toString());
+    
+    return batchAware != null &&
+        typeUtil.isAssignable(typeUtil.erasure(targetType.asType()), typeUtil.erasure(batchAware.asType()));
+  }
+  
+  /**
+   * Generates code which records that the handler at the supplied position was called. The code must be placed inside
+   * the code passed to {@link #generateBatchFor(CodeBlock, CodeBlock)}.
+   */
+  public CodeBlock generateMaskUpdateFor(final int handlerIndex) {
+    if (handlerIndex < 0) {
+      throw new IllegalArgumentException("Argument \'handlerIndex\' cannot be negative.");
+    }
+    
+    return handlerIndex < MAX_REPORTED_HANDLERS ?
+        CodeBlock.builder().addStatement("$N |= 1 << $L", APPLIED_MASK, handlerIndex).build() :
+        CodeBlock.of("");
+  }
+  
+  /**
+   * Same as {@link #generateMaskUpdateFor(int)}, except that the code must be placed inside the code passed to
+   * {@link #generateReactiveBatchFor(CodeBlock, CodeBlock, CodeBlock)}.
+   */
+  public CodeBlock generateReactiveMaskUpdateFor(final int handlerIndex) {
+    if (handlerIndex < 0) {
+      throw new IllegalArgumentException("Argument \'handlerIndex\' cannot be negative.");
+    }
+    
+    if (handlerIndex >= MAX_REPORTED_HANDLERS) {
+      return CodeBlock.of("");
+    }
+    
+    // Deferred calls can complete on different threads, so updates must not be lost
+    return CodeBlock
+        .builder()
+        .beginControlFlow("synchronized ($N)", APPLIED_MASK)
+        .addStatement("$N[0] |= 1 << $L", APPLIED_MASK, handlerIndex)
+        .endControlFlow()
+        .build();
+  }
+  
+  /**
+   * Generates code which records that the handler at the supplied position was applied once the completable in the
+   * supplied variable completes. The code must be placed immediately after the variable is assigned, inside the code
+   * passed to {@link #generateReactiveBatchFor(CodeBlock, CodeBlock, CodeBlock)}.
+   */
+  public CodeBlock generateDeferredMaskUpdateFor(final int handlerIndex, final CodeBlock resultVariable) {
+    checkNotNull(resultVariable, "Argument \'resultVariable\' cannot be null.");
+    
+    if (handlerIndex < 0) {
+      throw new IllegalArgumentException("Argument \'handlerIndex\' cannot be negative.");
+    }
+    
+    if (handlerIndex >= MAX_REPORTED_HANDLERS) {
+      return CodeBlock.of("");
+    }
+    
+    return CodeBlock
+        .builder()
+        .add("$1L = $1L.doOnComplete(() -> {\n", resultVariable)
+        .indent()
+        .add(generateReactiveMaskUpdateFor(handlerIndex))
+        .unindent()
+        .add("});\n")
+        .build();
+  }
+  
+  /**
+   * Generates code which declares the mask, runs the handler calls, then returns the mask of the handlers which were
+   * called. The code must be the body of a method which returns an int.
+   */
+  public CodeBlock generateMaskedCallsFor(final CodeBlock handlerCalls) {
+    checkNotNull(handlerCalls, "Argument \'handlerCalls\' cannot be null.");
+    
+    return CodeBlock
+        .builder()
+        .addStatement("int $N = 0", APPLIED_MASK)
+        .add("\n")
+        .add(handlerCalls)
+        .add("\n")
+        .addStatement("return $N", APPLIED_MASK)
+        .build();
+  }
+  
+  /**
+   * Generates code which records the mask returned by a dispatcher generated with
+   * {@link #generateMaskedCallsFor(CodeBlock)}. The code must be placed inside the code passed to
+   * {@link #generateBatchFor(CodeBlock, CodeBlock)}.
+   */
+  public CodeBlock generateMaskAssignmentFor(final CodeBlock dispatcherCall) {
+    checkNotNull(dispatcherCall, "Argument \'dispatcherCall\' cannot be null.");
+    
+    return CodeBlock
+        .builder()
+        .addStatement("$N = $L", APPLIED_MASK, dispatcherCall)
+        .build();
+  }
+  
+  /**
+   * Generates code which calls the start hook, runs the handler calls, then calls the end hook with the mask of the
+   * handlers which were called. The end hook is called even if a handler throws an exception, so the target is never
+   * left waiting for the end of a batch. If the handler calls are a dispatcher call (see
+   * {@link #generateMaskAssignmentFor(CodeBlock)}) and the dispatcher throws, the mask passed to the end hook is empty.
+   */
+  public CodeBlock generateBatchFor(final CodeBlock target, final CodeBlock handlerCalls) {
+    checkNotNull(target, "Argument \'target\' cannot be null.");
+    checkNotNull(handlerCalls, "Argument \'handlerCalls\' cannot be null.");
+    
+    return CodeBlock
+        .builder()
+        .addStatement("int $N = 0", APPLIED_MASK)
+        .addStatement("$L.$N()", target, SpyglassBatchAwareDef.ON_ATTRIBUTE_BATCH_START)
+        .add("\n")
+        .beginControlFlow("try")
+        .add(handlerCalls)
+        .nextControlFlow("finally")
+        .addStatement("$L.$N($N)", target, SpyglassBatchAwareDef.ON_ATTRIBUTE_BATCH_END, APPLIED_MASK)
+        .endControlFlow()
+        .build();
+  }
+  
+  /**
+   * Generates code which calls the start hook, runs the handler calls, then returns the supplied completable with the
+   * end hook attached, so that the end hook is called when the completable terminates or is disposed. The mask passed
+   * to the end hook contains the handlers which were called directly and the deferred handlers which completed (see
+   * {@link #generateReactiveMaskUpdateFor(int)} and {@link #generateDeferredMaskUpdateFor(int, CodeBlock)}). If the
+   * handler calls throw, the end hook is called immediately and the completable is not returned. The code must be the
+   * body of a method which returns a completable.
+   */
+  public CodeBlock generateReactiveBatchFor(
+      final CodeBlock target,
+      final CodeBlock handlerCalls,
+      final CodeBlock completable) {
+    
+    checkNotNull(target, "Argument \'target\' cannot be null.");
+    checkNotNull(handlerCalls, "Argument \'handlerCalls\' cannot be null.");
+    checkNotNull(completable, "Argument \'completable\' cannot be null.");
+    
+    // The merged completable only terminates after every deferred call has, so the final read sees every update
+    return CodeBlock
+        .builder()
+        .addStatement("final int[] $N = new int[1]", APPLIED_MASK)
+        .addStatement("$L.$N()", target, SpyglassBatchAwareDef.ON_ATTRIBUTE_BATCH_START)
+        .add("\n")
+        .beginControlFlow("try")
+        .add(handlerCalls)
+        .add("\n")
+        .addStatement(
+            "return $L.doFinally(() -> $L.$N($N[0]))",
+            completable,
+            target,
+            SpyglassBatchAwareDef.ON_ATTRIBUTE_BATCH_END,
+            APPLIED_MASK)
+        .nextControlFlow("catch (final $T | $T e)", RuntimeException.class, Error.class)
+        .addStatement("$L.$N($N[0])", target, SpyglassBatchAwareDef.ON_ATTRIBUTE_BATCH_END, APPLIED_MASK)
+        .addStatement("throw e")
+        .endControlFlow()
+        .build();
+  }
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.common.collect.ImmutableMap;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.*;
+import com.matthewtamlin.spyglass.markers.units.DimensionUnit;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.DefaultValueCaching;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+
+import javax.inject.Inject;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.VariableElement;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Generates default values which are resolved once per theme and then read from the {@code DefaultValueCache} until
+ * the configuration changes. Caching is only applied when enabled by the processor options, and only to defaults which
+ * are resolved from resources or display metrics. Defaults which are constants gain nothing from caching, and
+ * drawables are excluded since drawable instances cannot be shared between views. Resource defaults are looked up
+ * through the runtime helpers, and dimension defaults are looked up inline.
+ */
+public class CachedDefaultValueGenerator {
+  /**
+   * The kind of each cacheable resource default, as understood by the runtime helpers. The kind occupies the upper half
+   * of the cache key, and the resource ID occupies the lower half, so that a resource referenced by different kinds of
+   * default is cached separately.
+   */
+  private static final Map<String, Integer> RESOURCE_DEFAULT_KINDS = ImmutableMap
+      .<String, Integer>builder()
+      .put(DefaultToBooleanResource.class.getName(), RuntimeHelpersDef.BOOLEAN_RESOURCE_KIND)
+      .put(DefaultToColorResource.class.getName(), RuntimeHelpersDef.COLOR_RESOURCE_KIND)
+      .put(DefaultToColorStateListResource.class.getName(), RuntimeHelpersDef.COLOR_STATE_LIST_RESOURCE_KIND)
+      .put(DefaultToDimensionResource.class.getName(), RuntimeHelpersDef.DIMENSION_RESOURCE_KIND)
+      .put(DefaultToIntegerResource.class.getName(), RuntimeHelpersDef.INTEGER_RESOURCE_KIND)
+      .put(DefaultToStringResource.class.getName(), RuntimeHelpersDef.STRING_RESOURCE_KIND)
+      .put(DefaultToTextArrayResource.class.getName(), RuntimeHelpersDef.TEXT_ARRAY_RESOURCE_KIND)
+      .put(DefaultToTextResource.class.getName(), RuntimeHelpersDef.TEXT_RESOURCE_KIND)
+      .build();
+  
+  /**
+   * The kind of the first dimension default. Each dimension unit has its own kind, and the bits of the dimension value
+   * occupy the lower half of the cache key.
+   */
+  private static final int FIRST_DIMENSION_KIND = 16;
+  
+  private final GetDefaultMethodGenerator getDefaultMethodGenerator;
+  
+  private final AnnotationMirrorHelper annotationMirrorHelper;
+  
+  private final ProcessorOptions processorOptions;
+  
+  @Inject
+  public CachedDefaultValueGenerator(
+      final GetDefaultMethodGenerator getDefaultMethodGenerator,
+      final AnnotationMirrorHelper annotationMirrorHelper,
+      final ProcessorOptions processorOptions) {
+    
+    this.getDefaultMethodGenerator = checkNotNull(getDefaultMethodGenerator);
+    this.annotationMirrorHelper = checkNotNull(annotationMirrorHelper);
+    this.processorOptions = checkNotNull(processorOptions);
+  }
+  
+  public GeneratedValue generateInlineFor(final AnnotationMirror defaultAnnotation, final CodeBlock context) {
+    checkNotNull(defaultAnnotation, "Argument \'defaultAnnotation\' cannot be null.");
+    checkNotNull(context, "Argument \'context\' cannot be null.");
+    
+    final GeneratedValue uncachedValue = getDefaultMethodGenerator.generateInlineFor(defaultAnnotation, context);
+    
+    if (processorOptions.getDefaultValueCaching() == DefaultValueCaching.DISABLED || !isCacheable(defaultAnnotation)) {
+      return uncachedValue;
+    }
+    
+    final String annotationClassName = defaultAnnotation.getAnnotationType().toString();
+    
+    if (RESOURCE_DEFAULT_KINDS.containsKey(annotationClassName)) {
+      // The runtime helpers look up, resolve and cache the resource, so each default is a single call
+      final CodeBlock cachedDefault = CodeBlock.of(
+          "$T.$N($L, $L, $L)",
+          RuntimeHelpersDef.getHelpersAsClassName(),
+          RuntimeHelpersDef.GET_RESOURCE_DEFAULT,
+          context,
+          RESOURCE_DEFAULT_KINDS.get(annotationClassName),
+          getResourceIdOf(defaultAnnotation));
+      
+      return GeneratedValue.create(
+          uncachedValue.getType(),
+          uncachedValue.getPreparation(),
+          generateCachedValueExpression(uncachedValue.getType(), cachedDefault),
+          uncachedValue.getSupportingFields());
+    }
+    
+    final CodeBlock key = CodeBlock.of("0x$LL", Long.toHexString(getDimensionKeyFor(defaultAnnotation)));
+    
+    final CodeBlock preparation = CodeBlock
+        .builder()
+        .add(uncachedValue.getPreparation())
+        .addStatement(
+            "$T cachedDefault = $T.$N($L, $L)",
+            Object.class,
+            DefaultValueCacheDef.getCacheAsClassName(),
+            DefaultValueCacheDef.GET,
+            context,
+            key)
+        .add("\n")
+        .beginControlFlow("if (cachedDefault == null)")
+        .addStatement("cachedDefault = $L", uncachedValue.getExpression())
+        .addStatement(
+            "$T.$N($L, $L, cachedDefault)",
+            DefaultValueCacheDef.getCacheAsClassName(),
+            DefaultValueCacheDef.PUT,
+            context,
+            key)
+        .endControlFlow()
+        .add("\n")
+        .build();
+    
+    return GeneratedValue.create(
+        uncachedValue.getType(),
+        preparation,
+        generateCachedValueExpression(uncachedValue.getType(), CodeBlock.of("cachedDefault")),
+        uncachedValue.getSupportingFields());
+  }
+  
+  public boolean isCacheable(final AnnotationMirror defaultAnnotation) {
+    checkNotNull(defaultAnnotation, "Argument \'defaultAnnotation\' cannot be null.");
+    
+    final String annotationClassName = defaultAnnotation.getAnnotationType().toString();
+    
+    return RESOURCE_DEFAULT_KINDS.containsKey(annotationClassName) ||
+        annotationClassName.equals(DefaultToDimension.class.getName());
+  }
+  
+  private long getDimensionKeyFor(final AnnotationMirror defaultAnnotation) {
+    final VariableElement unit = (VariableElement) annotationMirrorHelper
+        .getValueUsingDefaults(defaultAnnotation, "unit")
+        .getValue();
+    
+    final float value = (Float) annotationMirrorHelper
+        .getValueUsingDefaults(defaultAnnotation, "value")
+        .getValue();
+    
+    final int kind = FIRST_DIMENSION_KIND + DimensionUnit.valueOf(unit.getSimpleName().toString()).ordinal();
+    
+    return combine(kind, Float.floatToIntBits(value));
+  }
+  
+  private int getResourceIdOf(final AnnotationMirror defaultAnnotation) {
+    return (Integer) annotationMirrorHelper
+        .getValueUsingDefaults(defaultAnnotation, "resId")
+        .getValue();
+  }
+  
+  private static long combine(final int upper, final int lower) {
+    return ((long) upper << 32) | (lower & 0xFFFFFFFFL);
+  }
+  
+  private static CodeBlock generateCachedValueExpression(final TypeName type, final CodeBlock cachedDefault) {
+    if (type.isPrimitive()) {
+      // Unbox explicitly so that callers receive the primitive type they expect
+      return CodeBlock.of("(($T) ($T) $L)", type, type.box(), cachedDefault);
+      
+    } else if (type instanceof ArrayTypeName) {
+      // Arrays are mutable, so every caller receives its own copy
+      return CodeBlock.of("(($T) $L).clone()", type, cachedDefault);
+      
+    } else {
+      return CodeBlock.of("(($T) $L)", type, cachedDefault);
+    }
+  }
+}
\ No newline at end of file
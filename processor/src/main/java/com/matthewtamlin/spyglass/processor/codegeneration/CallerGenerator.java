@@ -16,26 +16,25 @@
 
 package com.matthewtamlin.spyglass.processor.codegeneration;
 
-import com.matthewtamlin.spyglass.processor.annotationretrievers.ConditionalHandlerRetriever;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.DefaultRetriever;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.PlaceholderRetriever;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.UnconditionalHandlerRetriever;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.matthewtamlin.spyglass.processor.definitions.RxJavaClassNames;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.TypeMirrorHelper;
 import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.TypeName;
-import com.squareup.javapoet.TypeSpec;
 
 import javax.inject.Inject;
 import javax.lang.model.element.AnnotationMirror;
-import javax.lang.model.element.ExecutableElement;
-import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
@@ -46,7 +45,7 @@ public class CallerGenerator {
   
   private final TypeMirrorHelper typeMirrorHelper;
   
-  private final GetDefaultMethodGenerator getDefaultMethodGenerator;
+  private final CachedDefaultValueGenerator defaultValueGenerator;
   
   private final GetValueMethodGenerator getValueMethodGenerator;
   
@@ -58,415 +57,830 @@ public class CallerGenerator {
   
   private final CastWrapperGenerator castWrapperGenerator;
   
+  private final AttributeIndexer attributeIndexer;
+  
   @Inject
   public CallerGenerator(
       final Elements elementUtil,
       final Types typeUtil,
       final TypeMirrorHelper typeMirrorHelper,
-      final GetDefaultMethodGenerator getDefaultMethodGenerator,
+      final CachedDefaultValueGenerator defaultValueGenerator,
       final GetValueMethodGenerator getValueMethodGenerator,
       final GetPlaceholderMethodGenerator getPlaceholderMethodGenerator,
       final AnyValueIsAvailableMethodGenerator anyValueIsAvailableMethodGenerator,
       final SpecificValueIsAvailableMethodGenerator specificValueIsAvailableGenerator,
-      final CastWrapperGenerator castWrapperGenerator) {
+      final CastWrapperGenerator castWrapperGenerator,
+      final AttributeIndexer attributeIndexer) {
     
     this.elementUtil = checkNotNull(elementUtil);
     this.typeUtil = checkNotNull(typeUtil);
     this.typeMirrorHelper = checkNotNull(typeMirrorHelper);
-    this.getDefaultMethodGenerator = checkNotNull(getDefaultMethodGenerator);
+    this.defaultValueGenerator = checkNotNull(defaultValueGenerator);
     this.getValueMethodGenerator = checkNotNull(getValueMethodGenerator);
     this.getPlaceholderMethodGenerator = checkNotNull(getPlaceholderMethodGenerator);
     this.anyValueIsAvailableGenerator = checkNotNull(anyValueIsAvailableMethodGenerator);
     this.specificValueIsAvailableGenerator = checkNotNull(specificValueIsAvailableGenerator);
     this.castWrapperGenerator = checkNotNull(castWrapperGenerator);
+    this.attributeIndexer = checkNotNull(attributeIndexer);
   }
   
-  public TypeSpec generateFor(
-      final ExecutableElement method,
+  public CodeBlock generateDirectCallFor(
+      final AnnotatedMethod method,
       final CodeBlock targetParameter,
       final CodeBlock contextParameter,
       final CodeBlock attrsParameter) {
     
+    return generateDirectCallFor(method, targetParameter, contextParameter, attrsParameter, CodeBlock.of(""));
+  }
+  
+  /**
+   * Same as {@link #generateDirectCallFor(AnnotatedMethod, CodeBlock, CodeBlock, CodeBlock)}, except that the supplied
+   * code is run immediately after the method is called (e.g. to record which methods were called).
+   */
+  public CodeBlock generateDirectCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter,
+      final CodeBlock attrsParameter,
+      final CodeBlock onInvocation) {
+    
     checkNotNull(method, "Argument \'method\' cannot be null.");
     checkNotNull(targetParameter, "Argument \'targetParameter\' cannot be null.");
     checkNotNull(contextParameter, "Argument \'contextParameter\' cannot be null.");
     checkNotNull(attrsParameter, "Argument \'attrsParameter\' cannot be null.");
+    checkNotNull(onInvocation, "Argument \'onInvocation\' cannot be null.");
     
-    if (ConditionalHandlerRetriever.hasAnnotation(method)) {
-      return generateForConditionalHandler(method, targetParameter, contextParameter, attrsParameter);
-      
-    } else if (UnconditionalHandlerRetriever.hasAnnotation(method)) {
-      if (DefaultRetriever.hasAnnotation(method)) {
-        return generateForUnconditionalHandlerWithDefault(method, targetParameter, contextParameter, attrsParameter);
-        
-      } else {
-        return generateForUnconditionalHandlerWithoutDefault(
-            method,
-            targetParameter,
-            contextParameter,
-            attrsParameter);
-      }
-    } else {
-      throw new IllegalArgumentException("Argument \'method\' does not have a handler annotation.");
-    }
+    return generateCallFor(method, targetParameter, contextParameter, attrsParameter, null, onInvocation);
   }
   
-  private TypeSpec generateForConditionalHandler(
-      final ExecutableElement method,
+  public CodeBlock generateDeferredCallFor(
+      final AnnotatedMethod method,
       final CodeBlock targetParameter,
       final CodeBlock contextParameter,
-      final CodeBlock attrsParameter) {
+      final CodeBlock attrsParameter,
+      final CodeBlock resultVariable) {
     
-    final TypeSpec.Builder callerBuilder = CallerDef.getNewAnonymousCallerPrototype(
-        getNameOfTargetClass(method),
+    return generateDeferredCallFor(
+        method,
         targetParameter,
         contextParameter,
-        attrsParameter);
+        attrsParameter,
+        resultVariable,
+        CodeBlock.of(""));
+  }
+  
+  /**
+   * Same as {@link #generateDeferredCallFor(AnnotatedMethod, CodeBlock, CodeBlock, CodeBlock, CodeBlock)}, except that
+   * the supplied code is run immediately after the method is called.
+   */
+  public CodeBlock generateDeferredCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter,
+      final CodeBlock attrsParameter,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
     
-    final CodeBlock.Builder invocationBuilder = CodeBlock
-        .builder()
-        .add("$N().$N(", CallerDef.GET_TARGET, method.getSimpleName());
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    checkNotNull(targetParameter, "Argument \'targetParameter\' cannot be null.");
+    checkNotNull(contextParameter, "Argument \'contextParameter\' cannot be null.");
+    checkNotNull(attrsParameter, "Argument \'attrsParameter\' cannot be null.");
+    checkNotNull(resultVariable, "Argument \'resultVariable\' cannot be null.");
+    checkNotNull(onInvocation, "Argument \'onInvocation\' cannot be null.");
     
-    for (int i = 0; i < method.getParameters().size(); i++) {
-      final VariableElement parameter = method.getParameters().get(i);
-      final AnnotationMirror placeholder = PlaceholderRetriever.getAnnotation(parameter);
-      final MethodSpec argMethod = getPlaceholderMethodGenerator.generateFor(placeholder, i);
-      
-      invocationBuilder.add(castWrapperGenerator.generateFor(argMethod, parameter.asType()));
-      
-      callerBuilder.addMethod(argMethod);
-      
-      if (i < method.getParameters().size() - 1) {
-        invocationBuilder.add(", ");
-      }
+    if (!typeMirrorHelper.isRxObservableType(method.getElement().getReturnType())) {
+      throw new IllegalArgumentException("Argument \'method\' does not return a reactive type.");
     }
     
-    invocationBuilder.add(")");
+    return generateCallFor(method, targetParameter, contextParameter, attrsParameter, resultVariable, onInvocation);
+  }
+  
+  public CodeBlock generateDirectDefaultCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter) {
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      if (isSingle(method.getReturnType())) {
-        invocationBuilder.add(".toCompletable()");
-        
-      } else if (isMaybe(method.getReturnType())) {
-        invocationBuilder.add(".ignoreElement()");
-        
-      } else if (!isCompletable(method.getReturnType())) {
-        invocationBuilder.add(".ignoreElements()");
-      }
-    }
+    return generateDirectDefaultCallFor(method, targetParameter, contextParameter, CodeBlock.of(""));
+  }
+  
+  /**
+   * Same as {@link #generateDirectDefaultCallFor(AnnotatedMethod, CodeBlock, CodeBlock)}, except that the supplied
+   * code is run immediately after the method is called.
+   */
+  public CodeBlock generateDirectDefaultCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter,
+      final CodeBlock onInvocation) {
     
-    invocationBuilder.add(";\n");
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    checkNotNull(targetParameter, "Argument \'targetParameter\' cannot be null.");
+    checkNotNull(contextParameter, "Argument \'contextParameter\' cannot be null.");
+    checkNotNull(onInvocation, "Argument \'onInvocation\' cannot be null.");
     
-    final MethodSpec specificValueIsAvailable = specificValueIsAvailableGenerator.generateFor(
-        ConditionalHandlerRetriever.getAnnotation(method));
+    return generateDefaultCallFor(method, targetParameter, contextParameter, null, onInvocation);
+  }
+  
+  public CodeBlock generateDeferredDefaultCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter,
+      final CodeBlock resultVariable) {
     
-    final CodeBlock.Builder callMethodCodeBlockBuilder = CodeBlock.builder();
+    return generateDeferredDefaultCallFor(method, targetParameter, contextParameter, resultVariable, CodeBlock.of(""));
+  }
+  
+  /**
+   * Same as {@link #generateDeferredDefaultCallFor(AnnotatedMethod, CodeBlock, CodeBlock, CodeBlock)}, except that the
+   * supplied code is run immediately after the method is called.
+   */
+  public CodeBlock generateDeferredDefaultCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
     
-    if (!typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.beginControlFlow("return $T.fromRunnable(() -> ", RxJavaClassNames.COMPLETABLE);
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    checkNotNull(targetParameter, "Argument \'targetParameter\' cannot be null.");
+    checkNotNull(contextParameter, "Argument \'contextParameter\' cannot be null.");
+    checkNotNull(resultVariable, "Argument \'resultVariable\' cannot be null.");
+    checkNotNull(onInvocation, "Argument \'onInvocation\' cannot be null.");
+    
+    if (!typeMirrorHelper.isRxObservableType(method.getElement().getReturnType())) {
+      throw new IllegalArgumentException("Argument \'method\' does not return a reactive type.");
     }
     
-    callMethodCodeBlockBuilder
-        .beginControlFlow("try")
-        .beginControlFlow("if ($N())", specificValueIsAvailable);
+    return generateDefaultCallFor(method, targetParameter, contextParameter, resultVariable, onInvocation);
+  }
+  
+  /**
+   * Generates a call which passes previously decoded values to the method. If the value is available it is passed to
+   * the method, otherwise the default value is passed (if there is one). Reactive methods are awaited. The value must
+   * be null if the method has a conditional handler, since conditional handlers only receive placeholders.
+   */
+  public CodeBlock generateDecodedCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock valueIsAvailable,
+      final GeneratedValue value,
+      final GeneratedValue defaultValue) {
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.add("return ");
-    }
+    return generateDecodedCallFor(method, targetParameter, valueIsAvailable, value, defaultValue, CodeBlock.of(""));
+  }
+  
+  /**
+   * Same as {@link #generateDecodedCallFor(AnnotatedMethod, CodeBlock, CodeBlock, GeneratedValue, GeneratedValue)},
+   * except that the supplied code is run immediately after the method is called.
+   */
+  public CodeBlock generateDecodedCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock valueIsAvailable,
+      final GeneratedValue value,
+      final GeneratedValue defaultValue,
+      final CodeBlock onInvocation) {
+    
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    checkNotNull(targetParameter, "Argument \'targetParameter\' cannot be null.");
+    checkNotNull(valueIsAvailable, "Argument \'valueIsAvailable\' cannot be null.");
+    checkNotNull(onInvocation, "Argument \'onInvocation\' cannot be null.");
     
-    callMethodCodeBlockBuilder.add(invocationBuilder.build());
+    final CodeBlock.Builder callBuilder = CodeBlock
+        .builder()
+        .beginControlFlow("try")
+        .beginControlFlow("if ($L)", valueIsAvailable)
+        .add(generateInvocationFor(method, targetParameter, value, null, onInvocation));
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder
+    if (defaultValue != null) {
+      callBuilder
           .nextControlFlow("else")
-          .addStatement("return $T.complete()", RxJavaClassNames.COMPLETABLE);
+          .add(generateInvocationFor(method, targetParameter, defaultValue, null, onInvocation));
     }
     
-    callMethodCodeBlockBuilder
+    return callBuilder
         .endControlFlow()
-        .nextControlFlow("catch (final Throwable error)");
+        .add(generateCatchClause(null))
+        .build();
+  }
+  
+  /**
+   * Generates a call which passes previously decoded values to a composite handler method. The lists are indexed by
+   * parameter and hold null for parameters without handler annotations. Each parameter receives its value if the value
+   * is available, otherwise its default value. The method is not called if any parameter without a default value has no
+   * available value.
+   */
+  public CodeBlock generateDecodedCompositeCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final List<CodeBlock> valuesAreAvailable,
+      final List<GeneratedValue> values,
+      final List<GeneratedValue> defaultValues,
+      final CodeBlock onInvocation) {
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.addStatement(
-          "return $T.error(new $T($S, error))",
-          RxJavaClassNames.COMPLETABLE,
-          RuntimeException.class,
-          "The Spyglass Framework encountered an exception when calling a target method.");
-      
-    } else {
-      callMethodCodeBlockBuilder.addStatement(
-          "throw new $T($S, error)",
-          RuntimeException.class,
-          "The Spyglass Framework encountered an exception when calling a target method.");
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    checkNotNull(targetParameter, "Argument \'targetParameter\' cannot be null.");
+    checkNotNull(valuesAreAvailable, "Argument \'valuesAreAvailable\' cannot be null.");
+    checkNotNull(values, "Argument \'values\' cannot be null.");
+    checkNotNull(defaultValues, "Argument \'defaultValues\' cannot be null.");
+    checkNotNull(onInvocation, "Argument \'onInvocation\' cannot be null.");
+    
+    if (!method.hasCompositeHandlerAnnotation()) {
+      throw new IllegalArgumentException("Argument \'method\' does not have a composite handler annotation.");
     }
     
-    callMethodCodeBlockBuilder.endControlFlow();
+    return CodeBlock
+        .builder()
+        .beginControlFlow("try")
+        .add(generateCompositeInvocationFor(
+            method,
+            targetParameter,
+            valuesAreAvailable,
+            values,
+            defaultValues,
+            null,
+            onInvocation))
+        .add(generateCatchClause(null))
+        .build();
+  }
+  
+  /**
+   * Groups the methods which can share a single read of their attribute, so that each group can be called using
+   * {@link #generateSharedValueCallsFor(List, CodeBlock, CodeBlock, List, List)}. Only methods which are adjacent in
+   * the supplied order are grouped, so that calling each group in place of its first method keeps the order of the
+   * supplied methods. Groups are ordered by their first method, and methods which cannot share a read with an adjacent
+   * method are omitted, since there is no read to share.
+   */
+  public List<List<AnnotatedMethod>> groupBySharedValue(final Collection<AnnotatedMethod> methods) {
+    checkNotNull(methods, "Argument \'methods\' cannot be null.");
+    
+    final List<List<AnnotatedMethod>> groups = new ArrayList<>();
+    
+    List<AnnotatedMethod> currentGroup = new ArrayList<>();
+    int currentAttributeIndex = -1;
+    
+    for (final AnnotatedMethod method : methods) {
+      final boolean canShareValue = method.hasConditionalHandlerAnnotation() &&
+          specificValueIsAvailableGenerator.canShareValue(method.getConditionalHandlerAnnotation());
+      
+      final int attributeIndex = canShareValue ? attributeIndexer.getIndexOf(method) : -1;
+      
+      if (!canShareValue || attributeIndex != currentAttributeIndex) {
+        if (currentGroup.size() > 1) {
+          groups.add(currentGroup);
+        }
+        
+        currentGroup = new ArrayList<>();
+        currentAttributeIndex = attributeIndex;
+      }
+      
+      if (canShareValue) {
+        currentGroup.add(method);
+      }
+    }
     
-    if (!typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder
-          .endControlFlow()
-          .addStatement(")");
+    if (currentGroup.size() > 1) {
+      groups.add(currentGroup);
     }
     
-    return callerBuilder
-        .addMethod(specificValueIsAvailable)
-        .addMethod(CallerDef
-            .getNewCallMethodPrototype()
-            .addCode(callMethodCodeBlockBuilder.build())
-            .build())
-        .build();
+    return groups;
   }
   
-  private TypeSpec generateForUnconditionalHandlerWithoutDefault(
-      final ExecutableElement method,
+  /**
+   * Generates the calls for a group of methods returned by {@link #groupBySharedValue(Collection)}. The attribute is
+   * read once for the whole group. If every method handles an enum ordinal then the methods are selected by switching
+   * on the value, otherwise the value is tested against each method in turn. The lists are indexed by method, and the
+   * result variable of a method is null if the method is called directly. Result variables are only assigned if their
+   * method is called, so they must be initialised beforehand.
+   */
+  public CodeBlock generateSharedValueCallsFor(
+      final List<AnnotatedMethod> methods,
       final CodeBlock targetParameter,
-      final CodeBlock contextParameter,
-      final CodeBlock attrsParameter) {
+      final CodeBlock attrsParameter,
+      final List<CodeBlock> resultVariables,
+      final List<CodeBlock> onInvocations) {
+    
+    checkNotNull(methods, "Argument \'methods\' cannot be null.");
     
-    final TypeSpec.Builder callerBuilder = CallerDef.getNewAnonymousCallerPrototype(
-        getNameOfTargetClass(method),
+    return generateSharedValueCallsFor(
+        methods,
         targetParameter,
-        contextParameter,
-        attrsParameter);
+        attrsParameter,
+        resultVariables,
+        onInvocations,
+        Collections.nCopies(methods.size(), null));
+  }
+  
+  /**
+   * Same as {@link #generateSharedValueCallsFor(List, CodeBlock, CodeBlock, List, List)}, except that each method is
+   * only called if its guard condition holds. The guards are indexed by method, and the guard of a method is null if
+   * the method is called whenever the attribute holds its value.
+   */
+  public CodeBlock generateSharedValueCallsFor(
+      final List<AnnotatedMethod> methods,
+      final CodeBlock targetParameter,
+      final CodeBlock attrsParameter,
+      final List<CodeBlock> resultVariables,
+      final List<CodeBlock> onInvocations,
+      final List<CodeBlock> guards) {
+    
+    checkNotNull(methods, "Argument \'methods\' cannot be null.");
+    checkNotNull(targetParameter, "Argument \'targetParameter\' cannot be null.");
+    checkNotNull(attrsParameter, "Argument \'attrsParameter\' cannot be null.");
+    checkNotNull(resultVariables, "Argument \'resultVariables\' cannot be null.");
+    checkNotNull(onInvocations, "Argument \'onInvocations\' cannot be null.");
+    checkNotNull(guards, "Argument \'guards\' cannot be null.");
+    
+    if (methods.isEmpty()) {
+      throw new IllegalArgumentException("Argument \'methods\' cannot be empty.");
+    }
     
-    final CodeBlock.Builder invocationBuilder = CodeBlock
+    if (resultVariables.size() != methods.size()) {
+      throw new IllegalArgumentException("Argument \'resultVariables\' must have one element per method.");
+    }
+    
+    if (onInvocations.size() != methods.size()) {
+      throw new IllegalArgumentException("Argument \'onInvocations\' must have one element per method.");
+    }
+    
+    if (guards.size() != methods.size()) {
+      throw new IllegalArgumentException("Argument \'guards\' must have one element per method.");
+    }
+    
+    final int attributeIndex = attributeIndexer.getIndexOf(methods.get(0));
+    boolean allHandleOrdinals = true;
+    
+    for (final AnnotatedMethod method : methods) {
+      if (!method.hasConditionalHandlerAnnotation() ||
+          !specificValueIsAvailableGenerator.canShareValue(method.getConditionalHandlerAnnotation()) ||
+          attributeIndexer.getIndexOf(method) != attributeIndex) {
+        
+        throw new IllegalArgumentException("Argument \'methods\' contains methods which cannot share a value.");
+      }
+      
+      allHandleOrdinals &= specificValueIsAvailableGenerator.getHandledOrdinal(
+          method.getConditionalHandlerAnnotation()) != null;
+    }
+    
+    final CodeBlock sharedValue = specificValueIsAvailableGenerator.generateSharedValueFor(
+        methods.get(0).getConditionalHandlerAnnotation(),
+        attrsParameter,
+        attributeIndex);
+    
+    final CodeBlock.Builder callsBuilder = CodeBlock
         .builder()
-        .add("$N().$N(", CallerDef.GET_TARGET, method.getSimpleName());
+        .beginControlFlow("if ($L.hasValue($L))", attrsParameter, attributeIndex);
     
-    for (int i = 0; i < method.getParameters().size(); i++) {
-      final VariableElement parameter = method.getParameters().get(i);
+    if (allHandleOrdinals) {
+      callsBuilder.beginControlFlow("switch ($L)", sharedValue);
+      
+      for (int i = 0; i < methods.size(); i++) {
+        final AnnotatedMethod method = methods.get(i);
+        
+        callsBuilder
+            .add("case $L:\n", specificValueIsAvailableGenerator.getHandledOrdinal(
+                method.getConditionalHandlerAnnotation()))
+            .indent()
+            .add(generateGuardedCallFor(
+                generateMatchedCallFor(method, targetParameter, resultVariables.get(i), onInvocations.get(i)),
+                guards.get(i)))
+            .addStatement("break")
+            .unindent();
+      }
       
-      final MethodSpec argMethod = PlaceholderRetriever.hasAnnotation(parameter) ?
-          getPlaceholderMethodGenerator.generateFor(PlaceholderRetriever.getAnnotation(parameter), i) :
-          getValueMethodGenerator.generateFor(UnconditionalHandlerRetriever.getAnnotation(method));
+      callsBuilder.endControlFlow();
       
-      invocationBuilder.add(castWrapperGenerator.generateFor(argMethod, parameter.asType()));
+    } else {
+      final String sharedValueVariable = "attribute" + attributeIndex + "Value";
       
-      callerBuilder.addMethod(argMethod);
+      callsBuilder.addStatement("final int $N = $L", sharedValueVariable, sharedValue);
       
-      if (i < method.getParameters().size() - 1) {
-        invocationBuilder.add(", ");
+      for (int i = 0; i < methods.size(); i++) {
+        final AnnotatedMethod method = methods.get(i);
+        
+        final CodeBlock valueMatches = specificValueIsAvailableGenerator.generateMatchFor(
+            method.getConditionalHandlerAnnotation(),
+            CodeBlock.of("$N", sharedValueVariable));
+        
+        callsBuilder
+            .add("\n")
+            .beginControlFlow("if ($L)", valueMatches)
+            .add(generateGuardedCallFor(
+                generateMatchedCallFor(method, targetParameter, resultVariables.get(i), onInvocations.get(i)),
+                guards.get(i)))
+            .endControlFlow();
       }
     }
     
-    invocationBuilder.add(")");
+    return callsBuilder
+        .endControlFlow()
+        .build();
+  }
+  
+  /**
+   * Generates the fields which must be declared by the class containing the calls generated for the method.
+   */
+  public Set<FieldSpec> generateSupportingFieldsFor(final AnnotatedMethod method) {
+    checkNotNull(method, "Argument \'method\' cannot be null.");
+    
+    final Set<FieldSpec> supportingFields = new LinkedHashSet<>();
+    
+    // The supporting fields do not depend on the variable names, so placeholders suffice
+    if (method.hasUnconditionalHandlerAnnotation()) {
+      supportingFields.addAll(getValueMethodGenerator
+          .generateInlineFor(method.getUnconditionalHandlerAnnotation(), CodeBlock.of("attrs"))
+          .getSupportingFields());
+    }
+    
+    if (method.hasDefaultAnnotation()) {
+      supportingFields.addAll(defaultValueGenerator
+          .generateInlineFor(method.getDefaultAnnotation(), CodeBlock.of("context"))
+          .getSupportingFields());
+    }
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      if (isSingle(method.getReturnType())) {
-        invocationBuilder.add(".toCompletable()");
+    for (int i = 0; i < method.getParameterTypes().size(); i++) {
+      if (method.hasParameterHandlerAnnotation(i)) {
+        supportingFields.addAll(getValueMethodGenerator
+            .generateInlineFor(method.getParameterHandlerAnnotation(i), CodeBlock.of("attrs"))
+            .getSupportingFields());
+      }
+      
+      if (method.hasParameterDefaultAnnotation(i)) {
+        supportingFields.addAll(defaultValueGenerator
+            .generateInlineFor(method.getParameterDefaultAnnotation(i), CodeBlock.of("context"))
+            .getSupportingFields());
+      }
+    }
+    
+    return supportingFields;
+  }
+  
+  private CodeBlock generateCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter,
+      final CodeBlock attrsParameter,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
+    
+    final CodeBlock.Builder callBuilder = CodeBlock.builder().beginControlFlow("try");
+    
+    if (method.hasConditionalHandlerAnnotation()) {
+      final CodeBlock specificValueIsAvailable = specificValueIsAvailableGenerator.generateInlineFor(
+          method.getConditionalHandlerAnnotation(),
+          attrsParameter,
+          attributeIndexer.getIndexOf(method));
+      
+      callBuilder
+          .beginControlFlow("if ($L)", specificValueIsAvailable)
+          .add(generateInvocationFor(method, targetParameter, null, resultVariable, onInvocation));
+      
+      if (resultVariable != null) {
+        callBuilder
+            .nextControlFlow("else")
+            .addStatement("$L = $T.complete()", resultVariable, RxJavaClassNames.COMPLETABLE);
+      }
+      
+      callBuilder.endControlFlow();
+      
+    } else if (method.hasUnconditionalHandlerAnnotation()) {
+      final AnnotationMirror unconditionalHandlerAnnotation = method.getUnconditionalHandlerAnnotation();
+      final int attributeIndex = attributeIndexer.getIndexOf(method);
+      
+      final CodeBlock anyValueIsAvailable = anyValueIsAvailableGenerator.generateInlineFor(
+          unconditionalHandlerAnnotation,
+          attrsParameter,
+          attributeIndex);
+      
+      final GeneratedValue value = getValueMethodGenerator.generateInlineFor(
+          unconditionalHandlerAnnotation,
+          attrsParameter,
+          attributeIndex);
+      
+      callBuilder
+          .beginControlFlow("if ($L)", anyValueIsAvailable)
+          .add(generateInvocationFor(method, targetParameter, value, resultVariable, onInvocation));
+      
+      if (method.hasDefaultAnnotation()) {
+        final GeneratedValue defaultValue = defaultValueGenerator.generateInlineFor(
+            method.getDefaultAnnotation(),
+            contextParameter);
         
-      } else if (isMaybe(method.getReturnType())) {
-        invocationBuilder.add(".ignoreElement()");
+        callBuilder
+            .nextControlFlow("else")
+            .add(generateInvocationFor(method, targetParameter, defaultValue, resultVariable, onInvocation));
         
-      } else if (!isCompletable(method.getReturnType())) {
-        invocationBuilder.add(".ignoreElements()");
+      } else if (resultVariable != null) {
+        callBuilder
+            .nextControlFlow("else")
+            .addStatement("$L = $T.complete()", resultVariable, RxJavaClassNames.COMPLETABLE);
+      }
+      
+      callBuilder.endControlFlow();
+      
+    } else if (method.hasCompositeHandlerAnnotation()) {
+      final List<CodeBlock> valuesAreAvailable = new ArrayList<>();
+      final List<GeneratedValue> values = new ArrayList<>();
+      final List<GeneratedValue> defaultValues = new ArrayList<>();
+      
+      // Every availability is read before any value, so that the method is called once with all of the values
+      for (int i = 0; i < method.getParameterTypes().size(); i++) {
+        if (method.hasParameterHandlerAnnotation(i)) {
+          final AnnotationMirror handlerAnnotation = method.getParameterHandlerAnnotation(i);
+          final int attributeIndex = attributeIndexer.getIndexOf(method, i);
+          final String availableVariable = getCompositeArgumentName(i) + "Available";
+          
+          callBuilder.addStatement(
+              "final boolean $N = $L",
+              availableVariable,
+              anyValueIsAvailableGenerator.generateInlineFor(handlerAnnotation, attrsParameter, attributeIndex));
+          
+          valuesAreAvailable.add(CodeBlock.of("$N", availableVariable));
+          values.add(getValueMethodGenerator.generateInlineFor(handlerAnnotation, attrsParameter, attributeIndex));
+          defaultValues.add(method.hasParameterDefaultAnnotation(i) ?
+              defaultValueGenerator.generateInlineFor(method.getParameterDefaultAnnotation(i), contextParameter) :
+              null);
+          
+        } else {
+          valuesAreAvailable.add(null);
+          values.add(null);
+          defaultValues.add(null);
+        }
       }
+      
+      callBuilder
+          .add("\n")
+          .add(generateCompositeInvocationFor(
+              method,
+              targetParameter,
+              valuesAreAvailable,
+              values,
+              defaultValues,
+              resultVariable,
+              onInvocation));
+      
+    } else {
+      throw new IllegalArgumentException("Argument \'method\' does not have a handler annotation.");
     }
     
-    invocationBuilder.add(";\n");
-    
-    final MethodSpec anyValueIsAvailable = anyValueIsAvailableGenerator.generateFor(
-        UnconditionalHandlerRetriever.getAnnotation(method));
+    return callBuilder
+        .add(generateCatchClause(resultVariable))
+        .build();
+  }
+  
+  /**
+   * Generates a call to a method with a conditional handler, where the caller has already checked that the attribute
+   * holds the handled value.
+   */
+  private CodeBlock generateMatchedCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
     
-    final CodeBlock.Builder callMethodCodeBlockBuilder = CodeBlock.builder();
+    checkNotNull(onInvocation, "Argument \'onInvocation\' cannot be null.");
     
-    if (!typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.beginControlFlow("return $T.fromRunnable(() -> ", RxJavaClassNames.COMPLETABLE);
+    if (resultVariable != null && !typeMirrorHelper.isRxObservableType(method.getElement().getReturnType())) {
+      throw new IllegalArgumentException("Argument \'methods\' contains a deferred method which is not reactive.");
     }
     
-    callMethodCodeBlockBuilder
+    return CodeBlock
+        .builder()
         .beginControlFlow("try")
-        .beginControlFlow("if ($N())", anyValueIsAvailable);
-    
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.add("return ");
+        .add(generateInvocationFor(method, targetParameter, null, resultVariable, onInvocation))
+        .add(generateCatchClause(resultVariable))
+        .build();
+  }
+  
+  private CodeBlock generateGuardedCallFor(final CodeBlock call, final CodeBlock guard) {
+    if (guard == null) {
+      return call;
     }
     
-    callMethodCodeBlockBuilder.add(invocationBuilder.build());
+    return CodeBlock
+        .builder()
+        .beginControlFlow("if ($L)", guard)
+        .add(call)
+        .endControlFlow()
+        .build();
+  }
+  
+  private CodeBlock generateDefaultCallFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final CodeBlock contextParameter,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder
-          .nextControlFlow("else")
-          .addStatement("return $T.complete()", RxJavaClassNames.COMPLETABLE);
+    if (!method.hasDefaultAnnotation()) {
+      throw new IllegalArgumentException("Argument \'method\' does not have a default annotation.");
     }
     
-    callMethodCodeBlockBuilder
-        .endControlFlow()
+    final GeneratedValue defaultValue = defaultValueGenerator.generateInlineFor(
+        method.getDefaultAnnotation(),
+        contextParameter);
+    
+    return CodeBlock
+        .builder()
+        .beginControlFlow("try")
+        .add(generateInvocationFor(method, targetParameter, defaultValue, resultVariable, onInvocation))
+        .add(generateCatchClause(resultVariable))
+        .build();
+  }
+  
+  private CodeBlock generateCatchClause(final CodeBlock resultVariable) {
+    final CodeBlock.Builder catchBuilder = CodeBlock
+        .builder()
         .nextControlFlow("catch (final Throwable error)");
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.addStatement(
-          "return $T.error(new $T($S, error))",
+    if (resultVariable != null) {
+      catchBuilder.addStatement(
+          "$L = $T.error($T.$N(error))",
+          resultVariable,
           RxJavaClassNames.COMPLETABLE,
-          RuntimeException.class,
-          "The Spyglass Framework encountered an exception when calling a target method.");
+          RuntimeHelpersDef.getHelpersAsClassName(),
+          RuntimeHelpersDef.WRAP_TARGET_METHOD_EXCEPTION);
       
     } else {
-      callMethodCodeBlockBuilder.addStatement(
-          "throw new $T($S, error)",
-          RuntimeException.class,
-          "The Spyglass Framework encountered an exception when calling a target method.");
-    }
-    
-    callMethodCodeBlockBuilder.endControlFlow();
-    
-    if (!typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder
-          .endControlFlow()
-          .addStatement(")");
+      catchBuilder.addStatement(
+          "throw $T.$N(error)",
+          RuntimeHelpersDef.getHelpersAsClassName(),
+          RuntimeHelpersDef.WRAP_TARGET_METHOD_EXCEPTION);
     }
     
-    return callerBuilder
-        .addMethod(anyValueIsAvailable)
-        .addMethod(CallerDef
-            .getNewCallMethodPrototype()
-            .addCode(callMethodCodeBlockBuilder.build())
-            .build())
+    return catchBuilder
+        .endControlFlow()
         .build();
   }
   
-  private TypeSpec generateForUnconditionalHandlerWithDefault(
-      final ExecutableElement method,
+  private CodeBlock generateInvocationFor(
+      final AnnotatedMethod method,
       final CodeBlock targetParameter,
-      final CodeBlock contextParameter,
-      final CodeBlock attrsParameter) {
+      final GeneratedValue suppliedValue,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
     
-    final TypeSpec.Builder callerBuilder = CallerDef.getNewAnonymousCallerPrototype(
-        getNameOfTargetClass(method),
-        targetParameter,
-        contextParameter,
-        attrsParameter);
+    final List<TypeMirror> parameterTypes = method.getParameterTypes();
+    final List<CodeBlock> arguments = new ArrayList<>();
     
-    final CodeBlock.Builder valueAvailableCaseInvocationBuilder = CodeBlock
-        .builder()
-        .add("$N().$N(", CallerDef.GET_TARGET, method.getSimpleName());
+    for (int i = 0; i < parameterTypes.size(); i++) {
+      final GeneratedValue argument = method.hasPlaceholderAnnotation(i) ?
+          getPlaceholderMethodGenerator.generateInlineFor(method.getPlaceholderAnnotation(i)) :
+          suppliedValue;
+      
+      arguments.add(castWrapperGenerator.generateFor(
+          argument.getExpression(),
+          argument.getType(),
+          parameterTypes.get(i)));
+    }
     
-    final CodeBlock.Builder valueUnavailableCaseInvocationBuilder = CodeBlock
+    return CodeBlock
         .builder()
-        .add("$N().$N(", CallerDef.GET_TARGET, method.getSimpleName());
+        .add(suppliedValue == null ? CodeBlock.of("") : suppliedValue.getPreparation())
+        .add(generateInvocationWithArguments(method, targetParameter, arguments, resultVariable, onInvocation))
+        .build();
+  }
+  
+  /**
+   * Generates the invocation of a composite handler method. Each parameter with a handler annotation is assigned to a
+   * local variable before the method is called, and the value and default value of a parameter are prepared in
+   * separate branches so that their preparations do not share a scope.
+   */
+  private CodeBlock generateCompositeInvocationFor(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final List<CodeBlock> valuesAreAvailable,
+      final List<GeneratedValue> values,
+      final List<GeneratedValue> defaultValues,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
+    
+    final List<TypeMirror> parameterTypes = method.getParameterTypes();
+    final List<CodeBlock> requiredValuesAreAvailable = new ArrayList<>();
+    
+    for (int i = 0; i < parameterTypes.size(); i++) {
+      if (method.hasParameterHandlerAnnotation(i) && defaultValues.get(i) == null) {
+        requiredValuesAreAvailable.add(valuesAreAvailable.get(i));
+      }
+    }
     
-    final AnnotationMirror unconditionalHandlerAnnotation = UnconditionalHandlerRetriever.getAnnotation(method);
-    final MethodSpec getValueMethod = getValueMethodGenerator.generateFor(unconditionalHandlerAnnotation);
-    callerBuilder.addMethod(getValueMethod);
+    final CodeBlock.Builder invocationBuilder = CodeBlock.builder();
     
-    final AnnotationMirror defaultAnnotation = DefaultRetriever.getAnnotation(method);
-    final MethodSpec getDefaultMethod = getDefaultMethodGenerator.generateFor(defaultAnnotation);
-    callerBuilder.addMethod(getDefaultMethod);
+    if (!requiredValuesAreAvailable.isEmpty()) {
+      invocationBuilder.beginControlFlow("if ($L)", CodeBlock.join(requiredValuesAreAvailable, " && "));
+    }
     
-    for (int i = 0; i < method.getParameters().size(); i++) {
-      final VariableElement parameter = method.getParameters().get(i);
-      
-      if (PlaceholderRetriever.hasAnnotation(parameter)) {
-        final AnnotationMirror placeholder = PlaceholderRetriever.getAnnotation(parameter);
-        final MethodSpec argMethod = getPlaceholderMethodGenerator.generateFor(placeholder, i);
+    final List<CodeBlock> arguments = new ArrayList<>();
+    
+    for (int i = 0; i < parameterTypes.size(); i++) {
+      if (method.hasPlaceholderAnnotation(i)) {
+        final GeneratedValue placeholder = getPlaceholderMethodGenerator.generateInlineFor(
+            method.getPlaceholderAnnotation(i));
         
-        valueAvailableCaseInvocationBuilder.add(castWrapperGenerator.generateFor(argMethod, parameter.asType()));
-        valueUnavailableCaseInvocationBuilder.add(castWrapperGenerator.generateFor(argMethod, parameter.asType()));
+        arguments.add(castWrapperGenerator.generateFor(
+            placeholder.getExpression(),
+            placeholder.getType(),
+            parameterTypes.get(i)));
         
-        callerBuilder.addMethod(argMethod);
-      } else {
-        valueAvailableCaseInvocationBuilder.add(castWrapperGenerator.generateFor(
-            getValueMethod,
-            parameter.asType()));
-        
-        valueUnavailableCaseInvocationBuilder.add(castWrapperGenerator.generateFor(
-            getDefaultMethod,
-            parameter.asType()));
+        continue;
       }
       
-      if (i < method.getParameters().size() - 1) {
-        valueAvailableCaseInvocationBuilder.add(", ");
-        valueUnavailableCaseInvocationBuilder.add(", ");
-      }
-    }
-    
-    valueAvailableCaseInvocationBuilder.add(")");
-    valueUnavailableCaseInvocationBuilder.add(")");
-    
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      if (isSingle(method.getReturnType())) {
-        valueAvailableCaseInvocationBuilder.add(".toCompletable()");
-        valueUnavailableCaseInvocationBuilder.add(".toCompletable()");
-        
-      } else if (isMaybe(method.getReturnType())) {
-        valueAvailableCaseInvocationBuilder.add(".ignoreElement()");
-        valueUnavailableCaseInvocationBuilder.add(".ignoreElement()");
+      final String argumentVariable = getCompositeArgumentName(i);
+      final GeneratedValue value = values.get(i);
+      final GeneratedValue defaultValue = defaultValues.get(i);
+      
+      if (defaultValue == null) {
+        invocationBuilder
+            .add(value.getPreparation())
+            .addStatement(
+                "final $T $N = $L",
+                TypeName.get(parameterTypes.get(i)),
+                argumentVariable,
+                castWrapperGenerator.generateFor(value.getExpression(), value.getType(), parameterTypes.get(i)));
         
-      } else if (!isCompletable(method.getReturnType())) {
-        valueAvailableCaseInvocationBuilder.add(".ignoreElements()");
-        valueUnavailableCaseInvocationBuilder.add(".ignoreElements()");
+      } else {
+        invocationBuilder
+            .addStatement("final $T $N", TypeName.get(parameterTypes.get(i)), argumentVariable)
+            .beginControlFlow("if ($L)", valuesAreAvailable.get(i))
+            .add(value.getPreparation())
+            .addStatement(
+                "$N = $L",
+                argumentVariable,
+                castWrapperGenerator.generateFor(value.getExpression(), value.getType(), parameterTypes.get(i)))
+            .nextControlFlow("else")
+            .add(defaultValue.getPreparation())
+            .addStatement(
+                "$N = $L",
+                argumentVariable,
+                castWrapperGenerator.generateFor(
+                    defaultValue.getExpression(),
+                    defaultValue.getType(),
+                    parameterTypes.get(i)))
+            .endControlFlow();
       }
+      
+      arguments.add(CodeBlock.of("$N", argumentVariable));
     }
     
-    valueAvailableCaseInvocationBuilder.add(";\n");
-    valueUnavailableCaseInvocationBuilder.add(";\n");
-    
-    final MethodSpec anyValueIsAvailable = anyValueIsAvailableGenerator.generateFor(
-        UnconditionalHandlerRetriever.getAnnotation(method));
-    
-    final CodeBlock.Builder callMethodCodeBlockBuilder = CodeBlock.builder();
+    invocationBuilder.add(
+        generateInvocationWithArguments(method, targetParameter, arguments, resultVariable, onInvocation));
     
-    if (!typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.beginControlFlow("return $T.fromRunnable(() -> ", RxJavaClassNames.COMPLETABLE);
+    if (!requiredValuesAreAvailable.isEmpty()) {
+      if (resultVariable != null) {
+        invocationBuilder
+            .nextControlFlow("else")
+            .addStatement("$L = $T.complete()", resultVariable, RxJavaClassNames.COMPLETABLE);
+      }
+      
+      invocationBuilder.endControlFlow();
     }
     
-    callMethodCodeBlockBuilder
-        .beginControlFlow("try")
-        .beginControlFlow("if ($N())", anyValueIsAvailable);
-    
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.add("return ");
-    }
+    return invocationBuilder.build();
+  }
+  
+  private CodeBlock generateInvocationWithArguments(
+      final AnnotatedMethod method,
+      final CodeBlock targetParameter,
+      final List<CodeBlock> arguments,
+      final CodeBlock resultVariable,
+      final CodeBlock onInvocation) {
     
-    callMethodCodeBlockBuilder
-        .add(valueAvailableCaseInvocationBuilder.build())
-        .nextControlFlow("else");
+    final CodeBlock.Builder invocationBuilder = CodeBlock.builder();
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.add("return ");
+    if (resultVariable != null) {
+      invocationBuilder.add("$L = ", resultVariable);
     }
     
-    callMethodCodeBlockBuilder
-        .add(valueUnavailableCaseInvocationBuilder.build())
-        .endControlFlow();
-    
-    callMethodCodeBlockBuilder.nextControlFlow("catch (final Throwable error)");
+    invocationBuilder.add(
+        "$L.$N($L)",
+        targetParameter,
+        method.getElement().getSimpleName(),
+        CodeBlock.join(arguments, ", "));
     
-    if (typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder.addStatement(
-          "return $T.error(new $T($S, error))",
-          RxJavaClassNames.COMPLETABLE,
-          RuntimeException.class,
-          "The Spyglass Framework encountered an exception when calling a target method.");
+    if (typeMirrorHelper.isRxObservableType(method.getElement().getReturnType())) {
+      if (isSingle(method.getElement().getReturnType())) {
+        invocationBuilder.add(".toCompletable()");
+        
+      } else if (isMaybe(method.getElement().getReturnType())) {
+        invocationBuilder.add(".ignoreElement()");
+        
+      } else if (!isCompletable(method.getElement().getReturnType())) {
+        invocationBuilder.add(".ignoreElements()");
+      }
       
-    } else {
-      callMethodCodeBlockBuilder.addStatement(
-          "throw new $T($S, error)",
-          RuntimeException.class,
-          "The Spyglass Framework encountered an exception when calling a target method.");
-    }
-    
-    callMethodCodeBlockBuilder.endControlFlow();
-    
-    if (!typeMirrorHelper.isRxObservableType(method.getReturnType())) {
-      callMethodCodeBlockBuilder
-          .endControlFlow()
-          .addStatement(")");
+      if (resultVariable == null) {
+        invocationBuilder.add(".blockingAwait()");
+      }
     }
     
-    return callerBuilder
-        .addMethod(anyValueIsAvailable)
-        .addMethod(CallerDef
-            .getNewCallMethodPrototype()
-            .addCode(callMethodCodeBlockBuilder.build())
-            .build())
+    return invocationBuilder
+        .add(";\n")
+        .add(onInvocation)
         .build();
   }
   
-  private TypeName getNameOfTargetClass(final ExecutableElement method) {
-    final TypeElement enclosingType = (TypeElement) method.getEnclosingElement();
-    
-    return TypeName.get(enclosingType.asType());
+  private String getCompositeArgumentName(final int parameterIndex) {
+    return "argument" + parameterIndex;
   }
   
   private boolean isSingle(final TypeMirror typeMirror) {
@@ -16,48 +16,84 @@
 
 package com.matthewtamlin.spyglass.processor.codegeneration;
 
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.SuppliedTypeHelper;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.TypeMirrorHelper;
 import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
 
 import javax.inject.Inject;
 import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.Elements;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class CastWrapperGenerator {
-  private final Elements elementUtil;
-  
   private final TypeMirrorHelper typeMirrorHelper;
   
+  private final SuppliedTypeHelper suppliedTypeHelper;
+  
   @Inject
-  public CastWrapperGenerator(final Elements elementUtil, final TypeMirrorHelper typeMirrorHelper) {
-    this.elementUtil = checkNotNull(elementUtil);
+  public CastWrapperGenerator(final TypeMirrorHelper typeMirrorHelper, final SuppliedTypeHelper suppliedTypeHelper) {
     this.typeMirrorHelper = checkNotNull(typeMirrorHelper);
+    this.suppliedTypeHelper = checkNotNull(suppliedTypeHelper);
   }
   
   public CodeBlock generateFor(final MethodSpec method, final TypeMirror recipient) {
-    final TypeMirror methodReturnType = elementUtil.getTypeElement(method.returnType.toString()).asType();
+    return generateFor(CodeBlock.of("$N()", method), method.returnType, recipient);
+  }
+  
+  public CodeBlock generateFor(final CodeBlock value, final TypeName suppliedType, final TypeMirror recipient) {
+    if (suppliedType.isPrimitive()) {
+      return generatePrimitiveCastWrapperFor(value, suppliedType, recipient);
+    }
+    
+    final TypeMirror suppliedTypeMirror = suppliedTypeHelper.getTypeMirror(suppliedType);
     
-    if (typeMirrorHelper.isNumber(recipient) && typeMirrorHelper.isNumber(methodReturnType)) {
-      return generateNumberCastWrapperFor(method, recipient);
+    if (suppliedTypeMirror == null) {
+      return CodeBlock.of("($T) $L", recipient, value);
       
-    } else if (typeMirrorHelper.isCharacter(recipient) && typeMirrorHelper.isCharacter(methodReturnType)) {
-      return generateCharacterCastWrapperFor(method, recipient);
+    } else if (typeMirrorHelper.isNumber(recipient) && typeMirrorHelper.isNumber(suppliedTypeMirror)) {
+      return generateNumberCastWrapperFor(value, suppliedType, recipient);
+      
+    } else if (typeMirrorHelper.isCharacter(recipient) && typeMirrorHelper.isCharacter(suppliedTypeMirror)) {
+      return generateCharacterCastWrapperFor(value, suppliedType, recipient);
       
     } else {
       return CodeBlock
           .builder()
-          .add("($T) $N()", recipient, method)
+          .add("($T) $L", recipient, value)
           .build();
     }
   }
   
-  private CodeBlock generateNumberCastWrapperFor(final MethodSpec method, final TypeMirror recipient) {
-    final TypeMirror methodReturnType = elementUtil.getTypeElement(method.returnType.toString()).asType();
+  private CodeBlock generatePrimitiveCastWrapperFor(
+      final CodeBlock value,
+      final TypeName suppliedType,
+      final TypeMirror recipient) {
+    
+    final TypeName recipientType = TypeName.get(recipient);
+    
+    if (recipientType.equals(suppliedType)) {
+      return value;
+      
+    } else if (recipientType.isPrimitive()) {
+      return CodeBlock.of("($T) $L", recipientType, value);
+      
+    } else if (recipientType.isBoxedPrimitive() && !recipientType.unbox().equals(suppliedType)) {
+      // Convert between primitives first since Java cannot box and widen/narrow in a single cast
+      return CodeBlock.of("($T) ($T) $L", recipientType, recipientType.unbox(), value);
+      
+    } else {
+      return CodeBlock.of("($T) $L", recipientType, value);
+    }
+  }
+  
+  private CodeBlock generateNumberCastWrapperFor(
+      final CodeBlock value,
+      final TypeName suppliedType,
+      final TypeMirror recipient) {
     
-    final CodeBlock toNumber = CodeBlock.of("($T) $N()", Number.class, method);
+    final CodeBlock toNumber = CodeBlock.of("($T) $L", Number.class, value);
     
     if (recipient.toString().equals("byte")) {
       return CodeBlock.of("(byte) ($L).byteValue()", toNumber);
@@ -96,21 +132,23 @@ public class CastWrapperGenerator {
       return CodeBlock.of("($T) ($L).doubleValue()", Double.class, toNumber);
       
     } else {
-      return CodeBlock.of("($T) $N()", methodReturnType, method);
+      return CodeBlock.of("($T) $L", suppliedType, value);
     }
   }
   
-  private CodeBlock generateCharacterCastWrapperFor(final MethodSpec method, final TypeMirror recipient) {
-    final TypeMirror methodReturnType = elementUtil.getTypeElement(method.returnType.toString()).asType();
+  private CodeBlock generateCharacterCastWrapperFor(
+      final CodeBlock value,
+      final TypeName suppliedType,
+      final TypeMirror recipient) {
     
     if (recipient.toString().equals("char")) {
-      return CodeBlock.of("(char) $N()", method);
+      return CodeBlock.of("(char) $L", value);
       
     } else if (recipient.toString().equals(Character.class.getCanonicalName())) {
-      return CodeBlock.of("($T) $N()", Character.class, method);
+      return CodeBlock.of("($T) $L", Character.class, value);
       
     } else {
-      return CodeBlock.of("($T) $N()", methodReturnType, method);
+      return CodeBlock.of("($T) $L", suppliedType, value);
     }
   }
 }
\ No newline at end of file
@@ -16,15 +16,19 @@
 
 package com.matthewtamlin.spyglass.processor.codegeneration;
 
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
 import com.matthewtamlin.spyglass.processor.core.CompanionNamer;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.DispatchMode;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.GenerationMode;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.TwoPhaseDecoding;
 import com.matthewtamlin.spyglass.processor.definitions.*;
-import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.TypeMirrorHelper;
 import com.squareup.javapoet.*;
 
 import javax.inject.Inject;
 import javax.lang.model.element.*;
 import javax.lang.model.util.Elements;
-import java.lang.annotation.Annotation;
 import java.util.*;
 import java.util.function.Supplier;
 
@@ -32,17 +36,53 @@ import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull
 import static javax.lang.model.element.Modifier.*;
 
 public class CompanionGenerator {
+  private static final String OVERRIDDEN_HANDLERS_FIELD_NAME = "OVERRIDDEN_HANDLERS";
+  
   private final CallerGenerator callerGenerator;
   
+  private final AttributesGenerator attributesGenerator;
+  
   private final Elements elementUtil;
   
+  private final TypeMirrorHelper typeMirrorHelper;
+  
+  private final ProcessorOptions processorOptions;
+  
+  private final AttributeIndexer attributeIndexer;
+  
+  private final BatchHookGenerator batchHookGenerator;
+  
+  private final HierarchyResolver hierarchyResolver;
+  
   @Inject
-  public CompanionGenerator(final CallerGenerator callerGenerator, final Elements elementUtil) {
+  public CompanionGenerator(
+      final CallerGenerator callerGenerator,
+      final AttributesGenerator attributesGenerator,
+      final Elements elementUtil,
+      final TypeMirrorHelper typeMirrorHelper,
+      final ProcessorOptions processorOptions,
+      final AttributeIndexer attributeIndexer,
+      final BatchHookGenerator batchHookGenerator,
+      final HierarchyResolver hierarchyResolver) {
+    
     this.callerGenerator = checkNotNull(callerGenerator);
+    this.attributesGenerator = checkNotNull(attributesGenerator);
     this.elementUtil = checkNotNull(elementUtil);
+    this.typeMirrorHelper = checkNotNull(typeMirrorHelper);
+    this.processorOptions = checkNotNull(processorOptions);
+    this.attributeIndexer = checkNotNull(attributeIndexer);
+    this.batchHookGenerator = checkNotNull(batchHookGenerator);
+    this.hierarchyResolver = checkNotNull(hierarchyResolver);
   }
   
-  public JavaFile generateFor(final TypeElement targetType) {
+  /**
+   * Generates the companion for a target type. The annotated methods must be the methods of the target type which have
+   * Spyglass annotations.
+   */
+  public JavaFile generateFor(final TypeElement targetType, final List<AnnotatedMethod> annotatedMethods) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    checkNotNull(annotatedMethods, "Argument \'annotatedMethods\' cannot be null.");
+    
     final String companionName = CompanionNamer.getCompanionNameFor(targetType);
     final String builderName = "Builder";
     
@@ -50,6 +90,9 @@ public class CompanionGenerator {
     final TypeName companionTypeName = ClassName.get(getPackage(targetType).toString(), companionName);
     final TypeName builderTypeName = ClassName.get(getPackage(targetType).toString(), companionName, builderName);
     
+    final FieldSpec attrResources = generateAttrResourcesField(targetType, annotatedMethods);
+    final StyleableResource styleableResource = new StyleableResource(attrResources);
+    
     final FieldSpec builderTarget = FieldSpec
         .builder(targetTypeName, "target", PRIVATE)
         .build();
@@ -151,56 +194,169 @@ public class CompanionGenerator {
             .build())
         .build();
     
+    final CodeBlock.Builder buildCodeBuilder = CodeBlock
+        .builder()
+        .beginControlFlow("if ($N == null)", builderTarget)
+        .addStatement(
+            "throw new $T($S)",
+            IllegalStateException.class,
+            "A target must be set before calling build().")
+        .endControlFlow()
+        .add("\n")
+        .beginControlFlow("if ($N == null)", builderContext)
+        .addStatement(
+            "throw new $T($S)",
+            IllegalStateException.class,
+            "A context must be set before calling build().")
+        .endControlFlow()
+        .add("\n");
+    
+    if (styleableResource.isSupplied()) {
+      buildCodeBuilder
+          .beginControlFlow("if ($N == null)", builderStyleableResource)
+          .addStatement(
+              "throw new $T($S)",
+              IllegalStateException.class,
+              "A styleable resource must be set before calling build().")
+          .endControlFlow()
+          .add("\n");
+    }
+    
     final MethodSpec build = MethodSpec
         .methodBuilder("build")
         .addModifiers(PUBLIC)
         .returns(companionTypeName)
-        .addCode(CodeBlock
-            .builder()
-            .beginControlFlow("if ($N == null)", builderTarget)
-            .addStatement(
-                "throw new $T($S)",
-                IllegalStateException.class,
-                "A target must be set before calling build().")
-            .endControlFlow()
-            .add("\n")
-            .beginControlFlow("if ($N == null)", builderContext)
-            .addStatement(
-                "throw new $T($S)",
-                IllegalStateException.class,
-                "A context must be set before calling build().")
-            .endControlFlow()
-            .add("\n")
-            .beginControlFlow("if ($N == null)", builderStyleableResource)
-            .addStatement(
-                "throw new $T($S)",
-                IllegalStateException.class,
-                "A styleable resource must be set before calling build().")
-            .endControlFlow()
-            .add("\n")
+        .addCode(buildCodeBuilder
             .addStatement("return new $T(this)", companionTypeName)
             .build())
         .build();
     
-    final TypeSpec builder = TypeSpec
+    final TypeSpec.Builder builderBuilder = TypeSpec
         .classBuilder(builderName)
         .addModifiers(PUBLIC, STATIC)
         .addField(builderTarget)
-        .addField(builderContext)
-        .addField(builderStyleableResource)
+        .addField(builderContext);
+    
+    if (styleableResource.isSupplied()) {
+      builderBuilder.addField(builderStyleableResource);
+    }
+    
+    builderBuilder
         .addField(builderAttributeSet)
         .addField(builderDefaultStyleAttribute)
         .addField(builderDefaultStyleResource)
         .addMethod(builderConstructor)
         .addMethod(setBuilderTarget)
-        .addMethod(setBuilderContext)
-        .addMethod(setBuilderStyleableResource)
+        .addMethod(setBuilderContext);
+    
+    if (styleableResource.isSupplied()) {
+      builderBuilder.addMethod(setBuilderStyleableResource);
+    }
+    
+    final TypeSpec builder = builderBuilder
         .addMethod(setBuilderAttributeSet)
         .addMethod(setBuilderDefaultStyleAttribute)
         .addMethod(setBuilderDefaultStyleResource)
         .addMethod(build)
         .build();
     
+    final TypeSpec companion = processorOptions.getGenerationMode() == GenerationMode.DIRECT ?
+        generateDirectCompanion(
+            targetType,
+            annotatedMethods,
+            companionName,
+            builderTypeName,
+            builder,
+            styleableResource) :
+        generateReactiveCompanion(
+            targetType,
+            annotatedMethods,
+            companionName,
+            builderTypeName,
+            builder,
+            styleableResource);
+    
+    final TypeSpec.Builder companionWithAttributesBuilder = companion.toBuilder();
+    
+    if (attrResources != null) {
+      companionWithAttributesBuilder.addField(attrResources);
+    }
+    
+    // Subclasses in other modules number their handlers after the handlers counted here
+    if (styleableResource.isSupplied()) {
+      companionWithAttributesBuilder.addField(FieldSpec
+          .builder(TypeName.INT, HierarchyResolver.HIERARCHY_HANDLER_COUNT_FIELD_NAME, PUBLIC, STATIC, FINAL)
+          .initializer("$L", hierarchyResolver.countHandlersAbove(targetType) + annotatedMethods.size())
+          .build());
+    }
+    
+    // Annotations are not retained in class files, so subclasses in other modules read the styleable from here
+    if (isHierarchyLevel(targetType, styleableResource)) {
+      companionWithAttributesBuilder
+          .addField(FieldSpec
+              .builder(String.class, HierarchyResolver.STYLEABLE_NAME_FIELD_NAME, PUBLIC, STATIC, FINAL)
+              .initializer("$S", hierarchyResolver.getStyleableNameOf(targetType))
+              .build())
+          .addField(FieldSpec
+              .builder(String.class, HierarchyResolver.HANDLER_SIGNATURES_FIELD_NAME, PUBLIC, STATIC, FINAL)
+              .initializer("$S", hierarchyResolver.getHandlerSignaturesOf(annotatedMethods))
+              .build());
+    }
+    
+    if (isHierarchyLevel(targetType, styleableResource) &&
+        !hierarchyResolver.getOverriddenHandlersOf(targetType).isEmpty()) {
+      
+      companionWithAttributesBuilder.addField(generateOverriddenHandlersField(targetType, annotatedMethods));
+    }
+    
+    // Two-phase decoding roughly doubles the size of the companion, so it is only generated when requested
+    if (processorOptions.getTwoPhaseDecoding() == TwoPhaseDecoding.ENABLED) {
+      final TypeSpec attributes = attributesGenerator.generateFor(targetType, annotatedMethods);
+      
+      final TypeName attributesTypeName = ClassName.get(
+          getPackage(targetType).toString(),
+          companionName,
+          AttributesGenerator.CLASS_NAME);
+      
+      final MethodSpec decode = generateDecodeMethod(attributes, attributesTypeName, styleableResource);
+      
+      final MethodSpec decodeShared = generateDecodeSharedMethod(
+          targetType,
+          attributesTypeName,
+          decode,
+          attributesGenerator.isShareable(attributes),
+          styleableResource);
+      
+      companionWithAttributesBuilder
+          .addMethod(decode)
+          .addMethod(decodeShared)
+          .addMethod(generateApplySharedMethod(targetType, decodeShared, styleableResource))
+          .addType(attributes);
+    }
+    
+    // The target is the only originating element, so the companion can be regenerated in isolation
+    final TypeSpec companionWithAttributes = companionWithAttributesBuilder
+        .addOriginatingElement(targetType)
+        .build();
+    
+    return JavaFile
+        .builder(elementUtil.getPackageOf(targetType).getQualifiedName().toString(), companionWithAttributes)
+        .addFileComment("Generated by the Spyglass framework. Do not modify!")
+        .indent("\t")
+        .skipJavaLangImports(true)
+        .build();
+  }
+  
+  private TypeSpec generateReactiveCompanion(
+      final TypeElement targetType,
+      final List<AnnotatedMethod> annotatedMethods,
+      final String companionName,
+      final TypeName builderTypeName,
+      final TypeSpec builder,
+      final StyleableResource styleableResource) {
+    
+    final TypeName targetTypeName = ClassName.get(targetType);
+    
     final FieldSpec companionTarget = FieldSpec
         .builder(targetTypeName, "target", PRIVATE, FINAL)
         .build();
@@ -217,47 +373,24 @@ public class CompanionGenerator {
             FINAL)
         .build();
     
-    final Set<ExecutableElement> annotatedMethods = findAnnotatedElements(targetType);
-    final Iterator<ExecutableElement> annotatedMethodsIterator = annotatedMethods.iterator();
+    final boolean hierarchyLevel = isHierarchyLevel(targetType, styleableResource);
     
-    final ParameterSpec initialiseCallersAttributeParameter = ParameterSpec
-        .builder(AndroidClassNames.TYPED_ARRAY, "attributes", FINAL)
-        .build();
+    final MethodSpec dispatch = generateDispatchMethod(targetType, annotatedMethods, "dispatch", true, false);
     
-    final CodeBlock.Builder initialiseCallersCodeBuilder = CodeBlock
-        .builder()
-        .addStatement(
-            "final $T callers = new $T()",
-            ParameterizedTypeName.get(ClassName.get(List.class), CallerDef.getCallerAsClassName()),
-            ParameterizedTypeName.get(ClassName.get(ArrayList.class), CallerDef.getCallerAsClassName()))
-        .add("\n");
+    // The static entry point must not allocate observables, so it uses a dispatcher which calls everything directly
+    final MethodSpec dispatchNow = generateDispatchMethod(
+        targetType,
+        annotatedMethods,
+        "dispatchNow",
+        false,
+        hierarchyLevel);
     
-    while (annotatedMethodsIterator.hasNext()) {
-      initialiseCallersCodeBuilder
-          .addStatement(
-              "callers.add($L)",
-              callerGenerator.generateFor(
-                  annotatedMethodsIterator.next(),
-                  CodeBlock.of("$N", companionTarget),
-                  CodeBlock.of("$N", companionContext),
-                  CodeBlock.of("$N", initialiseCallersAttributeParameter)));
-      
-      if (annotatedMethodsIterator.hasNext()) {
-        initialiseCallersCodeBuilder.add("\n");
-      }
-    }
-    
-    initialiseCallersCodeBuilder
-        .add("\n")
-        .addStatement("return callers");
-    
-    final MethodSpec initialiseCallers = MethodSpec
-        .methodBuilder("initialiseCallers")
-        .addModifiers(PRIVATE)
-        .returns(ParameterizedTypeName.get(ClassName.get(List.class), CallerDef.getCallerAsClassName()))
-        .addParameter(initialiseCallersAttributeParameter)
-        .addCode(initialiseCallersCodeBuilder.build())
-        .build();
+    final MethodSpec apply = generateApplyMethod(
+        targetType,
+        "apply",
+        dispatchNow,
+        styleableResource,
+        hierarchyLevel ? CodeBlock.of("null") : null);
     
     final MethodSpec callTargetMethods = CompanionDef
         .getNewCallTargetMethodsMethodPrototype()
@@ -265,15 +398,16 @@ public class CompanionGenerator {
             .builder()
             .add("return $T\n", RxJavaClassNames.SINGLE)
             .add("\t\t.fromCallable(() -> $N.get())\n", companionAttributesSupplier)
-            .add("\t\t.flatMapCompletable(attributes -> $T\n", RxJavaClassNames.OBSERVABLE)
-            .add("\t\t\t\t.fromIterable($N(attributes))\n", initialiseCallers)
-            .add("\t\t\t\t.flatMapCompletable($T::$N)\n", CallerDef.getCallerAsClassName(), CallerDef.CALL.name)
-            .add("\t\t\t\t.andThen($T.fromRunnable(() -> attributes.recycle()))\n", RxJavaClassNames.COMPLETABLE)
-            .add("\t\t\t\t.onErrorResumeNext(error -> {\n")
-            .addStatement("\t\t\t\t\tattributes.recycle()")
-            .add("\n")
-            .addStatement("\t\t\t\t\treturn $T.error(error)", RxJavaClassNames.COMPLETABLE)
-            .addStatement("\t\t\t\t}))")
+            .add("\t\t.flatMapCompletable(attributes -> $T.$N(\n",
+                ReactiveRuntimeHelpersDef.getHelpersAsClassName(),
+                ReactiveRuntimeHelpersDef.RECYCLE_AFTER)
+            .add("\t\t\t\tattributes,\n")
+            .addStatement(
+                "\t\t\t\t$T.defer(() -> $N($N, $N, attributes))))",
+                RxJavaClassNames.COMPLETABLE,
+                dispatch,
+                companionTarget,
+                companionContext)
             .build())
         .build();
     
@@ -285,27 +419,31 @@ public class CompanionGenerator {
             .build())
         .build();
     
+    final CodeBlock obtainedStyleableResource = styleableResource.isSupplied() ?
+        CodeBlock.of("builder.$N", "styleableResource") :
+        styleableResource.getReference();
+    
     final MethodSpec companionConstructor = MethodSpec
         .constructorBuilder()
         .addModifiers(PRIVATE)
         .addParameter(builderTypeName, "builder", FINAL)
         .addCode(CodeBlock
             .builder()
-            .addStatement("this.$N = builder.$N", companionTarget, builderTarget)
-            .addStatement("this.$N = builder.$N", companionContext, builderContext)
+            .addStatement("this.$N = builder.$N", companionTarget, "target")
+            .addStatement("this.$N = builder.$N", companionContext, "context")
             .add("\n")
             .addStatement(
                 "$N = () -> $N.obtainStyledAttributes(\n" +
                     "builder.$N,\n" +
-                    "builder.$N,\n" +
+                    "$L,\n" +
                     "builder.$N,\n" +
                     "builder.$N)",
                 companionAttributesSupplier,
                 companionContext,
-                builderAttributeSet,
-                builderStyleableResource,
-                builderDefaultStyleAttribute,
-                builderDefaultStyleResource)
+                "attributeSet",
+                obtainedStyleableResource,
+                "defaultStyleAttribute",
+                "defaultStyleResource")
             .build())
         .build();
     
@@ -316,27 +454,1033 @@ public class CompanionGenerator {
         .addCode("return new $T();\n", builderTypeName)
         .build();
     
-    final TypeSpec companion = CompanionDef
+    return CompanionDef
         .getNewCompanionImplementationPrototype(companionName)
+        .addFields(generateSupportingFields(annotatedMethods))
         .addField(companionTarget)
         .addField(companionContext)
         .addField(companionAttributesSupplier)
         .addMethod(companionConstructor)
         .addMethod(callTargetMethods)
         .addMethod(callTargetMethodsNow)
-        .addMethod(initialiseCallers)
+        .addMethod(apply)
+        .addMethods(generateHierarchyMethods(targetType, dispatchNow, styleableResource))
+        .addMethod(dispatch)
+        .addMethod(dispatchNow)
         .addMethod(newBuilder)
         .addType(builder)
         .build();
+  }
+  
+  private TypeSpec generateDirectCompanion(
+      final TypeElement targetType,
+      final List<AnnotatedMethod> annotatedMethods,
+      final String companionName,
+      final TypeName builderTypeName,
+      final TypeSpec builder,
+      final StyleableResource styleableResource) {
     
-    return JavaFile
-        .builder(elementUtil.getPackageOf(targetType).getQualifiedName().toString(), companion)
-        .addFileComment("Generated by the Spyglass framework. Do not modify!")
-        .indent("\t")
-        .skipJavaLangImports(true)
+    final TypeName targetTypeName = ClassName.get(targetType);
+    
+    final FieldSpec companionTarget = FieldSpec
+        .builder(targetTypeName, "target", PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec companionContext = FieldSpec
+        .builder(AndroidClassNames.CONTEXT, "context", PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec companionStyleableResource = FieldSpec
+        .builder(ArrayTypeName.get(int[].class), "styleableResource", PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec companionAttributeSet = FieldSpec
+        .builder(AndroidClassNames.ATTRIBUTE_SET, "attributeSet", PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec companionDefaultStyleAttribute = FieldSpec
+        .builder(TypeName.INT, "defaultStyleAttribute", PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec companionDefaultStyleResource = FieldSpec
+        .builder(TypeName.INT, "defaultStyleResource", PRIVATE, FINAL)
+        .build();
+    
+    final boolean hierarchyLevel = isHierarchyLevel(targetType, styleableResource);
+    
+    final MethodSpec dispatch = generateDispatchMethod(
+        targetType,
+        annotatedMethods,
+        "dispatch",
+        false,
+        hierarchyLevel);
+    
+    final MethodSpec apply = generateApplyMethod(
+        targetType,
+        "apply",
+        dispatch,
+        styleableResource,
+        hierarchyLevel ? CodeBlock.of("null") : null);
+    
+    final List<CodeBlock> applyArguments = new ArrayList<>();
+    applyArguments.add(CodeBlock.of("$N", companionTarget));
+    applyArguments.add(CodeBlock.of("$N", companionContext));
+    
+    final CodeBlock.Builder constructorCodeBuilder = CodeBlock
+        .builder()
+        .addStatement("this.$N = builder.$N", companionTarget, "target")
+        .addStatement("this.$N = builder.$N", companionContext, "context");
+    
+    if (styleableResource.isSupplied()) {
+      applyArguments.add(CodeBlock.of("$N", companionStyleableResource));
+      constructorCodeBuilder.addStatement("this.$N = builder.$N", companionStyleableResource, "styleableResource");
+    }
+    
+    applyArguments.add(CodeBlock.of("$N", companionAttributeSet));
+    applyArguments.add(CodeBlock.of("$N", companionDefaultStyleAttribute));
+    applyArguments.add(CodeBlock.of("$N", companionDefaultStyleResource));
+    
+    final MethodSpec callTargetMethodsNow = DirectCompanionDef
+        .getNewCallTargetMethodsNowMethodPrototype()
+        .addCode(CodeBlock
+            .builder()
+            .addStatement("$N($L)", apply, CodeBlock.join(applyArguments, ", "))
+            .build())
+        .build();
+    
+    final MethodSpec companionConstructor = MethodSpec
+        .constructorBuilder()
+        .addModifiers(PRIVATE)
+        .addParameter(builderTypeName, "builder", FINAL)
+        .addCode(constructorCodeBuilder
+            .addStatement("this.$N = builder.$N", companionAttributeSet, "attributeSet")
+            .addStatement("this.$N = builder.$N", companionDefaultStyleAttribute, "defaultStyleAttribute")
+            .addStatement("this.$N = builder.$N", companionDefaultStyleResource, "defaultStyleResource")
+            .build())
+        .build();
+    
+    final MethodSpec newBuilder = MethodSpec
+        .methodBuilder("builder")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(builderTypeName)
+        .addCode("return new $T();\n", builderTypeName)
+        .build();
+    
+    final TypeSpec.Builder companionBuilder = DirectCompanionDef
+        .getNewCompanionImplementationPrototype(companionName)
+        .addFields(generateSupportingFields(annotatedMethods))
+        .addField(companionTarget)
+        .addField(companionContext);
+    
+    if (styleableResource.isSupplied()) {
+      companionBuilder.addField(companionStyleableResource);
+    }
+    
+    return companionBuilder
+        .addField(companionAttributeSet)
+        .addField(companionDefaultStyleAttribute)
+        .addField(companionDefaultStyleResource)
+        .addMethod(companionConstructor)
+        .addMethod(callTargetMethodsNow)
+        .addMethod(apply)
+        .addMethods(generateHierarchyMethods(targetType, dispatch, styleableResource))
+        .addMethod(dispatch)
+        .addMethod(newBuilder)
+        .addType(builder)
+        .build();
+  }
+  
+  /**
+   * Generates a static method which applies the attributes to the target without a builder or companion instance.
+   * Apart from the typed array supplied by Android, the method only allocates if a target method does. If the target
+   * is batch aware, the whole dispatch is reported as one batch using the mask returned by the dispatcher. The
+   * overridden handlers are passed to dispatchers which can skip them, and must be null for other dispatchers.
+   */
+  private MethodSpec generateApplyMethod(
+      final TypeElement targetType,
+      final String methodName,
+      final MethodSpec synchronousDispatch,
+      final StyleableResource styleableResource,
+      final CodeBlock overriddenHandlers) {
+    
+    final ParameterSpec targetParameter = ParameterSpec
+        .builder(ClassName.get(targetType), "target", FINAL)
+        .build();
+    
+    final ParameterSpec contextParameter = ParameterSpec
+        .builder(AndroidClassNames.CONTEXT, "context", FINAL)
+        .build();
+    
+    final ParameterSpec attributeSetParameter = ParameterSpec
+        .builder(AndroidClassNames.ATTRIBUTE_SET, "attributeSet", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleAttributeParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleAttribute", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleResourceParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleResource", FINAL)
+        .build();
+    
+    final CodeBlock dispatchCall = overriddenHandlers == null ?
+        CodeBlock.of("$N($N, $N, attributes)", synchronousDispatch, targetParameter, contextParameter) :
+        CodeBlock.of(
+            "$N($N, $N, attributes, $L)",
+            synchronousDispatch,
+            targetParameter,
+            contextParameter,
+            overriddenHandlers);
+    
+    final CodeBlock dispatchCode = batchHookGenerator.isBatchAware(targetType) ?
+        batchHookGenerator.generateBatchFor(
+            CodeBlock.of("$N", targetParameter),
+            batchHookGenerator.generateMaskAssignmentFor(dispatchCall)) :
+        CodeBlock.builder().addStatement("$L", dispatchCall).build();
+    
+    final CodeBlock applyCode = CodeBlock
+        .builder()
+        .add(generateNullChecks(styleableResource.withParameters(targetParameter, contextParameter)))
+        .add(generateObtainStyledAttributes(
+            contextParameter,
+            styleableResource.getReference(),
+            attributeSetParameter,
+            defaultStyleAttributeParameter,
+            defaultStyleResourceParameter))
+        .add("\n")
+        .beginControlFlow("try")
+        .add(dispatchCode)
+        .nextControlFlow("finally")
+        .addStatement("attributes.recycle()")
+        .endControlFlow()
+        .build();
+    
+    return MethodSpec
+        .methodBuilder(methodName)
+        .addModifiers(PUBLIC, STATIC)
+        .returns(void.class)
+        .addParameter(targetParameter)
+        .addParameter(contextParameter)
+        .addParameters(styleableResource.getParameters())
+        .addParameter(attributeSetParameter)
+        .addParameter(defaultStyleAttributeParameter)
+        .addParameter(defaultStyleResourceParameter)
+        .addCode(applyCode)
         .build();
   }
   
+  /**
+   * Generates a static method which calls the target methods of every annotated level of the target's class hierarchy
+   * using one typed array, starting with the base-most level. Levels are reached by delegating to the companion of
+   * the nearest superclass which declares the same styleable resource, so each level's handlers are only ever
+   * generated in the companion of the class which declares them. Handlers are called on the target, so a subclass
+   * which overrides a handler method receives the call. If the override is annotated as a handler again, the level
+   * which declares the overridden handler skips it, so that the override is only called by its own level. The method
+   * does not call the batch hooks, but returns the mask of the handlers which were called in every level so that the
+   * caller can report the whole hierarchy as one batch.
+   */
+  private MethodSpec generateDispatchHierarchyMethod(
+      final TypeElement targetType,
+      final MethodSpec synchronousDispatch) {
+    
+    final ParameterSpec targetParameter = ParameterSpec
+        .builder(ClassName.get(targetType), "target", FINAL)
+        .build();
+    
+    final ParameterSpec contextParameter = ParameterSpec
+        .builder(AndroidClassNames.CONTEXT, "context", FINAL)
+        .build();
+    
+    final ParameterSpec attributesParameter = ParameterSpec
+        .builder(AndroidClassNames.TYPED_ARRAY, "attributes", FINAL)
+        .build();
+    
+    final ParameterSpec overriddenHandlersParameter = generateOverriddenHandlersParameter();
+    
+    final ClassName superclassCompanion = hierarchyResolver.getSuperclassCompanionOf(targetType);
+    
+    final CodeBlock superclassDispatch = superclassCompanion == null ?
+        null :
+        CodeBlock.of(
+            "$T.$N($N, $N, $N, $N)",
+            superclassCompanion,
+            HierarchyResolver.DISPATCH_HIERARCHY_METHOD_NAME,
+            targetParameter,
+            contextParameter,
+            attributesParameter,
+            overriddenHandlersParameter);
+    
+    final CodeBlock levelDispatch = CodeBlock.of(
+        "$N($N, $N, $N, $N)",
+        synchronousDispatch,
+        targetParameter,
+        contextParameter,
+        attributesParameter,
+        overriddenHandlersParameter);
+    
+    final CodeBlock.Builder dispatchHierarchyCodeBuilder = CodeBlock.builder();
+    
+    // Superclasses of a target which is not batch aware are not batch aware either, so no handlers are reported
+    if (!batchHookGenerator.isBatchAware(targetType)) {
+      if (superclassDispatch != null) {
+        dispatchHierarchyCodeBuilder.addStatement("$L", superclassDispatch);
+      }
+      
+      dispatchHierarchyCodeBuilder
+          .addStatement("$L", levelDispatch)
+          .addStatement("return 0");
+      
+    } else if (superclassDispatch != null) {
+      dispatchHierarchyCodeBuilder
+          .addStatement("final int superclassMask = $L", superclassDispatch)
+          .addStatement("return superclassMask | $L", levelDispatch);
+      
+    } else {
+      dispatchHierarchyCodeBuilder.addStatement("return $L", levelDispatch);
+    }
+    
+    return MethodSpec
+        .methodBuilder(HierarchyResolver.DISPATCH_HIERARCHY_METHOD_NAME)
+        .addModifiers(PUBLIC, STATIC)
+        .returns(int.class)
+        .addParameter(targetParameter)
+        .addParameter(contextParameter)
+        .addParameter(attributesParameter)
+        .addParameter(overriddenHandlersParameter)
+        .addCode(dispatchHierarchyCodeBuilder.build())
+        .build();
+  }
+  
+  /**
+   * Generates the methods which apply the attributes to every annotated level of the target's class hierarchy using a
+   * single call to obtainStyledAttributes. The applyHierarchy method is only generated if a superclass of the target
+   * is a level, since it would otherwise be the same as the apply method. Nothing is generated for targets which do
+   * not declare a styleable resource (including targets which use attribute resources), since the levels of a hierarchy
+   * must be known to index the same styleable resource.
+   */
+  private List<MethodSpec> generateHierarchyMethods(
+      final TypeElement targetType,
+      final MethodSpec synchronousDispatch,
+      final StyleableResource styleableResource) {
+    
+    if (!isHierarchyLevel(targetType, styleableResource)) {
+      return Collections.emptyList();
+    }
+    
+    final MethodSpec dispatchHierarchy = generateDispatchHierarchyMethod(targetType, synchronousDispatch);
+    final List<MethodSpec> hierarchyMethods = new ArrayList<>();
+    
+    if (hierarchyResolver.getSuperclassCompanionOf(targetType) != null) {
+      final CodeBlock overriddenHandlers = hierarchyResolver.getOverriddenHandlersOf(targetType).isEmpty() ?
+          CodeBlock.of("null") :
+          CodeBlock.of("$N", OVERRIDDEN_HANDLERS_FIELD_NAME);
+      
+      hierarchyMethods.add(generateApplyMethod(
+          targetType,
+          "applyHierarchy",
+          dispatchHierarchy,
+          styleableResource,
+          overriddenHandlers));
+    }
+    
+    hierarchyMethods.add(dispatchHierarchy);
+    
+    return hierarchyMethods;
+  }
+  
+  /**
+   * Targets which declare a styleable resource can be levels of a class hierarchy, so their synchronous dispatchers
+   * take the handlers to skip when the hierarchy is applied.
+   */
+  private boolean isHierarchyLevel(final TypeElement targetType, final StyleableResource styleableResource) {
+    return styleableResource.isSupplied() && hierarchyResolver.getStyleableNameOf(targetType) != null;
+  }
+  
+  /**
+   * Generates the constant which flags the handlers of the target's hierarchy that are skipped when the hierarchy is
+   * applied, indexed by the number of each handler.
+   */
+  private FieldSpec generateOverriddenHandlersField(
+      final TypeElement targetType,
+      final List<AnnotatedMethod> annotatedMethods) {
+    
+    final List<Integer> overriddenHandlers = hierarchyResolver.getOverriddenHandlersOf(targetType);
+    final int handlerCount = hierarchyResolver.countHandlersAbove(targetType) + annotatedMethods.size();
+    final List<CodeBlock> flags = new ArrayList<>();
+    
+    for (int i = 0; i < handlerCount; i++) {
+      flags.add(CodeBlock.of("$L", overriddenHandlers.contains(i)));
+    }
+    
+    return FieldSpec
+        .builder(ArrayTypeName.get(boolean[].class), OVERRIDDEN_HANDLERS_FIELD_NAME, PRIVATE, STATIC, FINAL)
+        .initializer("new boolean[] {$L}", CodeBlock.join(flags, ", "))
+        .build();
+  }
+  
+  private ParameterSpec generateOverriddenHandlersParameter() {
+    return ParameterSpec
+        .builder(ArrayTypeName.get(boolean[].class), "overriddenHandlers", FINAL)
+        .build();
+  }
+  
+  /**
+   * Generates a static method which decodes the attributes without applying them to a target. The method does not
+   * access a target, so it can be called from a background thread (e.g. during asynchronous inflation).
+   */
+  private MethodSpec generateDecodeMethod(
+      final TypeSpec attributes,
+      final TypeName attributesTypeName,
+      final StyleableResource styleableResource) {
+    
+    final ParameterSpec contextParameter = ParameterSpec
+        .builder(AndroidClassNames.CONTEXT, "context", FINAL)
+        .build();
+    
+    final ParameterSpec attributeSetParameter = ParameterSpec
+        .builder(AndroidClassNames.ATTRIBUTE_SET, "attributeSet", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleAttributeParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleAttribute", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleResourceParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleResource", FINAL)
+        .build();
+    
+    final CodeBlock decodeCode = CodeBlock
+        .builder()
+        .add(generateNullChecks(styleableResource.withParameters(contextParameter)))
+        .add(generateObtainStyledAttributes(
+            contextParameter,
+            styleableResource.getReference(),
+            attributeSetParameter,
+            defaultStyleAttributeParameter,
+            defaultStyleResourceParameter))
+        .add("\n")
+        .beginControlFlow("try")
+        .addStatement("return new $N($N, attributes)", attributes, contextParameter)
+        .nextControlFlow("finally")
+        .addStatement("attributes.recycle()")
+        .endControlFlow()
+        .build();
+    
+    return MethodSpec
+        .methodBuilder("decode")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(attributesTypeName)
+        .addParameter(contextParameter)
+        .addParameters(styleableResource.getParameters())
+        .addParameter(attributeSetParameter)
+        .addParameter(defaultStyleAttributeParameter)
+        .addParameter(defaultStyleResourceParameter)
+        .addCode(decodeCode)
+        .build();
+  }
+  
+  /**
+   * Generates a static method which decodes the attributes without an attribute set, and caches the result in the
+   * snapshot cache so that later calls with the same theme and default style are served from the cache. If the
+   * attributes cannot be shared between targets then they are decoded on every call.
+   */
+  private MethodSpec generateDecodeSharedMethod(
+      final TypeElement targetType,
+      final TypeName attributesTypeName,
+      final MethodSpec decode,
+      final boolean shareable,
+      final StyleableResource styleableResource) {
+    
+    final ParameterSpec contextParameter = ParameterSpec
+        .builder(AndroidClassNames.CONTEXT, "context", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleAttributeParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleAttribute", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleResourceParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleResource", FINAL)
+        .build();
+    
+    final List<CodeBlock> decodeArguments = new ArrayList<>();
+    decodeArguments.add(CodeBlock.of("$N", contextParameter));
+    decodeArguments.addAll(styleableResource.getArguments());
+    decodeArguments.add(CodeBlock.of("null"));
+    decodeArguments.add(CodeBlock.of("$N", defaultStyleAttributeParameter));
+    decodeArguments.add(CodeBlock.of("$N", defaultStyleResourceParameter));
+    
+    final CodeBlock.Builder decodeSharedCodeBuilder = CodeBlock.builder();
+    
+    if (shareable) {
+      final ClassName cache = AttributesSnapshotCacheDef.getCacheAsClassName();
+      
+      decodeSharedCodeBuilder
+          .add(generateNullChecks(styleableResource.withParameters(contextParameter)))
+          .addStatement(
+              "final $T cachedAttributes = $T.$N($N, $T.class, $L, $N, $N)",
+              Object.class,
+              cache,
+              AttributesSnapshotCacheDef.GET,
+              contextParameter,
+              ClassName.get(targetType),
+              styleableResource.getReference(),
+              defaultStyleAttributeParameter,
+              defaultStyleResourceParameter)
+          .add("\n")
+          .beginControlFlow("if (cachedAttributes != null)")
+          .addStatement("return ($T) cachedAttributes", attributesTypeName)
+          .endControlFlow()
+          .add("\n")
+          .addStatement(
+              "final $T attributes = $N($L)",
+              attributesTypeName,
+              decode,
+              CodeBlock.join(decodeArguments, ", "))
+          .add("\n")
+          .addStatement(
+              "$T.$N($N, $T.class, $L, $N, $N, attributes)",
+              cache,
+              AttributesSnapshotCacheDef.PUT,
+              contextParameter,
+              ClassName.get(targetType),
+              styleableResource.getReference(),
+              defaultStyleAttributeParameter,
+              defaultStyleResourceParameter)
+          .add("\n")
+          .addStatement("return attributes");
+      
+    } else {
+      decodeSharedCodeBuilder
+          .add("// Drawables and arrays cannot be shared between targets, so the attributes are decoded every time\n")
+          .addStatement("return $N($L)", decode, CodeBlock.join(decodeArguments, ", "));
+    }
+    
+    return MethodSpec
+        .methodBuilder("decodeShared")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(attributesTypeName)
+        .addParameter(contextParameter)
+        .addParameters(styleableResource.getParameters())
+        .addParameter(defaultStyleAttributeParameter)
+        .addParameter(defaultStyleResourceParameter)
+        .addCode(decodeSharedCodeBuilder.build())
+        .build();
+  }
+  
+  /**
+   * Generates a static method which applies shared attributes to a target, for targets which are created without an
+   * attribute set.
+   */
+  private MethodSpec generateApplySharedMethod(
+      final TypeElement targetType,
+      final MethodSpec decodeShared,
+      final StyleableResource styleableResource) {
+    
+    final ParameterSpec targetParameter = ParameterSpec
+        .builder(ClassName.get(targetType), "target", FINAL)
+        .build();
+    
+    final ParameterSpec contextParameter = ParameterSpec
+        .builder(AndroidClassNames.CONTEXT, "context", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleAttributeParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleAttribute", FINAL)
+        .build();
+    
+    final ParameterSpec defaultStyleResourceParameter = ParameterSpec
+        .builder(TypeName.INT, "defaultStyleResource", FINAL)
+        .build();
+    
+    final List<CodeBlock> decodeSharedArguments = new ArrayList<>();
+    decodeSharedArguments.add(CodeBlock.of("$N", contextParameter));
+    decodeSharedArguments.addAll(styleableResource.getArguments());
+    decodeSharedArguments.add(CodeBlock.of("$N", defaultStyleAttributeParameter));
+    decodeSharedArguments.add(CodeBlock.of("$N", defaultStyleResourceParameter));
+    
+    return MethodSpec
+        .methodBuilder("applyShared")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(void.class)
+        .addParameter(targetParameter)
+        .addParameter(contextParameter)
+        .addParameters(styleableResource.getParameters())
+        .addParameter(defaultStyleAttributeParameter)
+        .addParameter(defaultStyleResourceParameter)
+        .addCode(CodeBlock
+            .builder()
+            .add(generateNullChecks(Collections.singletonList(targetParameter)))
+            .addStatement(
+                "$N($L).applyTo($N)",
+                decodeShared,
+                CodeBlock.join(decodeSharedArguments, ", "),
+                targetParameter)
+            .build())
+        .build();
+  }
+  
+  private CodeBlock generateNullChecks(final List<ParameterSpec> parameters) {
+    final CodeBlock.Builder codeBuilder = CodeBlock.builder();
+    
+    for (final ParameterSpec parameter : parameters) {
+      codeBuilder.addStatement(
+          "$T.$N($N, $S)",
+          RuntimeHelpersDef.getHelpersAsClassName(),
+          RuntimeHelpersDef.CHECK_ARGUMENT_NOT_NULL,
+          parameter,
+          parameter.name);
+    }
+    
+    if (!parameters.isEmpty()) {
+      codeBuilder.add("\n");
+    }
+    
+    return codeBuilder.build();
+  }
+  
+  private CodeBlock generateObtainStyledAttributes(
+      final ParameterSpec contextParameter,
+      final CodeBlock styleableResource,
+      final ParameterSpec attributeSetParameter,
+      final ParameterSpec defaultStyleAttributeParameter,
+      final ParameterSpec defaultStyleResourceParameter) {
+    
+    return CodeBlock
+        .builder()
+        .addStatement(
+            "final $T attributes = $N.obtainStyledAttributes(\n" +
+                "$N,\n" +
+                "$L,\n" +
+                "$N,\n" +
+                "$N)",
+            AndroidClassNames.TYPED_ARRAY,
+            contextParameter,
+            attributeSetParameter,
+            styleableResource,
+            defaultStyleAttributeParameter,
+            defaultStyleResourceParameter)
+        .build();
+  }
+  
+  private Set<FieldSpec> generateSupportingFields(final List<AnnotatedMethod> annotatedMethods) {
+    // Methods may share supporting fields (e.g. enum tables), but each field must only be declared once
+    final Map<String, FieldSpec> supportingFields = new LinkedHashMap<>();
+    
+    for (final AnnotatedMethod method : annotatedMethods) {
+      for (final FieldSpec field : callerGenerator.generateSupportingFieldsFor(method)) {
+        supportingFields.putIfAbsent(field.name, field);
+      }
+    }
+    
+    return new LinkedHashSet<>(supportingFields.values());
+  }
+  
+  /**
+   * Generates a method which calls the target methods of one level. Dispatchers which skip overridden handlers take the
+   * flags of the handlers to skip, or null to call every handler.
+   */
+  private MethodSpec generateDispatchMethod(
+      final TypeElement targetType,
+      final List<AnnotatedMethod> annotatedMethods,
+      final String methodName,
+      final boolean deferReactiveCalls,
+      final boolean skipOverriddenHandlers) {
+    
+    final ParameterSpec targetParameter = ParameterSpec
+        .builder(ClassName.get(targetType), "target", FINAL)
+        .build();
+    
+    final ParameterSpec contextParameter = ParameterSpec
+        .builder(AndroidClassNames.CONTEXT, "context", FINAL)
+        .build();
+    
+    final ParameterSpec attributesParameter = ParameterSpec
+        .builder(AndroidClassNames.TYPED_ARRAY, "attributes", FINAL)
+        .build();
+    
+    final Map<AnnotatedMethod, String> deferredCalls = new LinkedHashMap<>();
+    
+    for (final AnnotatedMethod method : annotatedMethods) {
+      if (deferReactiveCalls && typeMirrorHelper.isRxObservableType(method.getElement().getReturnType())) {
+        deferredCalls.put(method, "deferredCall" + deferredCalls.size());
+      }
+    }
+    
+    final ParameterSpec overriddenHandlersParameter = generateOverriddenHandlersParameter();
+    
+    final boolean batchAware = batchHookGenerator.isBatchAware(targetType);
+    final int firstHandlerIndex = hierarchyResolver.countHandlersAbove(targetType);
+    final Map<AnnotatedMethod, CodeBlock> invocationCallbacks = new HashMap<>();
+    final Map<AnnotatedMethod, CodeBlock> guards = new HashMap<>();
+    
+    for (int i = 0; i < annotatedMethods.size(); i++) {
+      final AnnotatedMethod method = annotatedMethods.get(i);
+      
+      // Deferred handlers are only applied once their completable completes, so they update the mask at that point
+      if (batchAware && deferredCalls.containsKey(method)) {
+        invocationCallbacks.put(
+            method,
+            batchHookGenerator.generateDeferredMaskUpdateFor(
+                firstHandlerIndex + i,
+                CodeBlock.of("$N", deferredCalls.get(method))));
+        
+      } else if (batchAware && deferReactiveCalls) {
+        invocationCallbacks.put(method, batchHookGenerator.generateReactiveMaskUpdateFor(firstHandlerIndex + i));
+        
+      } else if (batchAware) {
+        invocationCallbacks.put(method, batchHookGenerator.generateMaskUpdateFor(firstHandlerIndex + i));
+      }
+      
+      if (skipOverriddenHandlers) {
+        guards.put(
+            method,
+            CodeBlock.of(
+                "$1N == null || !$1N[$2L]",
+                overriddenHandlersParameter,
+                firstHandlerIndex + i));
+      }
+    }
+    
+    final DispatchContext dispatchContext = new DispatchContext(
+        CodeBlock.of("$N", targetParameter),
+        CodeBlock.of("$N", contextParameter),
+        CodeBlock.of("$N", attributesParameter),
+        deferredCalls,
+        invocationCallbacks,
+        guards);
+    
+    final CodeBlock.Builder dispatchCodeBuilder = CodeBlock.builder();
+    
+    if (processorOptions.getDispatchMode() == DispatchMode.SPARSE) {
+      dispatchCodeBuilder.add(generateSparseDispatchCode(annotatedMethods, dispatchContext));
+    } else {
+      dispatchCodeBuilder.add(generateDenseDispatchCode(annotatedMethods, dispatchContext));
+    }
+    
+    final MethodSpec.Builder dispatchBuilder = MethodSpec
+        .methodBuilder(methodName)
+        .addModifiers(PRIVATE, STATIC)
+        .addParameter(targetParameter)
+        .addParameter(contextParameter)
+        .addParameter(attributesParameter);
+    
+    if (skipOverriddenHandlers) {
+      dispatchBuilder.addParameter(overriddenHandlersParameter);
+    }
+    
+    final CodeBlock completable = deferredCalls.isEmpty() ?
+        CodeBlock.of("$T.complete()", RxJavaClassNames.COMPLETABLE) :
+        CodeBlock.of("$T.mergeArray($L)", RxJavaClassNames.COMPLETABLE, String.join(", ", deferredCalls.values()));
+    
+    if (deferReactiveCalls) {
+      dispatchBuilder.returns(RxJavaClassNames.COMPLETABLE);
+    } else {
+      dispatchBuilder.returns(batchAware ? int.class : void.class);
+    }
+    
+    // Synchronous dispatchers return the mask, so that the caller reports one batch for every level of the hierarchy.
+    // Reactive dispatchers end their batch when the returned completable terminates.
+    final CodeBlock dispatchCode;
+    
+    if (deferReactiveCalls && batchAware) {
+      dispatchCode = batchHookGenerator.generateReactiveBatchFor(
+          CodeBlock.of("$N", targetParameter),
+          dispatchCodeBuilder.build(),
+          completable);
+      
+    } else if (deferReactiveCalls) {
+      dispatchCode = dispatchCodeBuilder
+          .add("\n")
+          .addStatement("return $L", completable)
+          .build();
+      
+    } else if (batchAware) {
+      dispatchCode = batchHookGenerator.generateMaskedCallsFor(dispatchCodeBuilder.build());
+    } else {
+      dispatchCode = dispatchCodeBuilder.build();
+    }
+    
+    return dispatchBuilder
+        .addCode(dispatchCode)
+        .build();
+  }
+  
+  private CodeBlock generateDenseDispatchCode(
+      final List<AnnotatedMethod> annotatedMethods,
+      final DispatchContext dispatchContext) {
+    
+    // Adjacent handlers which share a read of their attribute are called together, in place of the first of them
+    final Map<AnnotatedMethod, List<AnnotatedMethod>> groupsByFirstMethod = new HashMap<>();
+    final Set<AnnotatedMethod> groupedMethods = new HashSet<>();
+    
+    for (final List<AnnotatedMethod> group : callerGenerator.groupBySharedValue(annotatedMethods)) {
+      groupsByFirstMethod.put(group.get(0), group);
+      groupedMethods.addAll(group);
+    }
+    
+    final List<CodeBlock> calls = new ArrayList<>();
+    
+    for (final AnnotatedMethod method : annotatedMethods) {
+      final CodeBlock.Builder callBuilder = CodeBlock.builder();
+      
+      if (groupsByFirstMethod.containsKey(method)) {
+        final List<AnnotatedMethod> group = groupsByFirstMethod.get(method);
+        
+        // Methods in a group are not always called, so their deferred calls must be initialised
+        for (final AnnotatedMethod groupedMethod : group) {
+          if (dispatchContext.isDeferred(groupedMethod)) {
+            callBuilder.addStatement(
+                "$1T $2N = $1T.complete()",
+                RxJavaClassNames.COMPLETABLE,
+                dispatchContext.getDeferredCall(groupedMethod));
+          }
+        }
+        
+        calls.add(callBuilder
+            .add(generateSharedValueCallsFor(group, dispatchContext))
+            .build());
+        
+      } else if (!groupedMethods.contains(method)) {
+        if (dispatchContext.isDeferred(method)) {
+          callBuilder.addStatement("$T $N", RxJavaClassNames.COMPLETABLE, dispatchContext.getDeferredCall(method));
+        }
+        
+        calls.add(callBuilder
+            .add(generateCallFor(method, dispatchContext))
+            .build());
+      }
+    }
+    
+    return CodeBlock.join(calls, "\n");
+  }
+  
+  private CodeBlock generateSparseDispatchCode(
+      final List<AnnotatedMethod> annotatedMethods,
+      final DispatchContext dispatchContext) {
+    
+    // Index table from attribute ID to handlers, sorted so that the generated switch is stable
+    final Map<Integer, List<AnnotatedMethod>> methodsByAttributeId = new TreeMap<>();
+    final Map<Integer, List<AnnotatedMethod>> methodsWithDefaultsByAttributeId = new TreeMap<>();
+    
+    // Composite handlers read several attributes, so they are called once after the loop instead of in a case
+    final List<AnnotatedMethod> compositeMethods = new ArrayList<>();
+    
+    for (final AnnotatedMethod method : annotatedMethods) {
+      if (method.hasCompositeHandlerAnnotation()) {
+        compositeMethods.add(method);
+        continue;
+      }
+      
+      final int attributeId = attributeIndexer.getIndexOf(method);
+      
+      methodsByAttributeId.computeIfAbsent(attributeId, key -> new ArrayList<>()).add(method);
+      
+      if (method.hasDefaultAnnotation()) {
+        methodsWithDefaultsByAttributeId.computeIfAbsent(attributeId, key -> new ArrayList<>()).add(method);
+      }
+    }
+    
+    final CodeBlock.Builder codeBuilder = CodeBlock.builder();
+    
+    for (final String deferredCall : dispatchContext.getDeferredCalls()) {
+      codeBuilder.addStatement("$1T $2N = $1T.complete()", RxJavaClassNames.COMPLETABLE, deferredCall);
+    }
+    
+    for (final Integer attributeId : methodsWithDefaultsByAttributeId.keySet()) {
+      codeBuilder.addStatement("boolean $N = false", getVisitedFlagName(attributeId));
+    }
+    
+    if (!dispatchContext.getDeferredCalls().isEmpty() || !methodsWithDefaultsByAttributeId.isEmpty()) {
+      codeBuilder.add("\n");
+    }
+    
+    codeBuilder
+        .addStatement("final int indexCount = $L.getIndexCount()", dispatchContext.getAttributes())
+        .add("\n")
+        .beginControlFlow("for (int i = 0; i < indexCount; i++)")
+        .beginControlFlow("switch ($L.getIndex(i))", dispatchContext.getAttributes());
+    
+    for (final Map.Entry<Integer, List<AnnotatedMethod>> entry : methodsByAttributeId.entrySet()) {
+      codeBuilder
+          .add("case $L:\n", entry.getKey())
+          .indent();
+      
+      if (methodsWithDefaultsByAttributeId.containsKey(entry.getKey())) {
+        codeBuilder.addStatement("$N = true", getVisitedFlagName(entry.getKey()));
+      }
+      
+      final Map<AnnotatedMethod, List<AnnotatedMethod>> groupsByFirstMethod = new HashMap<>();
+      final Set<AnnotatedMethod> groupedMethods = new HashSet<>();
+      
+      for (final List<AnnotatedMethod> group : callerGenerator.groupBySharedValue(entry.getValue())) {
+        groupsByFirstMethod.put(group.get(0), group);
+        groupedMethods.addAll(group);
+      }
+      
+      for (final AnnotatedMethod method : entry.getValue()) {
+        if (groupsByFirstMethod.containsKey(method)) {
+          codeBuilder.add(generateSharedValueCallsFor(groupsByFirstMethod.get(method), dispatchContext));
+          
+        } else if (!groupedMethods.contains(method)) {
+          codeBuilder.add(generateCallFor(method, dispatchContext));
+        }
+      }
+      
+      codeBuilder
+          .addStatement("break")
+          .unindent();
+    }
+    
+    codeBuilder
+        .endControlFlow()
+        .endControlFlow();
+    
+    for (final Map.Entry<Integer, List<AnnotatedMethod>> entry : methodsWithDefaultsByAttributeId.entrySet()) {
+      codeBuilder
+          .add("\n")
+          .beginControlFlow("if (!$N)", getVisitedFlagName(entry.getKey()));
+      
+      for (final AnnotatedMethod method : entry.getValue()) {
+        codeBuilder.add(generateDefaultCallFor(method, dispatchContext));
+      }
+      
+      codeBuilder.endControlFlow();
+    }
+    
+    for (final AnnotatedMethod method : compositeMethods) {
+      codeBuilder
+          .add("\n")
+          .add(generateCallFor(method, dispatchContext));
+    }
+    
+    return codeBuilder.build();
+  }
+  
+  private CodeBlock generateCallFor(final AnnotatedMethod method, final DispatchContext dispatchContext) {
+    return generateGuardedCallFor(generateUnguardedCallFor(method, dispatchContext), method, dispatchContext);
+  }
+  
+  private CodeBlock generateUnguardedCallFor(final AnnotatedMethod method, final DispatchContext dispatchContext) {
+    if (dispatchContext.isDeferred(method)) {
+      return callerGenerator.generateDeferredCallFor(
+          method,
+          dispatchContext.getTarget(),
+          dispatchContext.getContext(),
+          dispatchContext.getAttributes(),
+          CodeBlock.of("$N", dispatchContext.getDeferredCall(method)),
+          dispatchContext.getInvocationCallback(method));
+      
+    } else {
+      return callerGenerator.generateDirectCallFor(
+          method,
+          dispatchContext.getTarget(),
+          dispatchContext.getContext(),
+          dispatchContext.getAttributes(),
+          dispatchContext.getInvocationCallback(method));
+    }
+  }
+  
+  private CodeBlock generateSharedValueCallsFor(
+      final List<AnnotatedMethod> methods,
+      final DispatchContext dispatchContext) {
+    
+    final List<CodeBlock> resultVariables = new ArrayList<>();
+    final List<CodeBlock> onInvocations = new ArrayList<>();
+    final List<CodeBlock> guards = new ArrayList<>();
+    
+    for (final AnnotatedMethod method : methods) {
+      resultVariables.add(dispatchContext.isDeferred(method) ?
+          CodeBlock.of("$N", dispatchContext.getDeferredCall(method)) :
+          null);
+      
+      onInvocations.add(dispatchContext.getInvocationCallback(method));
+      guards.add(dispatchContext.getGuard(method));
+    }
+    
+    return callerGenerator.generateSharedValueCallsFor(
+        methods,
+        dispatchContext.getTarget(),
+        dispatchContext.getAttributes(),
+        resultVariables,
+        onInvocations,
+        guards);
+  }
+  
+  private CodeBlock generateDefaultCallFor(final AnnotatedMethod method, final DispatchContext dispatchContext) {
+    return generateGuardedCallFor(generateUnguardedDefaultCallFor(method, dispatchContext), method, dispatchContext);
+  }
+  
+  private CodeBlock generateUnguardedDefaultCallFor(
+      final AnnotatedMethod method,
+      final DispatchContext dispatchContext) {
+    
+    if (dispatchContext.isDeferred(method)) {
+      return callerGenerator.generateDeferredDefaultCallFor(
+          method,
+          dispatchContext.getTarget(),
+          dispatchContext.getContext(),
+          CodeBlock.of("$N", dispatchContext.getDeferredCall(method)),
+          dispatchContext.getInvocationCallback(method));
+      
+    } else {
+      return callerGenerator.generateDirectDefaultCallFor(
+          method,
+          dispatchContext.getTarget(),
+          dispatchContext.getContext(),
+          dispatchContext.getInvocationCallback(method));
+    }
+  }
+  
+  private CodeBlock generateGuardedCallFor(
+      final CodeBlock call,
+      final AnnotatedMethod method,
+      final DispatchContext dispatchContext) {
+    
+    final CodeBlock guard = dispatchContext.getGuard(method);
+    
+    if (guard == null) {
+      return call;
+    }
+    
+    return CodeBlock
+        .builder()
+        .beginControlFlow("if ($L)", guard)
+        .add(call)
+        .endControlFlow()
+        .build();
+  }
+  
+  /**
+   * Generates the array of attributes to obtain for a target which uses attribute resources, in the ascending order
+   * required by obtainStyledAttributes.
+   *
+   * @return the field, or null if the target uses a styleable resource supplied at runtime
+   */
+  private FieldSpec generateAttrResourcesField(
+      final TypeElement targetType,
+      final List<AnnotatedMethod> annotatedMethods) {
+    
+    if (!attributeIndexer.usesAttrResourceIds(targetType)) {
+      return null;
+    }
+    
+    final List<CodeBlock> attrResourceIds = new ArrayList<>();
+    
+    for (final Integer attrResourceId : attributeIndexer.getAttrResourceIdsOf(targetType, annotatedMethods)) {
+      attrResourceIds.add(CodeBlock.of("$L", String.format("0x%08x", attrResourceId)));
+    }
+    
+    return FieldSpec
+        .builder(ArrayTypeName.get(int[].class), "ATTRIBUTES", PRIVATE, STATIC, FINAL)
+        .initializer("{$L}", CodeBlock.join(attrResourceIds, ", "))
+        .build();
+  }
+  
+  private String getVisitedFlagName(final int attributeId) {
+    return "attribute" + attributeId + "Visited";
+  }
+  
   private PackageElement getPackage(final TypeElement type) {
     if (type.getNestingKind() == NestingKind.TOP_LEVEL) {
       return (PackageElement) type.getEnclosingElement();
@@ -345,25 +1489,107 @@ public class CompanionGenerator {
     }
   }
   
-  private Set<ExecutableElement> findAnnotatedElements(final TypeElement type) {
-    final Set<Class<? extends Annotation>> handlerAnnotations = new HashSet<>();
+  private static class DispatchContext {
+    private final CodeBlock target;
     
-    handlerAnnotations.addAll(AnnotationRegistry.CONDITIONAL_HANDLERS);
-    handlerAnnotations.addAll(AnnotationRegistry.UNCONDITIONAL_HANDLERS);
-    handlerAnnotations.addAll(AnnotationRegistry.DEFAULTS);
+    private final CodeBlock context;
     
-    final Set<ExecutableElement> methodsWithAnnotations = new HashSet<>();
+    private final CodeBlock attributes;
     
-    for (final Element childElement : type.getEnclosedElements()) {
-      for (final Class<? extends Annotation> annotationType : handlerAnnotations) {
-        if (AnnotationMirrorHelper.getAnnotationMirror(childElement, annotationType) != null) {
-          methodsWithAnnotations.add((ExecutableElement) childElement);
-          
-          break;
-        }
-      }
+    private final Map<AnnotatedMethod, String> deferredCalls;
+    
+    private final Map<AnnotatedMethod, CodeBlock> invocationCallbacks;
+    
+    private final Map<AnnotatedMethod, CodeBlock> guards;
+    
+    public DispatchContext(
+        final CodeBlock target,
+        final CodeBlock context,
+        final CodeBlock attributes,
+        final Map<AnnotatedMethod, String> deferredCalls,
+        final Map<AnnotatedMethod, CodeBlock> invocationCallbacks,
+        final Map<AnnotatedMethod, CodeBlock> guards) {
+      
+      this.target = target;
+      this.context = context;
+      this.attributes = attributes;
+      this.deferredCalls = deferredCalls;
+      this.invocationCallbacks = invocationCallbacks;
+      this.guards = guards;
+    }
+    
+    public CodeBlock getTarget() {
+      return target;
+    }
+    
+    public CodeBlock getContext() {
+      return context;
     }
     
-    return methodsWithAnnotations;
+    public CodeBlock getAttributes() {
+      return attributes;
+    }
+    
+    public Collection<String> getDeferredCalls() {
+      return deferredCalls.values();
+    }
+    
+    public boolean isDeferred(final AnnotatedMethod method) {
+      return deferredCalls.containsKey(method);
+    }
+    
+    public String getDeferredCall(final AnnotatedMethod method) {
+      return deferredCalls.get(method);
+    }
+    
+    public CodeBlock getInvocationCallback(final AnnotatedMethod method) {
+      return invocationCallbacks.getOrDefault(method, CodeBlock.of(""));
+    }
+    
+    /**
+     * @return the condition which must hold for the method to be called, or null if the method is always called
+     */
+    public CodeBlock getGuard(final AnnotatedMethod method) {
+      return guards.get(method);
+    }
+  }
+  
+  /**
+   * The styleable resource used to obtain the attributes. Either the resource is supplied at runtime via a parameter
+   * of each generated method, or the attributes are known at compile time and the generated array is used.
+   */
+  private static class StyleableResource {
+    private final FieldSpec generatedArray;
+    
+    private final ParameterSpec parameter = ParameterSpec
+        .builder(ArrayTypeName.get(int[].class), "styleableResource", FINAL)
+        .build();
+    
+    public StyleableResource(final FieldSpec generatedArray) {
+      this.generatedArray = generatedArray;
+    }
+    
+    public boolean isSupplied() {
+      return generatedArray == null;
+    }
+    
+    public List<ParameterSpec> getParameters() {
+      return isSupplied() ? Collections.singletonList(parameter) : Collections.emptyList();
+    }
+    
+    public List<ParameterSpec> withParameters(final ParameterSpec... leadingParameters) {
+      final List<ParameterSpec> parameters = new ArrayList<>(Arrays.asList(leadingParameters));
+      parameters.addAll(getParameters());
+      
+      return parameters;
+    }
+    
+    public List<CodeBlock> getArguments() {
+      return isSupplied() ? Collections.singletonList(getReference()) : Collections.emptyList();
+    }
+    
+    public CodeBlock getReference() {
+      return isSupplied() ? CodeBlock.of("$N", parameter) : CodeBlock.of("$N", generatedArray);
+    }
   }
-}
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+/**
+ * Generates static tables which hold the constants of an enum. Calling {@code values()} clones the constants array
+ * every time, so generated code indexes a table instead. Every table is named after the enum it holds, so companions
+ * can declare one table per enum and share it between all callers.
+ */
+public final class EnumConstantTableGenerator {
+  public static FieldSpec generateFor(final ClassName enumClass) {
+    checkNotNull(enumClass, "Argument \'enumClass\' cannot be null.");
+    
+    return FieldSpec
+        .builder(ArrayTypeName.of(enumClass), getTableNameFor(enumClass), PRIVATE, STATIC, FINAL)
+        .initializer("$T.values()", enumClass)
+        .build();
+  }
+  
+  public static String getTableNameFor(final ClassName enumClass) {
+    checkNotNull(enumClass, "Argument \'enumClass\' cannot be null.");
+    
+    final String packagePrefix = enumClass.packageName().isEmpty() ? "" : enumClass.packageName() + ".";
+    final String qualifiedName = packagePrefix + String.join(".", enumClass.simpleNames());
+    
+    return "VALUES_OF_" + qualifiedName.replace('.', '_').toUpperCase();
+  }
+  
+  private EnumConstantTableGenerator() {
+    throw new RuntimeException("Util class. Do not instantiate.");
+  }
+}
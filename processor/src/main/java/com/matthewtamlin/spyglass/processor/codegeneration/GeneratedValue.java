@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * A value which can either be inlined into generated code or wrapped in a method. The preparation must run before
+ * the expression is evaluated, and it must be emitted in the same scope as the expression. The supporting fields must
+ * be declared by the class which contains the generated code.
+ */
+@AutoValue
+public abstract class GeneratedValue {
+  public abstract TypeName getType();
+  
+  public abstract CodeBlock getPreparation();
+  
+  public abstract CodeBlock getExpression();
+  
+  public abstract ImmutableSet<FieldSpec> getSupportingFields();
+  
+  public static GeneratedValue create(final TypeName type, final CodeBlock expression) {
+    return create(type, CodeBlock.builder().build(), expression);
+  }
+  
+  public static GeneratedValue create(final TypeName type, final CodeBlock preparation, final CodeBlock expression) {
+    return create(type, preparation, expression, ImmutableSet.of());
+  }
+  
+  public static GeneratedValue create(
+      final TypeName type,
+      final CodeBlock preparation,
+      final CodeBlock expression,
+      final Set<FieldSpec> supportingFields) {
+    
+    checkNotNull(type, "Argument \'type\' cannot be null.");
+    checkNotNull(preparation, "Argument \'preparation\' cannot be null.");
+    checkNotNull(expression, "Argument \'expression\' cannot be null.");
+    checkNotNull(supportingFields, "Argument \'supportingFields\' cannot be null.");
+    
+    return new AutoValue_GeneratedValue(type, preparation, expression, ImmutableSet.copyOf(supportingFields));
+  }
+  
+  public boolean hasPreparation() {
+    return !getPreparation().isEmpty();
+  }
+  
+  public MethodSpec.Builder toMethod(final String name) {
+    return MethodSpec
+        .methodBuilder(name)
+        .returns(getType())
+        .addCode(getPreparation())
+        .addStatement("return $L", getExpression());
+  }
+}
@@ -17,23 +17,25 @@
 package com.matthewtamlin.spyglass.processor.codegeneration;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.matthewtamlin.spyglass.markers.annotations.defaults.*;
 import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.TypeName;
 
 import javax.inject.Inject;
 import javax.lang.model.element.AnnotationMirror;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class GetDefaultMethodGenerator {
-  private final Map<String, Function<AnnotationMirror, MethodSpec>> methodSpecSuppliers;
+  private final Map<String, BiFunction<AnnotationMirror, CodeBlock, GeneratedValue>> valueSuppliers;
   
   private final AnnotationMirrorHelper annotationMirrorHelper;
   
@@ -41,307 +43,174 @@ public class GetDefaultMethodGenerator {
   public GetDefaultMethodGenerator(final AnnotationMirrorHelper annotationMirrorHelper) {
     this.annotationMirrorHelper = checkNotNull(annotationMirrorHelper);
     
-    methodSpecSuppliers = ImmutableMap
-        .<String, Function<AnnotationMirror, MethodSpec>>builder()
+    valueSuppliers = ImmutableMap
+        .<String, BiFunction<AnnotationMirror, CodeBlock, GeneratedValue>>builder()
         .put(
             DefaultToBoolean.class.getName(),
-            defaultToBooleanAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement("return $L", getLiteralFromAnnotation(defaultToBooleanAnnotation, "value"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Boolean.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToBooleanAnnotation, context) -> GeneratedValue.create(
+                TypeName.BOOLEAN,
+                CodeBlock.of(
+                    "$L",
+                    getLiteralFromAnnotation(defaultToBooleanAnnotation, "value"))))
         .put(
             DefaultToBooleanResource.class.getName(),
-            defaultToBooleanResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getResources().getBoolean($L)",
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToBooleanResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Boolean.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToBooleanResourceAnnotation, context) -> GeneratedValue.create(
+                TypeName.BOOLEAN,
+                CodeBlock.of(
+                    "$L.getResources().getBoolean($L)",
+                    context,
+                    getLiteralFromAnnotation(defaultToBooleanResourceAnnotation, "resId"))))
         .put(
             DefaultToColorResource.class.getName(),
-            defaultToColorResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $T.getColor($N(), $L)",
-                      AndroidClassNames.CONTEXT_COMPAT,
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToColorResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToColorResourceAnnotation, context) -> GeneratedValue.create(
+                TypeName.INT,
+                CodeBlock.of(
+                    "$T.getColor($L, $L)",
+                    AndroidClassNames.CONTEXT_COMPAT,
+                    context,
+                    getLiteralFromAnnotation(defaultToColorResourceAnnotation, "resId"))))
         .put(
             DefaultToColorStateListResource.class.getName(),
-            defaultToColorStateListResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $T.getColorStateList($N(), $L)",
-                      AndroidClassNames.APP_COMPAT_RESOURCES,
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToColorStateListResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(AndroidClassNames.COLOR_STATE_LIST)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToColorStateListResourceAnnotation, context) -> GeneratedValue.create(
+                AndroidClassNames.COLOR_STATE_LIST,
+                CodeBlock.of(
+                    "$T.getColorStateList($L, $L)",
+                    AndroidClassNames.APP_COMPAT_RESOURCES,
+                    context,
+                    getLiteralFromAnnotation(defaultToColorStateListResourceAnnotation, "resId"))))
         .put(
             DefaultToDimension.class.getName(),
-            defaultToDimensionAnnotation -> {
+            (defaultToDimensionAnnotation, context) -> {
               final String unitFull = getLiteralFromAnnotation(defaultToDimensionAnnotation, "unit");
               final String unitShort = unitFull.substring(unitFull.lastIndexOf(".") + 1);
               
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "$T metrics = $N().getResources().getDisplayMetrics()",
-                      AndroidClassNames.DISPLAY_METRICS,
-                      CallerDef.GET_CONTEXT)
-                  .addStatement(
-                      "return $1T.applyDimension($1T.$2L, $3L, metrics)",
+              return GeneratedValue.create(
+                  TypeName.FLOAT,
+                  CodeBlock.of(
+                      "$1T.applyDimension($1T.$2L, $3L, $4L.getResources().getDisplayMetrics())",
                       AndroidClassNames.TYPED_VALUE,
                       getComplexUnitLiteral(unitShort),
-                      getLiteralFromAnnotation(defaultToDimensionAnnotation, "value"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body)
-                  .build();
+                      getLiteralFromAnnotation(defaultToDimensionAnnotation, "value"),
+                      context));
             })
         .put(
             DefaultToDimensionResource.class.getName(),
-            defaultToDimensionResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getResources().getDimension($L)",
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToDimensionResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToDimensionResourceAnnotation, context) -> GeneratedValue.create(
+                TypeName.FLOAT,
+                CodeBlock.of(
+                    "$L.getResources().getDimension($L)",
+                    context,
+                    getLiteralFromAnnotation(defaultToDimensionResourceAnnotation, "resId"))))
         .put(
             DefaultToDrawableResource.class.getName(),
-            defaultToDrawableResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $T.getDrawable($N(), $L)",
-                      AndroidClassNames.APP_COMPAT_RESOURCES,
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToDrawableResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(AndroidClassNames.DRAWABLE)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToDrawableResourceAnnotation, context) -> GeneratedValue.create(
+                AndroidClassNames.DRAWABLE,
+                CodeBlock.of(
+                    "$T.getDrawable($L, $L)",
+                    AndroidClassNames.APP_COMPAT_RESOURCES,
+                    context,
+                    getLiteralFromAnnotation(defaultToDrawableResourceAnnotation, "resId"))))
         .put(
             DefaultToEnumConstant.class.getName(),
-            defaultToEnumConstantAnnotation -> {
+            (defaultToEnumConstantAnnotation, context) -> {
               final String enumClass = getLiteralFromAnnotation(defaultToEnumConstantAnnotation, "enumClass");
               final String enumClassName = enumClass.substring(0, enumClass.lastIndexOf(".class"));
+              final FieldSpec enumConstants = EnumConstantTableGenerator.generateFor(
+                  ClassName.bestGuess(enumClassName));
               
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "final int ordinal = $L",
-                      getLiteralFromAnnotation(defaultToEnumConstantAnnotation,
-                          "ordinal"))
-                  .add("\n")
-                  .beginControlFlow(
-                      "if (ordinal < 0 || $1T.values().length - 1 < ordinal)",
-                      ClassName.bestGuess(enumClassName))
-                  .addStatement(
-                      "throw new $T($L)",
-                      RuntimeException.class,
-                      "\"Ordinal \" + ordinal + \" is out of bounds for enum " + enumClassName + "\"")
-                  .endControlFlow()
-                  .add("\n")
-                  .addStatement(
-                      "return $T.values()[ordinal]",
-                      ClassName.bestGuess(enumClassName))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(ClassName.bestGuess(enumClassName))
-                  .addCode(body)
-                  .build();
+              return GeneratedValue.create(
+                  ClassName.bestGuess(enumClassName),
+                  CodeBlock.builder().build(),
+                  CodeBlock.of(
+                      "$T.$N($N, $L)",
+                      RuntimeHelpersDef.getHelpersAsClassName(),
+                      RuntimeHelpersDef.GET_ENUM_CONSTANT,
+                      enumConstants,
+                      getLiteralFromAnnotation(defaultToEnumConstantAnnotation, "ordinal")),
+                  ImmutableSet.of(enumConstants));
             })
         .put(
             DefaultToFloat.class.getName(),
-            defaultToFloatAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement("return $L", getLiteralFromAnnotation(defaultToFloatAnnotation, "value"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToFloatAnnotation, context) -> GeneratedValue.create(
+                TypeName.FLOAT,
+                CodeBlock.of(
+                    "$L",
+                    getLiteralFromAnnotation(defaultToFloatAnnotation, "value"))))
         .put(
             DefaultToFractionResource.class.getName(),
-            defaultToFractionResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getResources().getFraction($L, $L, $L)",
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToFractionResourceAnnotation, "resId"),
-                      getLiteralFromAnnotation(defaultToFractionResourceAnnotation, "baseMultiplier"),
-                      getLiteralFromAnnotation(defaultToFractionResourceAnnotation, "parentMultiplier"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToFractionResourceAnnotation, context) -> GeneratedValue.create(
+                TypeName.FLOAT,
+                CodeBlock.of(
+                    "$L.getResources().getFraction($L, $L, $L)",
+                    context,
+                    getLiteralFromAnnotation(defaultToFractionResourceAnnotation, "resId"),
+                    getLiteralFromAnnotation(defaultToFractionResourceAnnotation, "baseMultiplier"),
+                    getLiteralFromAnnotation(defaultToFractionResourceAnnotation, "parentMultiplier"))))
         .put(
             DefaultToInteger.class.getName(),
-            defaultToIntegerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement("return $L", getLiteralFromAnnotation(defaultToIntegerAnnotation, "value"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToIntegerAnnotation, context) -> GeneratedValue.create(
+                TypeName.INT,
+                CodeBlock.of(
+                    "$L",
+                    getLiteralFromAnnotation(defaultToIntegerAnnotation, "value"))))
         .put(
             DefaultToIntegerResource.class.getName(),
-            defaultToIntegerResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getResources().getInteger($L)",
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToIntegerResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToIntegerResourceAnnotation, context) -> GeneratedValue.create(
+                TypeName.INT,
+                CodeBlock.of(
+                    "$L.getResources().getInteger($L)",
+                    context,
+                    getLiteralFromAnnotation(defaultToIntegerResourceAnnotation, "resId"))))
         .put(
             DefaultToNull.class.getName(),
-            defaultToNullAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement("return null")
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Object.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToNullAnnotation, context) -> GeneratedValue.create(
+                ClassName.get(Object.class),
+                CodeBlock.of("null")))
         .put(
             DefaultToString.class.getName(),
-            defaultToStringAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement("return $L", getLiteralFromAnnotation(defaultToStringAnnotation, "value"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(String.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToStringAnnotation, context) -> GeneratedValue.create(
+                ClassName.get(String.class),
+                CodeBlock.of(
+                    "$L",
+                    getLiteralFromAnnotation(defaultToStringAnnotation, "value"))))
         .put(
             DefaultToStringResource.class.getName(),
-            defaultToStringResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getResources().getString($L)",
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToStringResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(String.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToStringResourceAnnotation, context) -> GeneratedValue.create(
+                ClassName.get(String.class),
+                CodeBlock.of(
+                    "$L.getResources().getString($L)",
+                    context,
+                    getLiteralFromAnnotation(defaultToStringResourceAnnotation, "resId"))))
         .put(
             DefaultToTextArrayResource.class.getName(),
-            defaultToTextArrayResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getResources().getTextArray($L)",
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToTextArrayResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(CharSequence[].class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToTextArrayResourceAnnotation, context) -> GeneratedValue.create(
+                TypeName.get(CharSequence[].class),
+                CodeBlock.of(
+                    "$L.getResources().getTextArray($L)",
+                    context,
+                    getLiteralFromAnnotation(defaultToTextArrayResourceAnnotation, "resId"))))
         .put(
             DefaultToTextResource.class.getName(),
-            defaultToTextResourceAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getResources().getText($L)",
-                      CallerDef.GET_CONTEXT,
-                      getLiteralFromAnnotation(defaultToTextResourceAnnotation, "resId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(CharSequence.class)
-                  .addCode(body)
-                  .build();
-            })
+            (defaultToTextResourceAnnotation, context) -> GeneratedValue.create(
+                ClassName.get(CharSequence.class),
+                CodeBlock.of(
+                    "$L.getResources().getText($L)",
+                    context,
+                    getLiteralFromAnnotation(defaultToTextResourceAnnotation, "resId"))))
         .build();
   }
   
-  public MethodSpec generateFor(final AnnotationMirror defaultAnnotation) {
+  public GeneratedValue generateInlineFor(final AnnotationMirror defaultAnnotation, final CodeBlock context) {
     checkNotNull(defaultAnnotation, "Argument \'defaultAnnotation\' cannot be null.");
+    checkNotNull(context, "Argument \'context\' cannot be null.");
     
     final String annotationClassName = defaultAnnotation.getAnnotationType().toString();
     
-    if (!methodSpecSuppliers.containsKey(annotationClassName)) {
+    if (!valueSuppliers.containsKey(annotationClassName)) {
       throw new IllegalArgumentException("Argument \'defaultAnnotation\' is not a default annotation.");
     }
     
-    return methodSpecSuppliers.get(annotationClassName).apply(defaultAnnotation);
+    return valueSuppliers.get(annotationClassName).apply(defaultAnnotation, context);
   }
   
   private String getLiteralFromAnnotation(final AnnotationMirror mirror, final String key) {
@@ -366,8 +235,4 @@ public class GetDefaultMethodGenerator {
         throw new IllegalStateException("Unexpected unit: " + unit);
     }
   }
-  
-  private MethodSpec.Builder getBaseMethodSpec() {
-    return MethodSpec.methodBuilder("getDefault");
-  }
 }
\ No newline at end of file
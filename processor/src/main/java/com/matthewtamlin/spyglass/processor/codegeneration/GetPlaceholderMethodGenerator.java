@@ -19,20 +19,20 @@ package com.matthewtamlin.spyglass.processor.codegeneration;
 import com.google.common.collect.ImmutableMap;
 import com.matthewtamlin.spyglass.markers.annotations.placeholders.*;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
 
 import javax.inject.Inject;
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.AnnotationValue;
 import java.util.Map;
-import java.util.function.BiFunction;
+import java.util.function.Function;
 
-import static com.matthewtamlin.java_utilities.checkers.IntChecker.checkGreaterThanOrEqualTo;
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class GetPlaceholderMethodGenerator {
-  private final Map<String, BiFunction<AnnotationMirror, Integer, MethodSpec>> methodSpecSuppliers;
+  private final Map<String, Function<AnnotationMirror, GeneratedValue>> valueSuppliers;
   
   private final AnnotationMirrorHelper annotationMirrorHelper;
   
@@ -40,102 +40,60 @@ public class GetPlaceholderMethodGenerator {
   public GetPlaceholderMethodGenerator(final AnnotationMirrorHelper annotationMirrorHelper) {
     this.annotationMirrorHelper = checkNotNull(annotationMirrorHelper);
     
-    methodSpecSuppliers = ImmutableMap
-        .<String, BiFunction<AnnotationMirror, Integer, MethodSpec>>builder()
-        .put(UseByte.class.getCanonicalName(), new PrimitiveToNumberMethodSpecSupplier())
-        .put(UseDouble.class.getCanonicalName(), new PrimitiveToNumberMethodSpecSupplier())
-        .put(UseFloat.class.getCanonicalName(), new PrimitiveToNumberMethodSpecSupplier())
-        .put(UseInt.class.getCanonicalName(), new PrimitiveToNumberMethodSpecSupplier())
-        .put(UseLong.class.getCanonicalName(), new PrimitiveToNumberMethodSpecSupplier())
-        .put(UseShort.class.getCanonicalName(), new PrimitiveToNumberMethodSpecSupplier())
-        .put(
-            UseBoolean.class.getCanonicalName(),
-            (useBooleanAnnotation, position) -> {
-              final AnnotationValue rawValue = annotationMirrorHelper.getValueUsingDefaults(
-                  useBooleanAnnotation,
-                  "value");
-              
-              return getBaseMethodSpec(position)
-                  .returns(Boolean.class)
-                  .addCode(CodeBlock
-                      .builder()
-                      .addStatement("return $L", rawValue.toString())
-                      .build())
-                  .build();
-            })
-        .put(
-            UseChar.class.getCanonicalName(),
-            (useCharAnnotation, position) -> {
-              final AnnotationValue rawValue = annotationMirrorHelper.getValueUsingDefaults(useCharAnnotation, "value");
-              
-              return getBaseMethodSpec(position)
-                  .returns(Character.class)
-                  .addCode(CodeBlock
-                      .builder()
-                      .addStatement("return ($T) $L", Character.class, rawValue.toString())
-                      .build())
-                  .build();
-            })
+    valueSuppliers = ImmutableMap
+        .<String, Function<AnnotationMirror, GeneratedValue>>builder()
+        .put(UseByte.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.BYTE))
+        .put(UseDouble.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.DOUBLE))
+        .put(UseFloat.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.FLOAT))
+        .put(UseInt.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.INT))
+        .put(UseLong.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.LONG))
+        .put(UseShort.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.SHORT))
+        .put(UseBoolean.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.BOOLEAN))
+        .put(UseChar.class.getCanonicalName(), new PrimitiveValueSupplier(TypeName.CHAR))
         .put(
             UseNull.class.getCanonicalName(),
-            (useNullAnnotation, position) -> getBaseMethodSpec(position)
-                .returns(Object.class)
-                .addCode(CodeBlock
-                    .builder()
-                    .addStatement("return null")
-                    .build())
-                .build())
+            useNullAnnotation -> GeneratedValue.create(ClassName.get(Object.class), CodeBlock.of("null")))
         .put(
             UseString.class.getCanonicalName(),
-            (useStringAnnotation, position) -> {
+            useStringAnnotation -> {
               final AnnotationValue rawValue = annotationMirrorHelper.getValueUsingDefaults(
                   useStringAnnotation,
                   "value");
               
-              return getBaseMethodSpec(position)
-                  .returns(String.class)
-                  .addCode(CodeBlock
-                      .builder()
-                      .addStatement("return ($T) $L", String.class, rawValue.toString())
-                      .build())
-                  .build();
+              return GeneratedValue.create(ClassName.get(String.class), CodeBlock.of("$L", rawValue.toString()));
             })
         .build();
   }
   
-  public MethodSpec generateFor(final AnnotationMirror placeholderAnnotation, final int parameterIndex) {
+  public GeneratedValue generateInlineFor(final AnnotationMirror placeholderAnnotation) {
     checkNotNull(placeholderAnnotation, "Argument \'placeholderAnnotation\' cannot be null.");
-    checkGreaterThanOrEqualTo(parameterIndex, 0, "Argument \'parameterIndex\' must be at least zero.");
     
     final String annotationClassName = placeholderAnnotation.getAnnotationType().toString();
     
-    if (!methodSpecSuppliers.containsKey(annotationClassName)) {
+    if (!valueSuppliers.containsKey(annotationClassName)) {
       throw new IllegalArgumentException("Argument \'placeholderAnnotation\' is not a placeholder annotation.");
     }
     
-    return methodSpecSuppliers.get(annotationClassName).apply(placeholderAnnotation, parameterIndex);
+    return valueSuppliers.get(annotationClassName).apply(placeholderAnnotation);
   }
   
-  private MethodSpec.Builder getBaseMethodSpec(final int position) {
-    return MethodSpec.methodBuilder("getArgument" + position);
-  }
-  
-  private interface MethodSpecSupplier {
-    public MethodSpec supplyFor(AnnotationMirror placeholder, int position);
-  }
-  
-  private class PrimitiveToNumberMethodSpecSupplier implements BiFunction<AnnotationMirror, Integer, MethodSpec> {
+  private class PrimitiveValueSupplier implements Function<AnnotationMirror, GeneratedValue> {
+    private final TypeName type;
+    
+    public PrimitiveValueSupplier(final TypeName type) {
+      this.type = type;
+    }
+    
     @Override
-    public MethodSpec apply(final AnnotationMirror placeholder, final Integer position) {
+    public GeneratedValue apply(final AnnotationMirror placeholder) {
       final AnnotationValue rawValue = annotationMirrorHelper.getValueUsingDefaults(placeholder, "value");
       
-      return getBaseMethodSpec(position)
-          .returns(Number.class)
-          .addCode(CodeBlock
-              .builder()
-              .addStatement("return $L", rawValue.toString())
-              .build())
-          .build();
+      // Method invocation contexts do not narrow constants, so byte and short literals need explicit casts
+      if (type.equals(TypeName.BYTE) || type.equals(TypeName.SHORT)) {
+        return GeneratedValue.create(type, CodeBlock.of("($T) $L", type, rawValue.getValue()));
+      }
+      
+      return GeneratedValue.create(type, CodeBlock.of("$L", rawValue.toString()));
     }
   }
 }
\ No newline at end of file
@@ -17,23 +17,24 @@
 package com.matthewtamlin.spyglass.processor.codegeneration;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.*;
 import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.TypeName;
 
 import javax.inject.Inject;
 import javax.lang.model.element.AnnotationMirror;
 import java.util.Map;
-import java.util.function.Function;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class GetValueMethodGenerator {
-  private final Map<String, Function<AnnotationMirror, MethodSpec>> methodSpecSuppliers;
+  private final Map<String, ValueSupplier> valueSuppliers;
   
   private final AnnotationMirrorHelper annotationMirrorHelper;
   
@@ -41,211 +42,151 @@ public class GetValueMethodGenerator {
   public GetValueMethodGenerator(final AnnotationMirrorHelper annotationMirrorHelper) {
     this.annotationMirrorHelper = checkNotNull(annotationMirrorHelper);
     
-    methodSpecSuppliers = ImmutableMap
-        .<String, Function<AnnotationMirror, MethodSpec>>builder()
+    valueSuppliers = ImmutableMap
+        .<String, ValueSupplier>builder()
         .put(
             BooleanHandler.class.getName(),
-            booleanHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getBoolean($L, false)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(booleanHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Boolean.class)
-                  .addCode(body).build();
-            })
+            (booleanHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                TypeName.BOOLEAN,
+                CodeBlock.of(
+                    "$L.getBoolean($L, false)",
+                    attrs,
+                    attributeIndex)))
         .put(
             ColorHandler.class.getName(),
-            colorHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getColor($L, 1)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(colorHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body).build();
-            })
+            (colorHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                TypeName.INT,
+                CodeBlock.of(
+                    "$L.getColor($L, 1)",
+                    attrs,
+                    attributeIndex)))
         .put(
             ColorStateListHandler.class.getName(),
-            colorStateListHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getColorStateList($L)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(colorStateListHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(AndroidClassNames.COLOR_STATE_LIST)
-                  .addCode(body).build();
-            })
+            (colorStateListHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                AndroidClassNames.COLOR_STATE_LIST,
+                CodeBlock.of(
+                    "$L.getColorStateList($L)",
+                    attrs,
+                    attributeIndex)))
         .put(
             DimensionHandler.class.getName(),
-            dimensionHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getDimension($L, Float.NEGATIVE_INFINITY)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(dimensionHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body).build();
-            })
+            (dimensionHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                TypeName.FLOAT,
+                CodeBlock.of(
+                    "$L.getDimension($L, Float.NEGATIVE_INFINITY)",
+                    attrs,
+                    attributeIndex)))
         .put(
             DrawableHandler.class.getName(),
-            drawableHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getDrawable($L)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(drawableHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(AndroidClassNames.DRAWABLE)
-                  .addCode(body).build();
-            })
+            (drawableHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                AndroidClassNames.DRAWABLE,
+                CodeBlock.of(
+                    "$L.getDrawable($L)",
+                    attrs,
+                    attributeIndex)))
         .put(
             EnumConstantHandler.class.getName(),
-            enumConstantHandlerAnnotation -> {
+            (enumConstantHandlerAnnotation, attrs, attributeIndex) -> {
               final String enumClass = getLiteralFromAnnotation(enumConstantHandlerAnnotation, "enumClass");
               final String enumClassName = enumClass.substring(0, enumClass.lastIndexOf(".class"));
+              final FieldSpec enumConstants = EnumConstantTableGenerator.generateFor(
+                  ClassName.bestGuess(enumClassName));
               
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "final int ordinal = $N().getInt($L, 1)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(enumConstantHandlerAnnotation, "attributeId"))
-                  .add("\n")
-                  .beginControlFlow(
-                      "if (ordinal < 0 || $1T.values().length - 1 < ordinal)",
-                      ClassName.bestGuess(enumClassName))
-                  .addStatement(
-                      "throw new $T($L)",
-                      RuntimeException.class,
-                      "\"Ordinal \" + ordinal + \" is out of bounds for enum " + enumClassName + "\"")
-                  .endControlFlow()
-                  .add("\n")
-                  .addStatement(
-                      "return $T.values()[ordinal]",
-                      ClassName.bestGuess(enumClassName))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(ClassName.bestGuess(enumClassName))
-                  .addCode(body).build();
+              return GeneratedValue.create(
+                  ClassName.bestGuess(enumClassName),
+                  CodeBlock.builder().build(),
+                  CodeBlock.of(
+                      "$T.$N($N, $L.getInt($L, 1))",
+                      RuntimeHelpersDef.getHelpersAsClassName(),
+                      RuntimeHelpersDef.GET_ENUM_CONSTANT,
+                      enumConstants,
+                      attrs,
+                      attributeIndex),
+                  ImmutableSet.of(enumConstants));
             })
         .put(
             EnumOrdinalHandler.class.getName(),
-            enumOrdinalHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getInt($L, 1)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(enumOrdinalHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body).build();
-            })
+            (enumOrdinalHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                TypeName.INT,
+                CodeBlock.of(
+                    "$L.getInt($L, 1)",
+                    attrs,
+                    attributeIndex)))
         .put(
             FloatHandler.class.getName(),
-            floatHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getFloat($L, Float.NEGATIVE_INFINITY)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(floatHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body).build();
-            })
+            (floatHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                TypeName.FLOAT,
+                CodeBlock.of(
+                    "$L.getFloat($L, Float.NEGATIVE_INFINITY)",
+                    attrs,
+                    attributeIndex)))
         .put(
             FractionHandler.class.getName(),
-            fractionHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getFraction($L, $L, $L, Float.NEGATIVE_INFINITY)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(fractionHandlerAnnotation, "attributeId"),
-                      getLiteralFromAnnotation(fractionHandlerAnnotation, "baseMultiplier"),
-                      getLiteralFromAnnotation(fractionHandlerAnnotation, "parentMultiplier"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body).build();
-            })
+            (fractionHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                TypeName.FLOAT,
+                CodeBlock.of(
+                    "$L.getFraction($L, $L, $L, Float.NEGATIVE_INFINITY)",
+                    attrs,
+                    attributeIndex,
+                    getLiteralFromAnnotation(fractionHandlerAnnotation, "baseMultiplier"),
+                    getLiteralFromAnnotation(fractionHandlerAnnotation, "parentMultiplier"))))
         .put(
             IntegerHandler.class.getName(),
-            integerHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getInt($L, 1)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(integerHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(Number.class)
-                  .addCode(body).build();
-            })
+            (integerHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                TypeName.INT,
+                CodeBlock.of(
+                    "$L.getInt($L, 1)",
+                    attrs,
+                    attributeIndex)))
         .put(
             StringHandler.class.getName(),
-            stringHandlerAnnotation -> {
-              final CodeBlock body = CodeBlock
-                  .builder()
-                  .addStatement(
-                      "return $N().getString($L)",
-                      CallerDef.GET_ATTRS,
-                      getLiteralFromAnnotation(stringHandlerAnnotation, "attributeId"))
-                  .build();
-              
-              return getBaseMethodSpec()
-                  .returns(String.class)
-                  .addCode(body).build();
-            })
+            (stringHandlerAnnotation, attrs, attributeIndex) -> GeneratedValue.create(
+                ClassName.get(String.class),
+                CodeBlock.of(
+                    "$L.getString($L)",
+                    attrs,
+                    attributeIndex)))
         .build();
   }
   
-  public MethodSpec generateFor(final AnnotationMirror unconditionalHandlerAnnotation) {
+  public GeneratedValue generateInlineFor(
+      final AnnotationMirror unconditionalHandlerAnnotation,
+      final CodeBlock attrs) {
+    
+    checkNotNull(unconditionalHandlerAnnotation, "Argument \'unconditionalHandlerAnnotation\' cannot be null.");
+    
+    return generateInlineFor(
+        unconditionalHandlerAnnotation,
+        attrs,
+        Integer.parseInt(getLiteralFromAnnotation(unconditionalHandlerAnnotation, "attributeId")));
+  }
+  
+  /**
+   * Generates the value of the handled attribute, reading it from the supplied index of the typed array rather than
+   * from the attribute ID of the annotation.
+   */
+  public GeneratedValue generateInlineFor(
+      final AnnotationMirror unconditionalHandlerAnnotation,
+      final CodeBlock attrs,
+      final int attributeIndex) {
+    
     checkNotNull(unconditionalHandlerAnnotation, "Argument \'unconditionalHandlerAnnotation\' cannot be null.");
+    checkNotNull(attrs, "Argument \'attrs\' cannot be null.");
     
     final String annotationClassName = unconditionalHandlerAnnotation.getAnnotationType().toString();
     
-    if (!methodSpecSuppliers.containsKey(annotationClassName)) {
+    if (!valueSuppliers.containsKey(annotationClassName)) {
       throw new IllegalArgumentException("Argument \'unconditionalHandlerAnnotation\' cannot contain null.");
     }
     
-    return methodSpecSuppliers.get(annotationClassName).apply(unconditionalHandlerAnnotation);
+    return valueSuppliers.get(annotationClassName).supply(unconditionalHandlerAnnotation, attrs, attributeIndex);
   }
   
   private String getLiteralFromAnnotation(final AnnotationMirror mirror, final String key) {
     return annotationMirrorHelper.getValueUsingDefaults(mirror, key).toString();
   }
   
-  private MethodSpec.Builder getBaseMethodSpec() {
-    return MethodSpec.methodBuilder("getValue");
+  private interface ValueSupplier {
+    GeneratedValue supply(AnnotationMirror annotation, CodeBlock attrs, int attributeIndex);
   }
 }
\ No newline at end of file
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.matthewtamlin.spyglass.markers.annotations.targets.Styleable;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.core.CompanionNamer;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.squareup.javapoet.ClassName;
+
+import javax.inject.Inject;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Finds the levels of a target's class hierarchy which are dispatched along with the target when the hierarchy is
+ * applied. A level is a superclass which has a companion and declares the same styleable resource as the target, since
+ * the levels share one typed array. Spyglass annotations are not retained in class files, so superclasses compiled from
+ * source are recognised by their annotations and superclasses on the classpath are recognised by the constants in their
+ * companions. Either way the result is the same whether or not the superclass is compiled alongside the target.
+ * Companions of targets which use attribute resources cannot dispatch a shared typed array, so those classes are never
+ * levels. A handler which is overridden by a handler of a lower level is skipped by the level which declares it.
+ */
+public class HierarchyResolver {
+  /**
+   * The name of the companion method which dispatches every level of the hierarchy up to and including the target.
+   */
+  public static final String DISPATCH_HIERARCHY_METHOD_NAME = "dispatchHierarchy";
+  
+  /**
+   * The name of the companion constant which holds the number of handlers in the hierarchy up to and including the
+   * target.
+   */
+  public static final String HIERARCHY_HANDLER_COUNT_FIELD_NAME = "HIERARCHY_HANDLER_COUNT";
+  
+  /**
+   * The name of the companion constant which holds the name of the styleable resource declared by the target.
+   */
+  public static final String STYLEABLE_NAME_FIELD_NAME = "STYLEABLE_NAME";
+  
+  /**
+   * The name of the companion constant which holds the signatures of the handlers declared by the target, in the order
+   * they are numbered.
+   */
+  public static final String HANDLER_SIGNATURES_FIELD_NAME = "HANDLER_SIGNATURES";
+  
+  private final Elements elementUtil;
+  
+  private final AttributeIndexer attributeIndexer;
+  
+  private final AnnotationMirrorHelper annotationMirrorHelper;
+  
+  @Inject
+  public HierarchyResolver(
+      final Elements elementUtil,
+      final AttributeIndexer attributeIndexer,
+      final AnnotationMirrorHelper annotationMirrorHelper) {
+    
+    this.elementUtil = checkNotNull(elementUtil, "Argument \'elementUtil\' cannot be null.");
+    this.attributeIndexer = checkNotNull(attributeIndexer, "Argument \'attributeIndexer\' cannot be null.");
+    this.annotationMirrorHelper = checkNotNull(
+        annotationMirrorHelper,
+        "Argument \'annotationMirrorHelper\' cannot be null.");
+  }
+  
+  /**
+   * Finds the companion of the nearest superclass which is a level of the target's hierarchy.
+   *
+   * @return the class name of the companion, or null if no superclass is a level
+   */
+  public ClassName getSuperclassCompanionOf(final TypeElement targetType) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    
+    final TypeElement superclassLevel = getSuperclassLevelOf(targetType);
+    
+    return superclassLevel == null ? null : getCompanionOf(superclassLevel);
+  }
+  
+  /**
+   * Counts the handlers of the levels above the target, so that each handler in the hierarchy can be numbered
+   * starting with the base-most level. Targets which use attribute resources are not part of a hierarchy, so nothing
+   * is above them.
+   *
+   * @return the number of handlers declared by the superclasses which are levels of the target's hierarchy
+   */
+  public int countHandlersAbove(final TypeElement targetType) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    
+    if (attributeIndexer.usesAttrResourceIds(targetType)) {
+      return 0;
+    }
+    
+    final TypeElement superclassLevel = getSuperclassLevelOf(targetType);
+    
+    if (superclassLevel == null) {
+      return 0;
+    }
+    
+    // A superclass without annotations is on the classpath, so its companion records the count
+    return hasHandlers(superclassLevel) ?
+        countHandlers(superclassLevel) + countHandlersAbove(superclassLevel) :
+        (Integer) getCompanionConstant(superclassLevel, HIERARCHY_HANDLER_COUNT_FIELD_NAME);
+  }
+  
+  /**
+   * Finds the name of the styleable resource declared by a type, either by its annotation or, for types on the
+   * classpath, by the constant in its companion.
+   *
+   * @return the name, or null if the type does not declare a styleable resource
+   */
+  public String getStyleableNameOf(final TypeElement type) {
+    checkNotNull(type, "Argument \'type\' cannot be null.");
+    
+    final AnnotationMirror styleable = AnnotationMirrorHelper.getAnnotationMirror(type, Styleable.class);
+    
+    if (styleable != null) {
+      return (String) annotationMirrorHelper.getValueUsingDefaults(styleable, "value").getValue();
+    }
+    
+    return (String) getCompanionConstant(type, STYLEABLE_NAME_FIELD_NAME);
+  }
+  
+  /**
+   * Finds the nearest superclass which has handlers and does not use attribute resources, regardless of the styleable
+   * resource it declares. If the superclass declares the same styleable resource as the target then it is the nearest
+   * level of the target's hierarchy, otherwise the target cannot share a typed array with its superclasses.
+   *
+   * @return the superclass, or null if no superclass has handlers
+   */
+  public TypeElement getNearestSuperclassWithHandlersOf(final TypeElement targetType) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    
+    TypeMirror superclass = targetType.getSuperclass();
+    
+    while (superclass.getKind() == TypeKind.DECLARED) {
+      final TypeElement superclassElement = (TypeElement) ((DeclaredType) superclass).asElement();
+      
+      // Only companions of classes which do not use attribute resources record a handler count
+      if (!attributeIndexer.usesAttrResourceIds(superclassElement) &&
+          (hasHandlers(superclassElement) ||
+              getCompanionConstant(superclassElement, HIERARCHY_HANDLER_COUNT_FIELD_NAME) != null)) {
+        
+        return superclassElement;
+      }
+      
+      superclass = superclassElement.getSuperclass();
+    }
+    
+    return null;
+  }
+  
+  /**
+   * Finds the handlers of the superclass levels which are overridden by a handler in a lower level of the hierarchy
+   * (including the target itself). Handlers are called on the target, so the superclass levels must skip these
+   * handlers when the hierarchy is applied, otherwise the override would be called by both levels.
+   *
+   * @return the numbers of the overridden handlers in ascending order, or an empty list if none are overridden
+   */
+  public List<Integer> getOverriddenHandlersOf(final TypeElement targetType) {
+    checkNotNull(targetType, "Argument \'targetType\' cannot be null.");
+    
+    final List<Integer> overriddenHandlers = new ArrayList<>();
+    final List<ExecutableElement> lowerHandlers = new ArrayList<>(getHandlersOf(targetType));
+    
+    TypeElement level = getSuperclassLevelOf(targetType);
+    
+    while (level != null) {
+      final List<ExecutableElement> levelHandlers = getHandlersOf(level);
+      final int firstHandlerIndex = countHandlersAbove(level);
+      
+      for (int i = 0; i < levelHandlers.size(); i++) {
+        if (isOverriddenByAny(levelHandlers.get(i), lowerHandlers)) {
+          overriddenHandlers.add(firstHandlerIndex + i);
+        }
+      }
+      
+      lowerHandlers.addAll(levelHandlers);
+      level = getSuperclassLevelOf(level);
+    }
+    
+    Collections.sort(overriddenHandlers);
+    
+    return overriddenHandlers;
+  }
+  
+  /**
+   * Describes the signatures of the handlers declared by a target, so that the overrides of the handlers can be found
+   * once the target is on the classpath and its annotations are no longer available.
+   *
+   * @return the signatures in the order of the supplied methods, separated by semicolons
+   */
+  public String getHandlerSignaturesOf(final List<AnnotatedMethod> annotatedMethods) {
+    checkNotNull(annotatedMethods, "Argument \'annotatedMethods\' cannot be null.");
+    
+    final List<String> signatures = new ArrayList<>();
+    
+    for (final AnnotatedMethod method : annotatedMethods) {
+      signatures.add(getSignatureOf(method.getElement()));
+    }
+    
+    return String.join(";", signatures);
+  }
+  
+  private TypeElement getSuperclassLevelOf(final TypeElement targetType) {
+    final String styleableName = getStyleableNameOf(targetType);
+    
+    if (styleableName == null) {
+      return null;
+    }
+    
+    final TypeElement superclass = getNearestSuperclassWithHandlersOf(targetType);
+    
+    return superclass != null && styleableName.equals(getStyleableNameOf(superclass)) ? superclass : null;
+  }
+  
+  private ClassName getCompanionOf(final TypeElement type) {
+    return ClassName.get(
+        elementUtil.getPackageOf(type).getQualifiedName().toString(),
+        CompanionNamer.getCompanionNameFor(type));
+  }
+  
+  private boolean hasHandlers(final TypeElement type) {
+    return countHandlers(type) > 0;
+  }
+  
+  private int countHandlers(final TypeElement type) {
+    return getHandlerMethodsOf(type).size();
+  }
+  
+  private List<ExecutableElement> getHandlerMethodsOf(final TypeElement type) {
+    final List<ExecutableElement> handlerMethods = new ArrayList<>();
+    
+    for (final Element enclosedElement : type.getEnclosedElements()) {
+      if (enclosedElement.getKind() == ElementKind.METHOD &&
+          AnnotatedMethod.create((ExecutableElement) enclosedElement).hasAnyHandlerAnnotation()) {
+        
+        handlerMethods.add((ExecutableElement) enclosedElement);
+      }
+    }
+    
+    return handlerMethods;
+  }
+  
+  /**
+   * @return the handlers declared by the type in the order they are numbered, or an empty list if the type has no
+   * handler methods and its companion does not record the signatures of its handlers
+   */
+  private List<ExecutableElement> getHandlersOf(final TypeElement type) {
+    if (hasHandlers(type)) {
+      return getHandlerMethodsOf(type);
+    }
+    
+    final String signatures = (String) getCompanionConstant(type, HANDLER_SIGNATURES_FIELD_NAME);
+    
+    if (signatures == null) {
+      return Collections.emptyList();
+    }
+    
+    final Map<String, ExecutableElement> methodsBySignature = new HashMap<>();
+    
+    for (final Element enclosedElement : type.getEnclosedElements()) {
+      if (enclosedElement.getKind() == ElementKind.METHOD) {
+        final ExecutableElement method = (ExecutableElement) enclosedElement;
+        methodsBySignature.put(getSignatureOf(method), method);
+      }
+    }
+    
+    final List<ExecutableElement> handlers = new ArrayList<>();
+    
+    for (final String signature : signatures.split(";")) {
+      if (methodsBySignature.containsKey(signature)) {
+        handlers.add(methodsBySignature.get(signature));
+      }
+    }
+    
+    return handlers;
+  }
+  
+  private boolean isOverriddenByAny(final ExecutableElement handler, final List<ExecutableElement> lowerHandlers) {
+    for (final ExecutableElement lowerHandler : lowerHandlers) {
+      if (elementUtil.overrides(lowerHandler, handler, (TypeElement) lowerHandler.getEnclosingElement())) {
+        return true;
+      }
+    }
+    
+    return false;
+  }
+  
+  private static String getSignatureOf(final ExecutableElement method) {
+    final List<String> parameterTypes = new ArrayList<>();
+    
+    for (final VariableElement parameter : method.getParameters()) {
+      parameterTypes.add(parameter.asType().toString());
+    }
+    
+    return method.getSimpleName() + "(" + String.join(",", parameterTypes) + ")";
+  }
+  
+  /**
+   * @return the value of the constant in the companion of the type, or null if the type has no companion on the
+   * classpath or the companion does not declare the constant
+   */
+  private Object getCompanionConstant(final TypeElement type, final String fieldName) {
+    final TypeElement companionElement = elementUtil.getTypeElement(getCompanionOf(type).toString());
+    
+    if (companionElement == null) {
+      return null;
+    }
+    
+    for (final Element enclosedElement : companionElement.getEnclosedElements()) {
+      if (enclosedElement.getKind() == ElementKind.FIELD && enclosedElement.getSimpleName().contentEquals(fieldName)) {
+        return ((VariableElement) enclosedElement).getConstantValue();
+      }
+    }
+    
+    return null;
+  }
+}
\ No newline at end of file
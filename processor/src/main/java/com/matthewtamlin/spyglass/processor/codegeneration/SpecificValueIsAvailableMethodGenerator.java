@@ -20,20 +20,19 @@ import com.google.common.collect.ImmutableMap;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificBooleanHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.CodeBlock;
-import com.squareup.javapoet.MethodSpec;
 
 import javax.inject.Inject;
 import javax.lang.model.element.AnnotationMirror;
 import java.util.Map;
-import java.util.function.Function;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class SpecificValueIsAvailableMethodGenerator {
-  private final Map<String, Function<AnnotationMirror, CodeBlock>> methodBodySuppliers;
+  private final Map<String, ExpressionSupplier> expressionSuppliers;
+  
+  private final Map<String, MatchSupplier> valueMatchers;
   
   private final AnnotationMirrorHelper annotationMirrorHelper;
   
@@ -41,87 +40,147 @@ public class SpecificValueIsAvailableMethodGenerator {
   public SpecificValueIsAvailableMethodGenerator(final AnnotationMirrorHelper annotationMirrorHelper) {
     this.annotationMirrorHelper = checkNotNull(annotationMirrorHelper);
     
-    methodBodySuppliers = ImmutableMap
-        .<String, Function<AnnotationMirror, CodeBlock>>builder()
+    expressionSuppliers = ImmutableMap
+        .<String, ExpressionSupplier>builder()
         .put(
             SpecificEnumHandler.class.getName(),
-            specificEnumHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getInt($2L, 1) == 1 && \n" +
-                        "$1N().getInt($2L, 2) == 2",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(specificEnumHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement(
-                    "return defaultConsistentlyReturned ? \n" +
-                        "false :\n" +
-                        "$N().getInt($L, 0) == $L",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(specificEnumHandlerAnnotation, "attributeId"),
-                    getLiteralFromAnnotation(specificEnumHandlerAnnotation, "handledOrdinal"))
-                .build())
+            (specificEnumHandlerAnnotation, attrs, attributeIndex) -> CodeBlock.of(
+                "$1L.hasValue($2L) && $1L.getInt($2L, 0) == $3L",
+                attrs,
+                attributeIndex,
+                getLiteralFromAnnotation(specificEnumHandlerAnnotation, "handledOrdinal")))
         
         .put(
             SpecificFlagHandler.class.getName(),
-            specificFlagHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getInt($2L, 1) == 1 && \n" +
-                        "$1N().getInt($2L, 2) == 2",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(specificFlagHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement(
-                    "return defaultConsistentlyReturned ? \n" +
-                        "false : \n" +
-                        "($N().getInt($L, 0) & $L) > 0",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(specificFlagHandlerAnnotation, "attributeId"),
-                    getLiteralFromAnnotation(specificFlagHandlerAnnotation, "handledFlags"))
-                .build())
+            (specificFlagHandlerAnnotation, attrs, attributeIndex) -> CodeBlock.of(
+                "$1L.hasValue($2L) && ($1L.getInt($2L, 0) & $3L) > 0",
+                attrs,
+                attributeIndex,
+                getLiteralFromAnnotation(specificFlagHandlerAnnotation, "handledFlags")))
         
         .put(
             SpecificBooleanHandler.class.getName(),
-            specificBooleanHandlerAnnotation -> CodeBlock
-                .builder()
-                .addStatement(
-                    "final boolean defaultConsistentlyReturned = \n" +
-                        "$1N().getBoolean($2L, true) == true && \n" +
-                        "$1N().getBoolean($2L, false) == false",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(specificBooleanHandlerAnnotation, "attributeId"))
-                .add("\n")
-                .addStatement(
-                    "return defaultConsistentlyReturned ? \n" +
-                        "false : \n" +
-                        "$N().getBoolean($L, true) == $L",
-                    CallerDef.GET_ATTRS,
-                    getLiteralFromAnnotation(specificBooleanHandlerAnnotation, "attributeId"),
-                    getLiteralFromAnnotation(specificBooleanHandlerAnnotation, "handledBoolean"))
-                .build())
+            (specificBooleanHandlerAnnotation, attrs, attributeIndex) -> CodeBlock.of(
+                "$1L.hasValue($2L) && $1L.getBoolean($2L, true) == $3L",
+                attrs,
+                attributeIndex,
+                getLiteralFromAnnotation(specificBooleanHandlerAnnotation, "handledBoolean")))
+        .build();
+    
+    valueMatchers = ImmutableMap
+        .<String, MatchSupplier>builder()
+        .put(
+            SpecificEnumHandler.class.getName(),
+            (specificEnumHandlerAnnotation, sharedValue) -> CodeBlock.of(
+                "$L == $L",
+                sharedValue,
+                getLiteralFromAnnotation(specificEnumHandlerAnnotation, "handledOrdinal")))
+        
+        .put(
+            SpecificFlagHandler.class.getName(),
+            (specificFlagHandlerAnnotation, sharedValue) -> CodeBlock.of(
+                "($L & $L) > 0",
+                sharedValue,
+                getLiteralFromAnnotation(specificFlagHandlerAnnotation, "handledFlags")))
         .build();
   }
   
-  public MethodSpec generateFor(final AnnotationMirror conditionalHandlerAnnotation) {
+  public CodeBlock generateInlineFor(final AnnotationMirror conditionalHandlerAnnotation, final CodeBlock attrs) {
+    checkNotNull(conditionalHandlerAnnotation, "Argument \'conditionalHandlerAnnotation\' cannot be null.");
+    
+    return generateInlineFor(
+        conditionalHandlerAnnotation,
+        attrs,
+        Integer.parseInt(getLiteralFromAnnotation(conditionalHandlerAnnotation, "attributeId")));
+  }
+  
+  /**
+   * Generates the condition check for the handled attribute, reading the supplied index of the typed array rather than
+   * the attribute ID of the annotation.
+   */
+  public CodeBlock generateInlineFor(
+      final AnnotationMirror conditionalHandlerAnnotation,
+      final CodeBlock attrs,
+      final int attributeIndex) {
+    
     checkNotNull(conditionalHandlerAnnotation, "Argument \'conditionalHandlerAnnotation\' cannot be null.");
+    checkNotNull(attrs, "Argument \'attrs\' cannot be null.");
     
     final String annotationClassName = conditionalHandlerAnnotation.getAnnotationType().toString();
     
-    if (!methodBodySuppliers.containsKey(annotationClassName)) {
+    if (!expressionSuppliers.containsKey(annotationClassName)) {
       throw new IllegalArgumentException("Argument \'conditionalHandlerAnnotation\' is not a call handler annotation.");
     }
     
-    return MethodSpec
-        .methodBuilder("specificValueIsAvailable")
-        .returns(Boolean.class)
-        .addCode(methodBodySuppliers.get(annotationClassName).apply(conditionalHandlerAnnotation))
-        .build();
+    return expressionSuppliers.get(annotationClassName).supply(conditionalHandlerAnnotation, attrs, attributeIndex);
+  }
+  
+  /**
+   * Determines whether handlers with the annotation can share a single read of their attribute. Enum and flag handlers
+   * both read their attribute as an integer, so the handlers of an attribute can be matched against one value.
+   */
+  public boolean canShareValue(final AnnotationMirror conditionalHandlerAnnotation) {
+    checkNotNull(conditionalHandlerAnnotation, "Argument \'conditionalHandlerAnnotation\' cannot be null.");
+    
+    return valueMatchers.containsKey(conditionalHandlerAnnotation.getAnnotationType().toString());
+  }
+  
+  /**
+   * Generates an expression which reads the value of the handled attribute, for handlers which can share their value.
+   * The expression does not check whether the attribute has a value.
+   */
+  public CodeBlock generateSharedValueFor(
+      final AnnotationMirror conditionalHandlerAnnotation,
+      final CodeBlock attrs,
+      final int attributeIndex) {
+    
+    checkNotNull(attrs, "Argument \'attrs\' cannot be null.");
+    
+    if (!canShareValue(conditionalHandlerAnnotation)) {
+      throw new IllegalArgumentException("Argument \'conditionalHandlerAnnotation\' cannot share its value.");
+    }
+    
+    return CodeBlock.of("$L.getInt($L, 0)", attrs, attributeIndex);
+  }
+  
+  /**
+   * Generates the condition check for a value which has already been read using {@link
+   * #generateSharedValueFor(AnnotationMirror, CodeBlock, int)}.
+   */
+  public CodeBlock generateMatchFor(final AnnotationMirror conditionalHandlerAnnotation, final CodeBlock sharedValue) {
+    checkNotNull(sharedValue, "Argument \'sharedValue\' cannot be null.");
+    
+    if (!canShareValue(conditionalHandlerAnnotation)) {
+      throw new IllegalArgumentException("Argument \'conditionalHandlerAnnotation\' cannot share its value.");
+    }
+    
+    return valueMatchers
+        .get(conditionalHandlerAnnotation.getAnnotationType().toString())
+        .supply(conditionalHandlerAnnotation, sharedValue);
+  }
+  
+  /**
+   * @return the ordinal handled by the annotation, or null if the annotation is not a specific enum handler annotation
+   */
+  public Integer getHandledOrdinal(final AnnotationMirror conditionalHandlerAnnotation) {
+    checkNotNull(conditionalHandlerAnnotation, "Argument \'conditionalHandlerAnnotation\' cannot be null.");
+    
+    if (!conditionalHandlerAnnotation.getAnnotationType().toString().equals(SpecificEnumHandler.class.getName())) {
+      return null;
+    }
+    
+    return Integer.parseInt(getLiteralFromAnnotation(conditionalHandlerAnnotation, "handledOrdinal"));
   }
   
   private String getLiteralFromAnnotation(final AnnotationMirror mirror, final String key) {
     return annotationMirrorHelper.getValueUsingDefaults(mirror, key).toString();
   }
+  
+  private interface ExpressionSupplier {
+    CodeBlock supply(AnnotationMirror annotation, CodeBlock attrs, int attributeIndex);
+  }
+  
+  private interface MatchSupplier {
+    CodeBlock supply(AnnotationMirror annotation, CodeBlock sharedValue);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * An index of the methods which have Spyglass handler or default annotations (on the method itself or on its
+ * parameters), grouped by the type which declares them. Methods which only have placeholder annotations are not
+ * handlers, so they are left out. The index is built in a single pass over the elements of a round, so that annotations are
+ * found by one hash lookup per annotation mirror rather than by one element scan per annotation type. Types are
+ * iterated in the order the compiler reports them, and the methods of each type are iterated in source declaration
+ * order. Nothing is ordered by hash code, so the generated code is the same in every build of the same sources.
+ */
+public final class AnnotatedElementIndex {
+  private final ImmutableMap<TypeElement, ImmutableMap<ExecutableElement, AnnotatedMethod>> index;
+  
+  private final ImmutableList<AnnotatedMethod> methods;
+  
+  private AnnotatedElementIndex(
+      final ImmutableMap<TypeElement, ImmutableMap<ExecutableElement, AnnotatedMethod>> index) {
+    
+    this.index = index;
+    
+    final ImmutableList.Builder<AnnotatedMethod> methodsBuilder = ImmutableList.builder();
+    
+    for (final Map<ExecutableElement, AnnotatedMethod> methodsOfType : index.values()) {
+      methodsBuilder.addAll(methodsOfType.values());
+    }
+    
+    methods = methodsBuilder.build();
+  }
+  
+  /**
+   * Builds an index from the root elements of a round. Types nested in the root elements are included.
+   */
+  public static AnnotatedElementIndex build(final Collection<? extends Element> rootElements) {
+    checkNotNull(rootElements, "Argument \'rootElements\' cannot be null.");
+    checkEachElementIsNotNull(rootElements, "Argument \'rootElements\' cannot contain null.");
+    
+    final Map<TypeElement, ImmutableMap.Builder<ExecutableElement, AnnotatedMethod>> index = new LinkedHashMap<>();
+    
+    for (final Element rootElement : rootElements) {
+      if (rootElement instanceof TypeElement) {
+        indexType((TypeElement) rootElement, index);
+      }
+    }
+    
+    final ImmutableMap.Builder<TypeElement, ImmutableMap<ExecutableElement, AnnotatedMethod>> indexBuilder =
+        ImmutableMap.builder();
+    
+    for (final Map.Entry<TypeElement, ImmutableMap.Builder<ExecutableElement, AnnotatedMethod>> entry :
+        index.entrySet()) {
+      
+      indexBuilder.put(entry.getKey(), entry.getValue().build());
+    }
+    
+    return new AnnotatedElementIndex(indexBuilder.build());
+  }
+  
+  /**
+   * @return the types which declare at least one annotated method
+   */
+  public ImmutableSet<TypeElement> getTargetTypes() {
+    return index.keySet();
+  }
+  
+  /**
+   * @return every annotated method in the index
+   */
+  public ImmutableList<AnnotatedMethod> getMethods() {
+    return methods;
+  }
+  
+  /**
+   * @return the annotated methods declared by the type, or an empty list if the type is not in the index
+   */
+  public ImmutableList<AnnotatedMethod> getMethodsOf(final TypeElement type) {
+    checkNotNull(type, "Argument \'type\' cannot be null.");
+    
+    return index.containsKey(type) ? index.get(type).values().asList() : ImmutableList.of();
+  }
+  
+  /**
+   * @return the annotated method model of the element, or null if the element is not in the index
+   */
+  public AnnotatedMethod getMethod(final ExecutableElement element) {
+    checkNotNull(element, "Argument \'element\' cannot be null.");
+    
+    final Map<ExecutableElement, AnnotatedMethod> methodsOfType = index.get(element.getEnclosingElement());
+    
+    return methodsOfType == null ? null : methodsOfType.get(element);
+  }
+  
+  private static void indexType(
+      final TypeElement type,
+      final Map<TypeElement, ImmutableMap.Builder<ExecutableElement, AnnotatedMethod>> index) {
+    
+    for (final Element enclosedElement : type.getEnclosedElements()) {
+      if (enclosedElement.getKind() == ElementKind.METHOD) {
+        final AnnotatedMethod method = AnnotatedMethod.create((ExecutableElement) enclosedElement);
+        
+        if (isIndexed(method)) {
+          index.computeIfAbsent(type, key -> ImmutableMap.builder()).put(method.getElement(), method);
+        }
+        
+      } else if (enclosedElement instanceof TypeElement) {
+        indexType((TypeElement) enclosedElement, index);
+      }
+    }
+  }
+  
+  /**
+   * Methods with handler or default annotations are indexed even if they are misused, so that the validators can
+   * report the misuse.
+   */
+  private static boolean isIndexed(final AnnotatedMethod method) {
+    return method.hasAnyHandlerAnnotation() ||
+        method.hasDefaultAnnotation() ||
+        method.countParametersWithHandlerAnnotations() > 0 ||
+        method.countParametersWithDefaultAnnotations() > 0;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.codegeneration.BatchHookGenerator;
+import com.matthewtamlin.spyglass.processor.codegeneration.CompanionGenerator;
+import com.matthewtamlin.spyglass.processor.codegeneration.HierarchyResolver;
+import com.matthewtamlin.spyglass.processor.core.ProcessingMetrics.Phase;
+import com.matthewtamlin.spyglass.processor.validation.BasicValidator;
+import com.matthewtamlin.spyglass.processor.validation.Result;
+import com.matthewtamlin.spyglass.processor.validation.TypeValidator;
+import com.matthewtamlin.spyglass.processor.validation.Validator;
+import com.squareup.javapoet.JavaFile;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachElementIsNotNull;
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Indexes, validates and generates companions for the elements of a round. The pipeline reads the elements through
+ * the {@code javax.lang.model} API, so it must be hosted by a javac annotation processor, but it does not use the
+ * filer, the messager or the processing environment directly. All output goes through a {@link ProcessingOutput}.
+ * Companions are generated and written one at a time rather than all at once, so that large modules do not hold every
+ * companion in memory.
+ */
+public class CompanionPipeline {
+  private final CompanionGenerator companionGenerator;
+  
+  private final BasicValidator basicValidator;
+  
+  private final TypeValidator typeValidator;
+  
+  private final BatchHookGenerator batchHookGenerator;
+  
+  private final HierarchyResolver hierarchyResolver;
+  
+  @Inject
+  public CompanionPipeline(
+      final CompanionGenerator companionGenerator,
+      final BasicValidator basicValidator,
+      final TypeValidator typeValidator,
+      final BatchHookGenerator batchHookGenerator,
+      final HierarchyResolver hierarchyResolver) {
+    
+    this.companionGenerator = checkNotNull(companionGenerator, "Argument \'companionGenerator\' cannot be null.");
+    this.basicValidator = checkNotNull(basicValidator, "Argument \'basicValidator\' cannot be null.");
+    this.typeValidator = checkNotNull(typeValidator, "Argument \'typeValidator\' cannot be null.");
+    this.batchHookGenerator = checkNotNull(batchHookGenerator, "Argument \'batchHookGenerator\' cannot be null.");
+    this.hierarchyResolver = checkNotNull(hierarchyResolver, "Argument \'hierarchyResolver\' cannot be null.");
+  }
+  
+  /**
+   * Generates a companion for each type in the root elements (or nested in them) which has Spyglass annotations. No
+   * companions are generated if any annotation is misused. Timings and generated targets are recorded in the supplied
+   * metrics, unless the metrics are null.
+   */
+  public void process(
+      final Collection<? extends Element> rootElements,
+      final ProcessingOutput output,
+      @Nullable final ProcessingMetrics metrics) {
+    
+    checkNotNull(rootElements, "Argument \'rootElements\' cannot be null.");
+    checkEachElementIsNotNull(rootElements, "Argument \'rootElements\' cannot contain null.");
+    checkNotNull(output, "Argument \'output\' cannot be null.");
+    
+    long phaseStart = System.nanoTime();
+    
+    final AnnotatedElementIndex index = AnnotatedElementIndex.build(rootElements);
+    phaseStart = recordPhase(metrics, Phase.SCANNING, phaseStart);
+    
+    final boolean basicValidationPassed = allElementsPassValidation(index.getMethods(), basicValidator, output) &&
+        allTypesPassValidation(index, basicValidator, output);
+    phaseStart = recordPhase(metrics, Phase.BASIC_VALIDATION, phaseStart);
+    
+    if (!basicValidationPassed) {
+      return;
+    }
+    
+    final boolean typeValidationPassed = allElementsPassValidation(index.getMethods(), typeValidator, output);
+    phaseStart = recordPhase(metrics, Phase.TYPE_VALIDATION, phaseStart);
+    
+    if (!typeValidationPassed) {
+      return;
+    }
+    
+    for (final TypeElement targetType : index.getTargetTypes()) {
+      phaseStart = processTarget(targetType, index, output, metrics, phaseStart);
+    }
+  }
+  
+  /**
+   * Generates, renders and writes the companion for a single target type. Nothing generated for the target is
+   * retained after the companion has been written, so the memory used by the pipeline does not grow with the number of
+   * targets in the round.
+   *
+   * @return the end time of the target, in nanoseconds
+   */
+  private long processTarget(
+      final TypeElement targetType,
+      final AnnotatedElementIndex index,
+      final ProcessingOutput output,
+      final ProcessingMetrics metrics,
+      final long targetStart) {
+    
+    long phaseStart = targetStart;
+    
+    final List<AnnotatedMethod> methods = index.getMethodsOf(targetType);
+    
+    reportUnmaskedHandlers(targetType, methods, output);
+    
+    final JavaFile companion = companionGenerator.generateFor(targetType, methods);
+    phaseStart = recordPhase(metrics, Phase.GENERATION, phaseStart);
+    
+    final String source = companion.toString();
+    phaseStart = recordPhase(metrics, Phase.RENDERING, phaseStart);
+    
+    try {
+      output.writeSource(companion, source);
+      
+    } catch (final IOException e) {
+      output.reportError("Failed to create Spyglass companion class.", null);
+    }
+    
+    phaseStart = recordPhase(metrics, Phase.WRITING, phaseStart);
+    
+    if (metrics != null) {
+      metrics.recordTarget(
+          targetType.getQualifiedName().toString(),
+          countHandlers(methods),
+          source.getBytes(StandardCharsets.UTF_8).length);
+    }
+    
+    return phaseStart;
+  }
+  
+  /**
+   * Warns if the target is batch aware but its hierarchy has more handlers than the applied mask can represent, since
+   * the handlers past the end of the mask are never reported to the target.
+   */
+  private void reportUnmaskedHandlers(
+      final TypeElement targetType,
+      final List<AnnotatedMethod> methods,
+      final ProcessingOutput output) {
+    
+    if (!batchHookGenerator.isBatchAware(targetType)) {
+      return;
+    }
+    
+    final int hierarchyHandlerCount = hierarchyResolver.countHandlersAbove(targetType) + countHandlers(methods);
+    
+    if (hierarchyHandlerCount > BatchHookGenerator.MAX_REPORTED_HANDLERS) {
+      output.reportWarning(
+          String.format(
+              "Class %1$s is batch aware and has %2$s handlers in its hierarchy, but the applied mask only reports " +
+                  "the first %3$s.",
+              targetType.getSimpleName(),
+              hierarchyHandlerCount,
+              BatchHookGenerator.MAX_REPORTED_HANDLERS),
+          targetType);
+    }
+  }
+  
+  /**
+   * Records a phase which started at the supplied time and ends now, unless the metrics are null.
+   *
+   * @return the end time of the phase, in nanoseconds
+   */
+  private static long recordPhase(final ProcessingMetrics metrics, final Phase phase, final long startNanos) {
+    final long endNanos = System.nanoTime();
+    
+    if (metrics != null) {
+      metrics.recordPhase(phase, startNanos, endNanos);
+    }
+    
+    return endNanos;
+  }
+  
+  private static int countHandlers(final List<AnnotatedMethod> methods) {
+    int handlerCount = 0;
+    
+    for (final AnnotatedMethod method : methods) {
+      if (method.hasAnyHandlerAnnotation()) {
+        handlerCount++;
+      }
+    }
+    
+    return handlerCount;
+  }
+  
+  private static boolean allTypesPassValidation(
+      final AnnotatedElementIndex index,
+      final BasicValidator validator,
+      final ProcessingOutput output) {
+    
+    boolean allPassed = true;
+    
+    for (final TypeElement targetType : index.getTargetTypes()) {
+      final Map<AnnotatedMethod, Result> failures = validator.validateType(index.getMethodsOf(targetType));
+      
+      allPassed &= failures.isEmpty();
+      
+      for (final Map.Entry<AnnotatedMethod, Result> failure : failures.entrySet()) {
+        output.reportError(failure.getValue().getDescription(), failure.getKey().getElement());
+      }
+    }
+    
+    return allPassed;
+  }
+  
+  private static boolean allElementsPassValidation(
+      final List<AnnotatedMethod> methods,
+      final Validator validator,
+      final ProcessingOutput output) {
+    
+    boolean allPassed = true;
+    
+    for (final AnnotatedMethod method : methods) {
+      final Result result = validator.validate(method);
+      
+      allPassed &= result.isSuccessful();
+      
+      if (!result.isSuccessful()) {
+        output.reportError(result.getDescription(), method.getElement());
+      }
+    }
+    
+    return allPassed;
+  }
+}
\ No newline at end of file
@@ -20,16 +20,23 @@ import dagger.BindsInstance;
 import dagger.Component;
 
 import javax.annotation.processing.ProcessingEnvironment;
+import javax.inject.Singleton;
 
+@Singleton
 @Component(modules = CoreModule.class)
 public interface CoreComponent {
   public void inject(MainProcessor mainProcessor);
   
+  public CompanionPipeline getCompanionPipeline();
+  
   @Component.Builder
   public interface Builder {
     @BindsInstance
     public Builder setProcessingEnvironment(ProcessingEnvironment processingEnvironment);
     
+    @BindsInstance
+    public Builder setProcessorOptions(ProcessorOptions processorOptions);
+    
     public Builder setCoreModule(CoreModule coreModule);
     
     public CoreComponent build();
@@ -18,34 +18,38 @@ package com.matthewtamlin.spyglass.processor.core;
 
 
 import com.google.common.collect.ImmutableSet;
-import com.matthewtamlin.spyglass.processor.codegeneration.CompanionGenerator;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.DefaultValueCaching;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.GenerationMode;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.TwoPhaseDecoding;
 import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.AttributesSnapshotCacheDef;
 import com.matthewtamlin.spyglass.processor.definitions.CompanionDef;
-import com.matthewtamlin.spyglass.processor.grouper.Grouper;
-import com.matthewtamlin.spyglass.processor.grouper.TypeElementWrapper;
-import com.matthewtamlin.spyglass.processor.validation.BasicValidator;
-import com.matthewtamlin.spyglass.processor.validation.Result;
-import com.matthewtamlin.spyglass.processor.validation.TypeValidator;
-import com.matthewtamlin.spyglass.processor.validation.Validator;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.DirectCompanionDef;
+import com.matthewtamlin.spyglass.processor.definitions.ReactiveRuntimeHelpersDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.squareup.javapoet.JavaFile;
 
 import javax.annotation.processing.*;
 import javax.inject.Inject;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
-import javax.lang.model.element.ElementKind;
-import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.WARNING;
 
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public class MainProcessor extends AbstractProcessor {
@@ -53,11 +57,28 @@ public class MainProcessor extends AbstractProcessor {
       .<Class<? extends Annotation>>builder()
       .addAll(AnnotationRegistry.CONDITIONAL_HANDLERS)
       .addAll(AnnotationRegistry.UNCONDITIONAL_HANDLERS)
+      .addAll(AnnotationRegistry.COMPOSITE_HANDLERS)
       .addAll(AnnotationRegistry.DEFAULTS)
       .addAll(AnnotationRegistry.PLACEHOLDERS)
       .build();
   
-  private static final Set<JavaFile> REQUIRED_FILES = ImmutableSet.of(CallerDef.SRC_FILE, CompanionDef.SRC_FILE);
+  /**
+   * The classes which generated code depends on in reactive mode. The classes are provided by the runtime dependencies
+   * artifact rather than being generated, since an isolating processor cannot generate files which are shared between
+   * annotated elements.
+   */
+  private static final Set<JavaFile> REACTIVE_REQUIRED_FILES = ImmutableSet.of(
+      CompanionDef.SRC_FILE,
+      ReactiveRuntimeHelpersDef.SRC_FILE,
+      RuntimeHelpersDef.SRC_FILE);
+  
+  /**
+   * The classes which generated code depends on in direct mode. The classes are provided by the direct runtime
+   * dependencies artifact.
+   */
+  private static final Set<JavaFile> DIRECT_REQUIRED_FILES = ImmutableSet.of(
+      DirectCompanionDef.SRC_FILE,
+      RuntimeHelpersDef.SRC_FILE);
   
   @Inject
   protected Elements elementUtil;
@@ -69,29 +90,41 @@ public class MainProcessor extends AbstractProcessor {
   protected Filer filer;
   
   @Inject
-  protected CompanionGenerator companionGenerator;
+  protected CompanionPipeline pipeline;
   
-  @Inject
-  protected BasicValidator basicValidator;
+  private ProcessorOptions processorOptions;
   
-  @Inject
-  protected TypeValidator typeValidator;
+  private String missingRequiredClass;
+  
+  private boolean requiredClassMissingErrorWritten;
   
-  private boolean allRequiredFilesCreated;
+  private final ProcessingOutput output = new FilerOutput();
   
-  private boolean requiredFilesMissingErrorWritten;
+  private final ProcessingMetrics metrics = new ProcessingMetrics();
+  
+  private boolean metricsEnabled;
   
   @Override
   public synchronized void init(final ProcessingEnvironment processingEnvironment) {
     super.init(processingEnvironment);
     
+    try {
+      processorOptions = ProcessorOptions.createFrom(processingEnvironment.getOptions());
+      
+    } catch (final IllegalArgumentException e) {
+      processingEnvironment.getMessager().printMessage(ERROR, e.getMessage());
+      processorOptions = ProcessorOptions.createDefault();
+    }
+    
     DaggerCoreComponent
         .builder()
         .setProcessingEnvironment(processingEnvironment)
+        .setProcessorOptions(processorOptions)
         .build()
         .inject(this);
     
-    createRequiredFiles();
+    missingRequiredClass = findMissingRequiredClass();
+    metricsEnabled = processorOptions.getMetricsPath() != null || processorOptions.getMetricsTracePath() != null;
   }
   
   @Override
@@ -105,29 +138,33 @@ public class MainProcessor extends AbstractProcessor {
     return supportedTypes;
   }
   
+  @Override
+  public Set<String> getSupportedOptions() {
+    return ProcessorOptions.SUPPORTED_OPTIONS;
+  }
+  
   @Override
   public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
-    if (!allRequiredFilesCreated) {
-      if (!requiredFilesMissingErrorWritten) {
-        messager.printMessage(ERROR, "A required class could not be created. Aborting Spyglass processing.");
-        requiredFilesMissingErrorWritten = true;
+    if (missingRequiredClass != null) {
+      if (!requiredClassMissingErrorWritten) {
+        messager.printMessage(
+            ERROR,
+            String.format(
+                "Required class \'%1$s\' could not be found. Add the Spyglass runtime dependencies to the " +
+                    "project. Aborting Spyglass processing.",
+                missingRequiredClass));
+        
+        requiredClassMissingErrorWritten = true;
       }
       
       return false;
     }
     
+    metrics.startRound();
+    
     try {
-      final Set<ExecutableElement> methods = findMethodsWithSpyglassAnnotations(roundEnv);
+      pipeline.process(roundEnv.getRootElements(), output, metricsEnabled ? metrics : null);
       
-      if (allElementsPassValidation(methods, basicValidator)) {
-        if (allElementsPassValidation(methods, typeValidator)) {
-          final Set<TypeElement> targetTypes = findTypesWithSpyglassAnnotations(roundEnv);
-          
-          for (final TypeElement targetType : targetTypes) {
-            createFile(companionGenerator.generateFor(targetType), "Failed to create Spyglass companion class.");
-          }
-        }
-      }
     } catch (final Throwable t) {
       messager.printMessage(
           ERROR,
@@ -139,91 +176,97 @@ public class MainProcessor extends AbstractProcessor {
               Arrays.toString(t.getStackTrace())));
     }
     
+    if (roundEnv.processingOver()) {
+      writeMetrics(processorOptions.getMetricsPath(), metrics.toJson());
+      writeMetrics(processorOptions.getMetricsTracePath(), metrics.toChromeTrace());
+    }
+    
     return false;
   }
   
-  private void createRequiredFiles() {
-    allRequiredFilesCreated = true;
+  /**
+   * Finds the first required class which is not available on the classpath.
+   *
+   * @return the fully qualified name of the missing class, or null if all required classes are available
+   */
+  private String findMissingRequiredClass() {
+    final Set<JavaFile> requiredFiles = new HashSet<>(processorOptions.getGenerationMode() == GenerationMode.DIRECT ?
+        DIRECT_REQUIRED_FILES :
+        REACTIVE_REQUIRED_FILES);
     
-    for (final JavaFile requiredFile : REQUIRED_FILES) {
+    if (processorOptions.getDefaultValueCaching() == DefaultValueCaching.ENABLED) {
+      requiredFiles.add(DefaultValueCacheDef.SRC_FILE);
+    }
+    
+    if (processorOptions.getTwoPhaseDecoding() == TwoPhaseDecoding.ENABLED) {
+      requiredFiles.add(AttributesSnapshotCacheDef.SRC_FILE);
+    }
+    
+    for (final JavaFile requiredFile : requiredFiles) {
       final String className = requiredFile.packageName + "." + requiredFile.typeSpec.name;
       
-      // Spyglass could be applied to a project that uses Spyglass transitively
-      final boolean alreadyExists = elementUtil.getTypeElement(className) != null;
-      
-      if (alreadyExists) {
-        allRequiredFilesCreated &= true;
-        
-      } else {
-        allRequiredFilesCreated &= createFile(requiredFile, "Could not create required class: " + className);
-      }
-    }
-  }
-  
-  private Set<ExecutableElement> findMethodsWithSpyglassAnnotations(final RoundEnvironment roundEnvironment) {
-    final Set<ExecutableElement> methods = new HashSet<>();
-    
-    for (final Class<? extends Annotation> annotationType : SUPPORTED_ANNOTATIONS) {
-      for (final Element foundElement : roundEnvironment.getElementsAnnotatedWith(annotationType)) {
-        if (foundElement.getKind() == ElementKind.METHOD) {
-          methods.add((ExecutableElement) foundElement);
-          
-        } else if (foundElement.getKind() == ElementKind.PARAMETER) {
-          methods.add((ExecutableElement) foundElement.getEnclosingElement());
-          
-        } else {
-          throw new RuntimeException("A Spyglass annotation was found on an illegal element type.");
-        }
+      if (elementUtil.getTypeElement(className) == null) {
+        return className;
       }
     }
     
-    return methods;
+    return null;
   }
   
-  private Set<TypeElement> findTypesWithSpyglassAnnotations(final RoundEnvironment roundEnvironment) {
-    final Set<ExecutableElement> methods = findMethodsWithSpyglassAnnotations(roundEnvironment);
-    final Map<TypeElementWrapper, Set<ExecutableElement>> typesToMethods = Grouper.groupByEnclosingClass(methods);
-    
-    final Set<TypeElement> unwrappedTypes = new HashSet<>();
-    
-    for (final TypeElementWrapper wrappedType : typesToMethods.keySet()) {
-      unwrappedTypes.add(wrappedType.unwrap());
+  private void writeMetrics(final String path, final String content) {
+    if (path == null) {
+      return;
     }
     
-    return unwrappedTypes;
+    try {
+      final Path file = Paths.get(path).toAbsolutePath();
+      
+      Files.createDirectories(file.getParent());
+      Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+      
+    } catch (final IOException | InvalidPathException e) {
+      messager.printMessage(
+          WARNING,
+          String.format(
+              "Failed to write Spyglass metrics to \'%1$s\'. Error message: \'%2$s\'.",
+              path,
+              e.getMessage()));
+    }
   }
   
-  private boolean allElementsPassValidation(final Set<? extends Element> elements, final Validator validator) {
-    boolean allPassed = true;
-    
-    for (final Element element : elements) {
-      // This check should never fail since handler and default annotations are restricted to methods
-      if (element.getKind() != ElementKind.METHOD) {
-        throw new RuntimeException("A handler or default annotation was found on a non-method element.");
+  /**
+   * Reports diagnostics through the messager and writes files through the filer.
+   */
+  private class FilerOutput implements ProcessingOutput {
+    @Override
+    public void reportError(final String message, final Element element) {
+      if (element == null) {
+        messager.printMessage(ERROR, message);
+      } else {
+        messager.printMessage(ERROR, message, element);
       }
-      
-      final Result result = validator.validate((ExecutableElement) element);
-      
-      allPassed &= result.isSuccessful();
-      
-      if (!result.isSuccessful()) {
-        messager.printMessage(ERROR, result.getDescription(), element);
+    }
+    
+    @Override
+    public void reportWarning(final String message, final Element element) {
+      if (element == null) {
+        messager.printMessage(WARNING, message);
+      } else {
+        messager.printMessage(WARNING, message, element);
       }
     }
     
-    return allPassed;
-  }
-  
-  private boolean createFile(final JavaFile file, final String errorMessage) {
-    try {
-      file.writeTo(filer);
-      
-      return true;
-      
-    } catch (final IOException e) {
-      messager.printMessage(ERROR, errorMessage);
+    @Override
+    public void writeSource(final JavaFile file, final String source) throws IOException {
+      final String packagePrefix = file.packageName.isEmpty() ? "" : file.packageName + ".";
+      final Element[] originatingElements = file.typeSpec.originatingElements.toArray(new Element[0]);
       
-      return false;
+      try (final Writer writer = filer
+          .createSourceFile(packagePrefix + file.typeSpec.name, originatingElements)
+          .openWriter()) {
+        
+        writer.write(source);
+      }
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Records how long each phase of processing takes and what is generated for each target, and formats the records as a
+ * JSON report or as a Chrome trace (which can be opened in chrome://tracing). Instances are not thread safe and must
+ * only be used on the processing thread.
+ */
+public final class ProcessingMetrics {
+  private final List<PhaseRecord> phases = new ArrayList<>();
+  
+  private final List<TargetRecord> targets = new ArrayList<>();
+  
+  private final long originNanos;
+  
+  private int currentRound = 0;
+  
+  public ProcessingMetrics() {
+    originNanos = System.nanoTime();
+  }
+  
+  /**
+   * Starts a new round. Phases recorded after this call are attributed to the new round.
+   */
+  public void startRound() {
+    currentRound++;
+  }
+  
+  /**
+   * Records that a phase of the current round ran between two values of {@link System#nanoTime()}.
+   */
+  public void recordPhase(final Phase phase, final long startNanos, final long endNanos) {
+    checkNotNull(phase, "Argument \'phase\' cannot be null.");
+    
+    phases.add(new PhaseRecord(currentRound, phase, startNanos - originNanos, endNanos - startNanos));
+  }
+  
+  /**
+   * Records the companion generated for a target in the current round.
+   */
+  public void recordTarget(final String targetName, final int handlerCount, final int sourceBytes) {
+    checkNotNull(targetName, "Argument \'targetName\' cannot be null.");
+    
+    targets.add(new TargetRecord(currentRound, targetName, handlerCount, sourceBytes));
+  }
+  
+  /**
+   * @return a JSON report containing the time spent in each phase of each round (in nanoseconds) and the handler count
+   * and generated source size of each target
+   */
+  public String toJson() {
+    final StringBuilder json = new StringBuilder("{\n  \"rounds\": [");
+    
+    for (int round = 1; round <= currentRound; round++) {
+      final long[] phaseNanos = new long[Phase.values().length];
+      long totalNanos = 0;
+      
+      for (final PhaseRecord record : phases) {
+        if (record.round == round) {
+          phaseNanos[record.phase.ordinal()] += record.durationNanos;
+          totalNanos += record.durationNanos;
+        }
+      }
+      
+      json
+          .append(round == 1 ? "\n" : ",\n")
+          .append("    {\"round\": ").append(round)
+          .append(", \"totalNanos\": ").append(totalNanos);
+      
+      for (final Phase phase : Phase.values()) {
+        json.append(", \"").append(phase.getKey()).append("Nanos\": ").append(phaseNanos[phase.ordinal()]);
+      }
+      
+      json.append("}");
+    }
+    
+    json.append(currentRound == 0 ? "],\n  \"targets\": [" : "\n  ],\n  \"targets\": [");
+    
+    for (int i = 0; i < targets.size(); i++) {
+      final TargetRecord record = targets.get(i);
+      
+      json
+          .append(i == 0 ? "\n" : ",\n")
+          .append("    {\"name\": ").append(quote(record.targetName))
+          .append(", \"round\": ").append(record.round)
+          .append(", \"handlerCount\": ").append(record.handlerCount)
+          .append(", \"sourceBytes\": ").append(record.sourceBytes)
+          .append("}");
+    }
+    
+    return json.append(targets.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+  }
+  
+  /**
+   * @return the recorded phases in the Chrome trace event format, with one complete event per phase
+   */
+  public String toChromeTrace() {
+    final StringBuilder trace = new StringBuilder("{\"traceEvents\": [");
+    
+    for (int i = 0; i < phases.size(); i++) {
+      final PhaseRecord record = phases.get(i);
+      
+      trace
+          .append(i == 0 ? "\n" : ",\n")
+          .append("  {\"name\": ").append(quote(record.phase.getKey()))
+          .append(", \"cat\": \"spyglass\", \"ph\": \"X\"")
+          .append(", \"ts\": ").append(record.startNanos / 1000)
+          .append(", \"dur\": ").append(record.durationNanos / 1000)
+          .append(", \"pid\": 1, \"tid\": 1")
+          .append(", \"args\": {\"round\": ").append(record.round).append("}}");
+    }
+    
+    return trace.append(phases.isEmpty() ? "]}\n" : "\n]}\n").toString();
+  }
+  
+  private static String quote(final String value) {
+    final StringBuilder quoted = new StringBuilder("\"");
+    
+    for (final char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format("\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    
+    return quoted.append('"').toString();
+  }
+  
+  public enum Phase {
+    SCANNING("scanning"),
+    
+    BASIC_VALIDATION("basicValidation"),
+    
+    TYPE_VALIDATION("typeValidation"),
+    
+    GENERATION("generation"),
+    
+    RENDERING("rendering"),
+    
+    WRITING("writing");
+    
+    private final String key;
+    
+    Phase(final String key) {
+      this.key = key;
+    }
+    
+    public String getKey() {
+      return key;
+    }
+  }
+  
+  private static class PhaseRecord {
+    private final int round;
+    
+    private final Phase phase;
+    
+    private final long startNanos;
+    
+    private final long durationNanos;
+    
+    private PhaseRecord(final int round, final Phase phase, final long startNanos, final long durationNanos) {
+      this.round = round;
+      this.phase = phase;
+      this.startNanos = startNanos;
+      this.durationNanos = durationNanos;
+    }
+  }
+  
+  private static class TargetRecord {
+    private final int round;
+    
+    private final String targetName;
+    
+    private final int handlerCount;
+    
+    private final int sourceBytes;
+    
+    private TargetRecord(final int round, final String targetName, final int handlerCount, final int sourceBytes) {
+      this.round = round;
+      this.targetName = targetName;
+      this.handlerCount = handlerCount;
+      this.sourceBytes = sourceBytes;
+    }
+  }
+}
\ No newline at end of file
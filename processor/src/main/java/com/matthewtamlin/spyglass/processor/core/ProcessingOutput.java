@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.squareup.javapoet.JavaFile;
+
+import javax.lang.model.element.Element;
+import java.io.IOException;
+
+/**
+ * Receives the output of the Spyglass pipeline. The pipeline only reports diagnostics and writes files through this
+ * interface, so the output can be sent somewhere other than the filer and messager (for example, recorded in memory
+ * by tests).
+ */
+public interface ProcessingOutput {
+  /**
+   * Reports an error to the user. The element is null if the error does not relate to a specific element.
+   */
+  public void reportError(final String message, final Element element);
+  
+  /**
+   * Reports a warning to the user. The element is null if the warning does not relate to a specific element.
+   */
+  public void reportWarning(final String message, final Element element);
+  
+  /**
+   * Writes a generated source file. The source is the rendered form of the supplied file.
+   */
+  public void writeSource(final JavaFile file, final String source) throws IOException;
+}
\ No newline at end of file
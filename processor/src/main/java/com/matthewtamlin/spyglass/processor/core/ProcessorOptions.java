@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+@AutoValue
+public abstract class ProcessorOptions {
+  public static final String GENERATION_MODE = "spyglass.generationMode";
+  
+  public static final String DISPATCH_MODE = "spyglass.dispatchMode";
+  
+  public static final String DEFAULT_VALUE_CACHE = "spyglass.defaultValueCache";
+  
+  public static final String TWO_PHASE_DECODING = "spyglass.twoPhaseDecoding";
+  
+  public static final String METRICS = "spyglass.metrics";
+  
+  public static final String METRICS_TRACE = "spyglass.metricsTrace";
+  
+  public static final Set<String> SUPPORTED_OPTIONS = ImmutableSet.of(
+      GENERATION_MODE,
+      DISPATCH_MODE,
+      DEFAULT_VALUE_CACHE,
+      TWO_PHASE_DECODING,
+      METRICS,
+      METRICS_TRACE);
+  
+  public abstract GenerationMode getGenerationMode();
+  
+  public abstract DispatchMode getDispatchMode();
+  
+  public abstract DefaultValueCaching getDefaultValueCaching();
+  
+  public abstract TwoPhaseDecoding getTwoPhaseDecoding();
+  
+  /**
+   * @return the path to write the JSON metrics report to, or null if the report is disabled
+   */
+  @Nullable
+  public abstract String getMetricsPath();
+  
+  /**
+   * @return the path to write the Chrome trace of the processing phases to, or null if the trace is disabled
+   */
+  @Nullable
+  public abstract String getMetricsTracePath();
+  
+  public static ProcessorOptions createDefault() {
+    return new AutoValue_ProcessorOptions(
+        GenerationMode.REACTIVE,
+        DispatchMode.DENSE,
+        DefaultValueCaching.DISABLED,
+        TwoPhaseDecoding.DISABLED,
+        null,
+        null);
+  }
+  
+  public static ProcessorOptions createFrom(final Map<String, String> rawOptions) {
+    checkNotNull(rawOptions, "Argument \'rawOptions\' cannot be null.");
+    
+    return new AutoValue_ProcessorOptions(
+        GenerationMode.fromOptionValue(rawOptions.get(GENERATION_MODE)),
+        DispatchMode.fromOptionValue(rawOptions.get(DISPATCH_MODE)),
+        DefaultValueCaching.fromOptionValue(rawOptions.get(DEFAULT_VALUE_CACHE)),
+        TwoPhaseDecoding.fromOptionValue(rawOptions.get(TWO_PHASE_DECODING)),
+        pathFromOptionValue(rawOptions.get(METRICS), METRICS),
+        pathFromOptionValue(rawOptions.get(METRICS_TRACE), METRICS_TRACE));
+  }
+  
+  private static String pathFromOptionValue(final String optionValue, final String optionName) {
+    if (optionValue != null && optionValue.trim().isEmpty()) {
+      throw new IllegalArgumentException(String.format(
+          "Unsupported value \'%1$s\' for option \'%2$s\'. Expected a file path.",
+          optionValue,
+          optionName));
+    }
+    
+    return optionValue;
+  }
+  
+  public enum GenerationMode {
+    /**
+     * Companions implement {@code Companion2} and route every call through RxJava.
+     */
+    REACTIVE("reactive"),
+    
+    /**
+     * Companions implement {@code DirectCompanion} and call the target methods synchronously. RxJava is only
+     * referenced by the generated code if a target method returns a reactive type.
+     */
+    DIRECT("direct");
+    
+    private final String optionValue;
+    
+    GenerationMode(final String optionValue) {
+      this.optionValue = optionValue;
+    }
+    
+    public String getOptionValue() {
+      return optionValue;
+    }
+    
+    private static GenerationMode fromOptionValue(final String optionValue) {
+      if (optionValue == null) {
+        return REACTIVE;
+      }
+      
+      for (final GenerationMode mode : values()) {
+        if (mode.optionValue.equals(optionValue)) {
+          return mode;
+        }
+      }
+      
+      throw new IllegalArgumentException(String.format(
+          "Unsupported value \'%1$s\' for option \'%2$s\'. Expected \'reactive\' or \'direct\'.",
+          optionValue,
+          GENERATION_MODE));
+    }
+  }
+  
+  public enum DispatchMode {
+    /**
+     * Every handler checks whether its attribute is available, regardless of which attributes were supplied.
+     */
+    DENSE("dense"),
+    
+    /**
+     * Only the attributes actually present in the typed array are visited, and handlers are selected using a
+     * compile-time index table. Defaults are applied afterwards for the attributes which were not visited.
+     */
+    SPARSE("sparse");
+    
+    private final String optionValue;
+    
+    DispatchMode(final String optionValue) {
+      this.optionValue = optionValue;
+    }
+    
+    public String getOptionValue() {
+      return optionValue;
+    }
+    
+    private static DispatchMode fromOptionValue(final String optionValue) {
+      if (optionValue == null) {
+        return DENSE;
+      }
+      
+      for (final DispatchMode mode : values()) {
+        if (mode.optionValue.equals(optionValue)) {
+          return mode;
+        }
+      }
+      
+      throw new IllegalArgumentException(String.format(
+          "Unsupported value \'%1$s\' for option \'%2$s\'. Expected \'dense\' or \'sparse\'.",
+          optionValue,
+          DISPATCH_MODE));
+    }
+  }
+  
+  public enum DefaultValueCaching {
+    /**
+     * Resource-backed defaults are resolved every time they are applied.
+     */
+    DISABLED("disabled"),
+    
+    /**
+     * Resource-backed defaults are stored in {@code DefaultValueCache} once resolved, and reused within the same
+     * theme until the configuration changes.
+     */
+    ENABLED("enabled");
+    
+    private final String optionValue;
+    
+    DefaultValueCaching(final String optionValue) {
+      this.optionValue = optionValue;
+    }
+    
+    public String getOptionValue() {
+      return optionValue;
+    }
+    
+    private static DefaultValueCaching fromOptionValue(final String optionValue) {
+      if (optionValue == null) {
+        return DISABLED;
+      }
+      
+      for (final DefaultValueCaching caching : values()) {
+        if (caching.optionValue.equals(optionValue)) {
+          return caching;
+        }
+      }
+      
+      throw new IllegalArgumentException(String.format(
+          "Unsupported value \'%1$s\' for option \'%2$s\'. Expected \'disabled\' or \'enabled\'.",
+          optionValue,
+          DEFAULT_VALUE_CACHE));
+    }
+  }  
+  public enum TwoPhaseDecoding {
+    /**
+     * Companions only apply the attributes directly to the target.
+     */
+    DISABLED("disabled"),
+    
+    /**
+     * Companions also contain the {@code Attributes} class and the {@code decode}, {@code decodeShared} and
+     * {@code applyShared} methods, so that attributes can be decoded separately from applying them and shared between
+     * targets.
+     */
+    ENABLED("enabled");
+    
+    private final String optionValue;
+    
+    TwoPhaseDecoding(final String optionValue) {
+      this.optionValue = optionValue;
+    }
+    
+    public String getOptionValue() {
+      return optionValue;
+    }
+    
+    private static TwoPhaseDecoding fromOptionValue(final String optionValue) {
+      if (optionValue == null) {
+        return DISABLED;
+      }
+      
+      for (final TwoPhaseDecoding decoding : values()) {
+        if (decoding.optionValue.equals(optionValue)) {
+          return decoding;
+        }
+      }
+      
+      throw new IllegalArgumentException(String.format(
+          "Unsupported value \'%1$s\' for option \'%2$s\'. Expected \'disabled\' or \'enabled\'.",
+          optionValue,
+          TWO_PHASE_DECODING));
+    }
+  }
+}
\ No newline at end of file
@@ -42,6 +42,12 @@ public class AndroidClassNames {
       "android.support.v7.content.res",
       "AppCompatResources");
   
+  public static final ClassName CONFIGURATION = ClassName.get("android.content.res", "Configuration");
+  
+  public static final ClassName THEME = ClassName.get("android.content.res", "Resources", "Theme");
+  
+  public static final ClassName LONG_SPARSE_ARRAY = ClassName.get("android.support.v4.util", "LongSparseArray");
+  
   private AndroidClassNames() {
     throw new RuntimeException("Constants class. Do not instantiate.");
   }
@@ -16,21 +16,37 @@
 
 package com.matthewtamlin.spyglass.processor.definitions;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificBooleanHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
 import com.matthewtamlin.spyglass.markers.annotations.defaults.*;
 import com.matthewtamlin.spyglass.markers.annotations.placeholders.*;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.*;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.TypeName;
 
 import java.lang.annotation.Annotation;
+import java.util.Map;
 import java.util.Set;
 
 /**
- * Source of truth for annotation groups.
+ * Source of truth for annotation groups and the types of value they supply.
  */
 public class AnnotationRegistry {
+  /**
+   * The groups an annotation can belong to.
+   */
+  public enum Group {
+    UNCONDITIONAL_HANDLER,
+    CONDITIONAL_HANDLER,
+    COMPOSITE_HANDLER,
+    DEFAULT,
+    PLACEHOLDER
+  }
+  
   public static final Set<Class<? extends Annotation>> UNCONDITIONAL_HANDLERS = ImmutableSet.of(
       BooleanHandler.class,
       ColorHandler.class,
@@ -49,6 +65,8 @@ public class AnnotationRegistry {
       SpecificEnumHandler.class,
       SpecificFlagHandler.class);
   
+  public static final Set<Class<? extends Annotation>> COMPOSITE_HANDLERS = ImmutableSet.of(CompositeHandler.class);
+  
   public static final Set<Class<? extends Annotation>> DEFAULTS = ImmutableSet.of(
       DefaultToBoolean.class,
       DefaultToBooleanResource.class,
@@ -79,4 +97,88 @@ public class AnnotationRegistry {
       UseNull.class,
       UseShort.class,
       UseString.class);
+  
+  /**
+   * The type of value supplied by each annotation. Annotations which supply an enum constant are not included, since
+   * the type is given by the {@code enumClass} value of the annotation. Null annotations supply {@link Object}.
+   */
+  public static final Map<Class<? extends Annotation>, TypeName> SUPPLIED_TYPES = ImmutableMap
+      .<Class<? extends Annotation>, TypeName>builder()
+      .put(BooleanHandler.class, TypeName.BOOLEAN)
+      .put(ColorHandler.class, TypeName.INT)
+      .put(ColorStateListHandler.class, AndroidClassNames.COLOR_STATE_LIST)
+      .put(DimensionHandler.class, TypeName.FLOAT)
+      .put(DrawableHandler.class, AndroidClassNames.DRAWABLE)
+      .put(EnumOrdinalHandler.class, TypeName.INT)
+      .put(FloatHandler.class, TypeName.FLOAT)
+      .put(FractionHandler.class, TypeName.FLOAT)
+      .put(IntegerHandler.class, TypeName.INT)
+      .put(StringHandler.class, ClassName.get(String.class))
+      .put(DefaultToBoolean.class, TypeName.BOOLEAN)
+      .put(DefaultToBooleanResource.class, TypeName.BOOLEAN)
+      .put(DefaultToColorResource.class, TypeName.INT)
+      .put(DefaultToColorStateListResource.class, AndroidClassNames.COLOR_STATE_LIST)
+      .put(DefaultToDimension.class, TypeName.FLOAT)
+      .put(DefaultToDimensionResource.class, TypeName.FLOAT)
+      .put(DefaultToDrawableResource.class, AndroidClassNames.DRAWABLE)
+      .put(DefaultToFloat.class, TypeName.FLOAT)
+      .put(DefaultToFractionResource.class, TypeName.FLOAT)
+      .put(DefaultToInteger.class, TypeName.INT)
+      .put(DefaultToIntegerResource.class, TypeName.INT)
+      .put(DefaultToNull.class, ClassName.get(Object.class))
+      .put(DefaultToString.class, ClassName.get(String.class))
+      .put(DefaultToStringResource.class, ClassName.get(String.class))
+      .put(DefaultToTextArrayResource.class, TypeName.get(CharSequence[].class))
+      .put(DefaultToTextResource.class, ClassName.get(CharSequence.class))
+      .put(UseBoolean.class, TypeName.BOOLEAN)
+      .put(UseByte.class, TypeName.BYTE)
+      .put(UseChar.class, TypeName.CHAR)
+      .put(UseDouble.class, TypeName.DOUBLE)
+      .put(UseFloat.class, TypeName.FLOAT)
+      .put(UseInt.class, TypeName.INT)
+      .put(UseLong.class, TypeName.LONG)
+      .put(UseNull.class, ClassName.get(Object.class))
+      .put(UseShort.class, TypeName.SHORT)
+      .put(UseString.class, ClassName.get(String.class))
+      .build();
+  
+  private static final Map<String, Group> GROUPS_BY_NAME = createGroupsByName();
+  
+  private static final Map<String, TypeName> SUPPLIED_TYPES_BY_NAME = createSuppliedTypesByName();
+  
+  /**
+   * Finds the group of an annotation using the fully qualified name of the annotation type. Returns null if the
+   * annotation does not belong to a group.
+   */
+  public static Group getGroup(final String annotationName) {
+    return GROUPS_BY_NAME.get(annotationName);
+  }
+  
+  /**
+   * Finds the type of value supplied by an annotation using the fully qualified name of the annotation type. Returns
+   * null if the annotation supplies an enum constant or does not belong to a group.
+   */
+  public static TypeName getSuppliedType(final String annotationName) {
+    return SUPPLIED_TYPES_BY_NAME.get(annotationName);
+  }
+  
+  private static Map<String, Group> createGroupsByName() {
+    final ImmutableMap.Builder<String, Group> groupsByName = ImmutableMap.builder();
+    
+    UNCONDITIONAL_HANDLERS.forEach(annotation -> groupsByName.put(annotation.getName(), Group.UNCONDITIONAL_HANDLER));
+    CONDITIONAL_HANDLERS.forEach(annotation -> groupsByName.put(annotation.getName(), Group.CONDITIONAL_HANDLER));
+    COMPOSITE_HANDLERS.forEach(annotation -> groupsByName.put(annotation.getName(), Group.COMPOSITE_HANDLER));
+    DEFAULTS.forEach(annotation -> groupsByName.put(annotation.getName(), Group.DEFAULT));
+    PLACEHOLDERS.forEach(annotation -> groupsByName.put(annotation.getName(), Group.PLACEHOLDER));
+    
+    return groupsByName.build();
+  }
+  
+  private static Map<String, TypeName> createSuppliedTypesByName() {
+    final ImmutableMap.Builder<String, TypeName> suppliedTypesByName = ImmutableMap.builder();
+    
+    SUPPLIED_TYPES.forEach((annotation, type) -> suppliedTypesByName.put(annotation.getName(), type));
+    
+    return suppliedTypesByName.build();
+  }
 }
\ No newline at end of file
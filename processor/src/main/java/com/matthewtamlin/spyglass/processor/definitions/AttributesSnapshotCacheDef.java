@@ -0,0 +1,293 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import com.squareup.javapoet.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Code generation definition for the AttributesSnapshotCache class. The cache holds decoded attributes which were
+ * resolved without an attribute set, keyed by target class, theme, styleable resource, default style attribute and
+ * default style resource. Themes are held weakly, so snapshots are discarded along with their theme. As in the
+ * DefaultValueCache, the cache is cleared whenever it is accessed with a configuration which differs from the one the
+ * snapshots were decoded against, since a theme can resolve differently after a configuration change.
+ */
+public final class AttributesSnapshotCacheDef {
+  public static final MethodSpec GET;
+  
+  public static final MethodSpec PUT;
+  
+  public static final MethodSpec GET_HIT_COUNT;
+  
+  public static final MethodSpec GET_MISS_COUNT;
+  
+  public static final MethodSpec CLEAR;
+  
+  public static final TypeSpec CLASS;
+  
+  public static final JavaFile SRC_FILE;
+  
+  static {
+    final ClassName keyClassName = ClassName.get("com.matthewtamlin.spyglass.core", "AttributesSnapshotCache", "Key");
+    
+    final TypeName classType = ParameterizedTypeName.get(
+        ClassName.get(Class.class),
+        WildcardTypeName.subtypeOf(Object.class));
+    
+    final FieldSpec keyTargetClass = FieldSpec
+        .builder(classType, "targetClass")
+        .addModifiers(PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec keyStyleableResource = FieldSpec
+        .builder(int[].class, "styleableResource")
+        .addModifiers(PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec keyDefaultStyleAttribute = FieldSpec
+        .builder(int.class, "defaultStyleAttribute")
+        .addModifiers(PRIVATE, FINAL)
+        .build();
+    
+    final FieldSpec keyDefaultStyleResource = FieldSpec
+        .builder(int.class, "defaultStyleResource")
+        .addModifiers(PRIVATE, FINAL)
+        .build();
+    
+    final MethodSpec keyConstructor = MethodSpec
+        .constructorBuilder()
+        .addParameter(classType, "targetClass", FINAL)
+        .addParameter(int[].class, "styleableResource", FINAL)
+        .addParameter(int.class, "defaultStyleAttribute", FINAL)
+        .addParameter(int.class, "defaultStyleResource", FINAL)
+        .addStatement("this.$1N = $1N", keyTargetClass)
+        .addStatement("this.$1N = $1N", keyStyleableResource)
+        .addStatement("this.$1N = $1N", keyDefaultStyleAttribute)
+        .addStatement("this.$1N = $1N", keyDefaultStyleResource)
+        .build();
+    
+    // Styleable resources are compared by identity since each one is a single static array in the R class
+    final MethodSpec keyEquals = MethodSpec
+        .methodBuilder("equals")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(boolean.class)
+        .addParameter(Object.class, "object", FINAL)
+        .beginControlFlow("if (!(object instanceof $T))", keyClassName)
+        .addStatement("return false")
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement("final $1T other = ($1T) object", keyClassName)
+        .addCode("\n")
+        .addStatement(
+            "return $1N == other.$1N\n" +
+                "&& $2N == other.$2N\n" +
+                "&& $3N == other.$3N\n" +
+                "&& $4N == other.$4N",
+            keyTargetClass,
+            keyStyleableResource,
+            keyDefaultStyleAttribute,
+            keyDefaultStyleResource)
+        .build();
+    
+    final MethodSpec keyHashCode = MethodSpec
+        .methodBuilder("hashCode")
+        .addAnnotation(Override.class)
+        .addModifiers(PUBLIC)
+        .returns(int.class)
+        .addStatement("int result = $T.identityHashCode($N)", System.class, keyTargetClass)
+        .addStatement("result = 31 * result + $T.identityHashCode($N)", System.class, keyStyleableResource)
+        .addStatement("result = 31 * result + $N", keyDefaultStyleAttribute)
+        .addStatement("result = 31 * result + $N", keyDefaultStyleResource)
+        .addStatement("return result")
+        .build();
+    
+    final TypeSpec key = TypeSpec
+        .classBuilder(keyClassName.simpleName())
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .addField(keyTargetClass)
+        .addField(keyStyleableResource)
+        .addField(keyDefaultStyleAttribute)
+        .addField(keyDefaultStyleResource)
+        .addMethod(keyConstructor)
+        .addMethod(keyEquals)
+        .addMethod(keyHashCode)
+        .build();
+    
+    final TypeName snapshotsForThemeType = ParameterizedTypeName.get(
+        ClassName.get(Map.class),
+        keyClassName,
+        TypeName.OBJECT);
+    
+    final FieldSpec snapshots = FieldSpec
+        .builder(
+            ParameterizedTypeName.get(ClassName.get(Map.class), AndroidClassNames.THEME, snapshotsForThemeType),
+            "snapshots")
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .initializer("new $T<>()", WeakHashMap.class)
+        .build();
+    
+    final FieldSpec configuration = FieldSpec
+        .builder(AndroidClassNames.CONFIGURATION, "configuration")
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+    
+    final FieldSpec hitCount = FieldSpec
+        .builder(int.class, "hitCount")
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+    
+    final FieldSpec missCount = FieldSpec
+        .builder(int.class, "missCount")
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+    
+    final MethodSpec invalidateIfConfigurationChanged = MethodSpec
+        .methodBuilder("invalidateIfConfigurationChanged")
+        .addModifiers(PRIVATE, STATIC)
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addStatement(
+            "final $T currentConfiguration = context.getResources().getConfiguration()",
+            AndroidClassNames.CONFIGURATION)
+        .addCode("\n")
+        .beginControlFlow("if ($1N == null || !$1N.equals(currentConfiguration))", configuration)
+        .addStatement("$N.clear()", snapshots)
+        .addStatement("$N = new $T(currentConfiguration)", configuration, AndroidClassNames.CONFIGURATION)
+        .endControlFlow()
+        .build();
+    
+    GET = MethodSpec
+        .methodBuilder("get")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(Object.class)
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addParameter(classType, "targetClass", FINAL)
+        .addParameter(int[].class, "styleableResource", FINAL)
+        .addParameter(int.class, "defaultStyleAttribute", FINAL)
+        .addParameter(int.class, "defaultStyleResource", FINAL)
+        .addStatement("$N(context)", invalidateIfConfigurationChanged)
+        .addCode("\n")
+        .addStatement("final $T snapshotsForTheme = $N.get(context.getTheme())", snapshotsForThemeType, snapshots)
+        .addCode("\n")
+        .addStatement(
+            "final $T snapshot = snapshotsForTheme == null ?\n" +
+                "null :\n" +
+                "snapshotsForTheme.get(new $T(targetClass, styleableResource, defaultStyleAttribute, " +
+                "defaultStyleResource))",
+            Object.class,
+            keyClassName)
+        .addCode("\n")
+        .beginControlFlow("if (snapshot == null)")
+        .addStatement("$N++", missCount)
+        .nextControlFlow("else")
+        .addStatement("$N++", hitCount)
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement("return snapshot")
+        .build();
+    
+    PUT = MethodSpec
+        .methodBuilder("put")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(void.class)
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addParameter(classType, "targetClass", FINAL)
+        .addParameter(int[].class, "styleableResource", FINAL)
+        .addParameter(int.class, "defaultStyleAttribute", FINAL)
+        .addParameter(int.class, "defaultStyleResource", FINAL)
+        .addParameter(Object.class, "snapshot", FINAL)
+        .addStatement("$N(context)", invalidateIfConfigurationChanged)
+        .addCode("\n")
+        .addStatement("$T snapshotsForTheme = $N.get(context.getTheme())", snapshotsForThemeType, snapshots)
+        .addCode("\n")
+        .beginControlFlow("if (snapshotsForTheme == null)")
+        .addStatement("snapshotsForTheme = new $T<>()", HashMap.class)
+        .addStatement("$N.put(context.getTheme(), snapshotsForTheme)", snapshots)
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement(
+            "snapshotsForTheme.put(new $T(targetClass, styleableResource, defaultStyleAttribute, " +
+                "defaultStyleResource), snapshot)",
+            keyClassName)
+        .build();
+    
+    GET_HIT_COUNT = MethodSpec
+        .methodBuilder("getHitCount")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(int.class)
+        .addStatement("return $N", hitCount)
+        .build();
+    
+    GET_MISS_COUNT = MethodSpec
+        .methodBuilder("getMissCount")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(int.class)
+        .addStatement("return $N", missCount)
+        .build();
+    
+    CLEAR = MethodSpec
+        .methodBuilder("clear")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(void.class)
+        .addStatement("$N.clear()", snapshots)
+        .addStatement("$N = null", configuration)
+        .addStatement("$N = 0", hitCount)
+        .addStatement("$N = 0", missCount)
+        .build();
+    
+    final MethodSpec constructor = MethodSpec
+        .constructorBuilder()
+        .addModifiers(PRIVATE)
+        .build();
+    
+    CLASS = TypeSpec
+        .classBuilder(keyClassName.enclosingClassName().simpleName())
+        .addModifiers(PUBLIC, FINAL)
+        .addField(snapshots)
+        .addField(configuration)
+        .addField(hitCount)
+        .addField(missCount)
+        .addMethod(constructor)
+        .addMethod(GET)
+        .addMethod(PUT)
+        .addMethod(GET_HIT_COUNT)
+        .addMethod(GET_MISS_COUNT)
+        .addMethod(CLEAR)
+        .addMethod(invalidateIfConfigurationChanged)
+        .addType(key)
+        .build();
+    
+    SRC_FILE = JavaFile
+        .builder(keyClassName.packageName(), CLASS)
+        .skipJavaLangImports(true)
+        .indent("\t")
+        .build();
+  }
+  
+  private AttributesSnapshotCacheDef() {
+    throw new RuntimeException("Contract class. Do not instantiate.");
+  }
+  
+  public static ClassName getCacheAsClassName() {
+    return ClassName.get(SRC_FILE.packageName, CLASS.name);
+  }
+}
\ No newline at end of file
@@ -58,7 +58,6 @@ public class CompanionDef {
     
     SRC_FILE = JavaFile
         .builder("com.matthewtamlin.spyglass.core", INTERFACE)
-        .addFileComment("Spyglass auto-generated file. Do not modify!")
         .skipJavaLangImports(true)
         .indent("\t")
         .build();
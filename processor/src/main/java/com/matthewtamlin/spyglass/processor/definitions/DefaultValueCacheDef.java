@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import com.squareup.javapoet.*;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Code generation definition for the DefaultValueCache class. The cache holds resolved default values keyed by theme,
+ * since colors and color state lists can resolve differently in each theme. Themes are held weakly, and the cache is
+ * cleared whenever it is accessed with a configuration which differs from the one the values were resolved against.
+ * Keys are generated at compile time.
+ */
+public final class DefaultValueCacheDef {
+  public static final MethodSpec GET;
+  
+  public static final MethodSpec PUT;
+  
+  public static final MethodSpec GET_HIT_COUNT;
+  
+  public static final MethodSpec GET_MISS_COUNT;
+  
+  public static final MethodSpec CLEAR;
+  
+  public static final TypeSpec CLASS;
+  
+  public static final JavaFile SRC_FILE;
+  
+  static {
+    final TypeName valuesForThemeType = ParameterizedTypeName.get(AndroidClassNames.LONG_SPARSE_ARRAY, TypeName.OBJECT);
+    
+    final FieldSpec values = FieldSpec
+        .builder(
+            ParameterizedTypeName.get(ClassName.get(Map.class), AndroidClassNames.THEME, valuesForThemeType),
+            "values")
+        .addModifiers(PRIVATE, STATIC, FINAL)
+        .initializer("new $T<>()", WeakHashMap.class)
+        .build();
+    
+    final FieldSpec configuration = FieldSpec
+        .builder(AndroidClassNames.CONFIGURATION, "configuration")
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+    
+    final FieldSpec hitCount = FieldSpec
+        .builder(int.class, "hitCount")
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+    
+    final FieldSpec missCount = FieldSpec
+        .builder(int.class, "missCount")
+        .addModifiers(PRIVATE, STATIC)
+        .build();
+    
+    final MethodSpec invalidateIfConfigurationChanged = MethodSpec
+        .methodBuilder("invalidateIfConfigurationChanged")
+        .addModifiers(PRIVATE, STATIC)
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addStatement(
+            "final $T currentConfiguration = context.getResources().getConfiguration()",
+            AndroidClassNames.CONFIGURATION)
+        .addCode("\n")
+        .beginControlFlow("if ($1N == null || !$1N.equals(currentConfiguration))", configuration)
+        .addStatement("$N.clear()", values)
+        .addStatement("$N = new $T(currentConfiguration)", configuration, AndroidClassNames.CONFIGURATION)
+        .endControlFlow()
+        .build();
+    
+    GET = MethodSpec
+        .methodBuilder("get")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(Object.class)
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addParameter(long.class, "key", FINAL)
+        .addStatement("$N(context)", invalidateIfConfigurationChanged)
+        .addCode("\n")
+        .addStatement("final $T valuesForTheme = $N.get(context.getTheme())", valuesForThemeType, values)
+        .addStatement("final $T value = valuesForTheme == null ? null : valuesForTheme.get(key)", Object.class)
+        .addCode("\n")
+        .beginControlFlow("if (value == null)")
+        .addStatement("$N++", missCount)
+        .nextControlFlow("else")
+        .addStatement("$N++", hitCount)
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement("return value")
+        .build();
+    
+    PUT = MethodSpec
+        .methodBuilder("put")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(void.class)
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addParameter(long.class, "key", FINAL)
+        .addParameter(Object.class, "value", FINAL)
+        .addStatement("$N(context)", invalidateIfConfigurationChanged)
+        .addCode("\n")
+        .addStatement("$T valuesForTheme = $N.get(context.getTheme())", valuesForThemeType, values)
+        .addCode("\n")
+        .beginControlFlow("if (valuesForTheme == null)")
+        .addStatement("valuesForTheme = new $T<>()", AndroidClassNames.LONG_SPARSE_ARRAY)
+        .addStatement("$N.put(context.getTheme(), valuesForTheme)", values)
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement("valuesForTheme.put(key, value)")
+        .build();
+    
+    GET_HIT_COUNT = MethodSpec
+        .methodBuilder("getHitCount")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(int.class)
+        .addStatement("return $N", hitCount)
+        .build();
+    
+    GET_MISS_COUNT = MethodSpec
+        .methodBuilder("getMissCount")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(int.class)
+        .addStatement("return $N", missCount)
+        .build();
+    
+    CLEAR = MethodSpec
+        .methodBuilder("clear")
+        .addModifiers(PUBLIC, STATIC, SYNCHRONIZED)
+        .returns(void.class)
+        .addStatement("$N.clear()", values)
+        .addStatement("$N = null", configuration)
+        .addStatement("$N = 0", hitCount)
+        .addStatement("$N = 0", missCount)
+        .build();
+    
+    final MethodSpec constructor = MethodSpec
+        .constructorBuilder()
+        .addModifiers(PRIVATE)
+        .build();
+    
+    CLASS = TypeSpec
+        .classBuilder("DefaultValueCache")
+        .addModifiers(PUBLIC, FINAL)
+        .addField(values)
+        .addField(configuration)
+        .addField(hitCount)
+        .addField(missCount)
+        .addMethod(constructor)
+        .addMethod(GET)
+        .addMethod(PUT)
+        .addMethod(GET_HIT_COUNT)
+        .addMethod(GET_MISS_COUNT)
+        .addMethod(CLEAR)
+        .addMethod(invalidateIfConfigurationChanged)
+        .build();
+    
+    SRC_FILE = JavaFile
+        .builder("com.matthewtamlin.spyglass.core", CLASS)
+        .skipJavaLangImports(true)
+        .indent("\t")
+        .build();
+  }
+  
+  private DefaultValueCacheDef() {
+    throw new RuntimeException("Contract class. Do not instantiate.");
+  }
+  
+  public static ClassName getCacheAsClassName() {
+    return ClassName.get(SRC_FILE.packageName, CLASS.name);
+  }
+}
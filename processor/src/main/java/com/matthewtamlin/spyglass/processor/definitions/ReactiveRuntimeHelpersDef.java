@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import com.squareup.javapoet.*;
+
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Code generation definition for the ReactiveRuntimeHelpers class. The helpers contain the RxJava logic which would
+ * otherwise be repeated in every companion generated in reactive mode.
+ */
+public final class ReactiveRuntimeHelpersDef {
+  public static final MethodSpec RECYCLE_AFTER;
+  
+  public static final TypeSpec CLASS;
+  
+  public static final JavaFile SRC_FILE;
+  
+  static {
+    RECYCLE_AFTER = MethodSpec
+        .methodBuilder("recycleAfter")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(RxJavaClassNames.COMPLETABLE)
+        .addParameter(AndroidClassNames.TYPED_ARRAY, "attributes", FINAL)
+        .addParameter(RxJavaClassNames.COMPLETABLE, "dispatch", FINAL)
+        .addCode(CodeBlock
+            .builder()
+            .add("// The attributes are recycled exactly once, whether the dispatch completes, fails or is disposed\n")
+            .add("return $T.using(\n", RxJavaClassNames.COMPLETABLE)
+            .add("\t\t() -> attributes,\n")
+            .add("\t\tignored -> dispatch,\n")
+            .add("\t\t$T::recycle);\n", AndroidClassNames.TYPED_ARRAY)
+            .build())
+        .build();
+    
+    final MethodSpec constructor = MethodSpec
+        .constructorBuilder()
+        .addModifiers(PRIVATE)
+        .build();
+    
+    CLASS = TypeSpec
+        .classBuilder("ReactiveRuntimeHelpers")
+        .addModifiers(PUBLIC, FINAL)
+        .addMethod(constructor)
+        .addMethod(RECYCLE_AFTER)
+        .build();
+    
+    SRC_FILE = JavaFile
+        .builder("com.matthewtamlin.spyglass.core", CLASS)
+        .skipJavaLangImports(true)
+        .indent("\t")
+        .build();
+  }
+  
+  private ReactiveRuntimeHelpersDef() {
+    throw new RuntimeException("Contract class. Do not instantiate.");
+  }
+  
+  public static ClassName getHelpersAsClassName() {
+    return ClassName.get(SRC_FILE.packageName, CLASS.name);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import com.squareup.javapoet.*;
+
+import static javax.lang.model.element.Modifier.*;
+
+/**
+ * Code generation definition for the RuntimeHelpers class. The helpers contain logic which would otherwise be repeated
+ * in every generated companion, so that the generated code is smaller and the runtime has a few shared methods to
+ * optimise rather than many copies of the same code. The class makes no reference to RxJava.
+ * <p>
+ * Cached resource defaults are identified by a kind and a resource ID. The kind selects the resources method which
+ * resolves the default, so that the same resource referenced by different kinds of default is cached separately.
+ */
+public final class RuntimeHelpersDef {
+  public static final MethodSpec CHECK_ARGUMENT_NOT_NULL;
+  
+  public static final MethodSpec WRAP_TARGET_METHOD_EXCEPTION;
+  
+  public static final MethodSpec GET_ENUM_CONSTANT;
+  
+  public static final MethodSpec IS_VALUE_AVAILABLE;
+  
+  public static final MethodSpec GET_RESOURCE_DEFAULT;
+  
+  public static final int BOOLEAN_RESOURCE_KIND = 1;
+  
+  public static final int COLOR_RESOURCE_KIND = 2;
+  
+  public static final int COLOR_STATE_LIST_RESOURCE_KIND = 3;
+  
+  public static final int DIMENSION_RESOURCE_KIND = 4;
+  
+  public static final int INTEGER_RESOURCE_KIND = 5;
+  
+  public static final int STRING_RESOURCE_KIND = 6;
+  
+  public static final int TEXT_ARRAY_RESOURCE_KIND = 7;
+  
+  public static final int TEXT_RESOURCE_KIND = 8;
+  
+  public static final TypeSpec CLASS;
+  
+  public static final JavaFile SRC_FILE;
+  
+  static {
+    CHECK_ARGUMENT_NOT_NULL = MethodSpec
+        .methodBuilder("checkArgumentNotNull")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(void.class)
+        .addParameter(Object.class, "argument", FINAL)
+        .addParameter(String.class, "name", FINAL)
+        .beginControlFlow("if (argument == null)")
+        .addStatement(
+            "throw new $T($S + name + $S)",
+            IllegalArgumentException.class,
+            "Argument \'",
+            "\' cannot be null.")
+        .endControlFlow()
+        .build();
+    
+    WRAP_TARGET_METHOD_EXCEPTION = MethodSpec
+        .methodBuilder("wrapTargetMethodException")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(RuntimeException.class)
+        .addParameter(Throwable.class, "error", FINAL)
+        .addStatement(
+            "return new $T($S, error)",
+            RuntimeException.class,
+            "The Spyglass Framework encountered an exception when calling a target method.")
+        .build();
+    
+    final TypeVariableName constantType = TypeVariableName.get("E");
+    
+    GET_ENUM_CONSTANT = MethodSpec
+        .methodBuilder("getEnumConstant")
+        .addModifiers(PUBLIC, STATIC)
+        .addTypeVariable(constantType)
+        .returns(constantType)
+        .addParameter(ArrayTypeName.of(constantType), "constants", FINAL)
+        .addParameter(int.class, "ordinal", FINAL)
+        .beginControlFlow("if (ordinal < 0 || constants.length - 1 < ordinal)")
+        .addStatement(
+            "throw new $T($S + ordinal + $S + constants.getClass().getComponentType().getCanonicalName())",
+            RuntimeException.class,
+            "Ordinal ",
+            " is out of bounds for enum ")
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement("return constants[ordinal]")
+        .build();
+    
+    IS_VALUE_AVAILABLE = MethodSpec
+        .methodBuilder("isValueAvailable")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(boolean.class)
+        .addParameter(AndroidClassNames.TYPED_ARRAY, "attrs", FINAL)
+        .addParameter(int.class, "index", FINAL)
+        .addStatement("return attrs.hasValue(index)")
+        .build();
+    
+    GET_RESOURCE_DEFAULT = MethodSpec
+        .methodBuilder("getResourceDefault")
+        .addModifiers(PUBLIC, STATIC)
+        .returns(Object.class)
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addParameter(int.class, "kind", FINAL)
+        .addParameter(int.class, "resId", FINAL)
+        .addStatement("final long key = ((long) kind << 32) | (resId & 0xFFFFFFFFL)")
+        .addStatement(
+            "final $T cachedDefault = $T.$N(context, key)",
+            Object.class,
+            DefaultValueCacheDef.getCacheAsClassName(),
+            DefaultValueCacheDef.GET)
+        .addCode("\n")
+        .beginControlFlow("if (cachedDefault != null)")
+        .addStatement("return cachedDefault")
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement("final $T resolvedDefault", Object.class)
+        .addCode("\n")
+        .beginControlFlow("switch (kind)")
+        .addCode(generateResourceCase(BOOLEAN_RESOURCE_KIND, CodeBlock.of("context.getResources().getBoolean(resId)")))
+        .addCode(generateResourceCase(
+            COLOR_RESOURCE_KIND,
+            CodeBlock.of("$T.getColor(context, resId)", AndroidClassNames.CONTEXT_COMPAT)))
+        .addCode(generateResourceCase(
+            COLOR_STATE_LIST_RESOURCE_KIND,
+            CodeBlock.of("$T.getColorStateList(context, resId)", AndroidClassNames.APP_COMPAT_RESOURCES)))
+        .addCode(generateResourceCase(
+            DIMENSION_RESOURCE_KIND,
+            CodeBlock.of("context.getResources().getDimension(resId)")))
+        .addCode(generateResourceCase(INTEGER_RESOURCE_KIND, CodeBlock.of("context.getResources().getInteger(resId)")))
+        .addCode(generateResourceCase(STRING_RESOURCE_KIND, CodeBlock.of("context.getResources().getString(resId)")))
+        .addCode(generateResourceCase(
+            TEXT_ARRAY_RESOURCE_KIND,
+            CodeBlock.of("context.getResources().getTextArray(resId)")))
+        .addCode(generateResourceCase(TEXT_RESOURCE_KIND, CodeBlock.of("context.getResources().getText(resId)")))
+        .addCode("default:\n")
+        .addStatement("$>throw new $T($S + kind)$<", IllegalArgumentException.class, "Unknown resource default kind ")
+        .endControlFlow()
+        .addCode("\n")
+        .addStatement(
+            "$T.$N(context, key, resolvedDefault)",
+            DefaultValueCacheDef.getCacheAsClassName(),
+            DefaultValueCacheDef.PUT)
+        .addCode("\n")
+        .addStatement("return resolvedDefault")
+        .build();
+    
+    final MethodSpec constructor = MethodSpec
+        .constructorBuilder()
+        .addModifiers(PRIVATE)
+        .build();
+    
+    CLASS = TypeSpec
+        .classBuilder("RuntimeHelpers")
+        .addModifiers(PUBLIC, FINAL)
+        .addMethod(constructor)
+        .addMethod(CHECK_ARGUMENT_NOT_NULL)
+        .addMethod(WRAP_TARGET_METHOD_EXCEPTION)
+        .addMethod(GET_ENUM_CONSTANT)
+        .addMethod(IS_VALUE_AVAILABLE)
+        .addMethod(GET_RESOURCE_DEFAULT)
+        .build();
+    
+    SRC_FILE = JavaFile
+        .builder("com.matthewtamlin.spyglass.core", CLASS)
+        .skipJavaLangImports(true)
+        .indent("\t")
+        .build();
+  }
+  
+  private RuntimeHelpersDef() {
+    throw new RuntimeException("Contract class. Do not instantiate.");
+  }
+  
+  public static ClassName getHelpersAsClassName() {
+    return ClassName.get(SRC_FILE.packageName, CLASS.name);
+  }
+  
+  private static CodeBlock generateResourceCase(final int kind, final CodeBlock resolution) {
+    return CodeBlock
+        .builder()
+        .add("case $L:\n", kind)
+        .indent()
+        .addStatement("resolvedDefault = $L", resolution)
+        .addStatement("break")
+        .unindent()
+        .build();
+  }
+}
\ No newline at end of file
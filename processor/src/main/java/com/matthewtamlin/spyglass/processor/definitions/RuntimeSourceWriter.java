@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.squareup.javapoet.JavaFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Writes the sources of the runtime dependencies artifacts from the definitions in this package, so that the
+ * definitions are the only copy of the runtime classes. The runtime dependencies projects call this from their builds
+ * with the name of the artifact and the directory to write the sources to.
+ */
+public class RuntimeSourceWriter {
+  private static final String LICENSE_HEADER = "/*\n" +
+      " * Copyright 2018 Matthew David Tamlin\n" +
+      " *\n" +
+      " * Licensed under the Apache License, Version 2.0 (the \"License\");\n" +
+      " * you may not use this file except in compliance with the License.\n" +
+      " * You may obtain a copy of the License at\n" +
+      " *\n" +
+      " *     http://www.apache.org/licenses/LICENSE-2.0\n" +
+      " *\n" +
+      " * Unless required by applicable law or agreed to in writing, software\n" +
+      " * distributed under the License is distributed on an \"AS IS\" BASIS,\n" +
+      " * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.\n" +
+      " * See the License for the specific language governing permissions and\n" +
+      " * limitations under the License.\n" +
+      " */\n" +
+      "\n";
+  
+  /**
+   * The sources of each runtime dependencies artifact, keyed by the name passed to {@link #main(String[])}.
+   */
+  public static final ImmutableMap<String, Set<JavaFile>> ARTIFACT_SOURCES = ImmutableMap.of(
+      "direct", ImmutableSet.of(
+          DirectCompanionDef.SRC_FILE,
+          RuntimeHelpersDef.SRC_FILE,
+          AttributesSnapshotCacheDef.SRC_FILE,
+          DefaultValueCacheDef.SRC_FILE,
+          SpyglassBatchAwareDef.SRC_FILE),
+      "reactive", ImmutableSet.of(
+          CompanionDef.SRC_FILE,
+          ReactiveRuntimeHelpersDef.SRC_FILE));
+  
+  private RuntimeSourceWriter() {
+    throw new RuntimeException("Utility class. Do not instantiate.");
+  }
+  
+  public static void main(final String[] args) throws IOException {
+    if (args.length != 2 || !ARTIFACT_SOURCES.containsKey(args[0])) {
+      throw new IllegalArgumentException("Usage: RuntimeSourceWriter <" +
+          String.join("|", ARTIFACT_SOURCES.keySet()) +
+          "> <output directory>");
+    }
+    
+    writeSources(ARTIFACT_SOURCES.get(args[0]), Paths.get(args[1]));
+  }
+  
+  /**
+   * Writes each file to the package directory below the output directory, with the license header of the project.
+   *
+   * @param files
+   *     the files to write, not null
+   * @param outputDirectory
+   *     the root of the source tree to write to, not null
+   *
+   * @throws IOException
+   *     if a file cannot be written
+   */
+  public static void writeSources(final Set<JavaFile> files, final Path outputDirectory) throws IOException {
+    checkNotNull(files, "Argument \'files\' cannot be null.");
+    checkNotNull(outputDirectory, "Argument \'outputDirectory\' cannot be null.");
+    
+    for (final JavaFile file : files) {
+      final Path packageDirectory = outputDirectory.resolve(file.packageName.replace('.', '/'));
+      
+      Files.createDirectories(packageDirectory);
+      
+      Files.write(
+          packageDirectory.resolve(file.typeSpec.name + ".java"),
+          (LICENSE_HEADER + file.toString()).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.PUBLIC;
+
+/**
+ * An optional interface for targets which want to know when the companion starts and finishes calling their handler
+ * methods, for example to coalesce the layout requests made by each handler. Companions only call the hooks if the
+ * target type implements the interface, so targets which do not implement it are unaffected.
+ */
+public class SpyglassBatchAwareDef {
+  public static final MethodSpec ON_ATTRIBUTE_BATCH_START;
+  
+  public static final MethodSpec ON_ATTRIBUTE_BATCH_END;
+  
+  public static final TypeSpec INTERFACE;
+  
+  public static final JavaFile SRC_FILE;
+  
+  static {
+    ON_ATTRIBUTE_BATCH_START = MethodSpec
+        .methodBuilder("onAttributeBatchStart")
+        .addModifiers(PUBLIC, ABSTRACT)
+        .returns(void.class)
+        .build();
+    
+    ON_ATTRIBUTE_BATCH_END = MethodSpec
+        .methodBuilder("onAttributeBatchEnd")
+        .addModifiers(PUBLIC, ABSTRACT)
+        .returns(void.class)
+        .addParameter(TypeName.INT, "appliedMask")
+        .build();
+    
+    INTERFACE = TypeSpec
+        .interfaceBuilder("SpyglassBatchAware")
+        .addModifiers(PUBLIC)
+        .addMethod(ON_ATTRIBUTE_BATCH_START)
+        .addMethod(ON_ATTRIBUTE_BATCH_END)
+        .build();
+    
+    SRC_FILE = JavaFile
+        .builder("com.matthewtamlin.spyglass.core", INTERFACE)
+        .skipJavaLangImports(true)
+        .indent("\t")
+        .build();
+  }
+  
+  private SpyglassBatchAwareDef() {
+    throw new RuntimeException("Contract class. Do not instantiate.");
+  }
+  
+  public static ClassName getInterfaceAsClassName() {
+    return ClassName.get(SRC_FILE.packageName, INTERFACE.name);
+  }
+}
\ No newline at end of file
@@ -18,8 +18,8 @@ package com.matthewtamlin.spyglass.processor.grouper;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,11 +27,18 @@ import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkEachEle
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class Grouper {
+  /**
+   * Groups elements by the type which directly encloses them. Groups are ordered by the first element of each group, and
+   * the elements in each group keep the iteration order of the supplied set, so the result does not depend on hash
+   * codes when an ordered set is supplied.
+   *
+   * @return the groups, keyed by the enclosing type
+   */
   public static <T extends Element> Map<TypeElementWrapper, Set<T>> groupByEnclosingClass(final Set<T> elements) {
     checkNotNull(elements, "Argument \'elements\' cannot be null.");
     checkEachElementIsNotNull(elements, "Argument \'elements\' cannot contain null.");
     
-    final Map<TypeElementWrapper, Set<T>> groups = new HashMap<>();
+    final Map<TypeElementWrapper, Set<T>> groups = new LinkedHashMap<>();
     
     for (final T element : elements) {
       final Element parent = element.getEnclosingElement();
@@ -40,7 +47,7 @@ public class Grouper {
         final TypeElementWrapper parentWrapper = new TypeElementWrapper((TypeElement) parent);
         
         if (!groups.containsKey(parentWrapper)) {
-          groups.put(parentWrapper, new HashSet<>());
+          groups.put(parentWrapper, new LinkedHashSet<>());
         }
         
         groups.get(parentWrapper).add(element);
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.mirrorhelpers;
+
+import com.google.common.collect.ImmutableMap;
+import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.TypeName;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
+
+/**
+ * Resolves the types of value supplied by Spyglass annotations. The types in the annotation registry are resolved to
+ * type mirrors once when the helper is created, and other types are resolved the first time they are requested, so
+ * the same mirrors are reused for the lifetime of the processor.
+ */
+@Singleton
+public class SuppliedTypeHelper {
+  private static final Map<TypeName, TypeKind> PRIMITIVE_KINDS = ImmutableMap
+      .<TypeName, TypeKind>builder()
+      .put(TypeName.BOOLEAN, TypeKind.BOOLEAN)
+      .put(TypeName.BYTE, TypeKind.BYTE)
+      .put(TypeName.SHORT, TypeKind.SHORT)
+      .put(TypeName.INT, TypeKind.INT)
+      .put(TypeName.LONG, TypeKind.LONG)
+      .put(TypeName.CHAR, TypeKind.CHAR)
+      .put(TypeName.FLOAT, TypeKind.FLOAT)
+      .put(TypeName.DOUBLE, TypeKind.DOUBLE)
+      .build();
+  
+  private final Elements elementUtil;
+  
+  private final Types typeUtil;
+  
+  private final AnnotationMirrorHelper annotationMirrorHelper;
+  
+  private final Map<TypeName, TypeMirror> resolvedTypes = new HashMap<>();
+  
+  @Inject
+  public SuppliedTypeHelper(
+      final Elements elementUtil,
+      final Types typeUtil,
+      final AnnotationMirrorHelper annotationMirrorHelper) {
+    
+    this.elementUtil = checkNotNull(elementUtil, "Argument \'elementUtil\' cannot be null.");
+    this.typeUtil = checkNotNull(typeUtil, "Argument \'typeUtil\' cannot be null.");
+    this.annotationMirrorHelper = checkNotNull(
+        annotationMirrorHelper,
+        "Argument \'annotationMirrorHelper\' cannot be null.");
+    
+    for (final TypeName suppliedType : AnnotationRegistry.SUPPLIED_TYPES.values()) {
+      getTypeMirror(suppliedType);
+    }
+  }
+  
+  /**
+   * Gets the type of value supplied by a handler, default or placeholder annotation. Annotations which supply an enum
+   * constant supply the type given by their {@code enumClass} value.
+   */
+  public TypeMirror getSuppliedType(final AnnotationMirror annotation) {
+    checkNotNull(annotation, "Argument \'annotation\' cannot be null.");
+    
+    final String annotationName = annotation.getAnnotationType().toString();
+    final TypeName suppliedType = AnnotationRegistry.getSuppliedType(annotationName);
+    
+    if (suppliedType != null) {
+      return getTypeMirror(suppliedType);
+    }
+    
+    final AnnotationValue enumClass = annotationMirrorHelper.getValueUsingDefaults(annotation, "enumClass");
+    
+    if (enumClass == null) {
+      throw new IllegalArgumentException("Argument \'annotation\' does not supply a value.");
+    }
+    
+    return (TypeMirror) enumClass.getValue();
+  }
+  
+  /**
+   * Gets the type mirror for a type name. Returns null if the type cannot be found.
+   */
+  public TypeMirror getTypeMirror(final TypeName typeName) {
+    checkNotNull(typeName, "Argument \'typeName\' cannot be null.");
+    
+    if (!resolvedTypes.containsKey(typeName)) {
+      resolvedTypes.put(typeName, resolveTypeMirror(typeName));
+    }
+    
+    return resolvedTypes.get(typeName);
+  }
+  
+  private TypeMirror resolveTypeMirror(final TypeName typeName) {
+    if (typeName.isPrimitive()) {
+      return typeUtil.getPrimitiveType(PRIMITIVE_KINDS.get(typeName));
+      
+    } else if (typeName instanceof ArrayTypeName) {
+      final TypeMirror componentType = getTypeMirror(((ArrayTypeName) typeName).componentType);
+      
+      return componentType == null ? null : typeUtil.getArrayType(componentType);
+      
+    } else {
+      final TypeElement element = elementUtil.getTypeElement(typeName.toString());
+      
+      return element == null ? null : element.asType();
+    }
+  }
+}
\ No newline at end of file
@@ -20,10 +20,13 @@ import com.google.common.collect.ImmutableSet;
 import com.matthewtamlin.spyglass.processor.definitions.RxJavaClassNames;
 
 import javax.inject.Inject;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
@@ -39,12 +42,18 @@ public class TypeMirrorHelper {
     this.elementUtil = checkNotNull(elementHelper, "Argument \'elementHelper\' cannot be null.");
     this.typeUtil = checkNotNull(typeHelper, "Argument \'typeUtil\' cannot be null.");
     
-    rxTypes = ImmutableSet.of(
-        elementUtil.getTypeElement(RxJavaClassNames.SINGLE.toString()).asType(),
-        elementUtil.getTypeElement(RxJavaClassNames.OBSERVABLE.toString()).asType(),
-        elementUtil.getTypeElement(RxJavaClassNames.COMPLETABLE.toString()).asType(),
-        elementUtil.getTypeElement(RxJavaClassNames.FLOWABLE.toString()).asType(),
-        elementUtil.getTypeElement(RxJavaClassNames.MAYBE.toString()).asType());
+    // RxJava is optional when generating in direct mode, so only the available types are considered
+    rxTypes = Stream
+        .of(
+            RxJavaClassNames.SINGLE,
+            RxJavaClassNames.OBSERVABLE,
+            RxJavaClassNames.COMPLETABLE,
+            RxJavaClassNames.FLOWABLE,
+            RxJavaClassNames.MAYBE)
+        .map(className -> elementUtil.getTypeElement(className.toString()))
+        .filter(Objects::nonNull)
+        .map(TypeElement::asType)
+        .collect(ImmutableSet.toImmutableSet());
   }
   
   public boolean isPrimitive(final TypeMirror typeMirror) {
@@ -17,57 +17,81 @@
 package com.matthewtamlin.spyglass.processor.validation;
 
 import com.google.common.collect.ImmutableList;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.ConditionalHandlerRetriever;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.DefaultRetriever;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.UnconditionalHandlerRetriever;
-import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
+import com.matthewtamlin.spyglass.markers.annotations.targets.AttrResourceIds;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.codegeneration.HierarchyResolver;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 
 import javax.inject.Inject;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
-import java.lang.annotation.Annotation;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 import static javax.lang.model.element.Modifier.PRIVATE;
 
 public class BasicValidator implements Validator {
+  private final HierarchyResolver hierarchyResolver;
+  
+  private final AnnotationMirrorHelper annotationMirrorHelper;
+  
   private final List<Rule> rules;
   
   @Inject
-  public BasicValidator() {
+  public BasicValidator(
+      final HierarchyResolver hierarchyResolver,
+      final AnnotationMirrorHelper annotationMirrorHelper) {
+    
+    this.hierarchyResolver = checkNotNull(hierarchyResolver, "Argument \'hierarchyResolver\' cannot be null.");
+    this.annotationMirrorHelper = checkNotNull(
+        annotationMirrorHelper,
+        "Argument \'annotationMirrorHelper\' cannot be null.");
+    
     rules = ImmutableList.of(
-        element -> countUnconditionalHandlerAnnotations(element) + countConditionalHandlerAnnotations(element) > 1 ?
+        method -> method.getUnconditionalHandlerAnnotations().size() +
+            method.getConditionalHandlerAnnotations().size() +
+            method.getCompositeHandlerAnnotations().size() > 1 ?
             Result.createFailure("Methods must not have multiple handler annotations.") :
             Result.createSuccessful(),
         
-        element -> countDefaultAnnotations(element) > 1 ?
+        method -> method.getDefaultAnnotations().size() > 1 ?
             Result.createFailure("Methods must not have multiple default annotations.") :
             Result.createSuccessful(),
         
-        element -> DefaultRetriever.hasAnnotation(element) && !UnconditionalHandlerRetriever.hasAnnotation(element) ?
+        method -> method.hasDefaultAnnotation() && method.hasCompositeHandlerAnnotation() ?
+            Result.createFailure(
+                "Methods with composite handler annotations must not have default annotations. Apply the default " +
+                    "annotations to the parameters instead.") :
+            Result.createSuccessful(),
+        
+        method -> method.hasDefaultAnnotation() && !method.hasUnconditionalHandlerAnnotation() ?
             Result.createFailure("Methods without handler annotations must not have default annotations.") :
             Result.createSuccessful(),
         
-        element -> DefaultRetriever.hasAnnotation(element) && ConditionalHandlerRetriever.hasAnnotation(element) ?
+        method -> method.hasDefaultAnnotation() && method.hasConditionalHandlerAnnotation() ?
             Result.createFailure("Methods with conditional handler annotations must not have default annotations.") :
             Result.createSuccessful(),
         
-        element -> {
-          final int parameterCount = ((ExecutableElement) element).getParameters().size();
+        method -> {
+          final int parameterCount = method.getParameterTypes().size();
           
-          if (UnconditionalHandlerRetriever.hasAnnotation(element) && parameterCount < 1) {
+          if (method.hasUnconditionalHandlerAnnotation() && parameterCount < 1) {
             return Result.createFailure("Methods with simple handler annotations must have at least one parameter.");
           }
           
           return Result.createSuccessful();
         },
         
-        element -> {
-          final Map<Integer, Set<Annotation>> placeholderAnnotations = getPlaceholderAnnotations(element);
-          
-          for (final Integer paramIndex : placeholderAnnotations.keySet()) {
-            if (placeholderAnnotations.get(paramIndex).size() > 1) {
+        method -> {
+          for (final List<AnnotationMirror> placeholderAnnotations : method.getPlaceholderAnnotations()) {
+            if (placeholderAnnotations.size() > 1) {
               return Result.createFailure("Parameters must not have multiple placeholder annotations.");
             }
           }
@@ -75,13 +99,11 @@ public class BasicValidator implements Validator {
           return Result.createSuccessful();
         },
         
-        element -> {
-          final int paramCount = ((ExecutableElement) element).getParameters().size();
-          final int annotatedParamCount = countNonEmptySets(getPlaceholderAnnotations(element).values());
+        method -> {
+          final int paramCount = method.getParameterTypes().size();
+          final int annotatedParamCount = method.countParametersWithPlaceholderAnnotations();
           
-          if (UnconditionalHandlerRetriever.hasAnnotation(element) &&
-              annotatedParamCount != paramCount - 1) {
-            
+          if (method.hasUnconditionalHandlerAnnotation() && annotatedParamCount != paramCount - 1) {
             return Result.createFailure(
                 "Methods with simple handler annotations must have placeholder annotations on all but one parameter.");
           }
@@ -89,11 +111,11 @@ public class BasicValidator implements Validator {
           return Result.createSuccessful();
         },
         
-        element -> {
-          final int paramCount = ((ExecutableElement) element).getParameters().size();
-          final int annotatedParamCount = countNonEmptySets(getPlaceholderAnnotations(element).values());
+        method -> {
+          final int paramCount = method.getParameterTypes().size();
+          final int annotatedParamCount = method.countParametersWithPlaceholderAnnotations();
           
-          if (ConditionalHandlerRetriever.hasAnnotation(element) && annotatedParamCount != paramCount) {
+          if (method.hasConditionalHandlerAnnotation() && annotatedParamCount != paramCount) {
             return Result.createFailure(
                 "Methods with conditional handler annotations must have placeholder annotations on all parameters.");
           }
@@ -101,14 +123,60 @@ public class BasicValidator implements Validator {
           return Result.createSuccessful();
         },
         
-        element -> element.getModifiers().contains(PRIVATE) ?
+        method -> !method.hasCompositeHandlerAnnotation() &&
+            (method.countParametersWithHandlerAnnotations() > 0 || method.countParametersWithDefaultAnnotations() > 0) ?
+            Result.createFailure(
+                "Only methods with composite handler annotations may have handler or default annotations on their " +
+                    "parameters.") :
+            Result.createSuccessful(),
+        
+        method -> {
+          if (!method.hasCompositeHandlerAnnotation()) {
+            return Result.createSuccessful();
+          }
+          
+          for (int i = 0; i < method.getParameterTypes().size(); i++) {
+            final int handlerCount = method.getParameterHandlerAnnotations().get(i).size();
+            final int defaultCount = method.getParameterDefaultAnnotations().get(i).size();
+            
+            if (handlerCount > 1) {
+              return Result.createFailure("Parameters must not have multiple handler annotations.");
+            }
+            
+            if (defaultCount > 1) {
+              return Result.createFailure("Parameters must not have multiple default annotations.");
+            }
+            
+            if (handlerCount == 0 && defaultCount > 0) {
+              return Result.createFailure("Parameters without handler annotations must not have default annotations.");
+            }
+            
+            if (handlerCount > 0 && method.hasPlaceholderAnnotation(i)) {
+              return Result.createFailure("Parameters must not have both handler and placeholder annotations.");
+            }
+            
+            if (handlerCount == 0 && !method.hasPlaceholderAnnotation(i)) {
+              return Result.createFailure(
+                  "Methods with composite handler annotations must have a handler or placeholder annotation on " +
+                      "every parameter.");
+            }
+          }
+          
+          return method.countParametersWithHandlerAnnotations() == 0 ?
+              Result.createFailure(
+                  "Methods with composite handler annotations must have at least one parameter with a handler " +
+                      "annotation.") :
+              Result.createSuccessful();
+        },
+        
+        method -> method.getElement().getModifiers().contains(PRIVATE) ?
             Result.createFailure(
                 "Methods with handler annotations must have public, protected, or default access. " +
                     "Private methods are not compatible with the Spyglass Framework.") :
             Result.createSuccessful(),
         
-        element -> {
-          final TypeElement parent = (TypeElement) element.getEnclosingElement();
+        method -> {
+          final TypeElement parent = (TypeElement) method.getElement().getEnclosingElement();
           
           if (parent == null) {
             return Result.createSuccessful();
@@ -126,12 +194,48 @@ public class BasicValidator implements Validator {
             default:
               throw new IllegalStateException("Unexpected nesting kind: " + parent.getNestingKind());
           }
+        },
+        
+        method -> {
+          final TypeElement parent = (TypeElement) method.getElement().getEnclosingElement();
+          
+          if (parent == null || AnnotationMirrorHelper.getAnnotationMirror(parent, AttrResourceIds.class) == null) {
+            return Result.createSuccessful();
+          }
+          
+          final List<AnnotationMirror> handlerAnnotations = new ArrayList<>();
+          
+          if (method.getHandlerAnnotation() != null) {
+            handlerAnnotations.add(method.getHandlerAnnotation());
+          }
+          
+          for (final List<AnnotationMirror> handlersOfParameter : method.getParameterHandlerAnnotations()) {
+            handlerAnnotations.addAll(handlersOfParameter);
+          }
+          
+          for (final AnnotationMirror handlerAnnotation : handlerAnnotations) {
+            final Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                handlerAnnotation.getElementValues();
+            
+            for (final ExecutableElement key : values.keySet()) {
+              // Resource IDs always have a non-zero package byte, whereas styleable indices are small
+              if (key.getSimpleName().contentEquals("attributeId") &&
+                  ((Integer) values.get(key).getValue()) >>> 24 == 0) {
+                
+                return Result.createFailure(
+                    "Attribute IDs must be attribute resources (e.g. R.attr.title) in classes annotated with " +
+                        "@AttrResourceIds.");
+              }
+            }
+          }
+          
+          return Result.createSuccessful();
         });
   }
   
-  public Result validate(final ExecutableElement element) {
+  public Result validate(final AnnotatedMethod method) {
     for (final Rule rule : rules) {
-      final Result result = rule.checkElement(element);
+      final Result result = rule.checkMethod(method);
       
       if (!result.isSuccessful()) {
         return result;
@@ -141,75 +245,116 @@ public class BasicValidator implements Validator {
     return Result.createSuccessful();
   }
   
-  private static int countConditionalHandlerAnnotations(final ExecutableElement method) {
-    int count = 0;
+  /**
+   * Validates the rules which relate the methods of one type to each other and to the type's superclasses. The
+   * supplied methods must be the annotated methods of a single type, and each method should already have passed
+   * {@link #validate(AnnotatedMethod)}. Failures of the type as a whole are keyed by its first method.
+   *
+   * @return the failures keyed by the method which failed, or an empty map if every method passed
+   */
+  public Map<AnnotatedMethod, Result> validateType(final List<AnnotatedMethod> methods) {
+    checkNotNull(methods, "Argument \'methods\' cannot be null.");
+    
+    final Map<AnnotatedMethod, Result> failures = new LinkedHashMap<>();
+    
+    // Enum handlers of the same attribute are called from one switch on the ordinal, so the ordinals must be distinct
+    final Map<Object, Map<Object, AnnotatedMethod>> enumHandlersByAttributeId = new HashMap<>();
     
-    for (final Class<? extends Annotation> annotationClass : AnnotationRegistry.CONDITIONAL_HANDLERS) {
-      if (method.getAnnotation(annotationClass) != null) {
-        count++;
+    for (final AnnotatedMethod method : methods) {
+      final AnnotationMirror handlerAnnotation = getSpecificEnumHandlerAnnotation(method);
+      
+      if (handlerAnnotation == null) {
+        continue;
+      }
+      
+      final Object ordinal = annotationMirrorHelper
+          .getValueUsingDefaults(handlerAnnotation, "handledOrdinal")
+          .getValue();
+      
+      final Object attributeId = annotationMirrorHelper
+          .getValueUsingDefaults(handlerAnnotation, "attributeId")
+          .getValue();
+      
+      final AnnotatedMethod previousMethod = enumHandlersByAttributeId
+          .computeIfAbsent(attributeId, key -> new HashMap<>())
+          .putIfAbsent(ordinal, method);
+      
+      if (previousMethod != null) {
+        failures.putIfAbsent(previousMethod, createDuplicateOrdinalFailure(ordinal, method));
+        failures.put(method, createDuplicateOrdinalFailure(ordinal, previousMethod));
       }
     }
     
-    return count;
-  }
-  
-  private static int countUnconditionalHandlerAnnotations(final ExecutableElement method) {
-    int count = 0;
-    
-    for (final Class<? extends Annotation> annotationClass : AnnotationRegistry.UNCONDITIONAL_HANDLERS) {
-      if (method.getAnnotation(annotationClass) != null) {
-        count++;
+    if (!methods.isEmpty()) {
+      final TypeElement type = (TypeElement) methods.get(0).getElement().getEnclosingElement();
+      final Result styleableResult = validateStyleable(type);
+      
+      if (!styleableResult.isSuccessful()) {
+        failures.putIfAbsent(methods.get(0), styleableResult);
       }
     }
     
-    return count;
+    return failures;
   }
   
-  private static int countDefaultAnnotations(final ExecutableElement method) {
-    int count = 0;
+  /**
+   * Checks that a type which declares a styleable resource shares it with the nearest superclass which has handlers,
+   * since the handlers of both classes are applied using one typed array. Types which do not declare a styleable
+   * resource are not part of a class hierarchy, so they are not checked.
+   */
+  private Result validateStyleable(final TypeElement type) {
+    final String styleableName = hierarchyResolver.getStyleableNameOf(type);
     
-    for (final Class<? extends Annotation> annotationClass : AnnotationRegistry.DEFAULTS) {
-      if (method.getAnnotation(annotationClass) != null) {
-        count++;
-      }
+    if (styleableName == null) {
+      return Result.createSuccessful();
     }
     
-    return count;
-  }
-  
-  private static Map<Integer, Set<Annotation>> getPlaceholderAnnotations(final ExecutableElement method) {
-    final Map<Integer, Set<Annotation>> placeholderAnnotations = new HashMap<>();
+    if (usesAttrResourceIds(type)) {
+      return Result.createFailure("Classes annotated with @AttrResourceIds must not be annotated with @Styleable.");
+    }
     
-    final List<? extends VariableElement> params = method.getParameters();
+    final TypeElement superclass = hierarchyResolver.getNearestSuperclassWithHandlersOf(type);
     
-    for (int i = 0; i < params.size(); i++) {
-      placeholderAnnotations.put(i, new HashSet<>());
-      
-      for (final Class<? extends Annotation> annotationClass : AnnotationRegistry.PLACEHOLDERS) {
-        final Annotation foundAnnotation = params.get(i).getAnnotation(annotationClass);
-        
-        if (foundAnnotation != null) {
-          placeholderAnnotations.get(i).add(foundAnnotation);
-        }
-      }
+    if (superclass == null) {
+      return Result.createSuccessful();
     }
     
-    return placeholderAnnotations;
+    final String superclassStyleableName = hierarchyResolver.getStyleableNameOf(superclass);
+    
+    return styleableName.equals(superclassStyleableName) ?
+        Result.createSuccessful() :
+        Result.createFailure(
+            "Classes annotated with @Styleable must declare the same styleable resource as the nearest superclass " +
+                "with handler annotations. Class %s declares styleable resource %s, but superclass %s declares %s.",
+            type.getSimpleName(),
+            styleableName,
+            superclass.getSimpleName(),
+            superclassStyleableName == null ? "no styleable resource" : superclassStyleableName);
   }
   
-  private static int countNonEmptySets(final Collection<? extends Set> collection) {
-    int count = 0;
-    
-    for (final Set<?> s : collection) {
-      if (!s.isEmpty()) {
-        count++;
+  private static boolean usesAttrResourceIds(final TypeElement type) {
+    return AnnotationMirrorHelper.getAnnotationMirror(type, AttrResourceIds.class) != null;
+  }
+  
+  private static Result createDuplicateOrdinalFailure(final Object ordinal, final AnnotatedMethod otherMethod) {
+    return Result.createFailure(
+        "Methods must not handle the same ordinal of an attribute as another method in the class. Ordinal %s is " +
+            "also handled by method %s.",
+        ordinal,
+        otherMethod.getElement().getSimpleName());
+  }
+  
+  private static AnnotationMirror getSpecificEnumHandlerAnnotation(final AnnotatedMethod method) {
+    for (final AnnotationMirror annotation : method.getConditionalHandlerAnnotations()) {
+      if (annotation.getAnnotationType().toString().equals(SpecificEnumHandler.class.getName())) {
+        return annotation;
       }
     }
     
-    return count;
+    return null;
   }
   
   private interface Rule {
-    public Result checkElement(ExecutableElement element);
+    public Result checkMethod(AnnotatedMethod method);
   }
 }
\ No newline at end of file
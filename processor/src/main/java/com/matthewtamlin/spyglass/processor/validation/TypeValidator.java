@@ -19,101 +19,65 @@ package com.matthewtamlin.spyglass.processor.validation;
 import com.google.common.collect.ImmutableList;
 import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToNull;
 import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseNull;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.DefaultRetriever;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.PlaceholderRetriever;
-import com.matthewtamlin.spyglass.processor.annotationretrievers.UnconditionalHandlerRetriever;
-import com.matthewtamlin.spyglass.processor.codegeneration.GetDefaultMethodGenerator;
-import com.matthewtamlin.spyglass.processor.codegeneration.GetPlaceholderMethodGenerator;
-import com.matthewtamlin.spyglass.processor.codegeneration.GetValueMethodGenerator;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.SuppliedTypeHelper;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.TypeMirrorHelper;
-import com.squareup.javapoet.MethodSpec;
 
 import javax.inject.Inject;
 import javax.lang.model.element.AnnotationMirror;
-import javax.lang.model.element.ExecutableElement;
-import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import java.util.List;
 
 import static com.matthewtamlin.java_utilities.checkers.NullChecker.checkNotNull;
 
 public class TypeValidator implements Validator {
-  private final Elements elementHelper;
-  
   private final Types typeHelper;
   
   private final TypeMirrorHelper typeMirrorHelper;
   
+  private final SuppliedTypeHelper suppliedTypeHelper;
+  
   private final List<Rule> rules;
   
   @Inject
   public TypeValidator(
-      final Elements elementUtil,
       final Types typeUtil,
       final TypeMirrorHelper typeMirrorHelper,
-      final GetValueMethodGenerator getValueMethodGenerator,
-      final GetDefaultMethodGenerator getDefaultMethodGenerator,
-      final GetPlaceholderMethodGenerator getPlaceholderMethodGenerator) {
+      final SuppliedTypeHelper suppliedTypeHelper) {
     
-    this.elementHelper = checkNotNull(elementUtil);
     this.typeHelper = checkNotNull(typeUtil);
     this.typeMirrorHelper = checkNotNull(typeMirrorHelper);
-    
-    checkNotNull(getValueMethodGenerator);
-    checkNotNull(getDefaultMethodGenerator);
-    checkNotNull(getPlaceholderMethodGenerator);
+    this.suppliedTypeHelper = checkNotNull(suppliedTypeHelper);
     
     rules = ImmutableList.of(
-        element -> {
-          if (!UnconditionalHandlerRetriever.hasAnnotation(element)) {
-            return Result.createSuccessful();
-          }
-          
-          final AnnotationMirror annotation = UnconditionalHandlerRetriever.getAnnotation(element);
-          
-          final MethodSpec supplier = getValueMethodGenerator.generateFor(annotation);
-          final TypeMirror suppliedType = returnTypeToTypeMirror(supplier);
-          final TypeMirror recipientType = getParameterWithoutPlaceholderAnnotation(element).asType();
-          
-          if (!isAssignableOrConvertible(suppliedType, recipientType)) {
-            return Result.createFailure(
-                "Misused handler annotation found. \'%1$s\' cannot be cast to \'%2$s\'.",
-                suppliedType,
-                recipientType);
-          }
-          
-          return Result.createSuccessful();
-        },
+        method -> method.hasUnconditionalHandlerAnnotation() ?
+            checkHandler(method.getUnconditionalHandlerAnnotation(), method.getValueParameterType()) :
+            Result.createSuccessful(),
         
-        element -> {
-          if (!DefaultRetriever.hasAnnotation(element)) {
-            return Result.createSuccessful();
-          }
-          
-          final AnnotationMirror annotation = DefaultRetriever.getAnnotation(element);
-          final String annotationName = annotation.getAnnotationType().toString();
-          
-          final MethodSpec supplier = getDefaultMethodGenerator.generateFor(annotation);
-          final TypeMirror suppliedType = returnTypeToTypeMirror(supplier);
-          final TypeMirror recipientType = getParameterWithoutPlaceholderAnnotation(element).asType();
-          
-          if (annotationName.equals(DefaultToNull.class.getName())) {
-            if (typeMirrorHelper.isPrimitive(recipientType)) {
-              return Result.createFailure(
-                  "Misused default annotation found. Primitive parameters cannot receive null.");
-              
-            } else {
-              return Result.createSuccessful();
+        method -> method.hasDefaultAnnotation() ?
+            checkDefault(method.getDefaultAnnotation(), method.getValueParameterType()) :
+            Result.createSuccessful(),
+        
+        method -> {
+          for (int i = 0; i < method.getParameterTypes().size(); i++) {
+            final TypeMirror recipientType = method.getParameterTypes().get(i);
+            
+            final Result handlerResult = method.hasParameterHandlerAnnotation(i) ?
+                checkHandler(method.getParameterHandlerAnnotation(i), recipientType) :
+                Result.createSuccessful();
+            
+            if (!handlerResult.isSuccessful()) {
+              return handlerResult;
+            }
+            
+            final Result defaultResult = method.hasParameterDefaultAnnotation(i) ?
+                checkDefault(method.getParameterDefaultAnnotation(i), recipientType) :
+                Result.createSuccessful();
+            
+            if (!defaultResult.isSuccessful()) {
+              return defaultResult;
             }
-          }
-          
-          if (!isAssignableOrConvertible(suppliedType, recipientType)) {
-            return Result.createFailure(
-                "Misused default annotation found. \'%1$s\' cannot be cast to \'%2$s\'.",
-                suppliedType,
-                recipientType);
           }
           
           return Result.createSuccessful();
@@ -121,10 +85,12 @@ public class TypeValidator implements Validator {
         
         new Rule() {
           @Override
-          public Result checkElement(final ExecutableElement element) {
-            for (final VariableElement parameter : element.getParameters()) {
-              if (PlaceholderRetriever.hasAnnotation(parameter)) {
-                final Result result = checkParameter(parameter);
+          public Result checkMethod(final AnnotatedMethod method) {
+            for (int i = 0; i < method.getParameterTypes().size(); i++) {
+              if (method.hasPlaceholderAnnotation(i)) {
+                final Result result = checkParameter(
+                    method.getPlaceholderAnnotation(i),
+                    method.getParameterTypes().get(i));
                 
                 if (!result.isSuccessful()) {
                   return result;
@@ -135,13 +101,10 @@ public class TypeValidator implements Validator {
             return Result.createSuccessful();
           }
           
-          private Result checkParameter(final VariableElement parameter) {
-            final AnnotationMirror annotation = PlaceholderRetriever.getAnnotation(parameter);
+          private Result checkParameter(final AnnotationMirror annotation, final TypeMirror recipientType) {
             final String annotationName = annotation.getAnnotationType().toString();
             
-            final MethodSpec supplier = getPlaceholderMethodGenerator.generateFor(annotation, 0);
-            final TypeMirror suppliedType = returnTypeToTypeMirror(supplier);
-            final TypeMirror recipientType = parameter.asType();
+            final TypeMirror suppliedType = suppliedTypeHelper.getSuppliedType(annotation);
             
             if (annotationName.equals(UseNull.class.getName())) {
               if (typeMirrorHelper.isPrimitive(recipientType)) {
@@ -165,9 +128,9 @@ public class TypeValidator implements Validator {
         });
   }
   
-  public Result validate(final ExecutableElement element) {
+  public Result validate(final AnnotatedMethod method) {
     for (final Rule rule : rules) {
-      final Result result = rule.checkElement(element);
+      final Result result = rule.checkMethod(method);
       
       if (!result.isSuccessful()) {
         return result;
@@ -177,18 +140,42 @@ public class TypeValidator implements Validator {
     return Result.createSuccessful();
   }
   
-  private TypeMirror returnTypeToTypeMirror(final MethodSpec methodSpec) {
-    return elementHelper.getTypeElement(methodSpec.returnType.toString()).asType();
+  private Result checkHandler(final AnnotationMirror annotation, final TypeMirror recipientType) {
+    final TypeMirror suppliedType = suppliedTypeHelper.getSuppliedType(annotation);
+    
+    if (!isAssignableOrConvertible(suppliedType, recipientType)) {
+      return Result.createFailure(
+          "Misused handler annotation found. \'%1$s\' cannot be cast to \'%2$s\'.",
+          suppliedType,
+          recipientType);
+    }
+    
+    return Result.createSuccessful();
   }
   
-  private static VariableElement getParameterWithoutPlaceholderAnnotation(final ExecutableElement method) {
-    for (final VariableElement parameter : method.getParameters()) {
-      if (!PlaceholderRetriever.hasAnnotation(parameter)) {
-        return parameter;
+  private Result checkDefault(final AnnotationMirror annotation, final TypeMirror recipientType) {
+    final String annotationName = annotation.getAnnotationType().toString();
+    
+    final TypeMirror suppliedType = suppliedTypeHelper.getSuppliedType(annotation);
+    
+    if (annotationName.equals(DefaultToNull.class.getName())) {
+      if (typeMirrorHelper.isPrimitive(recipientType)) {
+        return Result.createFailure(
+            "Misused default annotation found. Primitive parameters cannot receive null.");
+        
+      } else {
+        return Result.createSuccessful();
       }
     }
     
-    return null;
+    if (!isAssignableOrConvertible(suppliedType, recipientType)) {
+      return Result.createFailure(
+          "Misused default annotation found. \'%1$s\' cannot be cast to \'%2$s\'.",
+          suppliedType,
+          recipientType);
+    }
+    
+    return Result.createSuccessful();
   }
   
   private boolean isAssignableOrConvertible(final TypeMirror suppliedType, final TypeMirror recipientType) {
@@ -198,6 +185,6 @@ public class TypeValidator implements Validator {
   }
   
   private interface Rule {
-    public Result checkElement(ExecutableElement element);
+    public Result checkMethod(AnnotatedMethod method);
   }
 }
\ No newline at end of file
@@ -16,8 +16,8 @@
 
 package com.matthewtamlin.spyglass.processor.validation;
 
-import javax.lang.model.element.ExecutableElement;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
 
 public interface Validator {
-  public Result validate(final ExecutableElement element);
+  public Result validate(final AnnotatedMethod method);
 }
\ No newline at end of file
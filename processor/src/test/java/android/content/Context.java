@@ -17,9 +17,19 @@
 package android.content;
 
 import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
 
 public class Context {
   public Resources getResources() {
     throw new RuntimeException("Stub!");
   }
+  
+  public Resources.Theme getTheme() {
+    throw new RuntimeException("Stub!");
+  }
+  
+  public TypedArray obtainStyledAttributes(AttributeSet set, int[] attrs, int defStyleAttr, int defStyleRes) {
+    throw new RuntimeException("Stub!");
+  }
 }
\ No newline at end of file
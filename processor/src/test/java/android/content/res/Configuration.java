@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.content.res;
+
+public class Configuration {
+  public int orientation;
+  
+  public Configuration() {
+  }
+  
+  public Configuration(Configuration configuration) {
+    orientation = configuration.orientation;
+  }
+  
+  // The stub only has an orientation, so configurations with the same orientation are equal
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof Configuration && ((Configuration) object).orientation == orientation;
+  }
+  
+  @Override
+  public int hashCode() {
+    return orientation;
+  }
+}
\ No newline at end of file
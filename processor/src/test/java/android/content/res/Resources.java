@@ -20,6 +20,9 @@ import android.content.Context;
 import android.util.DisplayMetrics;
 
 public class Resources {
+  public final class Theme {
+  }
+  
   public float getDimension(int i1) {
     throw new RuntimeException("Stub!");
   }
@@ -55,4 +58,8 @@ public class Resources {
   public DisplayMetrics getDisplayMetrics() {
     throw new RuntimeException("Stub!");
   }
+  
+  public Configuration getConfiguration() {
+    throw new RuntimeException("Stub!");
+  }
 }
\ No newline at end of file
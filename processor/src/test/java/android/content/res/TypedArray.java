@@ -58,4 +58,16 @@ public class TypedArray {
   public boolean hasValue(int i1) {
     throw new RuntimeException("Stub!");
   }
+  
+  public int getIndexCount() {
+    throw new RuntimeException("Stub!");
+  }
+  
+  public int getIndex(int i1) {
+    throw new RuntimeException("Stub!");
+  }
+  
+  public void recycle() {
+    throw new RuntimeException("Stub!");
+  }
 }
\ No newline at end of file
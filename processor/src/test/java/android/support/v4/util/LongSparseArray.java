@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.support.v4.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class LongSparseArray<E> {
+  private final Map<Long, E> values = new HashMap<>();
+  
+  public E get(long key) {
+    return values.get(key);
+  }
+  
+  public void put(long key, E value) {
+    values.put(key, value);
+  }
+  
+  public void clear() {
+    values.clear();
+  }
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.annotationretrievers;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificBooleanHandler;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToInteger;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseInt;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseString;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeKind;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+@RunWith(JUnit4.class)
+public class TestAnnotatedMethod {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(
+          JavaFileObjects.forResource(getClass().getResource("TestAnnotatedMethodData.java")))
+      .build();
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreate_nullSupplied() {
+    AnnotatedMethod.create(null);
+  }
+  
+  @Test
+  public void testCreate_methodWithNoAnnotations() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("no annotations");
+    
+    final AnnotatedMethod method = AnnotatedMethod.create(element);
+    
+    assertThat(method.getElement(), is(element));
+    assertThat(method.hasAnyAnnotation(), is(false));
+    assertThat(method.getHandlerAnnotation(), is(nullValue()));
+    assertThat(method.getDefaultAnnotation(), is(nullValue()));
+    assertThat(method.getPlaceholderAnnotation(0), is(nullValue()));
+    assertThat(method.getValueParameterIndex(), is(0));
+  }
+  
+  @Test
+  public void testCreate_methodWithUnconditionalHandlerDefaultAndPlaceholders() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId(
+        "unconditional handler with default and placeholders");
+    
+    final AnnotatedMethod method = AnnotatedMethod.create(element);
+    
+    assertThat(method.hasAnyAnnotation(), is(true));
+    assertThat(method.hasConditionalHandlerAnnotation(), is(false));
+    assertThat(getName(method.getUnconditionalHandlerAnnotation()), is(IntegerHandler.class.getName()));
+    assertThat(getName(method.getHandlerAnnotation()), is(IntegerHandler.class.getName()));
+    assertThat(getName(method.getDefaultAnnotation()), is(DefaultToInteger.class.getName()));
+    assertThat(getName(method.getPlaceholderAnnotation(0)), is(UseString.class.getName()));
+    assertThat(method.getPlaceholderAnnotation(1), is(nullValue()));
+    assertThat(getName(method.getPlaceholderAnnotation(2)), is(UseInt.class.getName()));
+    assertThat(method.countParametersWithPlaceholderAnnotations(), is(2));
+    assertThat(method.getValueParameterIndex(), is(1));
+    assertThat(method.getValueParameterType().getKind(), is(TypeKind.LONG));
+  }
+  
+  @Test
+  public void testCreate_methodWithConditionalHandler() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("conditional handler");
+    
+    final AnnotatedMethod method = AnnotatedMethod.create(element);
+    
+    assertThat(method.hasUnconditionalHandlerAnnotation(), is(false));
+    assertThat(getName(method.getConditionalHandlerAnnotation()), is(SpecificBooleanHandler.class.getName()));
+    assertThat(getName(method.getHandlerAnnotation()), is(SpecificBooleanHandler.class.getName()));
+    assertThat(method.getValueParameterIndex(), is(-1));
+    assertThat(method.getValueParameterType(), is(nullValue()));
+  }
+  
+  @Test
+  public void testCreate_methodWithMultipleHandlersAndDefaults() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("multiple handlers and defaults");
+    
+    final AnnotatedMethod method = AnnotatedMethod.create(element);
+    
+    assertThat(method.getUnconditionalHandlerAnnotations().size(), is(2));
+    assertThat(method.getConditionalHandlerAnnotations().size(), is(1));
+    assertThat(method.getDefaultAnnotations().size(), is(2));
+    assertThat(method.getPlaceholderAnnotations().get(0).size(), is(2));
+  }
+  
+  @Test
+  public void testCreate_methodWithCompositeHandler() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("composite handler");
+    
+    final AnnotatedMethod method = AnnotatedMethod.create(element);
+    
+    assertThat(method.hasAnyAnnotation(), is(true));
+    assertThat(getName(method.getCompositeHandlerAnnotation()), is(CompositeHandler.class.getName()));
+    assertThat(method.hasUnconditionalHandlerAnnotation(), is(false));
+    assertThat(method.hasDefaultAnnotation(), is(false));
+    assertThat(method.getHandlerAnnotation(), is(nullValue()));
+    assertThat(getName(method.getParameterHandlerAnnotation(0)), is(IntegerHandler.class.getName()));
+    assertThat(getName(method.getParameterDefaultAnnotation(0)), is(DefaultToInteger.class.getName()));
+    assertThat(method.getParameterHandlerAnnotation(1), is(nullValue()));
+    assertThat(getName(method.getPlaceholderAnnotation(1)), is(UseString.class.getName()));
+    assertThat(getName(method.getParameterHandlerAnnotation(2)), is(StringHandler.class.getName()));
+    assertThat(method.getParameterDefaultAnnotation(2), is(nullValue()));
+    assertThat(method.countParametersWithHandlerAnnotations(), is(2));
+    assertThat(method.countParametersWithDefaultAnnotations(), is(1));
+  }
+  
+    private static String getName(final AnnotationMirror mirror) {
+    return mirror.getAnnotationType().toString();
+  }
+}
\ No newline at end of file
@@ -19,7 +19,9 @@ package com.matthewtamlin.spyglass.processor.codegeneration;
 import com.google.testing.compile.JavaFileObjects;
 import com.matthewtamlin.avatar.rules.AvatarRule;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.*;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.*;
@@ -32,6 +34,7 @@ import javax.lang.model.element.Element;
 import java.util.HashSet;
 import java.util.Set;
 
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.STATIC;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -59,158 +62,142 @@ public class TestAnyValueIsAvailableMethodGenerator {
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullSupplied() {
-    generator.generateFor(null);
+  public void testGenerateInlineFor_nullSupplied() {
+    generator.generateInlineFor(null, CodeBlock.of("attrs"));
   }
   
   @Test
-  public void testGenerateFor_booleanHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_booleanHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("boolean");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, BooleanHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_colorHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_colorHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("color");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, ColorHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_colorStateListHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_colorStateListHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("color state list");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         ColorStateListHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_dimensionHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_dimensionHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("dimension");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DimensionHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_drawableHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_drawableHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("drawable");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DrawableHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_enumConstantHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_enumConstantHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("enum constant");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, EnumConstantHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_EnumOrdinalHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_EnumOrdinalHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("enum ordinal");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, EnumOrdinalHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_floatHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_floatHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("float");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, FloatHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_fractionHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_fractionHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("fraction");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, FractionHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_integerHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_integerHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("integer");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, IntegerHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_stringHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_stringHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("string");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, StringHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
-  private void checkMethodSignature(final MethodSpec generatedMethod) {
-    assertThat("Generated method must not be null.", generatedMethod, is(notNullValue()));
-    assertThat("Generated method has wrong return type.", generatedMethod.returnType, is(TypeName.BOOLEAN.box()));
-    assertThat("Generated method has wrong number of parameters.", generatedMethod.parameters.size(), is(0));
-    assertThat("Generated method must not be static.", generatedMethod.modifiers.contains(STATIC), is(false));
-  }
-  
-  private void checkCompiles(final MethodSpec method) {
-    final TypeSpec wrapperTypeSpec = CallerDef
-        .getNewCallerSubclassPrototype("Wrapper", TypeName.OBJECT)
-        .addMethod(CallerDef
-            .getNewCallMethodPrototype()
-            .addCode(CodeBlock.of("return null;"))
-            .build())
-        .addMethod(CallerDef.getNewConstructorPrototype(TypeName.OBJECT).build())
-        .addMethod(method)
+  private void checkCompiles(final CodeBlock condition) {
+    assertThat("Generated condition must not be null.", condition, is(notNullValue()));
+    
+    final MethodSpec method = MethodSpec
+        .methodBuilder("isAvailable")
+        .addModifiers(STATIC)
+        .returns(boolean.class)
+        .addParameter(AndroidClassNames.TYPED_ARRAY, "attrs", FINAL)
+        .addStatement("return $L", condition)
         .build();
     
-    final JavaFile wrapperJavaFile = JavaFile
-        .builder("", wrapperTypeSpec)
+    final TypeSpec wrapperTypeSpec = TypeSpec
+        .classBuilder("Wrapper")
+        .addMethod(method)
         .build();
     
     final Set<JavaFile> filesToCompile = new HashSet<>();
-    filesToCompile.add(wrapperJavaFile);
-    filesToCompile.add(CallerDef.SRC_FILE);
+    filesToCompile.add(JavaFile.builder("", wrapperTypeSpec).build());
+    filesToCompile.add(RuntimeHelpersDef.SRC_FILE);
+    filesToCompile.add(DefaultValueCacheDef.SRC_FILE);
     
     CompileChecker.checkCompiles(filesToCompile);
   }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@RunWith(JUnit4.class)
+public class TestAttributeIndexer {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(JavaFileObjects.forResource(getClass().getResource("TestAttributeIndexerData.java")))
+      .build();
+  
+  private AttributeIndexer attributeIndexer;
+  
+  @Before
+  public void setup() {
+    attributeIndexer = new AttributeIndexer(new AnnotationMirrorHelper(avatarRule.getElementUtils()));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullAnnotationMirrorHelperSupplied() {
+    new AttributeIndexer(null);
+  }
+  
+  @Test
+  public void testGetAttrResourceIdsOf_styleableIndices() {
+    final TypeElement element = avatarRule.getElementWithUniqueId("styleable indices");
+    
+    assertThat(attributeIndexer.usesAttrResourceIds(element), is(false));
+    assertThat(attributeIndexer.getAttrResourceIdsOf(element), is(ImmutableList.of()));
+  }
+  
+  @Test
+  public void testGetAttrResourceIdsOf_attrResources() {
+    final TypeElement element = avatarRule.getElementWithUniqueId("attr resources");
+    
+    assertThat(attributeIndexer.usesAttrResourceIds(element), is(true));
+    assertThat(attributeIndexer.getAttrResourceIdsOf(element), is(ImmutableList.of(0x7f010001, 0x7f010009)));
+  }
+  
+  @Test
+  public void testGetIndexOf_styleableIndex() {
+    assertThat(attributeIndexer.getIndexOf(getMethodWithUniqueId("styleable index handler")), is(4));
+  }
+  
+  @Test
+  public void testGetIndexOf_attrResources() {
+    assertThat(attributeIndexer.getIndexOf(getMethodWithUniqueId("attr resource handler A")), is(1));
+    assertThat(attributeIndexer.getIndexOf(getMethodWithUniqueId("attr resource handler B")), is(0));
+    assertThat(attributeIndexer.getIndexOf(getMethodWithUniqueId("attr resource handler C")), is(1));
+  }
+  
+  @Test
+  public void testGetIndexOf_compositeHandlerParameters() {
+    final TypeElement element = avatarRule.getElementWithUniqueId("attr resources with composite handler");
+    final AnnotatedMethod compositeHandler = getMethodWithUniqueId("attr resource composite handler");
+    
+    assertThat(
+        attributeIndexer.getAttrResourceIdsOf(element),
+        is(ImmutableList.of(0x7f010001, 0x7f010005, 0x7f010009)));
+    
+    assertThat(attributeIndexer.getIndexOf(compositeHandler, 0), is(1));
+    assertThat(attributeIndexer.getIndexOf(compositeHandler, 2), is(0));
+    assertThat(attributeIndexer.getIndexOf(getMethodWithUniqueId("attr resource handler D")), is(2));
+  }
+  
+  @Test
+  public void testGetAttrResourceIdsOf_suppliedMethodsAreUsedForLaterLookups() {
+    final TypeElement element = avatarRule.getElementWithUniqueId("attr resources");
+    final AnnotatedMethod handlerA = getMethodWithUniqueId("attr resource handler A");
+    
+    assertThat(
+        attributeIndexer.getAttrResourceIdsOf(element, ImmutableList.of(handlerA)),
+        is(ImmutableList.of(0x7f010009)));
+    
+    assertThat(attributeIndexer.getAttrResourceIdsOf(element), is(ImmutableList.of(0x7f010009)));
+    assertThat(attributeIndexer.getIndexOf(handlerA), is(0));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetIndexOf_parameterWithoutHandlerSupplied() {
+    attributeIndexer.getIndexOf(getMethodWithUniqueId("attr resource composite handler"), 1);
+  }
+  
+  private AnnotatedMethod getMethodWithUniqueId(final String id) {
+    return AnnotatedMethod.create((ExecutableElement) avatarRule.getElementWithUniqueId(id));
+  }
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
+import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.SuppliedTypeHelper;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.TypeMirrorHelper;
+import com.squareup.javapoet.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.notNullValue;
+import static org.mockito.Mockito.mock;
+
+public class TestAttributesGenerator {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(JavaFileObjects.forResource(getClass().getResource("TestCallerGeneratorData.java")))
+      .build();
+  
+  private CallerGenerator callerGenerator;
+  
+  private AttributesGenerator attributesGenerator;
+  
+  @Before
+  public void setup() {
+    final AnnotationMirrorHelper annotationMirrorHelper = new AnnotationMirrorHelper(avatarRule.getElementUtils());
+    final TypeMirrorHelper typeMirrorHelper = new TypeMirrorHelper(
+        avatarRule.getElementUtils(),
+        avatarRule.getTypeUtils());
+    
+    final CachedDefaultValueGenerator defaultValueGenerator = new CachedDefaultValueGenerator(
+        new GetDefaultMethodGenerator(annotationMirrorHelper),
+        annotationMirrorHelper,
+        ProcessorOptions.createDefault());
+    
+    callerGenerator = new CallerGenerator(
+        avatarRule.getElementUtils(),
+        avatarRule.getTypeUtils(),
+        typeMirrorHelper,
+        defaultValueGenerator,
+        new GetValueMethodGenerator(annotationMirrorHelper),
+        new GetPlaceholderMethodGenerator(annotationMirrorHelper),
+        new AnyValueIsAvailableMethodGenerator(annotationMirrorHelper),
+        new SpecificValueIsAvailableMethodGenerator(annotationMirrorHelper),
+        new CastWrapperGenerator(
+            typeMirrorHelper,
+            new SuppliedTypeHelper(avatarRule.getElementUtils(), avatarRule.getTypeUtils(), annotationMirrorHelper)),
+        new AttributeIndexer(annotationMirrorHelper));
+    
+    attributesGenerator = new AttributesGenerator(
+        callerGenerator,
+        new GetValueMethodGenerator(annotationMirrorHelper),
+        defaultValueGenerator,
+        new AnyValueIsAvailableMethodGenerator(annotationMirrorHelper),
+        new SpecificValueIsAvailableMethodGenerator(annotationMirrorHelper),
+        new AttributeIndexer(annotationMirrorHelper),
+        new BatchHookGenerator(avatarRule.getElementUtils(), avatarRule.getTypeUtils()),
+        new HierarchyResolver(
+            avatarRule.getElementUtils(),
+            new AttributeIndexer(annotationMirrorHelper),
+            annotationMirrorHelper));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateFor_nullTargetTypeSupplied() {
+    attributesGenerator.generateFor(null, Collections.emptySet());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateFor_nullAnnotatedMethodsSupplied() {
+    attributesGenerator.generateFor(mock(TypeElement.class), null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateFor_methodWithNoHandlerAnnotation() {
+    final AnnotatedMethod element = getMethodWithUniqueId("no handler");
+    
+    attributesGenerator.generateFor(getTargetType(element), Collections.singleton(element));
+  }
+  
+  @Test
+  public void testGenerateFor_noMethods() {
+    final TypeElement targetType = getTargetType(getMethodWithUniqueId("conditional handler"));
+    
+    final TypeSpec result = attributesGenerator.generateFor(targetType, Collections.emptySet());
+    
+    assertThat(result, is(notNullValue()));
+    assertThat(result.fieldSpecs.isEmpty(), is(true));
+    checkCompiles(result, Collections.emptyList());
+  }
+  
+  @Test
+  public void testGenerateFor_allHandlerKinds() {
+    final String[] elementIds = {
+        "unconditional handler with default",
+        "unconditional handler no default",
+        "conditional handler",
+        "reactive handler",
+        "color handler with default",
+        "dimension handler",
+        "fraction handler",
+        "specific flag handler",
+        "specific boolean handler",
+        "drawable handler",
+        "primitive handler with placeholders"};
+    
+    final List<AnnotatedMethod> elements = new ArrayList<>();
+    
+    for (final String elementId : elementIds) {
+      elements.add(getMethodWithUniqueId(elementId));
+    }
+    
+    final TypeSpec result = attributesGenerator.generateFor(getTargetType(elements.get(0)), elements);
+    
+    assertThat(result, is(notNullValue()));
+    checkCompiles(result, elements);
+  }
+  
+  @Test
+  public void testGenerateFor_fieldsAreImmutable() {
+    final AnnotatedMethod element = getMethodWithUniqueId("unconditional handler with default");
+    
+    final TypeSpec result = attributesGenerator.generateFor(getTargetType(element), Collections.singleton(element));
+    
+    assertThat(result.fieldSpecs.size(), is(3));
+    
+    for (final FieldSpec field : result.fieldSpecs) {
+      assertThat(field.name, field.hasModifier(Modifier.FINAL), is(true));
+    }
+  }
+  
+  @Test
+  public void testGenerateFor_primitiveValuesAreNotBoxed() {
+    final AnnotatedMethod element = getMethodWithUniqueId("primitive handler with placeholders");
+    
+    final TypeSpec result = attributesGenerator.generateFor(getTargetType(element), Collections.singleton(element));
+    
+    for (final FieldSpec field : result.fieldSpecs) {
+      assertThat(field.name, field.type.isPrimitive(), is(true));
+    }
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testIsShareable_nullSupplied() {
+    attributesGenerator.isShareable(null);
+  }
+  
+  @Test
+  public void testIsShareable_attributesWithoutDrawables() {
+    final AnnotatedMethod element = getMethodWithUniqueId("color handler with default");
+    
+    final TypeSpec attributes = attributesGenerator.generateFor(
+        getTargetType(element),
+        Collections.singleton(element));
+    
+    assertThat(attributesGenerator.isShareable(attributes), is(true));
+  }
+  
+  @Test
+  public void testIsShareable_attributesWithDrawables() {
+    final AnnotatedMethod element = getMethodWithUniqueId("drawable handler");
+    
+    final TypeSpec attributes = attributesGenerator.generateFor(
+        getTargetType(element),
+        Collections.singleton(element));
+    
+    assertThat(attributesGenerator.isShareable(attributes), is(false));
+  }
+  
+  @Test
+  public void testIsShareable_attributesWithArrays() {
+    final AnnotatedMethod element = getMethodWithUniqueId("text array default handler");
+    
+    final TypeSpec attributes = attributesGenerator.generateFor(
+        getTargetType(element),
+        Collections.singleton(element));
+    
+    assertThat(attributesGenerator.isShareable(attributes), is(false));
+  }
+  
+  private AnnotatedMethod getMethodWithUniqueId(final String id) {
+    return AnnotatedMethod.create(avatarRule.getElementWithUniqueId(id));
+  }
+  
+  private TypeElement getTargetType(final AnnotatedMethod element) {
+    return (TypeElement) element.getElement().getEnclosingElement();
+  }
+  
+  private void checkCompiles(final TypeSpec attributes, final List<AnnotatedMethod> methods) {
+    final TypeSpec.Builder wrapperTypeSpecBuilder = TypeSpec
+        .classBuilder("Wrapper")
+        .addType(attributes);
+    
+    for (final AnnotatedMethod method : methods) {
+      for (final FieldSpec field : callerGenerator.generateSupportingFieldsFor(method)) {
+        if (!wrapperTypeSpecBuilder.build().fieldSpecs.contains(field)) {
+          wrapperTypeSpecBuilder.addField(field);
+        }
+      }
+    }
+    
+    final Set<JavaFile> filesToCompile = new HashSet<>();
+    filesToCompile.add(JavaFile.builder("", wrapperTypeSpecBuilder.build()).build());
+    filesToCompile.add(RuntimeHelpersDef.SRC_FILE);
+    filesToCompile.add(DefaultValueCacheDef.SRC_FILE);
+    
+    CompileChecker.checkCompiles(filesToCompile);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.processor.definitions.SpyglassBatchAwareDef;
+import com.squareup.javapoet.CodeBlock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+@RunWith(JUnit4.class)
+public class TestBatchHookGenerator {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(
+          JavaFileObjects.forResource(getClass().getResource("TestBatchHookGeneratorData.java")),
+          JavaFileObjects.forSourceString(
+              SpyglassBatchAwareDef.getInterfaceAsClassName().toString(),
+              SpyglassBatchAwareDef.SRC_FILE.toString()))
+      .build();
+  
+  private BatchHookGenerator generator;
+  
+  @Before
+  public void setup() {
+    generator = new BatchHookGenerator(avatarRule.getElementUtils(), avatarRule.getTypeUtils());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullElementUtilSupplied() {
+    new BatchHookGenerator(null, avatarRule.getTypeUtils());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullTypeUtilSupplied() {
+    new BatchHookGenerator(avatarRule.getElementUtils(), null);
+  }
+  
+  @Test
+  public void testIsBatchAware() {
+    assertThat(generator.isBatchAware(avatarRule.getElementWithUniqueId("not batch aware")), is(false));
+    assertThat(generator.isBatchAware(avatarRule.getElementWithUniqueId("batch aware")), is(true));
+    assertThat(generator.isBatchAware(avatarRule.getElementWithUniqueId("inherits batch aware")), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateMaskUpdateFor_negativeIndexSupplied() {
+    generator.generateMaskUpdateFor(-1);
+  }
+  
+  @Test
+  public void testGenerateMaskUpdateFor_indexWithinMask() {
+    assertThat(generator.generateMaskUpdateFor(0).toString(), is("appliedMask |= 1 << 0;\n"));
+    assertThat(generator.generateMaskUpdateFor(31).toString(), is("appliedMask |= 1 << 31;\n"));
+  }
+  
+  @Test
+  public void testGenerateMaskUpdateFor_indexBeyondMask() {
+    assertThat(generator.generateMaskUpdateFor(32).isEmpty(), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateReactiveMaskUpdateFor_negativeIndexSupplied() {
+    generator.generateReactiveMaskUpdateFor(-1);
+  }
+  
+  @Test
+  public void testGenerateReactiveMaskUpdateFor_indexWithinMask() {
+    final String code = generator.generateReactiveMaskUpdateFor(3).toString();
+    
+    assertThat(code.contains("synchronized (appliedMask)"), is(true));
+    assertThat(code.contains("appliedMask[0] |= 1 << 3;"), is(true));
+  }
+  
+  @Test
+  public void testGenerateReactiveMaskUpdateFor_indexBeyondMask() {
+    assertThat(generator.generateReactiveMaskUpdateFor(32).isEmpty(), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateDeferredMaskUpdateFor_negativeIndexSupplied() {
+    generator.generateDeferredMaskUpdateFor(-1, CodeBlock.of("deferredCall0"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateDeferredMaskUpdateFor_nullResultVariableSupplied() {
+    generator.generateDeferredMaskUpdateFor(0, null);
+  }
+  
+  @Test
+  public void testGenerateDeferredMaskUpdateFor_maskIsUpdatedOnCompletion() {
+    final String code = generator.generateDeferredMaskUpdateFor(2, CodeBlock.of("deferredCall0")).toString();
+    
+    final int completion = code.indexOf("deferredCall0 = deferredCall0.doOnComplete(() -> {");
+    final int update = code.indexOf("appliedMask[0] |= 1 << 2;");
+    
+    assertThat(completion >= 0 && completion < update, is(true));
+  }
+  
+  @Test
+  public void testGenerateDeferredMaskUpdateFor_indexBeyondMask() {
+    assertThat(generator.generateDeferredMaskUpdateFor(32, CodeBlock.of("deferredCall0")).isEmpty(), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateBatchFor_nullTargetSupplied() {
+    generator.generateBatchFor(null, CodeBlock.of(""));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateBatchFor_nullHandlerCallsSupplied() {
+    generator.generateBatchFor(CodeBlock.of("target"), null);
+  }
+  
+  @Test
+  public void testGenerateBatchFor_endHookIsCalledAfterHandlerCalls() {
+    final String code = generator
+        .generateBatchFor(CodeBlock.of("target"), CodeBlock.of("target.handler();\n"))
+        .toString();
+    
+    final int start = code.indexOf("target.onAttributeBatchStart();");
+    final int handler = code.indexOf("target.handler();");
+    final int end = code.indexOf("target.onAttributeBatchEnd(appliedMask);");
+    
+    assertThat(start >= 0 && start < handler, is(true));
+    assertThat(handler < code.indexOf("finally") && code.indexOf("finally") < end, is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateReactiveBatchFor_nullTargetSupplied() {
+    generator.generateReactiveBatchFor(null, CodeBlock.of(""), CodeBlock.of("completable"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateReactiveBatchFor_nullHandlerCallsSupplied() {
+    generator.generateReactiveBatchFor(CodeBlock.of("target"), null, CodeBlock.of("completable"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateReactiveBatchFor_nullCompletableSupplied() {
+    generator.generateReactiveBatchFor(CodeBlock.of("target"), CodeBlock.of(""), null);
+  }
+  
+  @Test
+  public void testGenerateReactiveBatchFor_endHookIsCalledWhenCompletableTerminates() {
+    final String code = generator
+        .generateReactiveBatchFor(
+            CodeBlock.of("target"),
+            CodeBlock.of("target.handler();\n"),
+            CodeBlock.of("completable"))
+        .toString();
+    
+    final int start = code.indexOf("target.onAttributeBatchStart();");
+    final int handler = code.indexOf("target.handler();");
+    final int returnStatement = code.indexOf(
+        "return completable.doFinally(() -> target.onAttributeBatchEnd(appliedMask[0]));");
+    final int failure = code.indexOf("catch (");
+    
+    assertThat(start >= 0 && start < handler && handler < returnStatement, is(true));
+    assertThat(returnStatement < failure, is(true));
+    assertThat(code.indexOf("target.onAttributeBatchEnd(appliedMask[0]);", failure) > failure, is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateMaskedCallsFor_nullHandlerCallsSupplied() {
+    generator.generateMaskedCallsFor(null);
+  }
+  
+  @Test
+  public void testGenerateMaskedCallsFor_maskIsReturnedAfterHandlerCalls() {
+    final String code = generator.generateMaskedCallsFor(CodeBlock.of("target.handler();\n")).toString();
+    
+    final int declaration = code.indexOf("int appliedMask = 0;");
+    final int handler = code.indexOf("target.handler();");
+    final int returnStatement = code.indexOf("return appliedMask;");
+    
+    assertThat(declaration >= 0 && declaration < handler && handler < returnStatement, is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateMaskAssignmentFor_nullDispatcherCallSupplied() {
+    generator.generateMaskAssignmentFor(null);
+  }
+  
+  @Test
+  public void testGenerateMaskAssignmentFor() {
+    assertThat(
+        generator.generateMaskAssignmentFor(CodeBlock.of("dispatch(target)")).toString(),
+        is("appliedMask = dispatch(target);\n"));
+  }
+}
\ No newline at end of file
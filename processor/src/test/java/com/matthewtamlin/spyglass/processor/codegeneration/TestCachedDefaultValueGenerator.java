@@ -0,0 +1,237 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.*;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions;
+import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
+import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.squareup.javapoet.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import java.lang.annotation.Annotation;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.mockito.Mockito.mock;
+
+public class TestCachedDefaultValueGenerator {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(
+          JavaFileObjects.forResource(getClass().getResource("TestGetDefaultMethodGeneratorData.java")))
+      .build();
+  
+  private GetDefaultMethodGenerator getDefaultMethodGenerator;
+  
+  private CachedDefaultValueGenerator cachingGenerator;
+  
+  private CachedDefaultValueGenerator nonCachingGenerator;
+  
+  @Before
+  public void setup() {
+    final AnnotationMirrorHelper annotationMirrorHelper = new AnnotationMirrorHelper(avatarRule.getElementUtils());
+    
+    getDefaultMethodGenerator = new GetDefaultMethodGenerator(annotationMirrorHelper);
+    
+    cachingGenerator = new CachedDefaultValueGenerator(
+        getDefaultMethodGenerator,
+        annotationMirrorHelper,
+        ProcessorOptions.createFrom(ImmutableMap.of(ProcessorOptions.DEFAULT_VALUE_CACHE, "enabled")));
+    
+    nonCachingGenerator = new CachedDefaultValueGenerator(
+        getDefaultMethodGenerator,
+        annotationMirrorHelper,
+        ProcessorOptions.createDefault());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullGetDefaultMethodGenerator() {
+    new CachedDefaultValueGenerator(
+        null,
+        mock(AnnotationMirrorHelper.class),
+        ProcessorOptions.createDefault());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullAnnotationMirrorHelper() {
+    new CachedDefaultValueGenerator(
+        mock(GetDefaultMethodGenerator.class),
+        null,
+        ProcessorOptions.createDefault());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullProcessorOptions() {
+    new CachedDefaultValueGenerator(
+        mock(GetDefaultMethodGenerator.class),
+        mock(AnnotationMirrorHelper.class),
+        null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateInlineFor_nullAnnotation() {
+    cachingGenerator.generateInlineFor(null, CodeBlock.of("context"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateInlineFor_nullContext() {
+    cachingGenerator.generateInlineFor(getMirror("dimension resource", DefaultToDimensionResource.class), null);
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingDisabled() {
+    final AnnotationMirror mirror = getMirror("dimension resource", DefaultToDimensionResource.class);
+    
+    final GeneratedValue value = nonCachingGenerator.generateInlineFor(mirror, CodeBlock.of("context"));
+    
+    assertThat(value, is(getDefaultMethodGenerator.generateInlineFor(mirror, CodeBlock.of("context"))));
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_constantDefault() {
+    final AnnotationMirror mirror = getMirror("integer", DefaultToInteger.class);
+    
+    final GeneratedValue value = cachingGenerator.generateInlineFor(mirror, CodeBlock.of("context"));
+    
+    assertThat(value, is(getDefaultMethodGenerator.generateInlineFor(mirror, CodeBlock.of("context"))));
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_drawableResourceDefault() {
+    final AnnotationMirror mirror = getMirror("drawable resource", DefaultToDrawableResource.class);
+    
+    final GeneratedValue value = cachingGenerator.generateInlineFor(mirror, CodeBlock.of("context"));
+    
+    assertThat(value, is(getDefaultMethodGenerator.generateInlineFor(mirror, CodeBlock.of("context"))));
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_dimensionDefault() {
+    checkCachedValue(getMirror("dimension", DefaultToDimension.class), TypeName.FLOAT);
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_dimensionResourceDefault() {
+    checkCachedResourceValue(
+        getMirror("dimension resource", DefaultToDimensionResource.class),
+        TypeName.FLOAT,
+        RuntimeHelpersDef.DIMENSION_RESOURCE_KIND);
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_colorResourceDefault() {
+    checkCachedResourceValue(
+        getMirror("color resource", DefaultToColorResource.class),
+        TypeName.INT,
+        RuntimeHelpersDef.COLOR_RESOURCE_KIND);
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_colorStateListResourceDefault() {
+    checkCachedResourceValue(
+        getMirror("color state list resource", DefaultToColorStateListResource.class),
+        AndroidClassNames.COLOR_STATE_LIST,
+        RuntimeHelpersDef.COLOR_STATE_LIST_RESOURCE_KIND);
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_textArrayResourceDefault() {
+    checkCachedResourceValue(
+        getMirror("text array", DefaultToTextArrayResource.class),
+        TypeName.get(CharSequence[].class),
+        RuntimeHelpersDef.TEXT_ARRAY_RESOURCE_KIND);
+  }
+  
+  @Test
+  public void testGenerateInlineFor_cachingEnabled_sameResourceWithDifferentKinds() {
+    final GeneratedValue colorValue = cachingGenerator.generateInlineFor(
+        getMirror("color resource", DefaultToColorResource.class),
+        CodeBlock.of("context"));
+    
+    final GeneratedValue colorStateListValue = cachingGenerator.generateInlineFor(
+        getMirror("color state list resource", DefaultToColorStateListResource.class),
+        CodeBlock.of("context"));
+    
+    // Both annotations reference the same resource ID, so only the kind distinguishes the lookups
+    assertThat(colorValue.getExpression().toString(), is(not(colorStateListValue.getExpression().toString())));
+  }
+  
+  private AnnotationMirror getMirror(final String elementId, final Class<? extends Annotation> annotationClass) {
+    final Element element = avatarRule.getElementWithUniqueId(elementId);
+    
+    return AnnotationMirrorHelper.getAnnotationMirror(element, annotationClass);
+  }
+  
+  private void checkCachedValue(final AnnotationMirror mirror, final TypeName expectedType) {
+    final GeneratedValue value = cachingGenerator.generateInlineFor(mirror, CodeBlock.of("context"));
+    
+    assertThat(value.getType(), is(expectedType));
+    assertThat(value.getPreparation().toString().contains("DefaultValueCache.get(context, "), is(true));
+    assertThat(value.getPreparation().toString().contains("DefaultValueCache.put(context, "), is(true));
+    
+    checkCompiles(value);
+  }
+  
+  private void checkCachedResourceValue(final AnnotationMirror mirror, final TypeName expectedType, final int kind) {
+    final GeneratedValue value = cachingGenerator.generateInlineFor(mirror, CodeBlock.of("context"));
+    
+    assertThat(value.getType(), is(expectedType));
+    assertThat(
+        value.getExpression().toString().contains("RuntimeHelpers.getResourceDefault(context, " + kind + ", "),
+        is(true));
+    
+    checkCompiles(value);
+  }
+  
+  private void checkCompiles(final GeneratedValue value) {
+    final MethodSpec method = value
+        .toMethod("getDefault")
+        .addParameter(AndroidClassNames.CONTEXT, "context")
+        .build();
+    
+    final TypeSpec wrapperTypeSpec = TypeSpec
+        .classBuilder("Wrapper")
+        .addMethod(method)
+        .build();
+    
+    final JavaFile wrapperJavaFile = JavaFile
+        .builder("", wrapperTypeSpec)
+        .build();
+    
+    final Set<JavaFile> filesToCompile = new HashSet<>();
+    filesToCompile.add(wrapperJavaFile);
+    filesToCompile.add(RuntimeHelpersDef.SRC_FILE);
+    filesToCompile.add(DefaultValueCacheDef.SRC_FILE);
+    
+    CompileChecker.checkCompiles(filesToCompile);
+  }
+}
@@ -18,19 +18,26 @@ package com.matthewtamlin.spyglass.processor.codegeneration;
 
 import com.google.testing.compile.JavaFileObjects;
 import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions;
 import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.SuppliedTypeHelper;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.TypeMirrorHelper;
 import com.squareup.javapoet.*;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
-import javax.lang.model.element.ExecutableElement;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -38,6 +45,11 @@ import static org.hamcrest.core.IsNull.notNullValue;
 import static org.mockito.Mockito.mock;
 
 public class TestCallerGenerator {
+  /**
+   * Matches an availability check, which is either made through the runtime helpers or directly on the typed array.
+   */
+  private static final String AVAILABILITY_CHECK = "(RuntimeHelpers\\.isValueAvailable\\(attrs, |attrs\\.hasValue\\()";
+  
   @Rule
   public final AvatarRule avatarRule = AvatarRule
       .builder()
@@ -54,115 +66,364 @@ public class TestCallerGenerator {
         avatarRule.getElementUtils(),
         avatarRule.getTypeUtils(),
         new TypeMirrorHelper(avatarRule.getElementUtils(), avatarRule.getTypeUtils()),
-        new GetDefaultMethodGenerator(annotationMirrorHelper),
+        new CachedDefaultValueGenerator(
+            new GetDefaultMethodGenerator(annotationMirrorHelper),
+            annotationMirrorHelper,
+            ProcessorOptions.createDefault()),
         new GetValueMethodGenerator(annotationMirrorHelper),
         new GetPlaceholderMethodGenerator(annotationMirrorHelper),
         new AnyValueIsAvailableMethodGenerator(annotationMirrorHelper),
         new SpecificValueIsAvailableMethodGenerator(annotationMirrorHelper),
         new CastWrapperGenerator(
-            avatarRule.getElementUtils(),
-            new TypeMirrorHelper(avatarRule.getElementUtils(), avatarRule.getTypeUtils())));
+            new TypeMirrorHelper(avatarRule.getElementUtils(), avatarRule.getTypeUtils()),
+            new SuppliedTypeHelper(avatarRule.getElementUtils(), avatarRule.getTypeUtils(), annotationMirrorHelper)),
+        new AttributeIndexer(annotationMirrorHelper));
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullMethodSupplied() {
-    callerGenerator.generateFor(null, CodeBlock.of(""), CodeBlock.of(""), CodeBlock.of(""));
+  public void testGenerateDirectCallFor_nullMethodSupplied() {
+    callerGenerator.generateDirectCallFor(null, CodeBlock.of(""), CodeBlock.of(""), CodeBlock.of(""));
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullContextParameterSupplied() {
-    callerGenerator.generateFor(mock(ExecutableElement.class), null, CodeBlock.of(""), CodeBlock.of(""));
+  public void testGenerateDirectCallFor_nullTargetParameterSupplied() {
+    callerGenerator.generateDirectCallFor(mock(AnnotatedMethod.class), null, CodeBlock.of(""), CodeBlock.of(""));
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullTargetParameterSupplied() {
-    callerGenerator.generateFor(mock(ExecutableElement.class), CodeBlock.of(""), null, CodeBlock.of(""));
+  public void testGenerateDirectCallFor_nullContextParameterSupplied() {
+    callerGenerator.generateDirectCallFor(mock(AnnotatedMethod.class), CodeBlock.of(""), null, CodeBlock.of(""));
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullAttrsParameterSupplied() {
-    callerGenerator.generateFor(mock(ExecutableElement.class), CodeBlock.of(""), CodeBlock.of(""), null);
+  public void testGenerateDirectCallFor_nullAttrsParameterSupplied() {
+    callerGenerator.generateDirectCallFor(mock(AnnotatedMethod.class), CodeBlock.of(""), CodeBlock.of(""), null);
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_elementWithNoHandlerAnnotation() {
-    final ExecutableElement element = avatarRule.getElementWithUniqueId("no handler");
+  public void testGenerateDirectCallFor_elementWithNoHandlerAnnotation() {
+    final AnnotatedMethod element = getMethodWithUniqueId("no handler");
+    
+    callerGenerator.generateDirectCallFor(
+        element,
+        CodeBlock.of("target"),
+        CodeBlock.of("context"),
+        CodeBlock.of("attrs"));
+  }
+  
+  @Test
+  public void testGenerateDirectCallFor_elementWithConditionalHandler() {
+    final AnnotatedMethod element = getMethodWithUniqueId("conditional handler");
     
-    callerGenerator.generateFor(
+    final CodeBlock result = callerGenerator.generateDirectCallFor(
         element,
         CodeBlock.of("target"),
         CodeBlock.of("context"),
         CodeBlock.of("attrs"));
+    
+    assertThat(result, is(notNullValue()));
+    checkDirectCallCompiles(result);
   }
   
   @Test
-  public void testGenerateFor_elementWithConditionalHandler() {
-    final ExecutableElement element = avatarRule.getElementWithUniqueId("conditional handler");
+  public void testGenerateDirectCallFor_elementWithUnconditionalHandlerButNoDefault() {
+    final AnnotatedMethod element = getMethodWithUniqueId("unconditional handler no default");
     
-    final TypeSpec result = callerGenerator.generateFor(
+    final CodeBlock result = callerGenerator.generateDirectCallFor(
         element,
         CodeBlock.of("target"),
         CodeBlock.of("context"),
         CodeBlock.of("attrs"));
     
     assertThat(result, is(notNullValue()));
-    checkCompiles(result);
+    checkDirectCallCompiles(result);
   }
   
   @Test
-  public void testGenerateFor_elementWithUnconditionalHandlerButNoDefault() {
-    final ExecutableElement element = avatarRule.getElementWithUniqueId("unconditional handler no default");
+  public void testGenerateDirectCallFor_elementWithUnconditionalHandlerAndDefault() {
+    final AnnotatedMethod element = getMethodWithUniqueId("unconditional handler with default");
     
-    final TypeSpec result = callerGenerator.generateFor(
+    final CodeBlock result = callerGenerator.generateDirectCallFor(
         element,
         CodeBlock.of("target"),
         CodeBlock.of("context"),
         CodeBlock.of("attrs"));
     
     assertThat(result, is(notNullValue()));
-    checkCompiles(result);
+    checkDirectCallCompiles(result);
   }
   
   @Test
-  public void testGenerateFor_elementWithUnconditionalHandlerAndDefault() {
-    final ExecutableElement element = avatarRule.getElementWithUniqueId("unconditional handler with default");
+  public void testGenerateDirectCallFor_elementWithReactiveReturnType() {
+    final AnnotatedMethod element = getMethodWithUniqueId("reactive handler");
     
-    final TypeSpec result = callerGenerator.generateFor(
+    final CodeBlock result = callerGenerator.generateDirectCallFor(
         element,
         CodeBlock.of("target"),
         CodeBlock.of("context"),
         CodeBlock.of("attrs"));
     
     assertThat(result, is(notNullValue()));
-    checkCompiles(result);
+    checkDirectCallCompiles(result);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateDeferredCallFor_nullResultVariableSupplied() {
+    final AnnotatedMethod element = getMethodWithUniqueId("reactive handler");
+    
+    callerGenerator.generateDeferredCallFor(
+        element,
+        CodeBlock.of("target"),
+        CodeBlock.of("context"),
+        CodeBlock.of("attrs"),
+        null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateDeferredCallFor_elementWithNonReactiveReturnType() {
+    final AnnotatedMethod element = getMethodWithUniqueId("unconditional handler no default");
+    
+    callerGenerator.generateDeferredCallFor(
+        element,
+        CodeBlock.of("target"),
+        CodeBlock.of("context"),
+        CodeBlock.of("attrs"),
+        CodeBlock.of("result"));
   }
   
-  private void checkCompiles(final TypeSpec anonymousTypeSpec) {
-    // Anonymous class cannot be top level class, so nest the anonymous class as a field
+  @Test
+  public void testGenerateDeferredCallFor_elementWithReactiveReturnType() {
+    final AnnotatedMethod element = getMethodWithUniqueId("reactive handler");
+    
+    final CodeBlock result = callerGenerator.generateDeferredCallFor(
+        element,
+        CodeBlock.of("target"),
+        CodeBlock.of("context"),
+        CodeBlock.of("attrs"),
+        CodeBlock.of("result"));
+    
+    assertThat(result, is(notNullValue()));
+    checkDirectCallCompiles(CodeBlock
+        .builder()
+        .addStatement("$T result", ClassName.get("io.reactivex", "Completable"))
+        .add(result)
+        .build());
+  }
+  
+  @Test
+  public void testGenerateDirectCallFor_eachHandlerReadsAttributesOnce() {
+    final String[] elementIds = {
+        "unconditional handler with default",
+        "unconditional handler no default",
+        "conditional handler",
+        "color handler with default",
+        "dimension handler",
+        "fraction handler",
+        "specific flag handler",
+        "specific boolean handler"};
+    
+    for (final String elementId : elementIds) {
+      final CodeBlock result = callerGenerator.generateDirectCallFor(
+          getMethodWithUniqueId(elementId),
+          CodeBlock.of("target"),
+          CodeBlock.of("context"),
+          CodeBlock.of("attrs"));
+      
+      assertThat(elementId, countMatches(result, AVAILABILITY_CHECK), is(1));
+      assertThat(elementId, countMatches(result, "attrs\\.get\\w+\\("), is(1));
+    }
+  }
+  
+  @Test
+  public void testGenerateDirectCallFor_primitiveValuesAreNotBoxed() {
+    final AnnotatedMethod element = getMethodWithUniqueId("primitive handler with placeholders");
+    
+    final CodeBlock result = callerGenerator.generateDirectCallFor(
+        element,
+        CodeBlock.of("target"),
+        CodeBlock.of("context"),
+        CodeBlock.of("attrs"));
+    
+    checkDirectCallCompiles(result);
+    assertThat(countMatches(result, "Number"), is(0));
+    assertThat(countMatches(result, "\\w+Value\\(\\)"), is(0));
+    assertThat(countMatches(result, "\\((Short|Long|Integer|Character|Boolean)\\)"), is(0));
+  }
+  
+  @Test
+  public void testGenerateDirectCallFor_elementWithCompositeHandler() {
+    final AnnotatedMethod element = getMethodWithUniqueId("composite handler");
+    
+    final CodeBlock result = callerGenerator.generateDirectCallFor(
+        element,
+        CodeBlock.of("target"),
+        CodeBlock.of("context"),
+        CodeBlock.of("attrs"));
+    
+    checkDirectCallCompiles(result);
+    assertThat(countMatches(result, AVAILABILITY_CHECK), is(3));
+    assertThat(countMatches(result, "attrs\\.get\\w+\\("), is(3));
+    assertThat(countMatches(result, "target\\.compositeHandler\\("), is(1));
+    
+    // Every availability is read before the first value
+    assertThat(
+        result.toString().lastIndexOf("isValueAvailable(attrs, ") < result.toString().indexOf("attrs.get"),
+        is(true));
+  }
+  
+  @Test
+  public void testGenerateDeferredCallFor_elementWithCompositeHandler() {
+    final AnnotatedMethod element = getMethodWithUniqueId("reactive composite handler");
+    
+    final CodeBlock result = callerGenerator.generateDeferredCallFor(
+        element,
+        CodeBlock.of("target"),
+        CodeBlock.of("context"),
+        CodeBlock.of("attrs"),
+        CodeBlock.of("result"));
+    
+    checkDirectCallCompiles(CodeBlock
+        .builder()
+        .addStatement("$T result", ClassName.get("io.reactivex", "Completable"))
+        .add(result)
+        .build());
+    
+    assertThat(countMatches(result, "result = target\\.reactiveCompositeHandler\\("), is(1));
+    assertThat(countMatches(result, "result = [\\w.]+\\.complete\\(\\)"), is(1));
+  }
+  
+  @Test
+  public void testGroupBySharedValue_groupsAdjacentEnumAndFlagHandlersByAttribute() {
+    final List<List<AnnotatedMethod>> groups = callerGenerator.groupBySharedValue(Arrays.asList(
+        getMethodWithUniqueId("flag case handler"),
+        getMethodWithUniqueId("other flag case handler"),
+        getMethodWithUniqueId("unconditional handler no default"),
+        getMethodWithUniqueId("enum case handler"),
+        getMethodWithUniqueId("reactive enum case handler"),
+        getMethodWithUniqueId("specific boolean handler"),
+        getMethodWithUniqueId("conditional handler")));
+    
+    final List<AnnotatedMethod> flagGroup = Arrays.asList(
+        getMethodWithUniqueId("flag case handler"),
+        getMethodWithUniqueId("other flag case handler"));
+    
+    final List<AnnotatedMethod> enumGroup = Arrays.asList(
+        getMethodWithUniqueId("enum case handler"),
+        getMethodWithUniqueId("reactive enum case handler"));
+    
+    assertThat(groups, is(Arrays.asList(flagGroup, enumGroup)));
+  }
+  
+  @Test
+  public void testGroupBySharedValue_handlersWhichAreNotAdjacentAreNotGrouped() {
+    final List<List<AnnotatedMethod>> groups = callerGenerator.groupBySharedValue(Arrays.asList(
+        getMethodWithUniqueId("flag case handler"),
+        getMethodWithUniqueId("enum case handler"),
+        getMethodWithUniqueId("other flag case handler"),
+        getMethodWithUniqueId("reactive enum case handler")));
+    
+    assertThat(groups.isEmpty(), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateSharedValueCallsFor_methodsWithDifferentAttributes() {
+    callerGenerator.generateSharedValueCallsFor(
+        Arrays.asList(getMethodWithUniqueId("enum case handler"), getMethodWithUniqueId("flag case handler")),
+        CodeBlock.of("target"),
+        CodeBlock.of("attrs"),
+        Arrays.<CodeBlock>asList(null, null),
+        Arrays.asList(CodeBlock.of(""), CodeBlock.of("")));
+  }
+  
+  @Test
+  public void testGenerateSharedValueCallsFor_enumHandlers() {
+    final CodeBlock result = callerGenerator.generateSharedValueCallsFor(
+        Arrays.asList(getMethodWithUniqueId("enum case handler"), getMethodWithUniqueId("reactive enum case handler")),
+        CodeBlock.of("target"),
+        CodeBlock.of("attrs"),
+        Arrays.asList(null, CodeBlock.of("result")),
+        Arrays.asList(CodeBlock.of(""), CodeBlock.of("")));
+    
+    checkDirectCallCompiles(CodeBlock
+        .builder()
+        .addStatement("$1T result = $1T.complete()", ClassName.get("io.reactivex", "Completable"))
+        .add(result)
+        .build());
+    
+    assertThat(countMatches(result, AVAILABILITY_CHECK), is(1));
+    assertThat(countMatches(result, "attrs\\.get\\w+\\("), is(1));
+    assertThat(countMatches(result, "switch \\(attrs\\.getInt\\(4, 0\\)\\)"), is(1));
+    assertThat(countMatches(result, "case \\d+:"), is(2));
+    assertThat(countMatches(result, "result = target\\.reactiveEnumCaseHandler\\("), is(1));
+  }
+  
+  @Test
+  public void testGenerateSharedValueCallsFor_flagHandlers() {
+    final CodeBlock result = callerGenerator.generateSharedValueCallsFor(
+        Arrays.asList(getMethodWithUniqueId("flag case handler"), getMethodWithUniqueId("other flag case handler")),
+        CodeBlock.of("target"),
+        CodeBlock.of("attrs"),
+        Arrays.<CodeBlock>asList(null, null),
+        Arrays.asList(CodeBlock.of(""), CodeBlock.of("")));
+    
+    checkDirectCallCompiles(result);
+    
+    assertThat(countMatches(result, AVAILABILITY_CHECK), is(1));
+    assertThat(countMatches(result, "attrs\\.get\\w+\\("), is(1));
+    assertThat(countMatches(result, "\\(attribute5Value & \\d+\\) > 0"), is(2));
+  }
+  
+  @Test
+  public void testGenerateSharedValueCallsFor_guardedHandlers() {
+    final CodeBlock result = callerGenerator.generateSharedValueCallsFor(
+        Arrays.asList(getMethodWithUniqueId("flag case handler"), getMethodWithUniqueId("other flag case handler")),
+        CodeBlock.of("target"),
+        CodeBlock.of("attrs"),
+        Arrays.<CodeBlock>asList(null, null),
+        Arrays.asList(CodeBlock.of(""), CodeBlock.of("")),
+        Arrays.asList(null, CodeBlock.of("target != null")));
+    
+    checkDirectCallCompiles(result);
+    
+    assertThat(countMatches(result, "attrs\\.get\\w+\\("), is(1));
+    assertThat(countMatches(result, "if \\(target != null\\)"), is(1));
+  }
+  
+    private AnnotatedMethod getMethodWithUniqueId(final String id) {
+    return AnnotatedMethod.create(avatarRule.getElementWithUniqueId(id));
+  }
+  
+  private void checkDirectCallCompiles(final CodeBlock directCall) {
     final TypeSpec wrapperTypeSpec = TypeSpec
         .classBuilder("Wrapper")
-        .addField(FieldSpec
-            .builder(
+        .addMethod(MethodSpec
+            .methodBuilder("dispatch")
+            .addParameter(
                 ClassName.get("com.matthewtamlin.spyglass.processor.codegeneration", "TestCallerGeneratorData"),
                 "target")
+            .addParameter(AndroidClassNames.CONTEXT, "context")
+            .addParameter(AndroidClassNames.TYPED_ARRAY, "attrs")
+            .addCode(directCall)
             .build())
-        .addField(FieldSpec.builder(AndroidClassNames.CONTEXT, "context").build())
-        .addField(FieldSpec.builder(AndroidClassNames.TYPED_ARRAY, "attrs").build())
-        .addField(FieldSpec
-            .builder(TypeName.OBJECT, "o")
-            .initializer("$L", anonymousTypeSpec)
-            .build())
-        .build();
-    
-    final JavaFile wrapperJavaFile = JavaFile
-        .builder("", wrapperTypeSpec)
         .build();
     
     final Set<JavaFile> filesToCompile = new HashSet<>();
-    
-    filesToCompile.add(wrapperJavaFile);
-    filesToCompile.add(CallerDef.SRC_FILE);
+    filesToCompile.add(JavaFile.builder("", wrapperTypeSpec).build());
+    filesToCompile.add(RuntimeHelpersDef.SRC_FILE);
+    filesToCompile.add(DefaultValueCacheDef.SRC_FILE);
     
     CompileChecker.checkCompiles(filesToCompile);
   }
+  
+  private int countMatches(final CodeBlock code, final String regex) {
+    final Matcher matcher = Pattern.compile(regex).matcher(code.toString());
+    
+    int count = 0;
+    
+    while (matcher.find()) {
+      count++;
+    }
+    
+    return count;
+  }
 }
\ No newline at end of file
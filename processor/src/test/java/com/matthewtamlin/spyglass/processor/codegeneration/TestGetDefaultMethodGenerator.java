@@ -21,7 +21,9 @@ import android.graphics.drawable.Drawable;
 import com.google.testing.compile.JavaFileObjects;
 import com.matthewtamlin.avatar.rules.AvatarRule;
 import com.matthewtamlin.spyglass.markers.annotations.defaults.*;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
 import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.*;
@@ -31,9 +33,11 @@ import org.junit.Test;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.STATIC;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -60,261 +64,253 @@ public class TestGetDefaultMethodGenerator {
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullSupplied() {
-    generator.generateFor(null);
+  public void testGenerateInlineFor_nullSupplied() {
+    generator.generateInlineFor(null, CodeBlock.of("context"));
   }
   
   @Test
-  public void testGenerateFor_defaultToBooleanAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToBooleanAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("boolean");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DefaultToBoolean.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.BOOLEAN.box());
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.BOOLEAN);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToBooleanResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToBooleanResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("boolean resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToBooleanResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.BOOLEAN.box());
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.BOOLEAN);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToColorResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToColorResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("color resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToColorResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.INT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToColorStatListResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToColorStatListResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("color state list resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToColorStateListResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(ColorStateList.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(ColorStateList.class));
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToDimensionAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToDimensionAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("dimension");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DefaultToDimension.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.FLOAT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToDimensionResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToDimensionResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("dimension resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToDimensionResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.FLOAT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToDrawableResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToDrawableResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("drawable resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToDrawableResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Drawable.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(Drawable.class));
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToEnumConstantAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToEnumConstantAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("enum constant");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToEnumConstant.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(PlaceholderEnum.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(PlaceholderEnum.class));
+    checkUsesEnumConstantTable(generatedValue);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToFloatAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToFloatAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("float");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DefaultToFloat.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.FLOAT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToFractionResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToFractionResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("fraction resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToFractionResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.FLOAT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToIntegerAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToIntegerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("integer");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DefaultToInteger.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.INT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToIntegerResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToIntegerResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("integer resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToIntegerResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.INT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToNullAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToNullAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("null");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DefaultToNull.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, TypeName.OBJECT);
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.OBJECT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToStringAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToStringAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("string");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, DefaultToString.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(String.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(String.class));
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToStringResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToStringResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("string resource");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToStringResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(String.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(String.class));
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToTextArrayResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToTextArrayResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("text array");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToTextArrayResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, TypeName.get(CharSequence[].class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.get(CharSequence[].class));
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_defaultToTextResourceAnnotationSupplied() {
+  public void testGenerateInlineFor_defaultToTextResourceAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("text");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         DefaultToTextResource.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final GeneratedValue generatedValue = generator.generateInlineFor(mirror, CodeBlock.of("context"));
     
-    assertThat(generatedMethod, is(notNullValue()));
-    checkMethodSignature(generatedMethod, ClassName.get(CharSequence.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(CharSequence.class));
+    checkCompiles(generatedValue);
   }
   
-  private void checkMethodSignature(final MethodSpec generatedMethod, final TypeName returnType) {
-    assertThat("Generated method must not be null.", generatedMethod, is(notNullValue()));
-    assertThat("Generated method has wrong return type.", generatedMethod.returnType, is(returnType));
-    assertThat("Generated method has wrong number of parameters.", generatedMethod.parameters.size(), is(0));
-    assertThat("Generated method must not be static.", generatedMethod.modifiers.contains(STATIC), is(false));
+  private void checkType(final GeneratedValue generatedValue, final TypeName type) {
+    assertThat("Generated value must not be null.", generatedValue, is(notNullValue()));
+    assertThat("Generated value has wrong type.", generatedValue.getType(), is(type));
   }
   
-  private void checkCompiles(final MethodSpec method) {
-    final TypeSpec wrapperTypeSpec = CallerDef
-        .getNewCallerSubclassPrototype("Wrapper", TypeName.OBJECT)
-        .addMethod(CallerDef
-            .getNewCallMethodPrototype()
-            .addCode(CodeBlock.of("return null;"))
-            .build())
-        .addMethod(CallerDef.getNewConstructorPrototype(TypeName.OBJECT).build())
-        .addMethod(method)
+  private void checkUsesEnumConstantTable(final GeneratedValue generatedValue) {
+    final FieldSpec expectedTable = EnumConstantTableGenerator.generateFor(ClassName.get(PlaceholderEnum.class));
+    
+    assertThat(generatedValue.getSupportingFields(), is(Collections.singleton(expectedTable)));
+    assertThat(generatedValue.getPreparation().toString().contains("values()"), is(false));
+    assertThat(generatedValue.getExpression().toString().contains("values()"), is(false));
+  }
+  
+  private void checkCompiles(final GeneratedValue generatedValue) {
+    final MethodSpec method = MethodSpec
+        .methodBuilder("getValue")
+        .addModifiers(STATIC)
+        .returns(generatedValue.getType())
+        .addParameter(AndroidClassNames.CONTEXT, "context", FINAL)
+        .addCode(generatedValue.getPreparation())
+        .addStatement("return $L", generatedValue.getExpression())
         .build();
     
-    final JavaFile wrapperJavaFile = JavaFile
-        .builder("", wrapperTypeSpec)
+    final TypeSpec wrapperTypeSpec = TypeSpec
+        .classBuilder("Wrapper")
+        .addFields(generatedValue.getSupportingFields())
+        .addMethod(method)
         .build();
     
     final Set<JavaFile> filesToCompile = new HashSet<>();
-    filesToCompile.add(wrapperJavaFile);
-    filesToCompile.add(CallerDef.SRC_FILE);
+    filesToCompile.add(JavaFile.builder("", wrapperTypeSpec).build());
+    filesToCompile.add(RuntimeHelpersDef.SRC_FILE);
+    filesToCompile.add(DefaultValueCacheDef.SRC_FILE);
     
     CompileChecker.checkCompiles(filesToCompile);
   }
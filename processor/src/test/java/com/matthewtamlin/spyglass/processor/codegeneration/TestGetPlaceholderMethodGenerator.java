@@ -19,7 +19,6 @@ package com.matthewtamlin.spyglass.processor.codegeneration;
 import com.google.testing.compile.JavaFileObjects;
 import com.matthewtamlin.avatar.rules.AvatarRule;
 import com.matthewtamlin.spyglass.processor.annotationretrievers.PlaceholderRetriever;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
 import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.*;
@@ -58,169 +57,142 @@ public class TestGetPlaceholderMethodGenerator {
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullParameter() {
-    generator.generateFor(null, 0);
-  }
-  
-  @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_negativeParameterIndex() {
-    final VariableElement parameter = avatarRule.getElementWithUniqueId("boolean");
-    final AnnotationMirror placeholder = PlaceholderRetriever.getAnnotation(parameter);
-    
-    generator.generateFor(placeholder, -1);
+  public void testGenerateInlineFor_nullSupplied() {
+    generator.generateInlineFor(null);
   }
   
   @Test
-  public void testGenerateFor_zeroParameterIndex() {
+  public void testGenerateInlineFor_parameterWithUseBoolean() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("boolean");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    generator.generateFor(useAnnotation, 0);
-  }
-  
-  @Test
-  public void testGenerateFor_positiveParameterIndex() {
-    final VariableElement parameter = avatarRule.getElementWithUniqueId("boolean");
-    final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    generator.generateFor(useAnnotation, 1);
+    checkType(generatedValue, TypeName.BOOLEAN);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseBoolean() {
-    final VariableElement parameter = avatarRule.getElementWithUniqueId("boolean");
-    final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
-    
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
-    
-    checkSignature(generatedMethod, ClassName.get(Boolean.class));
-    checkCompiles(generatedMethod);
-  }
-  
-  @Test
-  public void testGenerateFor_parameterWithUseByte() {
+  public void testGenerateInlineFor_parameterWithUseByte() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("byte");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.BYTE);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseChar() {
+  public void testGenerateInlineFor_parameterWithUseChar() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("char");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Character.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.CHAR);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseDouble() {
+  public void testGenerateInlineFor_parameterWithUseDouble() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("double");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.DOUBLE);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseFloat() {
+  public void testGenerateInlineFor_parameterWithUseFloat() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("float");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.FLOAT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseInt() {
+  public void testGenerateInlineFor_parameterWithUseInt() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("int");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.INT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseLong() {
+  public void testGenerateInlineFor_parameterWithUseLong() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("long");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.LONG);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseNull() {
+  public void testGenerateInlineFor_parameterWithUseNull() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("null");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Object.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(Object.class));
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseShort() {
+  public void testGenerateInlineFor_parameterWithUseShort() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("short");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(Number.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, TypeName.SHORT);
+    checkCompiles(generatedValue);
   }
   
   @Test
-  public void testGenerateFor_parameterWithUseString() {
+  public void testGenerateInlineFor_parameterWithUseString() {
     final VariableElement parameter = avatarRule.getElementWithUniqueId("string");
     final AnnotationMirror useAnnotation = PlaceholderRetriever.getAnnotation(parameter);
     
-    final MethodSpec generatedMethod = generator.generateFor(useAnnotation, 0);
+    final GeneratedValue generatedValue = generator.generateInlineFor(useAnnotation);
     
-    checkSignature(generatedMethod, ClassName.get(String.class));
-    checkCompiles(generatedMethod);
+    checkType(generatedValue, ClassName.get(String.class));
+    checkCompiles(generatedValue);
   }
   
-  private void checkSignature(final MethodSpec generatedMethod, final TypeName returnType) {
-    assertThat("Generated method must not be null.", generatedMethod, is(notNullValue()));
-    assertThat("Generated method has wrong return type.", generatedMethod.returnType, is(returnType));
-    assertThat("Generated method has wrong number of parameters.", generatedMethod.parameters.size(), is(0));
-    assertThat("Generated method must not be static.", generatedMethod.modifiers.contains(STATIC), is(false));
+  private void checkType(final GeneratedValue generatedValue, final TypeName type) {
+    assertThat("Generated value must not be null.", generatedValue, is(notNullValue()));
+    assertThat("Generated value has wrong type.", generatedValue.getType(), is(type));
   }
   
-  private void checkCompiles(final MethodSpec method) {
-    final TypeSpec wrapperTypeSpec = CallerDef
-        .getNewCallerSubclassPrototype("Wrapper", TypeName.OBJECT)
-        .addMethod(CallerDef
-            .getNewCallMethodPrototype()
-            .addCode(CodeBlock.of("return null;"))
-            .build())
-        .addMethod(CallerDef.getNewConstructorPrototype(TypeName.OBJECT).build())
-        .addMethod(method)
+  private void checkCompiles(final GeneratedValue generatedValue) {
+    final MethodSpec method = MethodSpec
+        .methodBuilder("getValue")
+        .addModifiers(STATIC)
+        .returns(generatedValue.getType())
+        .addCode(generatedValue.getPreparation())
+        .addStatement("return $L", generatedValue.getExpression())
         .build();
     
-    final JavaFile wrapperJavaFile = JavaFile
-        .builder("", wrapperTypeSpec)
+    final TypeSpec wrapperTypeSpec = TypeSpec
+        .classBuilder("Wrapper")
+        .addFields(generatedValue.getSupportingFields())
+        .addMethod(method)
         .build();
     
     final Set<JavaFile> filesToCompile = new HashSet<>();
-    filesToCompile.add(wrapperJavaFile);
-    filesToCompile.add(CallerDef.SRC_FILE);
+    filesToCompile.add(JavaFile.builder("", wrapperTypeSpec).build());
     
     CompileChecker.checkCompiles(filesToCompile);
   }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017-2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.core.CompanionNamer;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
+import com.squareup.javapoet.ClassName;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+@RunWith(JUnit4.class)
+public class TestHierarchyResolver {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(JavaFileObjects.forResource(getClass().getResource("TestHierarchyResolverData.java")))
+      .build();
+  
+  private HierarchyResolver hierarchyResolver;
+  
+  @Before
+  public void setup() {
+    final AnnotationMirrorHelper annotationMirrorHelper = new AnnotationMirrorHelper(avatarRule.getElementUtils());
+    
+    hierarchyResolver = new HierarchyResolver(
+        avatarRule.getElementUtils(),
+        new AttributeIndexer(annotationMirrorHelper),
+        annotationMirrorHelper);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullElementUtilSupplied() {
+    final AnnotationMirrorHelper annotationMirrorHelper = new AnnotationMirrorHelper(avatarRule.getElementUtils());
+    
+    new HierarchyResolver(null, new AttributeIndexer(annotationMirrorHelper), annotationMirrorHelper);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullAttributeIndexerSupplied() {
+    new HierarchyResolver(
+        avatarRule.getElementUtils(),
+        null,
+        new AnnotationMirrorHelper(avatarRule.getElementUtils()));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullAnnotationMirrorHelperSupplied() {
+    new HierarchyResolver(
+        avatarRule.getElementUtils(),
+        new AttributeIndexer(new AnnotationMirrorHelper(avatarRule.getElementUtils())),
+        null);
+  }
+  
+  @Test
+  public void testBase() {
+    final TypeElement base = avatarRule.getElementWithUniqueId("base");
+    
+    assertThat(hierarchyResolver.getSuperclassCompanionOf(base), is(nullValue()));
+    assertThat(hierarchyResolver.countHandlersAbove(base), is(0));
+  }
+  
+  @Test
+  public void testSubclass_unannotatedSuperclassesAreSkipped() {
+    final TypeElement subclass = avatarRule.getElementWithUniqueId("subclass");
+    
+    assertThat(hierarchyResolver.getSuperclassCompanionOf(subclass), is(getCompanionOf("base")));
+    assertThat(hierarchyResolver.countHandlersAbove(subclass), is(2));
+  }
+  
+  @Test
+  public void testAttrResources_isNotPartOfHierarchy() {
+    assertThat(hierarchyResolver.countHandlersAbove(avatarRule.getElementWithUniqueId("attr resources")), is(0));
+  }
+  
+  @Test
+  public void testSubclassOfAttrResources_attrResourcesLevelIsSkipped() {
+    final TypeElement subclass = avatarRule.getElementWithUniqueId("subclass of attr resources");
+    
+    assertThat(hierarchyResolver.getSuperclassCompanionOf(subclass), is(getCompanionOf("base")));
+    assertThat(hierarchyResolver.countHandlersAbove(subclass), is(2));
+  }
+  
+  @Test
+  public void testSubclassWithOtherStyleable_isNotPartOfHierarchy() {
+    final TypeElement base = avatarRule.getElementWithUniqueId("base");
+    final TypeElement subclass = avatarRule.getElementWithUniqueId("subclass with other styleable");
+    
+    assertThat(hierarchyResolver.getStyleableNameOf(subclass), is("Other"));
+    assertThat(hierarchyResolver.getNearestSuperclassWithHandlersOf(subclass), is(base));
+    assertThat(hierarchyResolver.getSuperclassCompanionOf(subclass), is(nullValue()));
+    assertThat(hierarchyResolver.countHandlersAbove(subclass), is(0));
+  }
+  
+  @Test
+  public void testSubclassWithoutStyleable_isNotPartOfHierarchy() {
+    final TypeElement subclass = avatarRule.getElementWithUniqueId("subclass without styleable");
+    
+    assertThat(hierarchyResolver.getStyleableNameOf(subclass), is(nullValue()));
+    assertThat(hierarchyResolver.getSuperclassCompanionOf(subclass), is(nullValue()));
+    assertThat(hierarchyResolver.countHandlersAbove(subclass), is(0));
+  }
+  
+  @Test
+  public void testSubclass_noHandlersAreOverridden() {
+    final TypeElement subclass = avatarRule.getElementWithUniqueId("subclass");
+    
+    assertThat(hierarchyResolver.getOverriddenHandlersOf(subclass), is(Collections.<Integer>emptyList()));
+  }
+  
+  @Test
+  public void testSubclassWithOverrides_onlyAnnotatedOverridesAreSkipped() {
+    final TypeElement subclass = avatarRule.getElementWithUniqueId("subclass with overrides");
+    
+    assertThat(hierarchyResolver.getSuperclassCompanionOf(subclass), is(getCompanionOf("subclass")));
+    assertThat(hierarchyResolver.countHandlersAbove(subclass), is(3));
+    assertThat(hierarchyResolver.getOverriddenHandlersOf(subclass), is(Collections.singletonList(1)));
+  }
+  
+  @Test
+  public void testGetHandlerSignaturesOf_base() {
+    final List<AnnotatedMethod> annotatedMethods = new ArrayList<>();
+    
+    for (final ExecutableElement method : ElementFilter.methodsIn(
+        avatarRule.getElementWithUniqueId("base").getEnclosedElements())) {
+      
+      if (AnnotatedMethod.create(method).hasAnyHandlerAnnotation()) {
+        annotatedMethods.add(AnnotatedMethod.create(method));
+      }
+    }
+    
+    assertThat(
+        hierarchyResolver.getHandlerSignaturesOf(annotatedMethods),
+        is("handlerA(boolean);handlerB(java.lang.String)"));
+  }
+  
+  private ClassName getCompanionOf(final String id) {
+    final TypeElement type = avatarRule.getElementWithUniqueId(id);
+    
+    return ClassName.get(
+        avatarRule.getElementUtils().getPackageOf(type).getQualifiedName().toString(),
+        CompanionNamer.getCompanionNameFor(type));
+  }
+}
\ No newline at end of file
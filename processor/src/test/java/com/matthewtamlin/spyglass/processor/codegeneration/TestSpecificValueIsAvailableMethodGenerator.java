@@ -21,7 +21,7 @@ import com.matthewtamlin.avatar.rules.AvatarRule;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificBooleanHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
-import com.matthewtamlin.spyglass.processor.definitions.CallerDef;
+import com.matthewtamlin.spyglass.processor.definitions.AndroidClassNames;
 import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
 import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import com.squareup.javapoet.*;
@@ -31,13 +31,14 @@ import org.junit.Test;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
-import java.util.HashSet;
-import java.util.Set;
+import java.lang.annotation.Annotation;
 
+import static javax.lang.model.element.Modifier.FINAL;
 import static javax.lang.model.element.Modifier.STATIC;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.hamcrest.core.IsNull.nullValue;
 
 public class TestSpecificValueIsAvailableMethodGenerator {
   @Rule
@@ -60,72 +61,90 @@ public class TestSpecificValueIsAvailableMethodGenerator {
   }
   
   @Test(expected = IllegalArgumentException.class)
-  public void testGenerateFor_nullSupplied() {
-    generator.generateFor(null);
+  public void testGenerateInlineFor_nullSupplied() {
+    generator.generateInlineFor(null, CodeBlock.of("attrs"));
   }
   
   @Test
-  public void testGenerateFor_specificBooleanHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_specificBooleanHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("specific boolean");
     
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(
         element,
         SpecificBooleanHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_specificEnumHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_specificEnumHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("specific enum");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, SpecificEnumHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
   @Test
-  public void testGenerateFor_specificFlagHandlerAnnotationSupplied() {
+  public void testGenerateInlineFor_specificFlagHandlerAnnotationSupplied() {
     final Element element = avatarRule.getElementWithUniqueId("specific flag");
     final AnnotationMirror mirror = AnnotationMirrorHelper.getAnnotationMirror(element, SpecificFlagHandler.class);
     
-    final MethodSpec generatedMethod = generator.generateFor(mirror);
+    final CodeBlock generatedCondition = generator.generateInlineFor(mirror, CodeBlock.of("attrs"));
     
-    checkMethodSignature(generatedMethod);
-    checkCompiles(generatedMethod);
+    checkCompiles(generatedCondition);
   }
   
-  private void checkMethodSignature(final MethodSpec generatedMethod) {
-    assertThat("Generated method must not be null.", generatedMethod, is(notNullValue()));
-    assertThat("Generated method has wrong return type.", generatedMethod.returnType, is(TypeName.BOOLEAN.box()));
-    assertThat("Generated method has wrong number of parameters.", generatedMethod.parameters.size(), is(0));
-    assertThat("Generated method must not be static.", generatedMethod.modifiers.contains(STATIC), is(false));
+  @Test
+  public void testCanShareValue() {
+    assertThat(generator.canShareValue(getMirror("specific boolean", SpecificBooleanHandler.class)), is(false));
+    assertThat(generator.canShareValue(getMirror("specific enum", SpecificEnumHandler.class)), is(true));
+    assertThat(generator.canShareValue(getMirror("specific flag", SpecificFlagHandler.class)), is(true));
   }
   
-  private void checkCompiles(final MethodSpec method) {
-    final TypeSpec wrapperTypeSpec = CallerDef
-        .getNewCallerSubclassPrototype("Wrapper", TypeName.OBJECT)
-        .addMethod(CallerDef
-            .getNewCallMethodPrototype()
-            .addCode(CodeBlock.of("return null;"))
-            .build())
-        .addMethod(CallerDef.getNewConstructorPrototype(TypeName.OBJECT).build())
-        .addMethod(method)
-        .build();
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateMatchFor_specificBooleanHandlerAnnotationSupplied() {
+    generator.generateMatchFor(getMirror("specific boolean", SpecificBooleanHandler.class), CodeBlock.of("value"));
+  }
+  
+  @Test
+  public void testGenerateMatchFor_specificFlagHandlerAnnotationSupplied() {
+    final CodeBlock match = generator.generateMatchFor(
+        getMirror("specific flag", SpecificFlagHandler.class),
+        CodeBlock.of("value"));
     
-    final JavaFile wrapperJavaFile = JavaFile
-        .builder("", wrapperTypeSpec)
+    assertThat(match.toString(), is("(value & 1) > 0"));
+  }
+  
+  @Test
+  public void testGetHandledOrdinal() {
+    assertThat(generator.getHandledOrdinal(getMirror("specific enum", SpecificEnumHandler.class)), is(0));
+    assertThat(generator.getHandledOrdinal(getMirror("specific flag", SpecificFlagHandler.class)), is(nullValue()));
+  }
+  
+  private AnnotationMirror getMirror(final String elementId, final Class<? extends Annotation> annotationClass) {
+    return AnnotationMirrorHelper.getAnnotationMirror(avatarRule.getElementWithUniqueId(elementId), annotationClass);
+  }
+  
+  private void checkCompiles(final CodeBlock condition) {
+    assertThat("Generated condition must not be null.", condition, is(notNullValue()));
+    
+    final MethodSpec method = MethodSpec
+        .methodBuilder("isAvailable")
+        .addModifiers(STATIC)
+        .returns(boolean.class)
+        .addParameter(AndroidClassNames.TYPED_ARRAY, "attrs", FINAL)
+        .addStatement("return $L", condition)
         .build();
     
-    final Set<JavaFile> filesToCompile = new HashSet<>();
-    filesToCompile.add(wrapperJavaFile);
-    filesToCompile.add(CallerDef.SRC_FILE);
+    final TypeSpec wrapperTypeSpec = TypeSpec
+        .classBuilder("Wrapper")
+        .addMethod(method)
+        .build();
     
-    CompileChecker.checkCompiles(filesToCompile);
+    CompileChecker.checkCompiles(JavaFile.builder("", wrapperTypeSpec).build());
   }
 }
\ No newline at end of file
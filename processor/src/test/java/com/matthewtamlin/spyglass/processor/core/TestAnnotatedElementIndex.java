@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+@RunWith(JUnit4.class)
+public class TestAnnotatedElementIndex {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(
+          JavaFileObjects.forResource(getClass().getResource("TestAnnotatedElementIndexData.java")))
+      .build();
+  
+  private AnnotatedElementIndex index;
+  
+  @Before
+  public void setup() {
+    final TypeElement topLevel = avatarRule.getElementWithUniqueId("top level");
+    
+    index = AnnotatedElementIndex.build(ImmutableList.of(topLevel));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testBuild_nullRootElements() {
+    AnnotatedElementIndex.build(null);
+  }
+  
+  @Test
+  public void testGetTargetTypes_includesNestedTypesWithAnnotatedMethods() {
+    final TypeElement topLevel = avatarRule.getElementWithUniqueId("top level");
+    final TypeElement nested = avatarRule.getElementWithUniqueId("nested");
+    
+    assertThat(index.getTargetTypes(), containsInAnyOrder(topLevel, nested));
+  }
+  
+  @Test
+  public void testGetMethods_onlyContainsAnnotatedMethods() {
+    final ExecutableElement handlerAndDefault = avatarRule.getElementWithUniqueId("handler and default");
+    final ExecutableElement secondHandler = avatarRule.getElementWithUniqueId("second handler");
+    final ExecutableElement nestedHandler = avatarRule.getElementWithUniqueId("nested handler");
+    
+    assertThat(getElements(index.getMethods()), containsInAnyOrder(handlerAndDefault, secondHandler, nestedHandler));
+  }
+  
+  @Test
+  public void testGetMethodsOf_topLevelType_declarationOrder() {
+    final TypeElement topLevel = avatarRule.getElementWithUniqueId("top level");
+    final ExecutableElement handlerAndDefault = avatarRule.getElementWithUniqueId("handler and default");
+    final ExecutableElement secondHandler = avatarRule.getElementWithUniqueId("second handler");
+    
+    // Methods must be in declaration order so that the generated code is reproducible
+    assertThat(getElements(index.getMethodsOf(topLevel)), contains(handlerAndDefault, secondHandler));
+  }
+  
+  @Test
+  public void testGetMethodsOf_typeWithoutAnnotatedMethods() {
+    final TypeElement unannotatedType = avatarRule.getElementWithUniqueId("unannotated type");
+    
+    assertThat(index.getMethodsOf(unannotatedType).isEmpty(), is(true));
+  }
+  
+  @Test
+  public void testGetMethod_methodWithHandlerAndDefault() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("handler and default");
+    
+    final AnnotatedMethod method = index.getMethod(element);
+    
+    assertThat(method.getElement(), is(element));
+    assertThat(method.hasUnconditionalHandlerAnnotation(), is(true));
+    assertThat(method.hasDefaultAnnotation(), is(true));
+  }
+  
+  @Test
+  public void testGetMethod_methodWithPlaceholderOnly() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("placeholder only");
+    
+    // Placeholders are only meaningful on handlers, so a method with nothing else is not indexed
+    assertThat(index.getMethod(element), is(nullValue()));
+  }
+  
+  @Test
+  public void testGetMethod_unannotatedMethod() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("unannotated");
+    
+    assertThat(index.getMethod(element), is(nullValue()));
+  }
+  
+  private static ImmutableList<ExecutableElement> getElements(final ImmutableList<AnnotatedMethod> methods) {
+    final ImmutableList.Builder<ExecutableElement> elements = ImmutableList.builder();
+    
+    for (final AnnotatedMethod method : methods) {
+      elements.add(method.getElement());
+    }
+    
+    return elements.build();
+  }
+}
\ No newline at end of file
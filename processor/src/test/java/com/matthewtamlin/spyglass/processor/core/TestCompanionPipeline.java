@@ -0,0 +1,360 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.spyglass.processor.definitions.AttributesSnapshotCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.CompanionDef;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.ReactiveRuntimeHelpersDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
+import com.squareup.javapoet.JavaFile;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+/**
+ * Checks that the pipeline sends all of its output through the supplied {@link ProcessingOutput}. A processor which
+ * records the output in memory must receive the same companions and errors that the main processor writes through the
+ * filer and messager, while nothing reaches the filer or messager itself. Also checks that the pipeline writes each
+ * companion of a large module before generating the next one, and reports the heap used while doing so.
+ */
+@RunWith(JUnit4.class)
+public class TestCompanionPipeline {
+  private static final int LARGE_MODULE_TARGET_COUNT = 5000;
+  
+  private final JavaFileObject validTargetA = JavaFileObjects.forResource(
+      getClass().getResource("TestMainProcessorDataA.java"));
+  
+  private final JavaFileObject validTargetC = JavaFileObjects.forResource(
+      getClass().getResource("TestMainProcessorDataC.java"));
+  
+  private final JavaFileObject invalidTarget = JavaFileObjects.forResource(
+      getClass().getResource("TestCompanionPipelineData.java"));
+  
+  @Test
+  public void testProcess_validTargets() throws IOException {
+    final Compilation processorCompilation = compileWithRuntime(new MainProcessor(), validTargetA, validTargetC);
+    
+    final RecordingOutputProcessor recordingProcessor = new RecordingOutputProcessor();
+    final Compilation recordingCompilation = compileWithRuntime(recordingProcessor, validTargetA, validTargetC);
+    
+    final Map<String, String> processorSources = new LinkedHashMap<>();
+    
+    for (final JavaFileObject file : processorCompilation.generatedSourceFiles()) {
+      final String path = file.toUri().getPath();
+      final String className = path.substring(path.indexOf("/SOURCE_OUTPUT/") + "/SOURCE_OUTPUT/".length());
+      
+      processorSources.put(className.replace(".java", "").replace('/', '.'), file.getCharContent(true).toString());
+    }
+    
+    assertThat(processorSources.size(), is(2));
+    assertThat(recordingProcessor.getSources(), is(processorSources));
+    assertThat(recordingProcessor.getErrors().isEmpty(), is(true));
+    assertThat(recordingCompilation.generatedSourceFiles().isEmpty(), is(true));
+  }
+  
+  @Test
+  public void testProcess_invalidTarget() {
+    final Compilation processorCompilation = compileWithRuntime(new MainProcessor(), invalidTarget);
+    
+    final RecordingOutputProcessor recordingProcessor = new RecordingOutputProcessor();
+    final Compilation recordingCompilation = compileWithRuntime(recordingProcessor, invalidTarget);
+    
+    final List<String> processorErrors = new ArrayList<>();
+    
+    for (final Diagnostic<? extends JavaFileObject> error : processorCompilation.errors()) {
+      processorErrors.add(error.getMessage(Locale.getDefault()));
+    }
+    
+    assertThat(processorErrors.isEmpty(), is(false));
+    assertThat(recordingProcessor.getErrors(), is(processorErrors));
+    assertThat(recordingProcessor.getSources().isEmpty(), is(true));
+    assertThat(recordingCompilation.errors().isEmpty(), is(true));
+  }
+  
+  @Test
+  public void testProcess_eachCompanionIsWrittenBeforeTheNextIsGenerated() {
+    final List<JavaFileObject> targets = new ArrayList<>();
+    
+    for (int i = 0; i < LARGE_MODULE_TARGET_COUNT; i++) {
+      targets.add(JavaFileObjects.forSourceString("com.example.large.Target" + i, createLargeModuleTarget(i)));
+    }
+    
+    final ProcessingMetrics metrics = new ProcessingMetrics();
+    final CountingOutputProcessor countingProcessor = new CountingOutputProcessor(metrics);
+    final HeapSample heapSample = HeapSample.start();
+    
+    final Compilation compilation = javac()
+        .withProcessors(countingProcessor)
+        .withOptions("-proc:only")
+        .compile(targets);
+    
+    heapSample.finish();
+    
+    assertThat(compilation.status(), is(Compilation.Status.SUCCESS));
+    assertThat(countingProcessor.getErrors().isEmpty(), is(true));
+    assertThat(countingProcessor.getWrittenCount(), is(LARGE_MODULE_TARGET_COUNT));
+    
+    final List<String> expectedPhases = new ArrayList<>();
+    
+    for (int i = 0; i < LARGE_MODULE_TARGET_COUNT; i++) {
+      expectedPhases.addAll(Arrays.asList("generation", "rendering", "writing"));
+    }
+    
+    // If each companion is written before the next is generated, the pipeline never holds more than one companion
+    assertThat(getPerTargetPhases(metrics), is(expectedPhases));
+    
+    // The heap depends on the JVM and collector, so it is reported to compare between runs rather than asserted
+    System.out.println(String.format(
+        "Processed %1$s targets: heap before %2$s KiB, peak %3$s KiB, retained %4$s KiB",
+        LARGE_MODULE_TARGET_COUNT,
+        heapSample.getUsedBefore() / 1024,
+        heapSample.getPeakUsed() / 1024,
+        heapSample.getRetained() / 1024));
+  }
+  
+  private static String createLargeModuleTarget(final int index) {
+    final StringBuilder source = new StringBuilder()
+        .append("package com.example.large;\n")
+        .append("import com.matthewtamlin.spyglass.markers.annotations.defaults.*;\n")
+        .append("import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.*;\n")
+        .append("public class Target").append(index).append(" {\n");
+    
+    for (int i = 0; i < 5; i++) {
+      source
+          .append("  @IntegerHandler(attributeId = ").append(i).append(")\n")
+          .append("  @DefaultToInteger(").append(i).append(")\n")
+          .append("  public void handler").append(i).append("(int value) {}\n");
+    }
+    
+    return source.append("}\n").toString();
+  }
+  
+  /**
+   * @return the names of the generation, rendering and writing phases recorded in the metrics, in the order they ran
+   */
+  private static List<String> getPerTargetPhases(final ProcessingMetrics metrics) {
+    final List<String> phases = new ArrayList<>();
+    final Matcher matcher = Pattern.compile("\"name\": \"(\\w+)\"").matcher(metrics.toChromeTrace());
+    
+    while (matcher.find()) {
+      final String phase = matcher.group(1);
+      
+      if (phase.equals("generation") || phase.equals("rendering") || phase.equals("writing")) {
+        phases.add(phase);
+      }
+    }
+    
+    return phases;
+  }
+  
+  private Compilation compileWithRuntime(final Processor processor, final JavaFileObject... targets) {
+    final List<JavaFileObject> sources = new ArrayList<>(Arrays.asList(targets));
+    
+    for (final JavaFile runtimeFile : Arrays.asList(
+        CompanionDef.SRC_FILE,
+        ReactiveRuntimeHelpersDef.SRC_FILE,
+        RuntimeHelpersDef.SRC_FILE,
+        DefaultValueCacheDef.SRC_FILE,
+        AttributesSnapshotCacheDef.SRC_FILE)) {
+      
+      sources.add(JavaFileObjects.forSourceString(
+          runtimeFile.packageName + "." + runtimeFile.typeSpec.name,
+          runtimeFile.toString()));
+    }
+    
+    return javac()
+        .withProcessors(processor)
+        .compile(sources);
+  }
+  
+  /**
+   * Runs the pipeline in a javac processing round and records its output in memory instead of using the filer and
+   * messager.
+   */
+  private static class RecordingOutputProcessor extends AbstractProcessor implements ProcessingOutput {
+    private final Map<String, String> sources = new LinkedHashMap<>();
+    
+    private final List<String> errors = new ArrayList<>();
+    
+    private final List<String> warnings = new ArrayList<>();
+    
+    private final ProcessingMetrics metrics;
+    
+    public RecordingOutputProcessor() {
+      this(null);
+    }
+    
+    public RecordingOutputProcessor(final ProcessingMetrics metrics) {
+      this.metrics = metrics;
+    }
+    
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+      return Collections.singleton("*");
+    }
+    
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+      return SourceVersion.latestSupported();
+    }
+    
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+      if (metrics != null) {
+        metrics.startRound();
+      }
+      
+      DaggerCoreComponent
+          .builder()
+          .setProcessingEnvironment(processingEnv)
+          .setProcessorOptions(ProcessorOptions.createDefault())
+          .build()
+          .getCompanionPipeline()
+          .process(roundEnv.getRootElements(), this, metrics);
+      
+      return false;
+    }
+    
+    @Override
+    public void reportError(final String message, final Element element) {
+      errors.add(message);
+    }
+    
+    @Override
+    public void reportWarning(final String message, final Element element) {
+      warnings.add(message);
+    }
+    
+    @Override
+    public void writeSource(final JavaFile file, final String source) {
+      sources.put(file.packageName + "." + file.typeSpec.name, source);
+    }
+    
+    public Map<String, String> getSources() {
+      return sources;
+    }
+    
+    public List<String> getErrors() {
+      return errors;
+    }
+    
+    public List<String> getWarnings() {
+      return warnings;
+    }
+  }
+  
+  /**
+   * Counts written companions without keeping them, so that the heap used by the run is the pipeline's own.
+   */
+  private static class CountingOutputProcessor extends RecordingOutputProcessor {
+    private int writtenCount = 0;
+    
+    public CountingOutputProcessor(final ProcessingMetrics metrics) {
+      super(metrics);
+    }
+    
+    @Override
+    public void writeSource(final JavaFile file, final String source) {
+      writtenCount++;
+    }
+    
+    public int getWrittenCount() {
+      return writtenCount;
+    }
+  }
+  
+  /**
+   * Samples the heap around a run. The peak is the sum of the peak usage of each heap pool since the sample started.
+   * The retained heap is the heap used after the run once a collection has been requested, less the heap used before.
+   */
+  private static class HeapSample {
+    private final long usedBefore;
+    
+    private long peakUsed;
+    
+    private long usedAfter;
+    
+    private HeapSample(final long usedBefore) {
+      this.usedBefore = usedBefore;
+    }
+    
+    public static HeapSample start() {
+      System.gc();
+      
+      for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          pool.resetPeakUsage();
+        }
+      }
+      
+      return new HeapSample(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+    
+    public void finish() {
+      for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          peakUsed += pool.getPeakUsage().getUsed();
+        }
+      }
+      
+      System.gc();
+      
+      usedAfter = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    public long getUsedBefore() {
+      return usedBefore;
+    }
+    
+    public long getPeakUsed() {
+      return peakUsed;
+    }
+    
+    public long getRetained() {
+      return usedAfter - usedBefore;
+    }
+  }
+}
\ No newline at end of file
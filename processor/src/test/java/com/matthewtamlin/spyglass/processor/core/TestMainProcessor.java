@@ -0,0 +1,820 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.spyglass.processor.definitions.AttributesSnapshotCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.CompanionDef;
+import com.matthewtamlin.spyglass.processor.definitions.DefaultValueCacheDef;
+import com.matthewtamlin.spyglass.processor.definitions.DirectCompanionDef;
+import com.matthewtamlin.spyglass.processor.definitions.ReactiveRuntimeHelpersDef;
+import com.matthewtamlin.spyglass.processor.definitions.RuntimeHelpersDef;
+import com.matthewtamlin.spyglass.processor.definitions.SpyglassBatchAwareDef;
+import com.matthewtamlin.spyglass.processor.framework.CompiledClassLoader;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import com.squareup.javapoet.JavaFile;
+import io.reactivex.Completable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+
+/**
+ * Tests that the processor meets the requirements of an isolating incremental annotation processor, and that its
+ * output is reproducible.
+ */
+public class TestMainProcessor {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  private static final String COMPANION_A = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataA_SpyglassCompanion";
+  
+  private static final String COMPANION_B = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataB_SpyglassCompanion";
+  
+  private static final String COMPANION_C = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataC_SpyglassCompanion";
+  
+  private static final String COMPANION_D = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataD_SpyglassCompanion";
+  
+  private static final String COMPANION_E = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataE_SpyglassCompanion";
+  
+  private static final String COMPANION_F = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataF_SpyglassCompanion";
+  
+  private static final String COMPANION_G = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataG_SpyglassCompanion";
+  
+  private static final String COMPANION_H = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataH_SpyglassCompanion";
+  
+  private static final String COMPANION_I = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataI_SpyglassCompanion";
+  
+  private static final String COMPANION_J = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataJ_SpyglassCompanion";
+  
+  private static final String TARGET_J = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataJ";
+  
+  private static final String COMPANION_K = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataK_SpyglassCompanion";
+  
+  private static final String TARGET_K = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataK";
+  
+  private static final String COMPANION_L = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataL_SpyglassCompanion";
+  
+  private static final String TARGET_L = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataL";
+  
+  private static final String COMPANION_N = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataN_SpyglassCompanion";
+  
+  private static final String TARGET_N = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataN";
+  
+  private static final String COMPANION_O = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataO_SpyglassCompanion";
+  
+  private static final String TARGET_O = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataO";
+  
+  private static final String COMPANION_P = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataP_SpyglassCompanion";
+  
+  private static final String TARGET_P = "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataP";
+  
+  private final JavaFileObject targetA = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataA.java"));
+  
+  private final JavaFileObject targetB = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataB.java"));
+  
+  private final JavaFileObject targetC = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataC.java"));
+  
+  private final JavaFileObject targetD = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataD.java"));
+  
+  private final JavaFileObject targetE = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataE.java"));
+  
+  private final JavaFileObject targetF = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataF.java"));
+  
+  private final JavaFileObject targetG = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataG.java"));
+  
+  private final JavaFileObject targetH = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataH.java"));
+  
+  private final JavaFileObject targetI = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataI.java"));
+  
+  private final JavaFileObject targetJ = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataJ.java"));
+  
+  private final JavaFileObject targetK = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataK.java"));
+  
+  private final JavaFileObject targetL = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataL.java"));
+  
+  private final JavaFileObject targetM = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataM.java"));
+  
+  private final JavaFileObject targetN = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataN.java"));
+  
+  private final JavaFileObject targetO = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataO.java"));
+  
+  private final JavaFileObject targetP = JavaFileObjects.forResource(getClass().getResource("TestMainProcessorDataP.java"));
+  
+  @Test
+  public void testProcess_runtimeClassesMissing() {
+    final Compilation compilation = javac()
+        .withProcessors(new MainProcessor())
+        .compile(targetA);
+    
+    assertThat(compilation).hadErrorContaining("Add the Spyglass runtime dependencies to the project.");
+  }
+  
+  @Test
+  public void testProcess_onlyCompanionsAreGenerated() {
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetA, targetB);
+    
+    assertThat(compilation).succeeded();
+    assertThat(compilation.generatedSourceFiles().size(), is(2));
+    assertThat(compilation).generatedSourceFile(COMPANION_A);
+    assertThat(compilation).generatedSourceFile(COMPANION_B);
+  }
+  
+  @Test
+  public void testProcess_targetIsOnlyOriginatingElementOfCompanion() {
+    final RecordingProcessor processor = new RecordingProcessor();
+    
+    assertThat(compileWithRuntime(processor, targetA, targetB)).succeeded();
+    
+    checkOriginatingElements(processor.getOriginatingElements(COMPANION_A), "TestMainProcessorDataA");
+    checkOriginatingElements(processor.getOriginatingElements(COMPANION_B), "TestMainProcessorDataB");
+  }
+  
+  @Test
+  public void testProcess_companionIsRegeneratedInIsolation() throws IOException {
+    final Compilation fullCompilation = compileWithRuntime(new MainProcessor(), targetA, targetB);
+    final Compilation isolatedCompilation = compileWithRuntime(new MainProcessor(), targetA);
+    
+    assertThat(isolatedCompilation).succeeded();
+    assertThat(isolatedCompilation.generatedSourceFiles().size(), is(1));
+    
+    assertThat(
+        getGeneratedSource(isolatedCompilation, COMPANION_A),
+        is(getGeneratedSource(fullCompilation, COMPANION_A)));
+  }
+  
+  @Test
+  public void testProcess_outputIsReproducible() throws IOException {
+    final Map<String, byte[]> firstOutput = getGeneratedFiles(
+        compileWithRuntime(new MainProcessor(), targetA, targetB, targetC));
+    
+    final Map<String, byte[]> secondOutput = getGeneratedFiles(
+        compileWithRuntime(new MainProcessor(), targetA, targetB, targetC));
+    
+    final Map<String, byte[]> reorderedOutput = getGeneratedFiles(
+        compileWithRuntime(new MainProcessor(), targetC, targetB, targetA));
+    
+    checkSameFiles(secondOutput, firstOutput);
+    checkSameFiles(reorderedOutput, firstOutput);
+  }
+  
+  @Test
+  public void testProcess_sparseOutputIsReproducible() throws IOException {
+    final List<String> options = ImmutableList.of("-A" + ProcessorOptions.DISPATCH_MODE + "=sparse");
+    
+    final Map<String, byte[]> firstOutput = getGeneratedFiles(
+        compileWithRuntime(new MainProcessor(), options, targetA, targetB, targetC));
+    
+    final Map<String, byte[]> secondOutput = getGeneratedFiles(
+        compileWithRuntime(new MainProcessor(), options, targetC, targetB, targetA));
+    
+    checkSameFiles(secondOutput, firstOutput);
+  }
+  
+  @Test
+  public void testProcess_handlersAreCalledInDeclarationOrder() throws IOException {
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetC);
+    final String source = getGeneratedSource(compilation, COMPANION_C);
+    
+    final List<String> handlers = Arrays.asList(
+        "handlerI",
+        "handlerH",
+        "handlerG",
+        "handlerF",
+        "handlerE",
+        "handlerD",
+        "handlerC2",
+        "handlerC1",
+        "handlerB",
+        "handlerA2",
+        "handlerA1");
+    
+    int previousIndex = -1;
+    
+    for (final String handler : handlers) {
+      final int index = source.indexOf("." + handler + "(");
+      
+      assertThat(handler + " is not called after the previous handler", index > previousIndex, is(true));
+      previousIndex = index;
+    }
+  }
+  
+  @Test
+  public void testProcess_subclassCompanionAppliesWholeHierarchy() throws IOException {
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetD, targetE);
+    
+    assertThat(compilation).succeeded();
+    
+    final String baseSource = getGeneratedSource(compilation, COMPANION_D);
+    final String subclassSource = getGeneratedSource(compilation, COMPANION_E);
+    
+    assertThat(baseSource, containsString("public static int dispatchHierarchy("));
+    assertThat(baseSource.contains("applyHierarchy("), is(false));
+    
+    assertThat(subclassSource, containsString("public static void applyHierarchy("));
+    
+    final int superclassDispatch = subclassSource.indexOf(
+        "TestMainProcessorDataD_SpyglassCompanion.dispatchHierarchy(target, context, attributes, overriddenHandlers);");
+    
+    final int subclassDispatch = subclassSource.indexOf(".subclassHandler(");
+    
+    assertThat("superclass handlers are not dispatched", superclassDispatch >= 0, is(true));
+    assertThat("superclass handlers are not dispatched first", superclassDispatch < subclassDispatch, is(true));
+    
+    // Inherited handlers are only generated in the companion of the class which declares them
+    assertThat(subclassSource.contains(".baseHandler("), is(false));
+    
+    // The subclass annotates its override of the second handler, so the superclass level skips that handler
+    assertThat(baseSource, containsString("if (overriddenHandlers == null || !overriddenHandlers[1])"));
+    assertThat(subclassSource, containsString("OVERRIDDEN_HANDLERS = new boolean[] {false, true, false, false};"));
+  }
+  
+  @Test
+  public void testProcess_hierarchyCompanionIsRegeneratedInIsolation() throws IOException {
+    final Compilation fullCompilation = compileWithRuntime(new MainProcessor(), targetD, targetE);
+    
+    // Annotations are not retained in class files, so a precompiled superclass looks like an unannotated source file
+    final String precompiledBaseSource = Resources
+        .toString(getClass().getResource("TestMainProcessorDataD.java"), StandardCharsets.UTF_8)
+        .replaceAll("(?m)^\\s*@(IntegerHandler|DefaultToInteger|Styleable)\\(.*\\)\\n", "");
+    
+    final Compilation isolatedCompilation = compileWithRuntime(
+        new MainProcessor(),
+        JavaFileObjects.forSourceString(
+            "com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataD",
+            precompiledBaseSource),
+        JavaFileObjects.forSourceString(COMPANION_D, getGeneratedSource(fullCompilation, COMPANION_D)),
+        targetE);
+    
+    assertThat(isolatedCompilation).succeeded();
+    assertThat(isolatedCompilation.generatedSourceFiles().size(), is(1));
+    
+    assertThat(
+        getGeneratedSource(isolatedCompilation, COMPANION_E),
+        is(getGeneratedSource(fullCompilation, COMPANION_E)));
+  }
+  
+  @Test
+  public void testProcess_reannotatedOverrideOfSuperclassHandlerIsCalledOnceBySubclassLevel() throws Exception {
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetJ);
+    
+    assertThat(compilation).succeeded();
+    
+    final ClassLoader classLoader = new CompiledClassLoader(compilation);
+    final Object target = classLoader.loadClass(TARGET_J).newInstance();
+    
+    applyWithFakeAttributes(classLoader.loadClass(COMPANION_J), "applyHierarchy", target);
+    
+    // The superclass level skips the handler, so the override only receives the attribute of the subclass level
+    assertThat(getEvents(target), is(Arrays.asList("subclassHandler 20", "override 30")));
+  }
+  
+  @Test
+  public void testProcess_overrideOfSuperclassHandlerIsCalledOnce() throws Exception {
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetL);
+    
+    assertThat(compilation).succeeded();
+    
+    final ClassLoader classLoader = new CompiledClassLoader(compilation);
+    final Object target = classLoader.loadClass(TARGET_L).newInstance();
+    
+    applyWithFakeAttributes(classLoader.loadClass(COMPANION_L), "applyHierarchy", target);
+    
+    assertThat(getEvents(target), is(Arrays.asList("override 10", "subclassHandler 20")));
+  }
+  
+  @Test
+  public void testProcess_hierarchyWithDifferentStyleablesIsRejected() {
+    // The superclass handlers index a different styleable, so they cannot read the typed array of the subclass
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetM);
+    
+    assertThat(compilation).failed();
+    assertThat(compilation).hadErrorCount(1);
+    
+    assertThat(compilation)
+        .hadErrorContaining(
+            "Class TestMainProcessorDataM declares styleable resource TestMainProcessorDataM, but superclass " +
+                "TestMainProcessorDataMBase declares TestMainProcessorDataMBase.")
+        .inFile(targetM)
+        .onLine(25);
+  }
+  
+  @Test
+  public void testProcess_attrResourceIdsAreObtainedWithGeneratedArray() throws IOException {
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetF);
+    
+    assertThat(compilation).succeeded();
+    
+    final String source = getGeneratedSource(compilation, COMPANION_F);
+    
+    assertThat(source, containsString("private static final int[] ATTRIBUTES = {0x7f010002, 0x7f010005};"));
+    assertThat(source, containsString(".hasValue(1)"));
+    assertThat(source, containsString(".getString(0)"));
+    assertThat(source.contains("styleableResource"), is(false));
+    assertThat(source.contains("dispatchHierarchy"), is(false));
+  }
+  
+  @Test
+  public void testProcess_batchAwareTargetReceivesBatchHooks() throws IOException {
+    for (final String generationMode : Arrays.asList("reactive", "direct")) {
+      final Compilation compilation = compileWithRuntime(
+          new MainProcessor(),
+          ImmutableList.of("-A" + ProcessorOptions.GENERATION_MODE + "=" + generationMode),
+          targetA,
+          targetG);
+      
+      assertThat(compilation).succeeded();
+      
+      final String source = getGeneratedSource(compilation, COMPANION_G);
+      
+      assertThat(source, containsString("target.onAttributeBatchStart();"));
+      assertThat(source, containsString("appliedMask |= 1 << 0;"));
+      assertThat(source, containsString("appliedMask |= 1 << 1;"));
+      assertThat(source, containsString("target.onAttributeBatchEnd(appliedMask);"));
+      
+      assertThat(getGeneratedSource(compilation, COMPANION_A).contains("appliedMask"), is(false));
+    }
+  }
+  
+  @Test
+  public void testProcess_reactiveBatchEndsWhenDeferredHandlersComplete() throws Exception {
+    final Compilation compilation = compileWithRuntime(
+        new MainProcessor(),
+        ImmutableList.of("-A" + ProcessorOptions.GENERATION_MODE + "=reactive"),
+        targetP);
+    
+    assertThat(compilation).succeeded();
+    
+    final ClassLoader classLoader = new CompiledClassLoader(compilation);
+    final Object target = classLoader.loadClass(TARGET_P).newInstance();
+    final Context context = new FakeContext();
+    
+    final Method dispatch = classLoader
+        .loadClass(COMPANION_P)
+        .getDeclaredMethod("dispatch", target.getClass(), Context.class, TypedArray.class);
+    
+    dispatch.setAccessible(true);
+    
+    final Completable completable = (Completable) dispatch.invoke(
+        null,
+        target,
+        context,
+        context.obtainStyledAttributes(null, new int[0], 0, 0));
+    
+    // The handler has been called but its completable has not been subscribed to, so the batch has not ended
+    assertThat(getEvents(target), is(Arrays.asList("start", "reactiveHandler 10")));
+    
+    completable.blockingAwait();
+    
+    assertThat(
+        getEvents(target),
+        is(Arrays.asList("start", "reactiveHandler 10", "reactiveHandler completed", "end 1")));
+  }
+  
+  @Test
+  public void testProcess_batchAwareTargetWithMoreHandlersThanTheMask() {
+    final StringBuilder source = new StringBuilder()
+        .append("package com.example;\n")
+        .append("import com.matthewtamlin.spyglass.core.SpyglassBatchAware;\n")
+        .append("import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;\n")
+        .append("public class Target implements SpyglassBatchAware {\n")
+        .append("  public void onAttributeBatchStart() {}\n")
+        .append("  public void onAttributeBatchEnd(int appliedMask) {}\n");
+    
+    for (int i = 0; i < 33; i++) {
+      source
+          .append("  @IntegerHandler(attributeId = ").append(i).append(")\n")
+          .append("  public void handler").append(i).append("(int value) {}\n");
+    }
+    
+    final Compilation compilation = compileWithRuntime(
+        new MainProcessor(),
+        JavaFileObjects.forSourceString("com.example.Target", source.append("}\n").toString()));
+    
+    assertThat(compilation).succeeded();
+    assertThat(compilation).hadWarningContaining(
+        "Class Target is batch aware and has 33 handlers in its hierarchy, but the applied mask only reports the " +
+            "first 32.");
+  }
+  
+  @Test
+  public void testProcess_hierarchyIsReportedAsOneBatch() throws Exception {
+    for (final String generationMode : Arrays.asList("reactive", "direct")) {
+      final Compilation compilation = compileWithRuntime(
+          new MainProcessor(),
+          ImmutableList.of("-A" + ProcessorOptions.GENERATION_MODE + "=" + generationMode),
+          targetK);
+      
+      assertThat(compilation).succeeded();
+      
+      final ClassLoader classLoader = new CompiledClassLoader(compilation);
+      final Class<?> companionClass = classLoader.loadClass(COMPANION_K);
+      final Class<?> targetClass = classLoader.loadClass(TARGET_K);
+      
+      // Handlers are numbered across the hierarchy, so the subclass handler is always bit 2
+      final Object hierarchyTarget = targetClass.newInstance();
+      applyWithFakeAttributes(companionClass, "applyHierarchy", hierarchyTarget);
+      
+      assertThat(getEvents(hierarchyTarget), is(Arrays.asList(
+          "start",
+          "firstBaseHandler 10",
+          "secondBaseHandler 20",
+          "subclassHandler 30",
+          "end 7")));
+      
+      final Object levelTarget = targetClass.newInstance();
+      applyWithFakeAttributes(companionClass, "apply", levelTarget);
+      
+      assertThat(getEvents(levelTarget), is(Arrays.asList("start", "subclassHandler 30", "end 4")));
+    }
+  }
+  
+  @Test
+  public void testProcess_compositeHandlersReadEveryAttributeThenInvokeOnce() throws IOException {
+    for (final String generationMode : Arrays.asList("reactive", "direct")) {
+      for (final String dispatchMode : Arrays.asList("dense", "sparse")) {
+        final Compilation compilation = compileWithRuntime(
+            new MainProcessor(),
+            ImmutableList.of(
+                "-A" + ProcessorOptions.GENERATION_MODE + "=" + generationMode,
+                "-A" + ProcessorOptions.DISPATCH_MODE + "=" + dispatchMode,
+                "-A" + ProcessorOptions.TWO_PHASE_DECODING + "=enabled"),
+            targetH);
+        
+        assertThat(compilation).succeeded();
+        
+        final String source = getGeneratedSource(compilation, COMPANION_H);
+        
+        assertThat(
+            source,
+            containsString("final boolean argument0Available = RuntimeHelpers.isValueAvailable(attributes, 2);"));
+        assertThat(
+            source,
+            containsString("final boolean argument1Available = RuntimeHelpers.isValueAvailable(attributes, 3);"));
+        assertThat(
+            source,
+            containsString("final boolean argument3Available = RuntimeHelpers.isValueAvailable(attributes, 4);"));
+        assertThat(source, containsString("target.handlerB(argument0, argument1, 1, argument3);"));
+        assertThat(source, containsString("target.handlerC(argument0);"));
+        assertThat(source, containsString("if (handler1Argument3Available) {"));
+      }
+    }
+  }
+  
+  @Test
+  public void testProcess_twoPhaseDecodingIsExcludedByDefault() throws IOException {
+    final Compilation compilation = compileWithRuntime(new MainProcessor(), targetA);
+    
+    assertThat(compilation).succeeded();
+    
+    final String source = getGeneratedSource(compilation, COMPANION_A);
+    
+    assertThat(source.contains("class Attributes"), is(false));
+    assertThat(source.contains(" decode("), is(false));
+    assertThat(source.contains(" decodeShared("), is(false));
+    assertThat(source.contains(" applyShared("), is(false));
+    assertThat(source.contains("AttributesSnapshotCache"), is(false));
+  }
+  
+  @Test
+  public void testProcess_twoPhaseDecodingIsGeneratedWhenEnabled() throws IOException {
+    final Compilation compilation = compileWithRuntime(
+        new MainProcessor(),
+        ImmutableList.of("-A" + ProcessorOptions.TWO_PHASE_DECODING + "=enabled"),
+        targetA);
+    
+    assertThat(compilation).succeeded();
+    
+    final String source = getGeneratedSource(compilation, COMPANION_A);
+    
+    assertThat(source.contains("class Attributes"), is(true));
+    assertThat(source.contains(" decode("), is(true));
+    assertThat(source.contains(" decodeShared("), is(true));
+    assertThat(source.contains(" applyShared("), is(true));
+  }
+  
+  @Test
+  public void testProcess_conditionalHandlersOfOneAttributeShareOneRead() throws IOException {
+    for (final String generationMode : Arrays.asList("reactive", "direct")) {
+      for (final String dispatchMode : Arrays.asList("dense", "sparse")) {
+        final Compilation compilation = compileWithRuntime(
+            new MainProcessor(),
+            ImmutableList.of(
+                "-A" + ProcessorOptions.GENERATION_MODE + "=" + generationMode,
+                "-A" + ProcessorOptions.DISPATCH_MODE + "=" + dispatchMode),
+            targetI);
+        
+        assertThat(compilation).succeeded();
+        
+        final String source = getGeneratedSource(compilation, COMPANION_I);
+        
+        // Each dispatch method and the attributes class read each attribute once
+        final int readCount = generationMode.equals("reactive") ? 3 : 2;
+        
+        assertThat(source.split("getInt\\(1, 0\\)", -1).length - 1, is(readCount));
+        assertThat(source.split("getInt\\(2, 0\\)", -1).length - 1, is(readCount));
+        assertThat(source, containsString("switch (attributes.getInt(1, 0)) {"));
+        assertThat(source, containsString("final int attribute2Value = attributes.getInt(2, 0);"));
+        assertThat(source, containsString("if ((attribute2Value & 12) > 0) {"));
+      }
+    }
+  }
+  
+  @Test
+  public void testProcess_handlersWhichShareAnAttributeButAreNotAdjacentAreCalledInDeclarationOrder() throws Exception {
+    for (final String generationMode : Arrays.asList("reactive", "direct")) {
+      final Compilation compilation = compileWithRuntime(
+          new MainProcessor(),
+          ImmutableList.of(
+              "-A" + ProcessorOptions.GENERATION_MODE + "=" + generationMode,
+              "-A" + ProcessorOptions.DISPATCH_MODE + "=dense"),
+          targetN);
+      
+      assertThat(compilation).succeeded();
+      
+      final ClassLoader classLoader = new CompiledClassLoader(compilation);
+      final Object target = classLoader.loadClass(TARGET_N).newInstance();
+      
+      applyWithFakeAttributes(classLoader.loadClass(COMPANION_N), "apply", target);
+      
+      assertThat(getEvents(target), is(Arrays.asList("flagHandlerA", "integerHandler 20", "flagHandlerB")));
+    }
+  }
+  
+  @Test
+  public void testProcess_methodWithOnlyPlaceholdersIsNotTreatedAsHandler() throws Exception {
+    for (final String generationMode : Arrays.asList("reactive", "direct")) {
+      for (final String dispatchMode : Arrays.asList("dense", "sparse")) {
+        final Compilation compilation = compileWithRuntime(
+            new MainProcessor(),
+            ImmutableList.of(
+                "-A" + ProcessorOptions.GENERATION_MODE + "=" + generationMode,
+                "-A" + ProcessorOptions.DISPATCH_MODE + "=" + dispatchMode),
+            targetO);
+        
+        assertThat(compilation).succeeded();
+        
+        final ClassLoader classLoader = new CompiledClassLoader(compilation);
+        final Object target = classLoader.loadClass(TARGET_O).newInstance();
+        
+        applyWithFakeAttributes(classLoader.loadClass(COMPANION_O), "apply", target);
+        
+        assertThat(getEvents(target), is(Arrays.asList("integerHandler 10")));
+      }
+    }
+  }
+  
+  @Test
+  public void testProcess_metricsReportIsWritten() throws IOException {
+    final File metricsFile = new File(temporaryFolder.getRoot(), "metrics/report.json");
+    final File traceFile = new File(temporaryFolder.getRoot(), "metrics/trace.json");
+    
+    final Compilation compilation = compileWithRuntime(
+        new MainProcessor(),
+        ImmutableList.of(
+            "-A" + ProcessorOptions.METRICS + "=" + metricsFile.getPath(),
+            "-A" + ProcessorOptions.METRICS_TRACE + "=" + traceFile.getPath()),
+        targetA,
+        targetC);
+    
+    assertThat(compilation).succeeded();
+    
+    final String report = new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.UTF_8);
+    final String trace = new String(Files.readAllBytes(traceFile.toPath()), StandardCharsets.UTF_8);
+    
+    final int companionSizeA = getGeneratedSource(compilation, COMPANION_A).getBytes(StandardCharsets.UTF_8).length;
+    final int companionSizeC = getGeneratedSource(compilation, COMPANION_C).getBytes(StandardCharsets.UTF_8).length;
+    
+    assertThat(report, containsString("{\"round\": 1, \"totalNanos\": "));
+    
+    assertThat(report, containsString(
+        "{\"name\": \"com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataA\", \"round\": 1, " +
+            "\"handlerCount\": 1, \"sourceBytes\": " + companionSizeA + "}"));
+    
+    assertThat(report, containsString(
+        "{\"name\": \"com.matthewtamlin.spyglass.processor.core.TestMainProcessorDataC\", \"round\": 1, " +
+            "\"handlerCount\": 11, \"sourceBytes\": " + companionSizeC + "}"));
+    
+    assertThat(trace, containsString("\"name\": \"writing\""));
+  }
+  
+  private Compilation compileWithRuntime(final MainProcessor processor, final JavaFileObject... targets) {
+    return compileWithRuntime(processor, ImmutableList.of(), targets);
+  }
+  
+  private Compilation compileWithRuntime(
+      final MainProcessor processor,
+      final List<String> options,
+      final JavaFileObject... targets) {
+    
+    // The runtime classes are provided by the runtime dependencies artifact, so they are compiled as inputs here
+    final List<JavaFileObject> sources = new ArrayList<>(Arrays.asList(targets));
+    
+    for (final JavaFile runtimeFile : Arrays.asList(
+        CompanionDef.SRC_FILE,
+        DirectCompanionDef.SRC_FILE,
+        ReactiveRuntimeHelpersDef.SRC_FILE,
+        RuntimeHelpersDef.SRC_FILE,
+        DefaultValueCacheDef.SRC_FILE,
+        AttributesSnapshotCacheDef.SRC_FILE,
+        SpyglassBatchAwareDef.SRC_FILE)) {
+      
+      sources.add(JavaFileObjects.forSourceString(
+          runtimeFile.packageName + "." + runtimeFile.typeSpec.name,
+          runtimeFile.toString()));
+    }
+    
+    return javac()
+        .withProcessors(processor)
+        .withOptions(options)
+        .compile(sources);
+  }
+  
+  /**
+   * Calls a static apply method of a compiled companion, with a context which supplies a value for every attribute.
+   */
+  private void applyWithFakeAttributes(final Class<?> companionClass, final String methodName, final Object target)
+      throws ReflectiveOperationException {
+    
+    for (final Method method : companionClass.getMethods()) {
+      if (method.getName().equals(methodName)) {
+        // The compiled classes are not in the runtime package of this class, even though the package names match
+        method.setAccessible(true);
+        method.invoke(null, target, new FakeContext(), new int[0], null, 0, 0);
+        return;
+      }
+    }
+    
+    throw new AssertionError("No method named " + methodName + " was generated");
+  }
+  
+  @SuppressWarnings("unchecked")
+  private List<String> getEvents(final Object target) throws ReflectiveOperationException {
+    // The field is declared by a package-private class
+    final Field events = target.getClass().getField("events");
+    events.setAccessible(true);
+    
+    return (List<String>) events.get(target);
+  }
+  
+  private String getGeneratedSource(final Compilation compilation, final String className) throws IOException {
+    final String path = "/SOURCE_OUTPUT/" + className.replace('.', '/') + ".java";
+    
+    for (final JavaFileObject file : compilation.generatedSourceFiles()) {
+      if (file.toUri().getPath().endsWith(path)) {
+        return file.getCharContent(true).toString();
+      }
+    }
+    
+    throw new AssertionError("No source file was generated for " + className);
+  }
+  
+  private Map<String, byte[]> getGeneratedFiles(final Compilation compilation) throws IOException {
+    assertThat(compilation).succeeded();
+    
+    final Map<String, byte[]> files = new HashMap<>();
+    
+    for (final JavaFileObject file : compilation.generatedFiles()) {
+      files.put(file.toUri().getPath(), ByteStreams.toByteArray(file.openInputStream()));
+    }
+    
+    return files;
+  }
+  
+  private void checkSameFiles(final Map<String, byte[]> actual, final Map<String, byte[]> expected) {
+    assertThat(actual.keySet(), is(expected.keySet()));
+    
+    for (final String path : expected.keySet()) {
+      assertThat(
+          path + " differs between compilations",
+          Arrays.equals(actual.get(path), expected.get(path)),
+          is(true));
+    }
+  }
+  
+  private void checkOriginatingElements(final List<Element> originatingElements, final String targetName) {
+    assertThat(originatingElements.size(), is(1));
+    assertThat(originatingElements.get(0) instanceof TypeElement, is(true));
+    assertThat(originatingElements.get(0).getSimpleName().toString(), is(targetName));
+  }
+  
+  /**
+   * A MainProcessor which records the originating elements of every source file it creates.
+   */
+  private static class RecordingProcessor extends MainProcessor {
+    private final Map<String, List<Element>> originatingElements = new HashMap<>();
+    
+    @Override
+    public synchronized void init(final ProcessingEnvironment processingEnvironment) {
+      final Filer recordingFiler = createProxy(Filer.class, processingEnvironment.getFiler(), (method, args) -> {
+        if (method.getName().equals("createSourceFile")) {
+          originatingElements.put(args[0].toString(), Arrays.asList((Element[]) args[1]));
+        }
+      });
+      
+      super.init(createProxy(ProcessingEnvironment.class, processingEnvironment, (method, args) -> {}, recordingFiler));
+    }
+    
+    public List<Element> getOriginatingElements(final String className) {
+      return originatingElements.getOrDefault(className, Collections.emptyList());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T createProxy(
+        final Class<T> type,
+        final T delegate,
+        final CallListener listener,
+        final Filer filer) {
+      
+      return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class[]{type}, (proxy, method, args) -> {
+        listener.onCall(method, args);
+        
+        if (filer != null && method.getName().equals("getFiler")) {
+          return filer;
+        }
+        
+        try {
+          return method.invoke(delegate, args);
+        } catch (final InvocationTargetException e) {
+          throw e.getCause();
+        }
+      });
+    }
+    
+    private static <T> T createProxy(final Class<T> type, final T delegate, final CallListener listener) {
+      return createProxy(type, delegate, listener, null);
+    }
+  }
+  
+  private interface CallListener {
+    void onCall(Method method, Object[] args);
+  }
+  
+  /**
+   * A context which supplies a typed array where every attribute has a value of ten times its index.
+   */
+  private static class FakeContext extends Context {
+    @Override
+    public TypedArray obtainStyledAttributes(
+        final AttributeSet set,
+        final int[] attrs,
+        final int defStyleAttr,
+        final int defStyleRes) {
+      
+      return new TypedArray() {
+        @Override
+        public boolean hasValue(final int index) {
+          return true;
+        }
+        
+        @Override
+        public int getInt(final int index, final int defaultValue) {
+          return index * 10;
+        }
+        
+        @Override
+        public void recycle() {}
+      };
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.processor.core.ProcessingMetrics.Phase;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.StringContains.containsString;
+
+@RunWith(JUnit4.class)
+public class TestProcessingMetrics {
+  private ProcessingMetrics metrics;
+  
+  @Before
+  public void setup() {
+    metrics = new ProcessingMetrics();
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecordPhase_nullPhase() {
+    metrics.recordPhase(null, 0, 0);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecordTarget_nullTargetName() {
+    metrics.recordTarget(null, 0, 0);
+  }
+  
+  @Test
+  public void testToJson_nothingRecorded() {
+    assertThat(metrics.toJson(), is("{\n  \"rounds\": [],\n  \"targets\": []\n}\n"));
+  }
+  
+  @Test
+  public void testToJson_phasesAreSummedPerRound() {
+    metrics.startRound();
+    metrics.recordPhase(Phase.SCANNING, 0, 10);
+    metrics.recordPhase(Phase.WRITING, 10, 30);
+    metrics.recordPhase(Phase.WRITING, 30, 35);
+    
+    metrics.startRound();
+    metrics.recordPhase(Phase.GENERATION, 35, 40);
+    
+    final String json = metrics.toJson();
+    
+    assertThat(json, containsString(
+        "{\"round\": 1, \"totalNanos\": 35, \"scanningNanos\": 10, \"basicValidationNanos\": 0, " +
+            "\"typeValidationNanos\": 0, \"generationNanos\": 0, \"renderingNanos\": 0, \"writingNanos\": 25}"));
+    
+    assertThat(json, containsString(
+        "{\"round\": 2, \"totalNanos\": 5, \"scanningNanos\": 0, \"basicValidationNanos\": 0, " +
+            "\"typeValidationNanos\": 0, \"generationNanos\": 5, \"renderingNanos\": 0, \"writingNanos\": 0}"));
+  }
+  
+  @Test
+  public void testToJson_targetsAreListed() {
+    metrics.startRound();
+    metrics.recordTarget("com.example.Target", 3, 1024);
+    metrics.recordTarget("com.example.Quote\"Target", 0, 512);
+    
+    final String json = metrics.toJson();
+    
+    assertThat(json, containsString(
+        "{\"name\": \"com.example.Target\", \"round\": 1, \"handlerCount\": 3, \"sourceBytes\": 1024}"));
+    
+    assertThat(json, containsString(
+        "{\"name\": \"com.example.Quote\\\"Target\", \"round\": 1, \"handlerCount\": 0, \"sourceBytes\": 512}"));
+  }
+  
+  @Test
+  public void testToChromeTrace_nothingRecorded() {
+    assertThat(metrics.toChromeTrace(), is("{\"traceEvents\": []}\n"));
+  }
+  
+  @Test
+  public void testToChromeTrace_oneCompleteEventPerPhase() {
+    metrics.startRound();
+    metrics.recordPhase(Phase.TYPE_VALIDATION, 0, 2_000_000);
+    
+    final String trace = metrics.toChromeTrace();
+    
+    assertThat(trace, containsString("\"name\": \"typeValidation\", \"cat\": \"spyglass\", \"ph\": \"X\""));
+    assertThat(trace, containsString("\"dur\": 2000, \"pid\": 1, \"tid\": 1, \"args\": {\"round\": 1}}"));
+  }
+}
\ No newline at end of file
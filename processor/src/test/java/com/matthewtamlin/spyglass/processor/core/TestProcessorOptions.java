@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.google.common.collect.ImmutableMap;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.DefaultValueCaching;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.DispatchMode;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.GenerationMode;
+import com.matthewtamlin.spyglass.processor.core.ProcessorOptions.TwoPhaseDecoding;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+@RunWith(JUnit4.class)
+public class TestProcessorOptions {
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateFrom_nullSupplied() {
+    ProcessorOptions.createFrom(null);
+  }
+  
+  @Test
+  public void testCreateFrom_noOptionsSupplied() {
+    final ProcessorOptions options = ProcessorOptions.createFrom(ImmutableMap.of());
+    
+    assertThat(options, is(ProcessorOptions.createDefault()));
+    assertThat(options.getGenerationMode(), is(GenerationMode.REACTIVE));
+    assertThat(options.getDispatchMode(), is(DispatchMode.DENSE));
+    assertThat(options.getDefaultValueCaching(), is(DefaultValueCaching.DISABLED));
+    assertThat(options.getTwoPhaseDecoding(), is(TwoPhaseDecoding.DISABLED));
+    assertThat(options.getMetricsPath(), is(nullValue()));
+    assertThat(options.getMetricsTracePath(), is(nullValue()));
+  }
+  
+  @Test
+  public void testCreateFrom_directGenerationModeSupplied() {
+    final ProcessorOptions options = ProcessorOptions.createFrom(ImmutableMap.of(
+        ProcessorOptions.GENERATION_MODE,
+        "direct"));
+    
+    assertThat(options.getGenerationMode(), is(GenerationMode.DIRECT));
+  }
+  
+  @Test
+  public void testCreateFrom_sparseDispatchModeSupplied() {
+    final ProcessorOptions options = ProcessorOptions.createFrom(ImmutableMap.of(
+        ProcessorOptions.DISPATCH_MODE,
+        "sparse"));
+    
+    assertThat(options.getDispatchMode(), is(DispatchMode.SPARSE));
+  }
+  
+  @Test
+  public void testCreateFrom_defaultValueCacheEnabled() {
+    final ProcessorOptions options = ProcessorOptions.createFrom(ImmutableMap.of(
+        ProcessorOptions.DEFAULT_VALUE_CACHE,
+        "enabled"));
+    
+    assertThat(options.getDefaultValueCaching(), is(DefaultValueCaching.ENABLED));
+  }
+  
+  @Test
+  public void testCreateFrom_twoPhaseDecodingEnabled() {
+    final ProcessorOptions options = ProcessorOptions.createFrom(ImmutableMap.of(
+        ProcessorOptions.TWO_PHASE_DECODING,
+        "enabled"));
+    
+    assertThat(options.getTwoPhaseDecoding(), is(TwoPhaseDecoding.ENABLED));
+  }
+  
+  @Test
+  public void testCreateFrom_metricsPathsSupplied() {
+    final ProcessorOptions options = ProcessorOptions.createFrom(ImmutableMap.of(
+        ProcessorOptions.METRICS,
+        "build/spyglass/metrics.json",
+        ProcessorOptions.METRICS_TRACE,
+        "build/spyglass/trace.json"));
+    
+    assertThat(options.getMetricsPath(), is("build/spyglass/metrics.json"));
+    assertThat(options.getMetricsTracePath(), is("build/spyglass/trace.json"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateFrom_unknownGenerationModeSupplied() {
+    ProcessorOptions.createFrom(ImmutableMap.of(ProcessorOptions.GENERATION_MODE, "unknown"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateFrom_unknownDispatchModeSupplied() {
+    ProcessorOptions.createFrom(ImmutableMap.of(ProcessorOptions.DISPATCH_MODE, "unknown"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateFrom_unknownDefaultValueCacheSupplied() {
+    ProcessorOptions.createFrom(ImmutableMap.of(ProcessorOptions.DEFAULT_VALUE_CACHE, "unknown"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateFrom_unknownTwoPhaseDecodingSupplied() {
+    ProcessorOptions.createFrom(ImmutableMap.of(ProcessorOptions.TWO_PHASE_DECODING, "unknown"));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateFrom_emptyMetricsPathSupplied() {
+    ProcessorOptions.createFrom(ImmutableMap.of(ProcessorOptions.METRICS, " "));
+  }
+}
\ No newline at end of file
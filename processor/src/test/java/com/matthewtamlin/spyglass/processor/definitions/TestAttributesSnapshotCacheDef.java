@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
+import com.matthewtamlin.spyglass.processor.framework.CompiledClassLoader;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class TestAttributesSnapshotCacheDef {
+  private static final int[] STYLEABLE_RESOURCE = new int[0];
+  
+  private Method get;
+  
+  private Method put;
+  
+  private Method getMissCount;
+  
+  @Before
+  public void setup() throws Exception {
+    final Compilation compilation = javac().compile(JavaFileObjects.forSourceString(
+        AttributesSnapshotCacheDef.getCacheAsClassName().toString(),
+        AttributesSnapshotCacheDef.SRC_FILE.toString()));
+    
+    assertThat(compilation).succeeded();
+    
+    final Class<?> cache = new CompiledClassLoader(compilation)
+        .loadClass(AttributesSnapshotCacheDef.getCacheAsClassName().toString());
+    
+    get = cache.getMethod(
+        AttributesSnapshotCacheDef.GET.name,
+        Context.class,
+        Class.class,
+        int[].class,
+        int.class,
+        int.class);
+    
+    put = cache.getMethod(
+        AttributesSnapshotCacheDef.PUT.name,
+        Context.class,
+        Class.class,
+        int[].class,
+        int.class,
+        int.class,
+        Object.class);
+    
+    getMissCount = cache.getMethod(AttributesSnapshotCacheDef.GET_MISS_COUNT.name);
+  }
+  
+  @Test
+  public void testGetJavaFile_checkFileCompiles() {
+    CompileChecker.checkCompiles(AttributesSnapshotCacheDef.SRC_FILE);
+  }
+  
+  @Test
+  public void testGetJavaFile_checkSnapshotIsReusedWithSameConfiguration() throws Exception {
+    final Context context = new ThemedContext(new FakeResources());
+    
+    put.invoke(null, context, Object.class, STYLEABLE_RESOURCE, 1, 2, "snapshot");
+    
+    assertThat(get.invoke(null, context, Object.class, STYLEABLE_RESOURCE, 1, 2), is((Object) "snapshot"));
+    assertThat(getMissCount.invoke(null), is((Object) 0));
+  }
+  
+  @Test
+  public void testGetJavaFile_checkConfigurationChangeRequiresNewDecode() throws Exception {
+    final FakeResources resources = new FakeResources();
+    final Context context = new ThemedContext(resources);
+    
+    put.invoke(null, context, Object.class, STYLEABLE_RESOURCE, 1, 2, "portrait snapshot");
+    
+    // The theme is unchanged, so only the configuration shows that the snapshot is stale
+    resources.configuration.orientation = 2;
+    
+    assertThat(get.invoke(null, context, Object.class, STYLEABLE_RESOURCE, 1, 2), is(nullValue()));
+    assertThat(getMissCount.invoke(null), is((Object) 1));
+    
+    put.invoke(null, context, Object.class, STYLEABLE_RESOURCE, 1, 2, "landscape snapshot");
+    
+    assertThat(get.invoke(null, context, Object.class, STYLEABLE_RESOURCE, 1, 2), is((Object) "landscape snapshot"));
+  }
+  
+  private static class FakeResources extends Resources {
+    private final Configuration configuration = new Configuration();
+    
+    @Override
+    public Configuration getConfiguration() {
+      return configuration;
+    }
+  }
+  
+  private static class ThemedContext extends Context {
+    private final Resources resources;
+    
+    private final Resources.Theme theme;
+    
+    public ThemedContext(final Resources resources) {
+      this.resources = resources;
+      this.theme = resources.new Theme();
+    }
+    
+    @Override
+    public Resources getResources() {
+      return resources;
+    }
+    
+    @Override
+    public Resources.Theme getTheme() {
+      return theme;
+    }
+  }
+}
\ No newline at end of file
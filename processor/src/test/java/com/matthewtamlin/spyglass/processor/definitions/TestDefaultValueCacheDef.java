@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
+import com.matthewtamlin.spyglass.processor.framework.CompiledClassLoader;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+
+public class TestDefaultValueCacheDef {
+  @Test
+  public void testGetJavaFile_checkFileCompiles() {
+    CompileChecker.checkCompiles(DefaultValueCacheDef.SRC_FILE);
+  }
+  
+  @Test
+  public void testGetJavaFile_checkValuesAreCachedPerTheme() throws Exception {
+    final Compilation compilation = javac().compile(JavaFileObjects.forSourceString(
+        DefaultValueCacheDef.getCacheAsClassName().toString(),
+        DefaultValueCacheDef.SRC_FILE.toString()));
+    
+    assertThat(compilation).succeeded();
+    
+    final Class<?> cache = new CompiledClassLoader(compilation)
+        .loadClass(DefaultValueCacheDef.getCacheAsClassName().toString());
+    
+    final Method get = cache.getMethod(DefaultValueCacheDef.GET.name, Context.class, long.class);
+    final Method put = cache.getMethod(DefaultValueCacheDef.PUT.name, Context.class, long.class, Object.class);
+    
+    // Both contexts share resources and a configuration, so only the theme distinguishes them
+    final Resources resources = new FakeResources();
+    final Context lightContext = new ThemedContext(resources);
+    final Context darkContext = new ThemedContext(resources);
+    
+    put.invoke(null, lightContext, 1L, "light");
+    
+    assertThat(get.invoke(null, lightContext, 1L), is((Object) "light"));
+    assertThat(get.invoke(null, darkContext, 1L), is(nullValue()));
+    
+    put.invoke(null, darkContext, 1L, "dark");
+    
+    assertThat(get.invoke(null, lightContext, 1L), is((Object) "light"));
+    assertThat(get.invoke(null, darkContext, 1L), is((Object) "dark"));
+  }
+  
+  private static class FakeResources extends Resources {
+    private final Configuration configuration = new Configuration();
+    
+    @Override
+    public Configuration getConfiguration() {
+      return configuration;
+    }
+  }
+  
+  private static class ThemedContext extends Context {
+    private final Resources resources;
+    
+    private final Resources.Theme theme;
+    
+    public ThemedContext(final Resources resources) {
+      this.resources = resources;
+      this.theme = resources.new Theme();
+    }
+    
+    @Override
+    public Resources getResources() {
+      return resources;
+    }
+    
+    @Override
+    public Resources.Theme getTheme() {
+      return theme;
+    }
+  }
+}
\ No newline at end of file
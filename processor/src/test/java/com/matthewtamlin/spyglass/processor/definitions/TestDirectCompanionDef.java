@@ -1,5 +1,5 @@
 /*
- * Copyright 2017-2018 Matthew David Tamlin
+ * Copyright 2018 Matthew David Tamlin
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,13 +18,10 @@ package com.matthewtamlin.spyglass.processor.definitions;
 
 import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.junit.runners.JUnit4;
 
-@RunWith(JUnit4.class)
-public class TestCallerDef {
+public class TestDirectCompanionDef {
   @Test
   public void testGetJavaFile_checkFileCompiles() {
-    CompileChecker.checkCompiles(CallerDef.SRC_FILE);
+    CompileChecker.checkCompiles(DirectCompanionDef.SRC_FILE);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import android.content.res.TypedArray;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
+import com.matthewtamlin.spyglass.processor.framework.CompiledClassLoader;
+import io.reactivex.Completable;
+import io.reactivex.disposables.Disposable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TestReactiveRuntimeHelpersDef {
+  private Method recycleAfter;
+  
+  private CountingTypedArray attributes;
+  
+  @Before
+  public void setup() throws Exception {
+    final Compilation compilation = javac().compile(JavaFileObjects.forSourceString(
+        ReactiveRuntimeHelpersDef.getHelpersAsClassName().toString(),
+        ReactiveRuntimeHelpersDef.SRC_FILE.toString()));
+    
+    assertThat(compilation).succeeded();
+    
+    recycleAfter = new CompiledClassLoader(compilation)
+        .loadClass(ReactiveRuntimeHelpersDef.getHelpersAsClassName().toString())
+        .getMethod(ReactiveRuntimeHelpersDef.RECYCLE_AFTER.name, TypedArray.class, Completable.class);
+    
+    attributes = new CountingTypedArray();
+  }
+  
+  @Test
+  public void testGetJavaFile_checkFileCompiles() {
+    CompileChecker.checkCompiles(ReactiveRuntimeHelpersDef.SRC_FILE);
+  }
+  
+  @Test
+  public void testRecycleAfter_dispatchCompletes() throws Exception {
+    recycleAfter(Completable.complete()).test().assertComplete();
+    
+    assertThat(attributes.recycleCount, is(1));
+  }
+  
+  @Test
+  public void testRecycleAfter_dispatchFails() throws Exception {
+    recycleAfter(Completable.error(new RuntimeException())).test().assertError(RuntimeException.class);
+    
+    assertThat(attributes.recycleCount, is(1));
+  }
+  
+  @Test
+  public void testRecycleAfter_dispatchIsDisposed() throws Exception {
+    final Disposable subscription = recycleAfter(Completable.never()).subscribe();
+    
+    assertThat(attributes.recycleCount, is(0));
+    
+    subscription.dispose();
+    
+    assertThat(attributes.recycleCount, is(1));
+  }
+  
+  private Completable recycleAfter(final Completable dispatch) throws Exception {
+    return (Completable) recycleAfter.invoke(null, attributes, dispatch);
+  }
+  
+  private static class CountingTypedArray extends TypedArray {
+    private int recycleCount;
+    
+    @Override
+    public void recycle() {
+      recycleCount++;
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.definitions;
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import com.google.common.collect.ImmutableSet;
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
+import com.matthewtamlin.spyglass.processor.framework.CompiledClassLoader;
+import com.squareup.javapoet.JavaFile;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TestRuntimeHelpersDef {
+  private Method getResourceDefault;
+  
+  @Before
+  public void setup() throws Exception {
+    final Compilation compilation = javac().compile(
+        toJavaFileObject(RuntimeHelpersDef.SRC_FILE),
+        toJavaFileObject(DefaultValueCacheDef.SRC_FILE));
+    
+    assertThat(compilation).succeeded();
+    
+    getResourceDefault = new CompiledClassLoader(compilation)
+        .loadClass(RuntimeHelpersDef.getHelpersAsClassName().toString())
+        .getMethod(RuntimeHelpersDef.GET_RESOURCE_DEFAULT.name, Context.class, int.class, int.class);
+  }
+  
+  @Test
+  public void testGetJavaFile_checkFileCompiles() {
+    CompileChecker.checkCompiles(ImmutableSet.of(RuntimeHelpersDef.SRC_FILE, DefaultValueCacheDef.SRC_FILE));
+  }
+  
+  @Test
+  public void testGetResourceDefault_resourceIsResolvedOncePerTheme() throws Exception {
+    final CountingResources resources = new CountingResources();
+    final Context context = new ThemedContext(resources);
+    
+    final Object first = getResourceDefault.invoke(null, context, RuntimeHelpersDef.INTEGER_RESOURCE_KIND, 7);
+    final Object second = getResourceDefault.invoke(null, context, RuntimeHelpersDef.INTEGER_RESOURCE_KIND, 7);
+    
+    assertThat(first, is((Object) 14));
+    assertThat(second, is((Object) 14));
+    assertThat(resources.lookupCount, is(1));
+  }
+  
+  @Test
+  public void testGetResourceDefault_kindsAreCachedSeparately() throws Exception {
+    final CountingResources resources = new CountingResources();
+    final Context context = new ThemedContext(resources);
+    
+    getResourceDefault.invoke(null, context, RuntimeHelpersDef.INTEGER_RESOURCE_KIND, 7);
+    
+    final Object string = getResourceDefault.invoke(null, context, RuntimeHelpersDef.STRING_RESOURCE_KIND, 7);
+    
+    assertThat(string, is((Object) "resource 7"));
+    assertThat(resources.lookupCount, is(2));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetResourceDefault_unknownKind() throws Throwable {
+    try {
+      getResourceDefault.invoke(null, new ThemedContext(new CountingResources()), 0, 7);
+    } catch (final InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+  
+  private static JavaFileObject toJavaFileObject(final JavaFile javaFile) {
+    return JavaFileObjects.forSourceString(javaFile.packageName + "." + javaFile.typeSpec.name, javaFile.toString());
+  }
+  
+  private static class CountingResources extends Resources {
+    private final Configuration configuration = new Configuration();
+    
+    private int lookupCount;
+    
+    @Override
+    public int getInteger(final int resId) {
+      lookupCount++;
+      return resId * 2;
+    }
+    
+    @Override
+    public String getString(final int resId) {
+      lookupCount++;
+      return "resource " + resId;
+    }
+    
+    @Override
+    public Configuration getConfiguration() {
+      return configuration;
+    }
+  }
+  
+  private static class ThemedContext extends Context {
+    private final Resources resources;
+    
+    private final Resources.Theme theme;
+    
+    public ThemedContext(final Resources resources) {
+      this.resources = resources;
+      this.theme = resources.new Theme();
+    }
+    
+    @Override
+    public Resources getResources() {
+      return resources;
+    }
+    
+    @Override
+    public Resources.Theme getTheme() {
+      return theme;
+    }
+  }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.definitions;
+
+import com.google.common.collect.ImmutableSet;
+import com.matthewtamlin.spyglass.processor.framework.CompileChecker;
+import com.squareup.javapoet.JavaFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class TestRuntimeSourceWriter {
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testMain_unknownArtifact() throws Exception {
+    RuntimeSourceWriter.main(new String[] {"unknown", temporaryFolder.getRoot().getPath()});
+  }
+  
+  @Test
+  public void testArtifactSources_allSourcesCompileTogether() {
+    final ImmutableSet.Builder<JavaFile> allSources = ImmutableSet.builder();
+    
+    for (final Set<JavaFile> sources : RuntimeSourceWriter.ARTIFACT_SOURCES.values()) {
+      allSources.addAll(sources);
+    }
+    
+    CompileChecker.checkCompiles(allSources.build());
+  }
+  
+  @Test
+  public void testMain_directArtifact() throws Exception {
+    checkWritesArtifact("direct");
+  }
+  
+  @Test
+  public void testMain_reactiveArtifact() throws Exception {
+    checkWritesArtifact("reactive");
+  }
+  
+  private void checkWritesArtifact(final String artifact) throws Exception {
+    final Path outputDirectory = temporaryFolder.newFolder().toPath();
+    
+    RuntimeSourceWriter.main(new String[] {artifact, outputDirectory.toString()});
+    
+    for (final JavaFile file : RuntimeSourceWriter.ARTIFACT_SOURCES.get(artifact)) {
+      final Path path = outputDirectory
+          .resolve(file.packageName.replace('.', '/'))
+          .resolve(file.typeSpec.name + ".java");
+      
+      final String source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      
+      assertThat(source.startsWith("/*\n * Copyright"), is(true));
+      assertThat(source.endsWith(file.toString()), is(true));
+    }
+  }
+}
\ No newline at end of file
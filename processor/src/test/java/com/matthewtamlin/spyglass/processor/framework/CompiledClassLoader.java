@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.framework;
+
+import com.google.common.io.ByteStreams;
+import com.google.testing.compile.Compilation;
+
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Loads the classes compiled by a compilation, so that generated classes can be run against the Android stubs.
+ */
+public class CompiledClassLoader extends ClassLoader {
+  private static final String CLASS_OUTPUT = "/CLASS_OUTPUT/";
+  
+  private final Map<String, byte[]> classFiles = new HashMap<>();
+  
+  public CompiledClassLoader(final Compilation compilation) throws IOException {
+    super(CompiledClassLoader.class.getClassLoader());
+    
+    for (final JavaFileObject file : compilation.generatedFiles()) {
+      final String path = file.toUri().getPath();
+      
+      if (file.getKind() == JavaFileObject.Kind.CLASS && path.contains(CLASS_OUTPUT)) {
+        final String className = path
+            .substring(path.indexOf(CLASS_OUTPUT) + CLASS_OUTPUT.length(), path.length() - ".class".length())
+            .replace('/', '.');
+        
+        classFiles.put(className, ByteStreams.toByteArray(file.openInputStream()));
+      }
+    }
+  }
+  
+  @Override
+  protected Class<?> findClass(final String name) throws ClassNotFoundException {
+    final byte[] classFile = classFiles.get(name);
+    
+    if (classFile == null) {
+      throw new ClassNotFoundException(name);
+    }
+    
+    return defineClass(name, classFile, 0, classFile.length);
+  }
+}
\ No newline at end of file
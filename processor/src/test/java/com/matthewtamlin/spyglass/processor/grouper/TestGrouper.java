@@ -26,12 +26,15 @@ import org.junit.runners.JUnit4;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
 import static com.matthewtamlin.spyglass.processor.grouper.Grouper.groupByEnclosingClass;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.core.Is.is;
 
 @RunWith(JUnit4.class)
@@ -172,4 +175,35 @@ public class TestGrouper {
         groupedByClass.get(new TypeElementWrapper(veryNestedClass)),
         is(veryNestedClassChildren));
   }
+  
+  @Test
+  public void testGroupByEnclosingClass_orderedSetSupplied() {
+    final Element primaryClassMethod = avatarRule.getElementWithUniqueId("primary class method");
+    final Element primaryClassField = avatarRule.getElementWithUniqueId("primary class field");
+    final Element innerClassMethod = avatarRule.getElementWithUniqueId("inner class method");
+    final Element innerClassField = avatarRule.getElementWithUniqueId("inner class field");
+    
+    final Set<Element> orderedChildren = new LinkedHashSet<>();
+    orderedChildren.add(innerClassField);
+    orderedChildren.add(primaryClassMethod);
+    orderedChildren.add(innerClassMethod);
+    orderedChildren.add(primaryClassField);
+    
+    final Map<TypeElementWrapper, Set<Element>> groupedByClass = groupByEnclosingClass(orderedChildren);
+    
+    assertThat(
+        "Wrong group order.",
+        new ArrayList<>(groupedByClass.keySet()),
+        contains(new TypeElementWrapper(innerClass), new TypeElementWrapper(primaryClass)));
+    
+    assertThat(
+        "Wrong children order for inner class.",
+        new ArrayList<>(groupedByClass.get(new TypeElementWrapper(innerClass))),
+        contains(innerClassField, innerClassMethod));
+    
+    assertThat(
+        "Wrong children order for primary class.",
+        new ArrayList<>(groupedByClass.get(new TypeElementWrapper(primaryClass))),
+        contains(primaryClassMethod, primaryClassField));
+  }
 }
\ No newline at end of file
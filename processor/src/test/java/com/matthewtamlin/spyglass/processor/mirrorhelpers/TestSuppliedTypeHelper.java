@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.mirrorhelpers;
+
+import com.google.testing.compile.JavaFileObjects;
+import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.codegeneration.GetDefaultMethodGenerator;
+import com.matthewtamlin.spyglass.processor.codegeneration.GetPlaceholderMethodGenerator;
+import com.matthewtamlin.spyglass.processor.codegeneration.GetValueMethodGenerator;
+import com.matthewtamlin.spyglass.processor.definitions.AnnotationRegistry;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.mockito.Mockito.mock;
+
+public class TestSuppliedTypeHelper {
+  @Rule
+  public final AvatarRule avatarRule = AvatarRule
+      .builder()
+      .withSourceFileObjects(
+          JavaFileObjects.forResource(getClass().getResource("TestSuppliedTypeHelperData.java")))
+      .build();
+  
+  private AnnotationMirrorHelper annotationMirrorHelper;
+  
+  private SuppliedTypeHelper helper;
+  
+  @Before
+  public void setup() {
+    annotationMirrorHelper = new AnnotationMirrorHelper(avatarRule.getElementUtils());
+    
+    helper = new SuppliedTypeHelper(avatarRule.getElementUtils(), avatarRule.getTypeUtils(), annotationMirrorHelper);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullElementUtil() {
+    new SuppliedTypeHelper(null, mock(Types.class), mock(AnnotationMirrorHelper.class));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullTypeUtil() {
+    new SuppliedTypeHelper(mock(Elements.class), null, mock(AnnotationMirrorHelper.class));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullAnnotationMirrorHelper() {
+    new SuppliedTypeHelper(mock(Elements.class), mock(Types.class), null);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetSuppliedType_nullSupplied() {
+    helper.getSuppliedType(null);
+  }
+  
+  @Test
+  public void testGetSuppliedType_matchesTypesOfGeneratedValues() {
+    final GetValueMethodGenerator valueGenerator = new GetValueMethodGenerator(annotationMirrorHelper);
+    final GetDefaultMethodGenerator defaultGenerator = new GetDefaultMethodGenerator(annotationMirrorHelper);
+    final GetPlaceholderMethodGenerator placeholderGenerator =
+        new GetPlaceholderMethodGenerator(annotationMirrorHelper);
+    
+    int checkedAnnotationCount = 0;
+    
+    for (final Element element : avatarRule.getElementsWithAnnotation(ElementId.class)) {
+      final AnnotatedMethod method = AnnotatedMethod.create((ExecutableElement) element);
+      
+      if (method.hasUnconditionalHandlerAnnotation()) {
+        final AnnotationMirror annotation = method.getUnconditionalHandlerAnnotation();
+        
+        checkSuppliedType(annotation, valueGenerator.generateInlineFor(annotation, CodeBlock.of("attrs")).getType());
+        checkedAnnotationCount++;
+      }
+      
+      if (method.hasDefaultAnnotation()) {
+        final AnnotationMirror annotation = method.getDefaultAnnotation();
+        
+        checkSuppliedType(
+            annotation,
+            defaultGenerator.generateInlineFor(annotation, CodeBlock.of("context")).getType());
+        checkedAnnotationCount++;
+      }
+      
+      for (int i = 0; i < method.getParameterTypes().size(); i++) {
+        final AnnotationMirror annotation = method.getPlaceholderAnnotation(i);
+        
+        checkSuppliedType(annotation, placeholderGenerator.generateInlineFor(annotation).getType());
+        checkedAnnotationCount++;
+      }
+    }
+    
+    final int annotationCount = AnnotationRegistry.UNCONDITIONAL_HANDLERS.size() +
+        AnnotationRegistry.DEFAULTS.size() +
+        AnnotationRegistry.PLACEHOLDERS.size();
+    
+    assertThat(checkedAnnotationCount, is(annotationCount));
+  }
+  
+  @Test
+  public void testGetSuppliedType_enumConstantHandler() {
+    final ExecutableElement element = avatarRule.getElementWithUniqueId("enum constant handler");
+    final AnnotationMirror annotation = AnnotatedMethod.create(element).getUnconditionalHandlerAnnotation();
+    
+    final TypeMirror suppliedType = helper.getSuppliedType(annotation);
+    final TypeMirror enumType = avatarRule
+        .getElementUtils()
+        .getTypeElement("com.matthewtamlin.spyglass.processor.mirrorhelpers.TestSuppliedTypeHelperData.SomeEnum")
+        .asType();
+    
+    assertThat(avatarRule.getTypeUtils().isSameType(suppliedType, enumType), is(true));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetTypeMirror_nullSupplied() {
+    helper.getTypeMirror(null);
+  }
+  
+  @Test
+  public void testGetTypeMirror_typeIsOnlyResolvedOnce() {
+    final TypeMirror first = helper.getTypeMirror(ClassName.get(String.class));
+    final TypeMirror second = helper.getTypeMirror(ClassName.get(String.class));
+    
+    assertThat(second, is(sameInstance(first)));
+  }
+  
+  @Test
+  public void testGetTypeMirror_arrayType() {
+    final TypeMirror typeMirror = helper.getTypeMirror(ArrayTypeName.of(CharSequence.class));
+    
+    assertThat(typeMirror.toString(), is("java.lang.CharSequence[]"));
+  }
+  
+  @Test
+  public void testGetTypeMirror_unknownType() {
+    assertThat(helper.getTypeMirror(ClassName.get("com.example", "DoesNotExist")), is(nullValue()));
+  }
+  
+  private void checkSuppliedType(final AnnotationMirror annotation, final TypeName generatedType) {
+    final TypeMirror expected = helper.getTypeMirror(generatedType);
+    final TypeMirror actual = helper.getSuppliedType(annotation);
+    
+    assertThat(annotation.toString(), avatarRule.getTypeUtils().isSameType(actual, expected), is(true));
+  }
+}
\ No newline at end of file
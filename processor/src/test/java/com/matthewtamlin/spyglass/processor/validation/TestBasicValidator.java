@@ -18,6 +18,10 @@ package com.matthewtamlin.spyglass.processor.validation;
 
 import com.google.testing.compile.JavaFileObjects;
 import com.matthewtamlin.avatar.rules.AvatarRule;
+import com.matthewtamlin.spyglass.processor.annotationretrievers.AnnotatedMethod;
+import com.matthewtamlin.spyglass.processor.codegeneration.AttributeIndexer;
+import com.matthewtamlin.spyglass.processor.codegeneration.HierarchyResolver;
+import com.matthewtamlin.spyglass.processor.mirrorhelpers.AnnotationMirrorHelper;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -27,10 +31,17 @@ import org.junit.runners.JUnit4;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.mockito.Mockito.mock;
 
 
 @RunWith(JUnit4.class)
@@ -43,13 +54,32 @@ public class TestBasicValidator {
   
   private Set<Element> elements;
   
+  private HierarchyResolver hierarchyResolver;
+  
   private BasicValidator validator;
   
   @Before
   public void setup() {
     elements = avatarRule.getElementsWithAnnotation(Target.class);
     
-    validator = new BasicValidator();
+    final AnnotationMirrorHelper annotationMirrorHelper = new AnnotationMirrorHelper(avatarRule.getElementUtils());
+    
+    hierarchyResolver = new HierarchyResolver(
+        avatarRule.getElementUtils(),
+        new AttributeIndexer(annotationMirrorHelper),
+        annotationMirrorHelper);
+    
+    validator = new BasicValidator(hierarchyResolver, annotationMirrorHelper);
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullHierarchyResolverSupplied() {
+    new BasicValidator(null, mock(AnnotationMirrorHelper.class));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testConstructor_nullAnnotationMirrorHelperSupplied() {
+    new BasicValidator(mock(HierarchyResolver.class), null);
   }
   
   @Test
@@ -61,9 +91,59 @@ public class TestBasicValidator {
       
       final Target targetAnnotation = element.getAnnotation(Target.class);
       final boolean shouldPassValidation = targetAnnotation.isValid();
-      final Result validationResult = validator.validate((ExecutableElement) element);
+      final Result validationResult = validator.validate(AnnotatedMethod.create((ExecutableElement) element));
       
       assertThat(validationResult.isSuccessful(), is(shouldPassValidation));
     }
   }
+  
+  @Test
+  public void testValidateType_duplicateOrdinalsOfOneAttribute() {
+    final Map<AnnotatedMethod, Result> failures = validator.validateType(
+        getMethodsOf("class with shared attribute"));
+    
+    final Set<String> failedMethodNames = new HashSet<>();
+    
+    for (final AnnotatedMethod method : failures.keySet()) {
+      failedMethodNames.add(method.getElement().getSimpleName().toString());
+    }
+    
+    assertThat(failedMethodNames, is((Set<String>) new HashSet<>(Arrays.asList("method67", "method68"))));
+  }
+  
+  @Test
+  public void testValidateType_sameStyleableAsSuperclass() {
+    assertThat(validator.validateType(getMethodsOf("class with same styleable as superclass")).isEmpty(), is(true));
+  }
+  
+  @Test
+  public void testValidateType_otherStyleableThanSuperclass() {
+    assertThat(validator.validateType(getMethodsOf("class with other styleable than superclass")).size(), is(1));
+  }
+  
+  @Test
+  public void testValidateType_styleableAndSuperclassWithoutStyleable() {
+    final Map<AnnotatedMethod, Result> failures = validator.validateType(
+        getMethodsOf("class with styleable and superclass without styleable"));
+    
+    assertThat(failures.size(), is(1));
+  }
+  
+  @Test
+  public void testValidateType_styleableAndAttrResourceIds() {
+    assertThat(validator.validateType(getMethodsOf("class with styleable and attr resources")).size(), is(1));
+  }
+  
+  private List<AnnotatedMethod> getMethodsOf(final String typeId) {
+    final TypeElement type = avatarRule.getElementWithUniqueId(typeId);
+    final List<AnnotatedMethod> methods = new ArrayList<>();
+    
+    for (final Element enclosedElement : type.getEnclosedElements()) {
+      if (enclosedElement.getKind() == ElementKind.METHOD) {
+        methods.add(AnnotatedMethod.create((ExecutableElement) enclosedElement));
+      }
+    }
+    
+    return methods;
+  }
 }
\ No newline at end of file
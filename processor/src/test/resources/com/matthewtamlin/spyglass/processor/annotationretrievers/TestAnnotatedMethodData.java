@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.annotationretrievers;
+
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificBooleanHandler;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToInteger;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToString;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseInt;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseString;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+
+public class TestAnnotatedMethodData {
+  @ElementId("no annotations")
+  public void noAnnotations(int i) {}
+  
+  @ElementId("unconditional handler with default and placeholders")
+  @IntegerHandler(attributeId = 1)
+  @DefaultToInteger(1)
+  public void unconditionalHandlerWithDefaultAndPlaceholders(@UseString("s") String s, long l, @UseInt(1) int i) {}
+  
+  @ElementId("conditional handler")
+  @SpecificBooleanHandler(attributeId = 1, handledBoolean = true)
+  public void conditionalHandler(@UseInt(1) int i) {}
+  
+  @ElementId("multiple handlers and defaults")
+  @IntegerHandler(attributeId = 1)
+  @StringHandler(attributeId = 2)
+  @SpecificBooleanHandler(attributeId = 3, handledBoolean = true)
+  @DefaultToInteger(1)
+  @DefaultToString("s")
+  public void multipleHandlersAndDefaults(@UseInt(1) @UseString("s") int i) {}  
+  @ElementId("composite handler")
+  @CompositeHandler
+  public void compositeHandler(
+      @IntegerHandler(attributeId = 1) @DefaultToInteger(1) int i,
+      @UseString("s") String s,
+      @StringHandler(attributeId = 2) String t) {}
+}
\ No newline at end of file
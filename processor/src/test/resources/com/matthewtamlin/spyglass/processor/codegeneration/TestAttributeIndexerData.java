@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseInt;
+import com.matthewtamlin.spyglass.markers.annotations.targets.AttrResourceIds;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.BooleanHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+
+public class TestAttributeIndexerData {
+  @ElementId("styleable indices")
+  public class StyleableIndices {
+    @ElementId("styleable index handler")
+    @BooleanHandler(attributeId = 4)
+    public void handler(boolean b) {}
+  }
+  
+  @ElementId("attr resources")
+  @AttrResourceIds
+  public class AttrResources {
+    @ElementId("attr resource handler A")
+    @BooleanHandler(attributeId = 0x7f010009)
+    public void handlerA(boolean b) {}
+    
+    @ElementId("attr resource handler B")
+    @StringHandler(attributeId = 0x7f010001)
+    public void handlerB(String s) {}
+    
+    @ElementId("attr resource handler C")
+    @SpecificFlagHandler(attributeId = 0x7f010009, handledFlags = 1)
+    public void handlerC() {}
+    
+    public void unannotatedMethod() {}
+  }  
+  @ElementId("attr resources with composite handler")
+  @AttrResourceIds
+  public class AttrResourcesWithCompositeHandler {
+    @ElementId("attr resource handler D")
+    @BooleanHandler(attributeId = 0x7f010009)
+    public void handlerD(boolean b) {}
+    
+    @ElementId("attr resource composite handler")
+    @CompositeHandler
+    public void compositeHandler(
+        @StringHandler(attributeId = 0x7f010005) String s,
+        @UseInt(1) int i,
+        @BooleanHandler(attributeId = 0x7f010001) boolean b) {}
+  }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.core.SpyglassBatchAware;
+
+public class TestBatchHookGeneratorData {
+  @ElementId("not batch aware")
+  public class NotBatchAware {}
+  
+  @ElementId("batch aware")
+  public class BatchAware implements SpyglassBatchAware {
+    @Override
+    public void onAttributeBatchStart() {}
+    
+    @Override
+    public void onAttributeBatchEnd(final int appliedMask) {}
+  }
+  
+  @ElementId("inherits batch aware")
+  public class InheritsBatchAware<T> extends BatchAware {}
+}
\ No newline at end of file
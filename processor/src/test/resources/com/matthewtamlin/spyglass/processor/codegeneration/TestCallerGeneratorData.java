@@ -16,11 +16,26 @@
 
 package com.matthewtamlin.spyglass.processor.codegeneration;
 
+import android.graphics.drawable.Drawable;
 import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificBooleanHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
 import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToBoolean;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToInteger;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToString;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToTextArrayResource;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseBoolean;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseChar;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseShort;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.BooleanHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.ColorHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.DimensionHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.DrawableHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.FractionHandler;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+import io.reactivex.Completable;
 
 public class TestCallerGeneratorData {
   @ElementId("no handler")
@@ -38,4 +53,82 @@ public class TestCallerGeneratorData {
   @ElementId("conditional handler")
   @SpecificEnumHandler(attributeId = 1, handledOrdinal = 1)
   public void conditionalHandler() {}
-}
\ No newline at end of file
+  
+  @ElementId("reactive handler")
+  @StringHandler(attributeId = 1)
+  public Completable reactiveHandler(String s) {
+    return Completable.complete();
+  }
+  
+  @ElementId("color handler with default")
+  @ColorHandler(attributeId = 1)
+  @DefaultToInteger(1)
+  public void colorHandler(int color) {}
+  
+  @ElementId("dimension handler")
+  @DimensionHandler(attributeId = 1)
+  public void dimensionHandler(float dimension) {}
+  
+  @ElementId("fraction handler")
+  @FractionHandler(attributeId = 1)
+  public void fractionHandler(float fraction) {}
+  
+  @ElementId("specific flag handler")
+  @SpecificFlagHandler(attributeId = 1, handledFlags = 2)
+  public void specificFlagHandler() {}
+  
+  @ElementId("specific boolean handler")
+  @SpecificBooleanHandler(attributeId = 1, handledBoolean = true)
+  public void specificBooleanHandler() {}
+  
+  @ElementId("drawable handler")
+  @DrawableHandler(attributeId = 1)
+  public void drawableHandler(Drawable drawable) {}
+  
+  @ElementId("text array default handler")
+  @StringHandler(attributeId = 1)
+  @DefaultToTextArrayResource(resId = 1)
+  public void textArrayDefaultHandler(Object value) {}
+  
+  @ElementId("primitive handler with placeholders")
+  @ColorHandler(attributeId = 1)
+  @DefaultToInteger(1)
+  public void primitiveHandlerWithPlaceholders(
+      @UseShort(2) short s,
+      long color,
+      @UseChar('c') char c,
+      @UseBoolean(true) boolean b) {}  
+  @ElementId("composite handler")
+  @CompositeHandler
+  public void compositeHandler(
+      @DimensionHandler(attributeId = 1) float dimension,
+      @UseShort(2) short s,
+      @ColorHandler(attributeId = 2) @DefaultToInteger(1) long color,
+      @StringHandler(attributeId = 3) @DefaultToString("default") CharSequence text) {}
+  
+  @ElementId("reactive composite handler")
+  @CompositeHandler
+  public Completable reactiveCompositeHandler(
+      @BooleanHandler(attributeId = 1) @DefaultToBoolean(true) boolean b,
+      @StringHandler(attributeId = 2) String s) {
+    return Completable.complete();
+  }
+  
+  @ElementId("enum case handler")
+  @SpecificEnumHandler(attributeId = 4, handledOrdinal = 0)
+  public void enumCaseHandler(@UseShort(4) short s) {}
+  
+  @ElementId("reactive enum case handler")
+  @SpecificEnumHandler(attributeId = 4, handledOrdinal = 3)
+  public Completable reactiveEnumCaseHandler() {
+    return Completable.complete();
+  }
+  
+  @ElementId("flag case handler")
+  @SpecificFlagHandler(attributeId = 5, handledFlags = 1)
+  public void flagCaseHandler() {}
+  
+  @ElementId("other flag case handler")
+  @SpecificFlagHandler(attributeId = 5, handledFlags = 6)
+  public void otherFlagCaseHandler() {}
+}
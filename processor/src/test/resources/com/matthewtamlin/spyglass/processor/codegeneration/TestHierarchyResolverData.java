@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.codegeneration;
+
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseBoolean;
+import com.matthewtamlin.spyglass.markers.annotations.targets.AttrResourceIds;
+import com.matthewtamlin.spyglass.markers.annotations.targets.Styleable;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.BooleanHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+
+public class TestHierarchyResolverData {
+  @ElementId("base")
+  @Styleable("Base")
+  public static class Base {
+    @BooleanHandler(attributeId = 1)
+    public void handlerA(boolean b) {}
+    
+    @StringHandler(attributeId = 2)
+    public void handlerB(String s) {}
+    
+    public void unannotatedMethod() {}
+    
+    // Placeholders alone do not make a handler, so this must not be counted
+    public void placeholderOnly(@UseBoolean(true) boolean b) {}
+  }
+  
+  public static class UnannotatedMiddle extends Base {}
+  
+  @ElementId("subclass")
+  @Styleable("Base")
+  public static class Subclass extends UnannotatedMiddle {
+    @BooleanHandler(attributeId = 3)
+    public void handlerC(boolean b) {}
+  }
+  
+  @ElementId("attr resources")
+  @AttrResourceIds
+  public static class AttrResources extends Base {
+    @BooleanHandler(attributeId = 0x7f010001)
+    public void handlerD(boolean b) {}
+  }
+  
+  @ElementId("subclass of attr resources")
+  @Styleable("Base")
+  public static class SubclassOfAttrResources extends AttrResources {
+    @BooleanHandler(attributeId = 4)
+    public void handlerE(boolean b) {}
+  }
+  
+  @ElementId("subclass with other styleable")
+  @Styleable("Other")
+  public static class SubclassWithOtherStyleable extends Base {
+    @BooleanHandler(attributeId = 1)
+    public void handlerF(boolean b) {}
+  }
+  
+  @ElementId("subclass with overrides")
+  @Styleable("Base")
+  public static class SubclassWithOverrides extends Subclass {
+    @Override
+    @StringHandler(attributeId = 5)
+    public void handlerB(String s) {}
+    
+    @Override
+    public void handlerC(boolean b) {}
+  }
+  
+  @ElementId("subclass without styleable")
+  public static class SubclassWithoutStyleable extends Base {
+    @BooleanHandler(attributeId = 1)
+    public void handlerG(boolean b) {}
+  }
+}
\ No newline at end of file
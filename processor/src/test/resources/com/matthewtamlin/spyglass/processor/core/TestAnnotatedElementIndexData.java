@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToInteger;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseInt;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+
+@ElementId("top level")
+public class TestAnnotatedElementIndexData {
+  @ElementId("handler and default")
+  @IntegerHandler(attributeId = 1)
+  @DefaultToInteger(1)
+  public void handlerAndDefault(int i) {}
+  
+  @ElementId("placeholder only")
+  public void placeholderOnly(@UseInt(1) int i) {}
+  
+  @ElementId("second handler")
+  @IntegerHandler(attributeId = 2)
+  public void secondHandler(int i) {}
+  
+  @ElementId("unannotated")
+  public void unannotated(int i) {}
+  
+  @ElementId("nested")
+  public class Nested {
+    @ElementId("nested handler")
+    @IntegerHandler(attributeId = 1)
+    public void nestedHandler(int i) {}
+  }
+  
+  @ElementId("unannotated type")
+  public class UnannotatedType {
+    public void unannotated(int i) {}
+  }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificBooleanHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToEnumConstant;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToFloat;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToInteger;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToNull;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToString;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseBoolean;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseInt;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseString;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.BooleanHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.EnumConstantHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.EnumOrdinalHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.FloatHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+
+public class TestMainProcessorDataC {
+  @StringHandler(attributeId = 9)
+  @DefaultToString("nine")
+  public void handlerI(String s, @UseInt(9) int i) {}
+  
+  @IntegerHandler(attributeId = 8)
+  @DefaultToInteger(8)
+  public void handlerH(int i) {}
+  
+  @FloatHandler(attributeId = 7)
+  @DefaultToFloat(7)
+  public void handlerG(@UseBoolean(true) boolean b, float f) {}
+  
+  @EnumConstantHandler(attributeId = 6, enumClass = Fruit.class)
+  @DefaultToEnumConstant(enumClass = Fruit.class, ordinal = 1)
+  public void handlerF(Fruit fruit) {}
+  
+  @StringHandler(attributeId = 5)
+  @DefaultToNull
+  public void handlerE(String s, @UseString("e") String placeholder) {}
+  
+  @SpecificFlagHandler(attributeId = 4, handledFlags = 3)
+  public void handlerD() {}
+  
+  @SpecificEnumHandler(attributeId = 3, handledOrdinal = 2)
+  public void handlerC2() {}
+  
+  @SpecificEnumHandler(attributeId = 3, handledOrdinal = 0)
+  public void handlerC1(@UseInt(3) int i) {}
+  
+  @EnumOrdinalHandler(attributeId = 2)
+  public void handlerB(int ordinal) {}
+  
+  @SpecificBooleanHandler(attributeId = 1, handledBoolean = false)
+  public void handlerA2() {}
+  
+  @BooleanHandler(attributeId = 1)
+  public void handlerA1(boolean b) {}
+  
+  public enum Fruit {
+    APPLE,
+    PEAR,
+    PLUM
+  }
+}
\ No newline at end of file
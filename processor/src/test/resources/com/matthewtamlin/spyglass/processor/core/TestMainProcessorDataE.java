@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.markers.annotations.targets.Styleable;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+
+@Styleable("TestMainProcessorDataD")
+public class TestMainProcessorDataE extends TestMainProcessorDataDChild {
+  @IntegerHandler(attributeId = 3)
+  public void subclassHandler(int i) {}
+  
+  @Override
+  @IntegerHandler(attributeId = 4)
+  public void overriddenHandler(int i) {}
+}
+
+class TestMainProcessorDataDChild extends TestMainProcessorDataD {}
\ No newline at end of file
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToInteger;
+import com.matthewtamlin.spyglass.markers.annotations.targets.AttrResourceIds;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+
+@AttrResourceIds
+public class TestMainProcessorDataF {
+  @IntegerHandler(attributeId = 0x7f010005)
+  @DefaultToInteger(1)
+  public void handlerA(int i) {}
+  
+  @StringHandler(attributeId = 0x7f010002)
+  public void handlerB(String s) {}
+  
+  @SpecificEnumHandler(attributeId = 0x7f010005, handledOrdinal = 2)
+  public void handlerC() {}
+}
\ No newline at end of file
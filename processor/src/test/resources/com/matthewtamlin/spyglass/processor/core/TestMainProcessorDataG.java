@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.core.SpyglassBatchAware;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToInteger;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+
+public class TestMainProcessorDataG implements SpyglassBatchAware {
+  @IntegerHandler(attributeId = 1)
+  @DefaultToInteger(1)
+  public void handlerA(int i) {}
+  
+  @StringHandler(attributeId = 2)
+  public void handlerB(String s) {}
+  
+  @Override
+  public void onAttributeBatchStart() {}
+  
+  @Override
+  public void onAttributeBatchEnd(final int appliedMask) {}
+}
\ No newline at end of file
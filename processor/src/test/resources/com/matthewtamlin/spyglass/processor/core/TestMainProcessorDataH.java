@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToDimension;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.DefaultToFloat;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseInt;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.DimensionHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.FloatHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+import com.matthewtamlin.spyglass.markers.units.DimensionUnit;
+
+public class TestMainProcessorDataH {
+  @StringHandler(attributeId = 1)
+  public void handlerA(String s) {}
+  
+  @CompositeHandler
+  public void handlerB(
+      @DimensionHandler(attributeId = 2) @DefaultToDimension(value = 4, unit = DimensionUnit.DP) float topLeft,
+      @DimensionHandler(attributeId = 3) @DefaultToDimension(value = 8, unit = DimensionUnit.DP) float topRight,
+      @UseInt(1) int placeholder,
+      @IntegerHandler(attributeId = 4) long bottom) {}
+  
+  @CompositeHandler
+  public void handlerC(@FloatHandler(attributeId = 5) @DefaultToFloat(1) double radius) {}
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.UseInt;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+import io.reactivex.Completable;
+
+public class TestMainProcessorDataI {
+  @SpecificEnumHandler(attributeId = 1, handledOrdinal = 0)
+  public void handlerA0() {}
+  
+  @SpecificEnumHandler(attributeId = 1, handledOrdinal = 1)
+  public void handlerA1(@UseInt(1) int i) {}
+  
+  @SpecificEnumHandler(attributeId = 1, handledOrdinal = 2)
+  public Completable handlerA2() {
+    return Completable.complete();
+  }
+  
+  @SpecificEnumHandler(attributeId = 1, handledOrdinal = 3)
+  public void handlerA3() {}
+  
+  @SpecificEnumHandler(attributeId = 1, handledOrdinal = 4)
+  public void handlerA4() {}
+  
+  @StringHandler(attributeId = 3)
+  public void handlerB(String s) {}
+  
+  @SpecificFlagHandler(attributeId = 2, handledFlags = 1)
+  public void handlerC1() {}
+  
+  @SpecificFlagHandler(attributeId = 2, handledFlags = 2)
+  public Completable handlerC2() {
+    return Completable.complete();
+  }
+  
+  @SpecificFlagHandler(attributeId = 2, handledFlags = 12)
+  public void handlerC3() {}
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.core.SpyglassBatchAware;
+import com.matthewtamlin.spyglass.markers.annotations.targets.Styleable;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Styleable("TestMainProcessorDataK")
+public class TestMainProcessorDataK extends TestMainProcessorDataKBase {
+  @IntegerHandler(attributeId = 3)
+  public void subclassHandler(int i) {
+    events.add("subclassHandler " + i);
+  }
+}
+
+@Styleable("TestMainProcessorDataK")
+class TestMainProcessorDataKBase implements SpyglassBatchAware {
+  public final List<String> events = new ArrayList<>();
+  
+  @IntegerHandler(attributeId = 1)
+  public void firstBaseHandler(int i) {
+    events.add("firstBaseHandler " + i);
+  }
+  
+  @IntegerHandler(attributeId = 2)
+  public void secondBaseHandler(int i) {
+    events.add("secondBaseHandler " + i);
+  }
+  
+  @Override
+  public void onAttributeBatchStart() {
+    events.add("start");
+  }
+  
+  @Override
+  public void onAttributeBatchEnd(final int appliedMask) {
+    events.add("end " + appliedMask);
+  }
+}
\ No newline at end of file
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.core;
+
+import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.IntegerHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestMainProcessorDataN {
+  public final List<String> events = new ArrayList<>();
+  
+  @SpecificFlagHandler(attributeId = 1, handledFlags = 2)
+  public void flagHandlerA() {
+    events.add("flagHandlerA");
+  }
+  
+  @IntegerHandler(attributeId = 2)
+  public void integerHandler(int i) {
+    events.add("integerHandler " + i);
+  }
+  
+  @SpecificFlagHandler(attributeId = 1, handledFlags = 8)
+  public void flagHandlerB() {
+    events.add("flagHandlerB");
+  }
+}
\ No newline at end of file
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Matthew David Tamlin
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.matthewtamlin.spyglass.processor.mirrorhelpers;
+
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.markers.annotations.defaults.*;
+import com.matthewtamlin.spyglass.markers.annotations.placeholders.*;
+import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.*;
+
+import static com.matthewtamlin.spyglass.markers.units.DimensionUnit.DP;
+
+public class TestSuppliedTypeHelperData {
+  @ElementId("boolean handler")
+  @BooleanHandler(attributeId = 1)
+  public void booleanHandler() {}
+  
+  @ElementId("color handler")
+  @ColorHandler(attributeId = 1)
+  public void colorHandler() {}
+  
+  @ElementId("color state list handler")
+  @ColorStateListHandler(attributeId = 1)
+  public void colorStateListHandler() {}
+  
+  @ElementId("dimension handler")
+  @DimensionHandler(attributeId = 1)
+  public void dimensionHandler() {}
+  
+  @ElementId("drawable handler")
+  @DrawableHandler(attributeId = 1)
+  public void drawableHandler() {}
+  
+  @ElementId("enum constant handler")
+  @EnumConstantHandler(attributeId = 1, enumClass = SomeEnum.class)
+  public void enumConstantHandler() {}
+  
+  @ElementId("enum ordinal handler")
+  @EnumOrdinalHandler(attributeId = 1)
+  public void enumOrdinalHandler() {}
+  
+  @ElementId("float handler")
+  @FloatHandler(attributeId = 1)
+  public void floatHandler() {}
+  
+  @ElementId("fraction handler")
+  @FractionHandler(attributeId = 1)
+  public void fractionHandler() {}
+  
+  @ElementId("integer handler")
+  @IntegerHandler(attributeId = 1)
+  public void integerHandler() {}
+  
+  @ElementId("string handler")
+  @StringHandler(attributeId = 1)
+  public void stringHandler() {}
+  
+  @ElementId("boolean default")
+  @DefaultToBoolean(true)
+  public void booleanDefault() {}
+  
+  @ElementId("boolean resource default")
+  @DefaultToBooleanResource(resId = 1)
+  public void booleanResourceDefault() {}
+  
+  @ElementId("color resource default")
+  @DefaultToColorResource(resId = 1)
+  public void colorResourceDefault() {}
+  
+  @ElementId("color state list resource default")
+  @DefaultToColorStateListResource(resId = 1)
+  public void colorStateListResourceDefault() {}
+  
+  @ElementId("dimension default")
+  @DefaultToDimension(value = 1, unit = DP)
+  public void dimensionDefault() {}
+  
+  @ElementId("dimension resource default")
+  @DefaultToDimensionResource(resId = 1)
+  public void dimensionResourceDefault() {}
+  
+  @ElementId("drawable resource default")
+  @DefaultToDrawableResource(resId = 1)
+  public void drawableResourceDefault() {}
+  
+  @ElementId("enum constant default")
+  @DefaultToEnumConstant(enumClass = SomeEnum.class, ordinal = 0)
+  public void enumConstantDefault() {}
+  
+  @ElementId("float default")
+  @DefaultToFloat(1F)
+  public void floatDefault() {}
+  
+  @ElementId("fraction resource default")
+  @DefaultToFractionResource(resId = 1)
+  public void fractionResourceDefault() {}
+  
+  @ElementId("integer default")
+  @DefaultToInteger(1)
+  public void integerDefault() {}
+  
+  @ElementId("integer resource default")
+  @DefaultToIntegerResource(resId = 1)
+  public void integerResourceDefault() {}
+  
+  @ElementId("null default")
+  @DefaultToNull
+  public void nullDefault() {}
+  
+  @ElementId("string default")
+  @DefaultToString("string")
+  public void stringDefault() {}
+  
+  @ElementId("string resource default")
+  @DefaultToStringResource(resId = 1)
+  public void stringResourceDefault() {}
+  
+  @ElementId("text array resource default")
+  @DefaultToTextArrayResource(resId = 1)
+  public void textArrayResourceDefault() {}
+  
+  @ElementId("text resource default")
+  @DefaultToTextResource(resId = 1)
+  public void textResourceDefault() {}
+  
+  @ElementId("placeholders")
+  public void placeholders(
+      @UseBoolean(true) boolean b,
+      @UseByte(1) byte by,
+      @UseChar('a') char c,
+      @UseDouble(1) double d,
+      @UseFloat(1) float f,
+      @UseInt(1) int i,
+      @UseLong(1) long l,
+      @UseNull Object o,
+      @UseShort(1) short s,
+      @UseString("string") String st) {}
+  
+  public enum SomeEnum {
+    VALUE
+  }
+}
\ No newline at end of file
@@ -16,14 +16,19 @@
 
 package com.matthewtamlin.spyglass.processor.validation;
 
+import com.matthewtamlin.avatar.rules.ElementId;
+import com.matthewtamlin.spyglass.markers.annotations.compositehandlers.CompositeHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificEnumHandler;
 import com.matthewtamlin.spyglass.markers.annotations.conditionalhandlers.SpecificFlagHandler;
 import com.matthewtamlin.spyglass.markers.annotations.defaults.*;
 import com.matthewtamlin.spyglass.markers.annotations.placeholders.*;
+import com.matthewtamlin.spyglass.markers.annotations.targets.AttrResourceIds;
+import com.matthewtamlin.spyglass.markers.annotations.targets.Styleable;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.BooleanHandler;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.DimensionHandler;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.FloatHandler;
 import com.matthewtamlin.spyglass.markers.annotations.unconditionalhandlers.StringHandler;
+import com.matthewtamlin.spyglass.markers.units.DimensionUnit;
 
 abstract class TestBasicValidatorData {
   @Target(isValid = true)
@@ -197,6 +202,62 @@ abstract class TestBasicValidatorData {
   @StringHandler(attributeId = 1)
   abstract void method38(Object o2);
   
+  @Target(isValid = true)
+  @CompositeHandler
+  void method52(
+      @DimensionHandler(attributeId = 1) @DefaultToDimension(value = 1, unit = DimensionUnit.DP) Object o1,
+      @UseInt(1) Object o2,
+      @FloatHandler(attributeId = 2) Object o3) {}
+  
+  @Target(isValid = true)
+  @CompositeHandler
+  void method53(@StringHandler(attributeId = 1) Object o1) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  void method54(@UseInt(1) Object o1) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  void method55() {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  void method56(@StringHandler(attributeId = 1) Object o1, Object o2) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  @StringHandler(attributeId = 1)
+  void method57(@StringHandler(attributeId = 2) Object o1) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  @DefaultToNull
+  void method58(@StringHandler(attributeId = 1) Object o1) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  void method59(@StringHandler(attributeId = 1) @FloatHandler(attributeId = 2) Object o1) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  void method60(@StringHandler(attributeId = 1) @DefaultToNull @DefaultToString("default") Object o1) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  void method61(@StringHandler(attributeId = 1) Object o1, @UseInt(1) @DefaultToInteger(1) Object o2) {}
+  
+  @Target(isValid = false)
+  @CompositeHandler
+  void method62(@StringHandler(attributeId = 1) @UseNull Object o1) {}
+  
+  @Target(isValid = false)
+  @StringHandler(attributeId = 1)
+  void method63(@FloatHandler(attributeId = 2) Object o1) {}
+  
+  @Target(isValid = false)
+  void method64(@DefaultToNull Object o1) {}
+  
   public class NonStaticInnerClass {
     @Target(isValid = true)
     @BooleanHandler(attributeId = 1)
@@ -236,4 +297,146 @@ abstract class TestBasicValidatorData {
       public void method47(Object o1) {}
     }
   }
+  
+  @AttrResourceIds
+  public static class ClassUsingAttrResourceIds {
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 0x7f010001)
+    public void method48(Object o1) {}
+    
+    @Target(isValid = false)
+    @BooleanHandler(attributeId = 1)
+    public void method49(Object o1) {}
+    
+    @Target(isValid = true)
+    @SpecificEnumHandler(attributeId = 0x7f010002, handledOrdinal = 1)
+    public void method50() {}
+    
+    @Target(isValid = false)
+    @SpecificEnumHandler(attributeId = 2, handledOrdinal = 1)
+    public void method51() {}
+    
+    @Target(isValid = true)
+    @CompositeHandler
+    public void method65(@BooleanHandler(attributeId = 0x7f010003) Object o1) {}
+    
+    @Target(isValid = false)
+    @CompositeHandler
+    public void method66(
+        @BooleanHandler(attributeId = 0x7f010003) Object o1,
+        @FloatHandler(attributeId = 4) Object o2) {}
+  }
+  
+  @ElementId("class with shared attribute")
+  public static class ClassWithSharedAttribute {
+    @Target(isValid = true)
+    @SpecificEnumHandler(attributeId = 1, handledOrdinal = 1)
+    public void method67() {}
+    
+    @Target(isValid = true)
+    @SpecificEnumHandler(attributeId = 1, handledOrdinal = 1)
+    public void method68() {}
+    
+    @Target(isValid = true)
+    @SpecificEnumHandler(attributeId = 1, handledOrdinal = 2)
+    public void method69() {}
+    
+    @Target(isValid = true)
+    @SpecificEnumHandler(attributeId = 2, handledOrdinal = 1)
+    public void method70() {}
+    
+    @Target(isValid = true)
+    @SpecificFlagHandler(attributeId = 1, handledFlags = 1)
+    public void method71() {}
+    
+    @Target(isValid = true)
+    @SpecificFlagHandler(attributeId = 1, handledFlags = 1)
+    public void method72() {}
+  }
+  
+  public static class ClassWithHandlers {
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 1)
+    public void method73(Object o1) {}
+    
+    public void method74(Object o1) {}
+  }
+  
+  public static class SubclassOfClassWithHandlers extends ClassWithHandlers {
+    @Target(isValid = true)
+    @Override
+    @BooleanHandler(attributeId = 1)
+    public void method73(Object o1) {}
+    
+    @Target(isValid = true)
+    @Override
+    @BooleanHandler(attributeId = 2)
+    public void method74(Object o1) {}
+    
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 3)
+    public void method73(String s1) {}
+  }
+  
+  public static class IndirectSubclassOfClassWithHandlers extends SubclassOfClassWithHandlers {
+    @Target(isValid = true)
+    @Override
+    @CompositeHandler
+    public void method74(@BooleanHandler(attributeId = 2) Object o1) {}
+  }
+  
+  @AttrResourceIds
+  public static class SubclassOfClassWithHandlersUsingAttrResourceIds extends ClassWithHandlers {
+    @Target(isValid = true)
+    @Override
+    @BooleanHandler(attributeId = 0x7f010001)
+    public void method73(Object o1) {}
+  }
+  
+  public static class SubclassOfClassUsingAttrResourceIds extends ClassUsingAttrResourceIds {
+    @Target(isValid = true)
+    @Override
+    @BooleanHandler(attributeId = 1)
+    public void method48(Object o1) {}
+  }
+  
+  @Styleable("Base")
+  public static class ClassWithStyleable {
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 1)
+    public void method75(Object o1) {}
+  }
+  
+  @ElementId("class with same styleable as superclass")
+  @Styleable("Base")
+  public static class ClassWithSameStyleableAsSuperclass extends ClassWithStyleable {
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 2)
+    public void method76(Object o1) {}
+  }
+  
+  @ElementId("class with other styleable than superclass")
+  @Styleable("Other")
+  public static class ClassWithOtherStyleableThanSuperclass extends ClassWithStyleable {
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 2)
+    public void method77(Object o1) {}
+  }
+  
+  @ElementId("class with styleable and superclass without styleable")
+  @Styleable("Base")
+  public static class ClassWithStyleableAndSuperclassWithoutStyleable extends ClassWithHandlers {
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 2)
+    public void method78(Object o1) {}
+  }
+  
+  @ElementId("class with styleable and attr resources")
+  @Styleable("Base")
+  @AttrResourceIds
+  public static class ClassWithStyleableAndAttrResourceIds {
+    @Target(isValid = true)
+    @BooleanHandler(attributeId = 0x7f010001)
+    public void method79(Object o1) {}
+  }
 }
\ No newline at end of file